@@ -0,0 +1,114 @@
+package com.noisevisionsoftware.nutrilog.service.category;
+
+import com.noisevisionsoftware.nutrilog.model.shopping.category.ProductCategoryData;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Przepustowość suggestCategory przy wielu czytelnikach i stałym, niewielkim strumieniu aktualizacji.
+ * Uruchomienie: ./gradlew jmh -Pjmh.includes=CategorizationThroughputBenchmark
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CategorizationThroughputBenchmark {
+
+    @Param({"3000"})
+    private int productCount;
+
+    private ProductCategorizationService service;
+    private List<ParsedProduct> queries;
+    private final AtomicInteger writeCounter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, ProductCategoryData> data = new HashMap<>();
+        for (int i = 0; i < productCount; i++) {
+            String name = "produkt " + Integer.toString(i, 26);
+            data.put(name, ProductCategoryData.builder()
+                    .productName(name)
+                    .categoryId("kategoria" + (i % 20))
+                    .usageCount(i % 50)
+                    .variations(new ArrayList<>(List.of(name + " świeży", name + " bio")))
+                    .build());
+        }
+
+        FirestoreCategoryDataManager dataManager = new FirestoreCategoryDataManager(null) {
+            @Override
+            public Map<String, ProductCategoryData> loadAllData() {
+                return data;
+            }
+
+            @Override
+            public void saveData(Map<String, ProductCategoryData> changed) {
+            }
+        };
+        CategorySnapshotStore snapshotStore = new CategorySnapshotStore() {
+            @Override
+            public Optional<StoredSnapshot> load() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<Instant> save(Map<String, ProductCategoryData> snapshotData) {
+                return Optional.empty();
+            }
+        };
+        service = new ProductCategorizationService(dataManager, snapshotStore, new SyncTaskExecutor());
+        service.init();
+        if (service.currentData().size() != productCount) {
+            // Pusty model (np. po błędzie wczytywania) dawałby wyniki bez znaczenia
+            throw new IllegalStateException("Wczytano " + service.currentData().size()
+                    + " produktów zamiast " + productCount);
+        }
+
+        queries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String name = "produkt " + Integer.toString(i * 7 % productCount, 26);
+            // Mieszanka dopasowań dokładnych, przez warianty, przybliżonych i braków dopasowania
+            String query = switch (i % 4) {
+                case 0 -> name;
+                case 1 -> name + " bio";
+                case 2 -> name + "x";
+                default -> "nieznany " + i;
+            };
+            queries.add(product(query));
+        }
+    }
+
+    @Benchmark
+    @Group("readersWithTrickleOfWriters")
+    @GroupThreads(7)
+    public String suggest() {
+        return service.suggestCategory(queries.get(ThreadLocalRandom.current().nextInt(queries.size())));
+    }
+
+    @Benchmark
+    @Group("readersWithTrickleOfWriters")
+    @GroupThreads(1)
+    public void update() {
+        int i = writeCounter.incrementAndGet();
+        ParsedProduct product = product("nowy produkt " + Integer.toString(i % productCount, 26));
+        product.setCategoryId("kategoria" + (i % 20));
+        service.updateCategorization(product);
+        // Ograniczenie tempa zapisów do "strużki" względem odczytów
+        Blackhole.consumeCPU(50_000);
+    }
+
+    private static ParsedProduct product(String name) {
+        return ParsedProduct.builder()
+                .name(name)
+                .original(name)
+                .quantity(1.0)
+                .unit("szt")
+                .build();
+    }
+}
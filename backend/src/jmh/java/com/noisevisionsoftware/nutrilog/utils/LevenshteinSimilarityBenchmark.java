@@ -0,0 +1,126 @@
+package com.noisevisionsoftware.nutrilog.utils;
+
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównanie jednego zapytania z listą nazw: dotychczasowa pełna macierz (SimilarityCalculator),
+ * commons-text bez progu i z progiem oraz LevenshteinSimilarity.
+ * Uruchomienie: ./gradlew jmh -Pjmh.includes=LevenshteinSimilarityBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LevenshteinSimilarityBenchmark {
+
+    private static final double THRESHOLD = 0.75;
+
+    @Param({"1000"})
+    private int candidateCount;
+
+    private String query;
+    private List<String> candidates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        String[] words = {"mleko", "ser", "jogurt", "chleb", "masło", "pomidor", "ogórek", "kurczak", "ryż", "makaron"};
+        candidates = new ArrayList<>(candidateCount);
+        for (int i = 0; i < candidateCount; i++) {
+            candidates.add(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]
+                    + (random.nextBoolean() ? " bio" : " świeży"));
+        }
+        query = "makaron pomidor świeży";
+    }
+
+    @Benchmark
+    public int fullMatrix() {
+        int matches = 0;
+        for (String candidate : candidates) {
+            int maxLength = Math.max(query.length(), candidate.length());
+            if (1.0 - (double) matrixDistance(query, candidate) / maxLength >= THRESHOLD) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int commonsText() {
+        LevenshteinDistance distance = LevenshteinDistance.getDefaultInstance();
+        int matches = 0;
+        for (String candidate : candidates) {
+            int maxLength = Math.max(query.length(), candidate.length());
+            if (1.0 - (double) distance.apply(query, candidate) / maxLength >= THRESHOLD) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int commonsTextWithThreshold() {
+        int matches = 0;
+        for (String candidate : candidates) {
+            int maxLength = Math.max(query.length(), candidate.length());
+            int limit = (int) Math.floor((1.0 - THRESHOLD) * maxLength);
+            if (new LevenshteinDistance(limit).apply(query, candidate) >= 0) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int bandedExact() {
+        int matches = 0;
+        for (String candidate : candidates) {
+            if (LevenshteinSimilarity.similarity(query, candidate) >= THRESHOLD) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int bandedWithThreshold() {
+        int matches = 0;
+        for (String candidate : candidates) {
+            if (LevenshteinSimilarity.similarity(query, candidate, THRESHOLD) >= THRESHOLD) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public double[] bandedBulk() {
+        return LevenshteinSimilarity.similarities(query, candidates, THRESHOLD);
+    }
+
+    /* Implementacja sprzed zmiany (SimilarityCalculator) - punkt odniesienia */
+    private static int matrixDistance(String a, String b) {
+        if (a.isEmpty()) return b.length();
+        if (b.isEmpty()) return a.length();
+
+        int[][] matrix = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            matrix[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            matrix[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
+                matrix[i][j] = Math.min(Math.min(matrix[i - 1][j] + 1, matrix[i][j - 1] + 1), matrix[i - 1][j - 1] + cost);
+            }
+        }
+        return matrix[a.length()][b.length()];
+    }
+}
@@ -43,10 +43,8 @@ public class CacheConfig {
         caches.add(new CaffeineCache("newsletterSubscribers", defaultCaffeine.build()));
         caches.add(new CaffeineCache("newsletterStats", defaultCaffeine.build()));
 
-        // Specjalne cache dla przepisów
+        // Specjalne cache dla przepisów; listy i strony przepisów korzystają z recipesCache (RecipeMultiGetCache)
         caches.add(new CaffeineCache("recipesCache", singleRecipeCaffeine().build()));
-        caches.add(new CaffeineCache("recipesBatchCache", batchRecipeCaffeine().build()));
-        caches.add(new CaffeineCache("recipesPageCache", pageResultsCaffeine().build()));
         caches.add(new CaffeineCache("recipesSearchCache", searchResultsCaffeine().build()));
 
         // Cache dla składników
@@ -56,7 +54,9 @@ public class CacheConfig {
         // Cache dla szablonów posiłków
         caches.add(new CaffeineCache("mealTemplatesCache", defaultCaffeine.build()));
         caches.add(new CaffeineCache("mealSearchCache", defaultCaffeine.build()));
-        caches.add(new CaffeineCache("mealSuggestionCache", searchResultsCaffeine().build()));
+
+        // Cache sparsowanych składników współdzielony przez import Excela, listy zakupów i kategoryzację
+        caches.add(new CaffeineCache("parsedProductsCache", parsedProductsCaffeine().build()));
 
         cacheManager.setCaches(caches);
         return cacheManager;
@@ -71,22 +71,6 @@ public class CacheConfig {
                 .recordStats();
     }
 
-    private Caffeine<Object, Object> batchRecipeCaffeine() {
-        return Caffeine.newBuilder()
-                .initialCapacity(50)
-                .maximumSize(200)                     // Mniej wpisów dla grup przepisów
-                .expireAfterWrite(30, TimeUnit.MINUTES) // Krótszy czas życia
-                .recordStats();
-    }
-
-    private Caffeine<Object, Object> pageResultsCaffeine() {
-        return Caffeine.newBuilder()
-                .initialCapacity(20)
-                .maximumSize(100)                     // Ograniczona liczba stron w cache
-                .expireAfterWrite(15, TimeUnit.MINUTES) // Krótki czas życia
-                .recordStats();
-    }
-
     private Caffeine<Object, Object> searchResultsCaffeine() {
         return Caffeine.newBuilder()
                 .initialCapacity(20)
@@ -103,6 +87,15 @@ public class CacheConfig {
                 .recordStats();
     }
 
+    private Caffeine<Object, Object> parsedProductsCaffeine() {
+        return Caffeine.newBuilder()
+                .initialCapacity(1000)
+                .maximumWeight(4_000_000)             // Waga wpisu ~ długość tekstu składnika w bajtach
+                .weigher((Object key, Object value) -> 128 + 4 * String.valueOf(key).length())
+                .expireAfterAccess(12, TimeUnit.HOURS)
+                .recordStats();
+    }
+
     @Bean
     public Cache<String, UserRole> roleCache() {
         return Caffeine.newBuilder()
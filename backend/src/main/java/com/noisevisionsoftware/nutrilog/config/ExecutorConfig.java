@@ -0,0 +1,36 @@
+package com.noisevisionsoftware.nutrilog.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pule wątków dla zadań w tle - blokujące wywołania (Firestore, magazyn plików) nie trafiają
+ * do wspólnej puli ForkJoinPool, a Spring zamyka pule razem z kontekstem aplikacji.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /* Uzgadnianie kategorii z Firestore - jedno naraz, kolejne zgłoszenie czeka najwyżej jedno */
+    @Bean
+    public ThreadPoolTaskExecutor categoryReconcileExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("category-reconcile-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /* Dekodowanie dużych zdjęć jest kosztowne, więc miniatury generują najwyżej dwa wątki */
+    @Bean
+    public ThreadPoolTaskExecutor thumbnailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setThreadNamePrefix("recipe-thumbnail-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -52,6 +52,8 @@ public class SecurityConfig {
                         // Te end pointy muszą być dostępne dla wszystkich, aby poprawnie wyświetlały się w aplikacji
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/public/**").permitAll()
+                        // Przesyłanie plików diet wymaga zalogowanego administratora - przed ogólnym dostępem do /api/diets
+                        .requestMatchers("/api/diets/upload/**").hasRole("ADMIN")
                         .requestMatchers("/api/diets/**").permitAll()
                         .requestMatchers("/api/recipes/**").permitAll()
                         .requestMatchers("/api/admin/**").hasRole("OWNER")
@@ -60,7 +62,6 @@ public class SecurityConfig {
                         .requestMatchers("/api/measurements/**").hasRole("ADMIN")
                         .requestMatchers("/api/changelog/**").hasRole("ADMIN")
                         .requestMatchers("/api/users/**").hasRole("ADMIN")
-                        .requestMatchers("/api/diets/upload/**").hasRole("ADMIN")
                         .requestMatchers("/api/diets/categorization/**").hasRole("ADMIN")
                         .requestMatchers("/api/diets/manager/**").hasRole("ADMIN")
                         .requestMatchers("/api/newsletter/**").permitAll()
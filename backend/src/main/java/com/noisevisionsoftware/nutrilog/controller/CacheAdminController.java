@@ -1,6 +1,9 @@
 package com.noisevisionsoftware.nutrilog.controller;
 
 import com.noisevisionsoftware.nutrilog.service.CacheMonitoringService;
+import com.noisevisionsoftware.nutrilog.service.RecipeMultiGetCache;
+import com.noisevisionsoftware.nutrilog.service.usage.TemplateUsageBuffer;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.session.UploadSessionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,12 +16,30 @@ import java.util.Map;
 public class CacheAdminController {
 
     private final CacheMonitoringService cacheMonitoringService;
+    private final RecipeMultiGetCache recipeMultiGetCache;
+    private final TemplateUsageBuffer templateUsageBuffer;
+    private final UploadSessionService uploadSessionService;
 
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Map<String, Object>>> getCacheStatistics() {
         return ResponseEntity.ok(cacheMonitoringService.getCacheStatistics());
     }
 
+    @GetMapping("/stats/recipes-multi-get")
+    public ResponseEntity<Map<String, Object>> getRecipeMultiGetStatistics() {
+        return ResponseEntity.ok(recipeMultiGetCache.getStatistics());
+    }
+
+    @GetMapping("/stats/template-usage")
+    public ResponseEntity<Map<String, Object>> getTemplateUsageStatistics() {
+        return ResponseEntity.ok(templateUsageBuffer.getStatistics());
+    }
+
+    @GetMapping("/stats/upload-sessions")
+    public ResponseEntity<Map<String, Object>> getUploadSessionStatistics() {
+        return ResponseEntity.ok(uploadSessionService.getStatistics());
+    }
+
     @PostMapping("/{cacheName}/invalidate")
     public ResponseEntity<String> invalidateCache(@PathVariable String cacheName) {
         cacheMonitoringService.invalidateCache(cacheName);
@@ -28,8 +49,6 @@ public class CacheAdminController {
     @PostMapping("/invalidate-all")
     public ResponseEntity<String> invalidateAllCaches() {
         cacheMonitoringService.invalidateCache("recipesCache");
-        cacheMonitoringService.invalidateCache("recipesBatchCache");
-        cacheMonitoringService.invalidateCache("recipesPageCache");
         cacheMonitoringService.invalidateCache("recipesSearchCache");
         return ResponseEntity.ok("All caches invalidated successfully");
     }
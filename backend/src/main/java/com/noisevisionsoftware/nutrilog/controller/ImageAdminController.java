@@ -0,0 +1,30 @@
+package com.noisevisionsoftware.nutrilog.controller;
+
+import com.noisevisionsoftware.nutrilog.service.image.OrphanedImageReaper;
+import com.noisevisionsoftware.nutrilog.service.image.TemporaryImageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/images")
+@RequiredArgsConstructor
+public class ImageAdminController {
+
+    private final TemporaryImageService temporaryImageService;
+    private final OrphanedImageReaper orphanedImageReaper;
+
+    @GetMapping("/stats/temporary")
+    public ResponseEntity<Map<String, Object>> getTemporaryImageStatistics() {
+        return ResponseEntity.ok(temporaryImageService.getStatistics());
+    }
+
+    @GetMapping("/stats/orphans")
+    public ResponseEntity<Map<String, Object>> getOrphanedImageStatistics() {
+        return ResponseEntity.ok(orphanedImageReaper.getStatistics());
+    }
+}
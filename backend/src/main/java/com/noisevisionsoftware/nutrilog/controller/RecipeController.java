@@ -3,10 +3,13 @@ package com.noisevisionsoftware.nutrilog.controller;
 import com.noisevisionsoftware.nutrilog.dto.request.recipe.RecipeUpdateRequest;
 import com.noisevisionsoftware.nutrilog.dto.response.recipe.RecipeImageResponse;
 import com.noisevisionsoftware.nutrilog.dto.response.recipe.RecipeResponse;
+import com.noisevisionsoftware.nutrilog.dto.response.recipe.RecipesCursorResponse;
 import com.noisevisionsoftware.nutrilog.dto.response.recipe.RecipesPageResponse;
 import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
 import com.noisevisionsoftware.nutrilog.mapper.recipe.RecipeMapper;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeCursorPage;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeSearchResult;
 import com.noisevisionsoftware.nutrilog.service.RecipeService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -27,7 +30,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/recipes")
@@ -49,9 +51,7 @@ public class RecipeController {
         Pageable pageable = PageRequest.of(page, size, sort);
 
         Page<Recipe> recipesPage = recipeService.getAllRecipes(pageable);
-        List<RecipeResponse> content = recipesPage.getContent().stream()
-                .map(recipeMapper::toResponse)
-                .collect(Collectors.toList());
+        List<RecipeResponse> content = recipeMapper.toResponses(recipesPage.getContent());
 
         RecipesPageResponse response = RecipesPageResponse.builder()
                 .content(content)
@@ -64,6 +64,26 @@ public class RecipeController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<RecipesCursorResponse> getRecipesAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        RecipeCursorPage recipesPage;
+        try {
+            recipesPage = recipeService.getRecipesAfter(after, limit);
+        } catch (IllegalArgumentException e) {
+            log.warn("Nieprawidłowy kursor stronicowania przepisów: {}", after);
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<RecipeResponse> content = recipeMapper.toResponses(recipesPage.getContent());
+
+        return ResponseEntity.ok(RecipesCursorResponse.builder()
+                .content(content)
+                .nextCursor(recipesPage.getNextCursor())
+                .build());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<RecipeResponse> getRecipeById(@PathVariable String id) {
         try {
@@ -85,11 +105,7 @@ public class RecipeController {
 
         List<Recipe> recipes = recipeService.getRecipesByIds(requestedIds);
 
-        return ResponseEntity.ok(
-                recipes.stream()
-                        .map(recipeMapper::toResponse)
-                        .collect(Collectors.toList())
-        );
+        return ResponseEntity.ok(recipeMapper.toResponses(recipes));
     }
 
     @PutMapping("/{id}")
@@ -134,13 +150,13 @@ public class RecipeController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<RecipeResponse>> searchRecipes(@RequestParam String query) {
-        List<Recipe> searchResults = recipeService.searchRecipes(query);
-        return ResponseEntity.ok(
-                searchResults.stream()
-                        .map(recipeMapper::toResponse)
-                        .collect(Collectors.toList())
-        );
+    public ResponseEntity<List<RecipeResponse>> searchRecipes(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "50") int limit) {
+        List<RecipeSearchResult> searchResults = recipeService.searchRecipes(query, limit);
+        return ResponseEntity.ok(recipeMapper.toResponses(searchResults.stream()
+                .map(RecipeSearchResult::getRecipe)
+                .toList()));
     }
 
     @PostMapping(value = "/base64-image")
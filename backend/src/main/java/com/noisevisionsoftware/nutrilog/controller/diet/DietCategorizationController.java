@@ -9,7 +9,7 @@ import com.noisevisionsoftware.nutrilog.service.category.FirestoreCategoryDataMa
 import com.noisevisionsoftware.nutrilog.service.category.ProductCategorizationService;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsingResult;
-import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ProductParsingService;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ParsedProductCacheService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,7 +27,7 @@ public class DietCategorizationController {
 
     private final ProductCategorizationService categorizationService;
     private final FirestoreCategoryDataManager firestoreCategoryDataManager;
-    private final ProductParsingService productParsingService;
+    private final ParsedProductCacheService parsedProductCacheService;
     private final List<Category> defaultCategories;
 
     @PostMapping("/parse")
@@ -40,7 +40,7 @@ public class DietCategorizationController {
 
         for (String productText : request.getProducts()) {
             try {
-                ParsingResult result = productParsingService.parseProduct(productText);
+                ParsingResult result = parsedProductCacheService.parseProductWithCategory(productText);
                 ParsedProduct product;
 
                 if (result.isSuccess() && result.getProduct() != null) {
@@ -55,10 +55,10 @@ public class DietCategorizationController {
                             .hasCustomUnit(false)
                             .categoryId(null)
                             .build();
-                }
 
-                String categoryId = categorizationService.suggestCategory(product);
-                product.setCategoryId(categoryId);
+                    String categoryId = categorizationService.suggestCategory(product);
+                    product.setCategoryId(categoryId);
+                }
 
                 parsedProducts.add(product);
             } catch (Exception e) {
@@ -152,6 +152,11 @@ public class DietCategorizationController {
         return ResponseEntity.ok(defaultCategories);
     }
 
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getCategorizationStats() {
+        return ResponseEntity.ok(categorizationService.getSnapshotStatistics());
+    }
+
     @PostMapping("/suggest")
     public ResponseEntity<Map<String, String>> suggestCategory(@RequestBody ParsedProduct product) {
         try {
@@ -3,6 +3,7 @@ package com.noisevisionsoftware.nutrilog.controller.diet;
 import com.noisevisionsoftware.nutrilog.dto.request.diet.DietRequest;
 import com.noisevisionsoftware.nutrilog.dto.response.diet.DietInfo;
 import com.noisevisionsoftware.nutrilog.dto.response.diet.DietResponse;
+import com.noisevisionsoftware.nutrilog.exception.DietConcurrentModificationException;
 import com.noisevisionsoftware.nutrilog.exception.DietOverlapException;
 import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
 import com.noisevisionsoftware.nutrilog.mapper.diet.DietMapper;
@@ -75,7 +76,7 @@ public class DietController {
             Diet diet = dietMapper.toDomain(request);
             diet.setId(id);
 
-            Diet updatedDiet = dietService.updateDiet(diet);
+            Diet updatedDiet = dietService.updateDiet(diet, request.getUpdatedAt());
 
             return ResponseEntity.ok(dietMapper.toResponse(updatedDiet));
         } catch (Exception e) {
@@ -106,4 +107,13 @@ public class DietController {
         return ResponseEntity.status(HttpStatus.CONFLICT)
                 .body(problem);
     }
+
+    @ExceptionHandler(DietConcurrentModificationException.class)
+    public ResponseEntity<ProblemDetail> handleDietConcurrentModificationException(DietConcurrentModificationException ex) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(
+                HttpStatus.CONFLICT, ex.getMessage());
+        problem.setTitle("Równoległa zmiana diety");
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(problem);
+    }
 }
\ No newline at end of file
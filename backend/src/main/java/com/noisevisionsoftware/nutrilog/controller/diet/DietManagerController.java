@@ -2,11 +2,14 @@ package com.noisevisionsoftware.nutrilog.controller.diet;
 
 import com.noisevisionsoftware.nutrilog.dto.request.diet.SaveDietRequest;
 import com.noisevisionsoftware.nutrilog.dto.response.diet.SaveDietResponse;
+import com.noisevisionsoftware.nutrilog.security.model.FirebaseUser;
 import com.noisevisionsoftware.nutrilog.service.diet.DietManagerService;
 import com.noisevisionsoftware.nutrilog.service.firebase.FileStorageService;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.session.UploadSessionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -21,6 +24,7 @@ public class DietManagerController {
 
     private final DietManagerService dietManagerService;
     private final FileStorageService storageService;
+    private final UploadSessionService uploadSessionService;
 
     @PostMapping("/upload")
     public ResponseEntity<Map<String, String>> uploadFile(
@@ -50,7 +54,8 @@ public class DietManagerController {
     }
 
     @PostMapping("/save")
-    public ResponseEntity<SaveDietResponse> saveDiet(@RequestBody SaveDietRequest request) {
+    public ResponseEntity<SaveDietResponse> saveDiet(@RequestBody SaveDietRequest request,
+                                                     @AuthenticationPrincipal FirebaseUser currentUser) {
         try {
             String dietId = dietManagerService.saveDietWithShoppingList(
                     request.getParsedData(),
@@ -58,6 +63,11 @@ public class DietManagerController {
                     request.getFileInfo()
             );
 
+            // Plik z sesji przesyłania jest już zapisany - sesja nie jest dłużej potrzebna
+            if (currentUser != null && request.getUploadSessionId() != null) {
+                uploadSessionService.invalidate(request.getUploadSessionId(), currentUser.getUid());
+            }
+
             return ResponseEntity.ok(new SaveDietResponse(
                     dietId,
                     "Dieta została pomyślnie zapisana"
@@ -5,8 +5,10 @@ import com.noisevisionsoftware.nutrilog.dto.request.diet.DietTemplateExcelReques
 import com.noisevisionsoftware.nutrilog.dto.response.DietPreviewResponse;
 import com.noisevisionsoftware.nutrilog.dto.response.ErrorResponse;
 import com.noisevisionsoftware.nutrilog.dto.response.ValidationResponse;
+import com.noisevisionsoftware.nutrilog.exception.AuthenticationException;
 import com.noisevisionsoftware.nutrilog.exception.DietValidationException;
 import com.noisevisionsoftware.nutrilog.model.meal.MealType;
+import com.noisevisionsoftware.nutrilog.security.model.FirebaseUser;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedDay;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedMeal;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
@@ -14,18 +16,21 @@ import com.noisevisionsoftware.nutrilog.utils.excelParser.model.validation.Valid
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.validation.ValidationSeverity;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.service.DietExcelTemplateService;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ExcelParserService;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.session.UploadSession;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.session.UploadSessionService;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.service.validation.CalorieValidator;
-import com.noisevisionsoftware.nutrilog.utils.excelParser.service.validation.ExcelStructureValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.propertyeditors.CustomDateEditor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
@@ -39,8 +44,7 @@ import java.util.stream.Collectors;
 @Slf4j
 public class DietUploadController {
 
-    private final ExcelStructureValidator excelStructureValidator;
-    private final ExcelParserService excelParserService;
+    private final UploadSessionService uploadSessionService;
     private final DietExcelTemplateService dietExcelTemplateService;
     private final CalorieValidator calorieValidator;
 
@@ -64,7 +68,10 @@ public class DietUploadController {
     @PostMapping(value = "/validate",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ValidationResponse> validateFile(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<ValidationResponse> validateFile(
+            @RequestParam("file") MultipartFile file,
+            @AuthenticationPrincipal FirebaseUser currentUser) {
+        String ownerId = requireUserId(currentUser);
         try {
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest()
@@ -77,7 +84,8 @@ public class DietUploadController {
                         ));
             }
 
-            List<ValidationResult> results = excelStructureValidator.validateExcelStructure(file);
+            UploadSession session = uploadSessionService.openSession(file, ownerId);
+            List<ValidationResult> results = session.getStructureValidation();
             boolean hasErrors = results.stream()
                     .anyMatch(result -> result.severity() == ValidationSeverity.ERROR);
 
@@ -94,6 +102,7 @@ public class DietUploadController {
             if (matcher.find()) {
                 additionalData.put("totalMeals", Integer.parseInt(matcher.group(1)));
             }
+            additionalData.put("uploadSessionId", session.getId());
 
             return ResponseEntity.ok(new ValidationResponse(
                     !hasErrors,
@@ -120,9 +129,12 @@ public class DietUploadController {
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<ValidationResponse> validateDietTemplate(
-            @ModelAttribute DietTemplateExcelRequest request) {
+            @ModelAttribute DietTemplateExcelRequest request,
+            @AuthenticationPrincipal FirebaseUser currentUser) {
+        String ownerId = requireUserId(currentUser);
         try {
-            ValidationResponse response = dietExcelTemplateService.validateDietTemplate(request);
+            ValidationResponse response =
+                    dietExcelTemplateService.validateDietTemplate(request, null, ownerId);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             log.error("Błąd podczas walidacji szablonu diety", e);
@@ -145,9 +157,12 @@ public class DietUploadController {
             produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<ValidationResponse> validateDietTemplateWithUser(
             @ModelAttribute DietTemplateExcelRequest request,
-            @RequestParam(required = false) String userId) {
+            @RequestParam(required = false) String userId,
+            @AuthenticationPrincipal FirebaseUser currentUser) {
+        String ownerId = requireUserId(currentUser);
         try {
-            ValidationResponse response = dietExcelTemplateService.validateDietTemplate(request, userId);
+            ValidationResponse response =
+                    dietExcelTemplateService.validateDietTemplate(request, userId, ownerId);
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -170,7 +185,8 @@ public class DietUploadController {
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> previewDiet(
-            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "uploadSessionId", required = false) String uploadSessionId,
             @RequestParam("mealsPerDay") int mealsPerDay,
             @RequestParam("startDate") String startDate,
             @RequestParam("duration") int duration,
@@ -179,8 +195,10 @@ public class DietUploadController {
             @RequestParam(value = "skipColumnsCount", required = false) Integer skipColumnsCount,
             @RequestParam(value = "calorieValidationEnabled", required = false) Boolean calorieValidationEnabled,
             @RequestParam(value = "targetCalories", required = false) Integer targetCalories,
-            @RequestParam(value = "calorieErrorMargin", required = false) Integer calorieErrorMargin
+            @RequestParam(value = "calorieErrorMargin", required = false) Integer calorieErrorMargin,
+            @AuthenticationPrincipal FirebaseUser currentUser
     ) {
+        String ownerId = requireUserId(currentUser);
         Map<String, String> mealTimes = new HashMap<>();
         for (int i = 0; i < mealsPerDay; i++) {
             String key = "meal_" + i;
@@ -191,7 +209,7 @@ public class DietUploadController {
         }
 
         try {
-            validateInput(file, mealsPerDay, startDate, duration, mealTimes, mealTypes);
+            validateInput(file, uploadSessionId, mealsPerDay, startDate, duration, mealTimes, mealTypes);
 
             // Walidacja parametrów kalorii
             if (Boolean.TRUE.equals(calorieValidationEnabled) && (targetCalories == null || targetCalories <= 0)) {
@@ -200,15 +218,17 @@ public class DietUploadController {
                         .body(new ErrorResponse("Walidacja kalorii wymaga poprawnej wartości docelowej"));
             }
 
-            ExcelParserService.ParsedExcelResult parseResult;
-            if (skipColumnsCount != null) {
-                parseResult = excelParserService.parseDietExcel(file, skipColumnsCount);
-            } else {
-                parseResult = excelParserService.parseDietExcel(file);
-            }
+            UploadSession session = resolveUploadSession(file, uploadSessionId, ownerId);
+            ExcelParserService.ParsedExcelResult parseResult =
+                    uploadSessionService.getParseResult(session, skipColumnsCount);
+
+            // Posiłki z sesji są współdzielone, więc podgląd pracuje na ich kopiach
+            List<ParsedMeal> meals = parseResult.meals().stream()
+                    .map(this::copyMeal)
+                    .collect(Collectors.toList());
 
             List<ParsedDay> days = generateDietDays(
-                    parseResult.meals(),
+                    meals,
                     mealsPerDay,
                     startDate,
                     duration,
@@ -217,10 +237,11 @@ public class DietUploadController {
             );
 
             Map<String, Object> additionalData = new HashMap<>();
+            additionalData.put("uploadSessionId", session.getId());
 
             if (Boolean.TRUE.equals(calorieValidationEnabled) && targetCalories != null) {
                 DietPreviewResponse response = validateAndProcessCalories(
-                        parseResult.meals(),
+                        meals,
                         days,
                         parseResult.shoppingList(),
                         mealsPerDay,
@@ -253,6 +274,38 @@ public class DietUploadController {
         }
     }
 
+    /**
+     * Sesje przesyłania są przypisane do użytkownika - bez zalogowanego użytkownika zwracane jest 401
+     */
+    private static String requireUserId(FirebaseUser currentUser) {
+        if (currentUser == null || currentUser.getUid() == null) {
+            throw new AuthenticationException("Wymagane zalogowanie");
+        }
+        return currentUser.getUid();
+    }
+
+    private UploadSession resolveUploadSession(MultipartFile file, String uploadSessionId, String ownerId)
+            throws IOException {
+        if (uploadSessionId != null && !uploadSessionId.isBlank()) {
+            return uploadSessionService.findSession(uploadSessionId, ownerId)
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "Sesja przesyłania pliku wygasła. Prześlij plik ponownie."));
+        }
+        return uploadSessionService.openSession(file, ownerId);
+    }
+
+    private ParsedMeal copyMeal(ParsedMeal meal) {
+        return ParsedMeal.builder()
+                .name(meal.getName())
+                .instructions(meal.getInstructions())
+                .ingredients(meal.getIngredients())
+                .nutritionalValues(meal.getNutritionalValues())
+                .mealType(meal.getMealType())
+                .time(meal.getTime())
+                .photos(meal.getPhotos())
+                .build();
+    }
+
     private Map<String, String> extractMealTimes(Map<String, String> allParams) {
         return allParams.entrySet().stream()
                 .filter(entry -> entry.getKey().startsWith("mealTimes["))
@@ -262,11 +315,12 @@ public class DietUploadController {
                 ));
     }
 
-    private void validateInput(MultipartFile file, int mealsPerDay, String startDate,
+    private void validateInput(MultipartFile file, String uploadSessionId, int mealsPerDay, String startDate,
                                int duration, Map<String, String> mealTimes, List<String> mealTypes) {
         List<String> errors = new ArrayList<>();
 
-        if (file == null || file.isEmpty()) {
+        boolean hasUploadSession = uploadSessionId != null && !uploadSessionId.isBlank();
+        if (!hasUploadSession && (file == null || file.isEmpty())) {
             errors.add("Plik jest wymagany");
         }
 
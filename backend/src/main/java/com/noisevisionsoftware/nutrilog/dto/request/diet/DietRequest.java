@@ -1,5 +1,6 @@
 package com.noisevisionsoftware.nutrilog.dto.request.diet;
 
+import com.google.cloud.Timestamp;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -25,4 +26,9 @@ public class DietRequest {
 
     @Valid
     private DietMetadataRequest metadata;
+
+    /**
+     * updatedAt diety odczytanej przez klienta - przy aktualizacji zapis tylko, jeśli dieta się od tego czasu nie zmieniła
+     */
+    private Timestamp updatedAt;
 }
\ No newline at end of file
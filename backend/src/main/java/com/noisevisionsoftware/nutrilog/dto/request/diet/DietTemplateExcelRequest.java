@@ -23,6 +23,11 @@ public class DietTemplateExcelRequest {
     private Boolean calorieValidationEnabled;
     private Integer targetCalories;
     private Integer calorieErrorMargin;
+    private String uploadSessionId;
+
+    public boolean hasUploadSession() {
+        return uploadSessionId != null && !uploadSessionId.isBlank();
+    }
 
     // Metoda pomocnicza do sprawdzenia, czy walidacja kalorii jest wymagana
     public boolean isCalorieValidationRequired() {
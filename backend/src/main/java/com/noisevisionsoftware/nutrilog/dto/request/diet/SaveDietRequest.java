@@ -13,5 +13,6 @@ public class SaveDietRequest {
     private ParsedDietData parsedData;
     private String userId;
     private DietFileInfo fileInfo;
+    private String uploadSessionId;
 }
 
@@ -11,4 +11,5 @@ public class DietInfo {
     private boolean hasDiet;
     private Timestamp startDate;
     private Timestamp endDate;
+    private String activeDietId;
 }
@@ -19,6 +19,7 @@ public class RecipeResponse {
     private String instructions;
     private Timestamp createdAt;
     private List<String> photos;
+    private List<String> thumbnails;
     private NutritionalValuesResponse nutritionalValues;
     private String parentRecipeId;
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.noisevisionsoftware.nutrilog.dto.response.recipe;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class RecipesCursorResponse {
+
+    private List<RecipeResponse> content;
+    private String nextCursor;
+}
@@ -0,0 +1,11 @@
+package com.noisevisionsoftware.nutrilog.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class DietConcurrentModificationException extends RuntimeException {
+    public DietConcurrentModificationException(String message) {
+        super(message);
+    }
+}
@@ -25,6 +25,10 @@ public class FirestoreDietMapper {
         data.put("days", diet.getDays().stream()
                 .map(this::dayToMap)
                 .collect(Collectors.toList()));
+        // Daty pierwszego i ostatniego dnia - do sprawdzania okresów diet bez wczytywania listy dni
+        boolean hasDays = !diet.getDays().isEmpty();
+        data.put("startDate", hasDays ? diet.getDays().getFirst().getDate() : null);
+        data.put("endDate", hasDays ? diet.getDays().getLast().getDate() : null);
         data.put("metadata", metadataToMap(diet.getMetadata()));
         return data;
     }
@@ -0,0 +1,71 @@
+package com.noisevisionsoftware.nutrilog.mapper.diet;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.noisevisionsoftware.nutrilog.model.diet.DietPeriod;
+import com.noisevisionsoftware.nutrilog.model.diet.DietSummary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Component
+public class FirestoreDietSummaryMapper {
+
+    public Map<String, Object> toFirestoreMap(DietSummary summary) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("userId", summary.getUserId());
+        data.put("hasDiet", summary.isHasDiet());
+        data.put("startDate", summary.getStartDate());
+        data.put("endDate", summary.getEndDate());
+        data.put("periods", summary.getPeriods().stream()
+                .map(this::periodToMap)
+                .collect(Collectors.toList()));
+        // Osobna lista ID - do znalezienia podsumowania po usunięciu diety (whereArrayContains)
+        data.put("dietIds", summary.getDietIds());
+        data.put("updatedAt", Timestamp.now());
+        return data;
+    }
+
+    private Map<String, Object> periodToMap(DietPeriod period) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("dietId", period.dietId());
+        data.put("startDate", period.startDate());
+        data.put("endDate", period.endDate());
+        return data;
+    }
+
+    @SuppressWarnings("unchecked")
+    public DietSummary toDietSummary(DocumentSnapshot document) {
+        if (document == null || !document.exists()) return null;
+
+        Map<String, Object> data = document.getData();
+        if (data == null) return null;
+
+        return DietSummary.builder()
+                .userId(document.getId())
+                .hasDiet(Boolean.TRUE.equals(data.get("hasDiet")))
+                .startDate(getTimestampValue(data, "startDate"))
+                .endDate(getTimestampValue(data, "endDate"))
+                .periods(toPeriods((List<Map<String, Object>>) data.get("periods")))
+                .build();
+    }
+
+    private List<DietPeriod> toPeriods(List<Map<String, Object>> periodsData) {
+        if (periodsData == null) return new ArrayList<>();
+        return periodsData.stream()
+                .map(periodData -> new DietPeriod(
+                        (String) periodData.get("dietId"),
+                        getTimestampValue(periodData, "startDate"),
+                        getTimestampValue(periodData, "endDate")))
+                .collect(Collectors.toList());
+    }
+
+    private Timestamp getTimestampValue(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Timestamp ? (Timestamp) value : null;
+    }
+}
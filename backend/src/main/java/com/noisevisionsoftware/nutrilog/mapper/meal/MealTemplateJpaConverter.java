@@ -36,6 +36,7 @@ public class MealTemplateJpaConverter {
                 .mealType(entity.getMealType())
                 .category(entity.getCategory())
                 .createdBy(entity.getCreatedBy())
+                .isPublic(entity.isPublic())
                 .createdAt(convertToTimestamp(entity.getCreatedAt()))
                 .updatedAt(convertToTimestamp(entity.getUpdatedAt()))
                 .lastUsed(convertToTimestamp(entity.getLastUsed()))
@@ -53,6 +54,7 @@ public class MealTemplateJpaConverter {
                 .mealType(model.getMealType())
                 .category(model.getCategory())
                 .createdBy(model.getCreatedBy())
+                .isPublic(model.isPublic())
                 .createdAt(convertToLocalDateTime(model.getCreatedAt()))
                 .updatedAt(convertToLocalDateTime(model.getUpdatedAt()))
                 .lastUsed(convertToLocalDateTime(model.getLastUsed()))
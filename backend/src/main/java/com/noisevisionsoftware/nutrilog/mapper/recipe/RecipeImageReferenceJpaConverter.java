@@ -13,6 +13,8 @@ public class RecipeImageReferenceJpaConverter {
         RecipeImageReferenceEntity entity = RecipeImageReferenceEntity.builder()
                 .imageUrl(model.getImageUrl())
                 .storagePath(model.getStoragePath())
+                .contentHash(model.getContentHash())
+                .thumbnailPath(model.getThumbnailPath())
                 .referenceCount(model.getReferenceCount())
                 .build();
 
@@ -34,6 +36,8 @@ public class RecipeImageReferenceJpaConverter {
                 .id(entity.getId().toString())
                 .imageUrl(entity.getImageUrl())
                 .storagePath(entity.getStoragePath())
+                .contentHash(entity.getContentHash())
+                .thumbnailPath(entity.getThumbnailPath())
                 .referenceCount(entity.getReferenceCount())
                 .build();
     }
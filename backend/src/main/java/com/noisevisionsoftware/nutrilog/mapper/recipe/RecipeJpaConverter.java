@@ -105,7 +105,7 @@ public class RecipeJpaConverter {
                 .name(entity.getName())
                 .instructions(entity.getInstructions())
                 .createdAt(createdAt)
-                .photos(entity.getPhotos())
+                .photos(entity.getPhotos() != null ? new ArrayList<>(entity.getPhotos()) : new ArrayList<>())
                 .ingredients(convertIngredients(entity.getIngredients()))
                 .nutritionalValues(nutritionalValues)
                 .parentRecipeId(entity.getParentRecipeId())
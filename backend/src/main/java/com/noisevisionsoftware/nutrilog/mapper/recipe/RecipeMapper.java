@@ -5,18 +5,43 @@ import com.noisevisionsoftware.nutrilog.dto.response.recipe.NutritionalValuesRes
 import com.noisevisionsoftware.nutrilog.dto.response.recipe.RecipeResponse;
 import com.noisevisionsoftware.nutrilog.model.recipe.NutritionalValues;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.service.image.RecipeThumbnailService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class RecipeMapper {
 
+    private final RecipeThumbnailService recipeThumbnailService;
+
     public RecipeResponse toResponse(Recipe recipe) {
         if (recipe == null) return null;
 
+        return toResponse(recipe, recipeThumbnailService.resolve(photosOf(recipe)));
+    }
+
+    /**
+     * Lista przepisów z miniaturami ustalonymi jednym zapytaniem dla wszystkich zdjęć
+     */
+    public List<RecipeResponse> toResponses(List<Recipe> recipes) {
+        Map<String, String> thumbnails = recipeThumbnailService.resolve(recipes.stream()
+                .filter(Objects::nonNull)
+                .flatMap(recipe -> photosOf(recipe).stream())
+                .toList());
+
+        return recipes.stream()
+                .map(recipe -> recipe != null ? toResponse(recipe, thumbnails) : null)
+                .collect(Collectors.toList());
+    }
+
+    private RecipeResponse toResponse(Recipe recipe, Map<String, String> thumbnails) {
         return RecipeResponse.builder()
                 .id(recipe.getId())
                 .originalId(recipe.getId())
@@ -24,6 +49,7 @@ public class RecipeMapper {
                 .instructions(recipe.getInstructions())
                 .createdAt(recipe.getCreatedAt())
                 .photos(recipe.getPhotos() != null ? recipe.getPhotos() : new ArrayList<>())
+                .thumbnails(toThumbnails(recipe.getPhotos(), thumbnails))
                 .nutritionalValues(toNutritionalValuesResponse(recipe.getNutritionalValues()))
                 .parentRecipeId(recipe.getParentRecipeId())
                 .build();
@@ -48,6 +74,21 @@ public class RecipeMapper {
                 .build();
     }
 
+    /*
+     * Miniatury dla list (w kolejności zdjęć); zdjęcia bez zapisanej miniatury zwracają adres oryginału
+     * */
+    private List<String> toThumbnails(List<String> photos, Map<String, String> thumbnails) {
+        if (photos == null) return new ArrayList<>();
+
+        return photos.stream()
+                .map(photo -> thumbnails.getOrDefault(photo, photo))
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> photosOf(Recipe recipe) {
+        return recipe.getPhotos() != null ? recipe.getPhotos() : List.of();
+    }
+
     private NutritionalValuesResponse toNutritionalValuesResponse(NutritionalValues values) {
         if (values == null) return null;
 
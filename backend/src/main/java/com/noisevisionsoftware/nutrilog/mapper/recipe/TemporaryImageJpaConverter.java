@@ -0,0 +1,42 @@
+package com.noisevisionsoftware.nutrilog.mapper.recipe;
+
+import com.noisevisionsoftware.nutrilog.model.recipe.TemporaryImage;
+import com.noisevisionsoftware.nutrilog.model.recipe.jpa.TemporaryImageEntity;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TemporaryImageJpaConverter {
+
+    public TemporaryImageEntity toJpaEntity(TemporaryImage model) {
+        if (model == null) return null;
+
+        TemporaryImageEntity entity = TemporaryImageEntity.builder()
+                .imageUrl(model.getImageUrl())
+                .storagePath(model.getStoragePath())
+                .sizeBytes(model.getSizeBytes())
+                .createdAt(model.getCreatedAt())
+                .build();
+
+        if (model.getId() != null && !model.getId().isEmpty()) {
+            try {
+                entity.setId(Long.parseLong(model.getId()));
+            } catch (NumberFormatException ignored) {
+
+            }
+        }
+
+        return entity;
+    }
+
+    public TemporaryImage toModel(TemporaryImageEntity entity) {
+        if (entity == null) return null;
+
+        return TemporaryImage.builder()
+                .id(entity.getId().toString())
+                .imageUrl(entity.getImageUrl())
+                .storagePath(entity.getStoragePath())
+                .sizeBytes(entity.getSizeBytes())
+                .createdAt(entity.getCreatedAt())
+                .build();
+    }
+}
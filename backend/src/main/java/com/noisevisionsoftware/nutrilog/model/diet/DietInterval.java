@@ -0,0 +1,29 @@
+package com.noisevisionsoftware.nutrilog.model.diet;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.utils.DateUtils;
+
+import java.util.Optional;
+
+/**
+ * Okres obowiązywania diety: dni (epoch day) pierwszego i ostatniego dnia diety, bez jej zawartości
+ */
+public record DietInterval(String dietId, long startEpochDay, long endEpochDay) {
+
+    public static Optional<DietInterval> of(String dietId, Timestamp startDate, Timestamp endDate) {
+        if (dietId == null || startDate == null || endDate == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new DietInterval(dietId, DateUtils.toEpochDay(startDate), DateUtils.toEpochDay(endDate)));
+    }
+
+    /**
+     * Okres diety na podstawie pierwszego i ostatniego dnia z listy dni
+     */
+    public static Optional<DietInterval> of(Diet diet) {
+        if (diet.getDays() == null || diet.getDays().isEmpty()) {
+            return Optional.empty();
+        }
+        return of(diet.getId(), diet.getDays().getFirst().getDate(), diet.getDays().getLast().getDate());
+    }
+}
@@ -0,0 +1,22 @@
+package com.noisevisionsoftware.nutrilog.model.diet;
+
+import com.google.cloud.Timestamp;
+
+import java.util.Optional;
+
+/**
+ * Okres diety z datami pierwszego i ostatniego dnia; daty są puste dla diety bez dni
+ */
+public record DietPeriod(String dietId, Timestamp startDate, Timestamp endDate) {
+
+    public Optional<DietInterval> toInterval() {
+        return DietInterval.of(dietId, startDate, endDate);
+    }
+
+    public static DietPeriod of(Diet diet) {
+        if (diet.getDays() == null || diet.getDays().isEmpty()) {
+            return new DietPeriod(diet.getId(), null, null);
+        }
+        return new DietPeriod(diet.getId(), diet.getDays().getFirst().getDate(), diet.getDays().getLast().getDate());
+    }
+}
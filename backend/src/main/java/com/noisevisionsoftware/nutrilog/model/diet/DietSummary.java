@@ -0,0 +1,54 @@
+package com.noisevisionsoftware.nutrilog.model.diet;
+
+import com.google.cloud.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Podsumowanie diet użytkownika (dokument dietSummaries/{userId}), aktualizowane przy zapisach diet
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DietSummary {
+    private String userId;
+    private boolean hasDiet;
+    private Timestamp startDate;
+    private Timestamp endDate;
+    @Builder.Default
+    private List<DietPeriod> periods = new ArrayList<>();
+
+    public static DietSummary of(String userId, List<DietPeriod> periods) {
+        Timestamp startDate = null;
+        Timestamp endDate = null;
+
+        for (DietPeriod period : periods) {
+            if (period.startDate() != null && (startDate == null || period.startDate().compareTo(startDate) < 0)) {
+                startDate = period.startDate();
+            }
+            if (period.endDate() != null && (endDate == null || period.endDate().compareTo(endDate) > 0)) {
+                endDate = period.endDate();
+            }
+        }
+
+        return DietSummary.builder()
+                .userId(userId)
+                .hasDiet(!periods.isEmpty())
+                .startDate(startDate)
+                .endDate(endDate)
+                .periods(new ArrayList<>(periods))
+                .build();
+    }
+
+    public List<String> getDietIds() {
+        return periods.stream()
+                .map(DietPeriod::dietId)
+                .toList();
+    }
+}
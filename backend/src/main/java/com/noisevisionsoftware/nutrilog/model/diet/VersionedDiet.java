@@ -0,0 +1,10 @@
+package com.noisevisionsoftware.nutrilog.model.diet;
+
+import com.google.cloud.Timestamp;
+
+/**
+ * Dieta wraz z czasem ostatniej zmiany dokumentu (updateTime) - do zapisu pod warunkiem, że dokument
+ * nie zmienił się od odczytu
+ */
+public record VersionedDiet(Diet diet, Timestamp updateTime) {
+}
@@ -18,7 +18,8 @@ import java.util.List;
 public class DietTemplateDayEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "diet_template_days_id_seq")
+    @SequenceGenerator(name = "diet_template_days_id_seq", sequenceName = "diet_template_days_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
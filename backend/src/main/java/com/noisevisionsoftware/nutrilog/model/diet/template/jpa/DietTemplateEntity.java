@@ -20,7 +20,8 @@ import java.util.UUID;
 public class DietTemplateEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "diet_templates_id_seq")
+    @SequenceGenerator(name = "diet_templates_id_seq", sequenceName = "diet_templates_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "external_id", nullable = false, unique = true)
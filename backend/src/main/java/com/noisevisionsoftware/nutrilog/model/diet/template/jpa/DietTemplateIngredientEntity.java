@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class DietTemplateIngredientEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "diet_template_ingredients_id_seq")
+    @SequenceGenerator(name = "diet_template_ingredients_id_seq", sequenceName = "diet_template_ingredients_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
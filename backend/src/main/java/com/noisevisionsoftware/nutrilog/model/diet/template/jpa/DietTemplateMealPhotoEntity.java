@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class DietTemplateMealPhotoEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "diet_template_meal_photos_id_seq")
+    @SequenceGenerator(name = "diet_template_meal_photos_id_seq", sequenceName = "diet_template_meal_photos_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,22 @@
+package com.noisevisionsoftware.nutrilog.model.meal;
+
+import com.google.cloud.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Nazwa posiłku (szablonu lub przepisu) z danymi potrzebnymi do rankingu i widoczności podpowiedzi -
+ * bez składników, zdjęć i instrukcji
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class MealNameEntry {
+    private String id;
+    private String name;
+    private int usageCount;
+    private Timestamp lastUsed;
+    private boolean isPublic;
+    private String ownerId;
+}
@@ -24,6 +24,7 @@ public class MealTemplate {
     private String mealType;
     private String category;
     private String createdBy;
+    private boolean isPublic;
     private Timestamp createdAt;
     private Timestamp updatedAt;
     private Timestamp lastUsed;
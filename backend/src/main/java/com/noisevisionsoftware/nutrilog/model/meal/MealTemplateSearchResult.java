@@ -0,0 +1,13 @@
+package com.noisevisionsoftware.nutrilog.model.meal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class MealTemplateSearchResult {
+    private MealTemplate template;
+    private double score;
+}
@@ -21,7 +21,8 @@ import java.util.UUID;
 public class MealTemplateEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "meal_templates_id_seq")
+    @SequenceGenerator(name = "meal_templates_id_seq", sequenceName = "meal_templates_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "external_id", nullable = false, unique = true)
@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class MealTemplatePhotoEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "meal_template_photos_id_seq")
+    @SequenceGenerator(name = "meal_template_photos_id_seq", sequenceName = "meal_template_photos_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
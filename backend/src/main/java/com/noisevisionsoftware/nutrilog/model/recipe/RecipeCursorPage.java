@@ -0,0 +1,16 @@
+package com.noisevisionsoftware.nutrilog.model.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class RecipeCursorPage {
+    private List<Recipe> content;
+    // null, gdy nie ma kolejnej strony
+    private String nextCursor;
+}
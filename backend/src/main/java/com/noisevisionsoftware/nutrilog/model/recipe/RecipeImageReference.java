@@ -14,5 +14,7 @@ public class RecipeImageReference {
     private String id;
     private String imageUrl;
     private String storagePath;
+    private String contentHash;
+    private String thumbnailPath;
     private int referenceCount;
 }
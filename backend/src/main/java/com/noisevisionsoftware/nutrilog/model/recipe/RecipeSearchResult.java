@@ -0,0 +1,16 @@
+package com.noisevisionsoftware.nutrilog.model.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class RecipeSearchResult {
+    private Recipe recipe;
+    // Trafność do sortowania przepisów (pełnotekstowa + trigramowa)
+    private double score;
+    // Podobieństwo trigramowe nazwy do zapytania (0-1), ta sama miara co w MealTemplateSearchResult
+    private double similarity;
+}
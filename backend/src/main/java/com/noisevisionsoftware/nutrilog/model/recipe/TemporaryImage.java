@@ -0,0 +1,21 @@
+package com.noisevisionsoftware.nutrilog.model.recipe;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TemporaryImage {
+
+    private String id;
+    private String imageUrl;
+    private String storagePath;
+    private long sizeBytes;
+    private LocalDateTime createdAt;
+}
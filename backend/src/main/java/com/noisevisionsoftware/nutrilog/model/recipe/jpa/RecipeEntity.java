@@ -19,7 +19,8 @@ import java.util.List;
 public class RecipeEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipes_id_seq")
+    @SequenceGenerator(name = "recipes_id_seq", sequenceName = "recipes_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -26,6 +26,11 @@ public class RecipeImageReferenceEntity {
     @Column(nullable = false)
     private String storagePath;
 
+    @Column(length = 64, unique = true)
+    private String contentHash;
+
+    private String thumbnailPath;
+
     @Column(nullable = false)
     private int referenceCount;
 
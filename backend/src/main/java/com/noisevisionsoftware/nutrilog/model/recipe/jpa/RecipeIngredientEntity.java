@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class RecipeIngredientEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_ingredients_id_seq")
+    @SequenceGenerator(name = "recipe_ingredients_id_seq", sequenceName = "recipe_ingredients_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
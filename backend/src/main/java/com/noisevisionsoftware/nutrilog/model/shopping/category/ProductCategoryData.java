@@ -1,28 +1,36 @@
 package com.noisevisionsoftware.nutrilog.model.shopping.category;
 
 import com.google.cloud.Timestamp;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
+/**
+ * Wpis kategoryzacji produktu. Niezmienny, bo jest współdzielony przez publikowane stany
+ * kategoryzacji - zmiana tworzy nowy wpis przez toBuilder().
+ */
+@Value
 public class ProductCategoryData {
-    private String productName;
-    private String categoryId;
-    private int usageCount;
+    String productName;
+    String categoryId;
+    int usageCount;
+    List<String> variations;
+    Timestamp lastUsed;
+    Timestamp createdAt;
+    Timestamp updatedAt;
 
-    @Builder.Default
-    private List<String> variations = new ArrayList<>();
-
-    private Timestamp lastUsed;
-    private Timestamp createdAt;
-    private Timestamp updatedAt;
-
-}
\ No newline at end of file
+    @Builder(toBuilder = true)
+    public ProductCategoryData(String productName, String categoryId, int usageCount, List<String> variations,
+                               Timestamp lastUsed, Timestamp createdAt, Timestamp updatedAt) {
+        this.productName = productName;
+        this.categoryId = categoryId;
+        this.usageCount = usageCount;
+        this.variations = variations != null ? Collections.unmodifiableList(new ArrayList<>(variations)) : List.of();
+        this.lastUsed = lastUsed;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,9 @@
+package com.noisevisionsoftware.nutrilog.model.usage;
+
+import java.time.LocalDateTime;
+
+/**
+ * Użycia szablonu zebrane od ostatniego zapisu liczników
+ */
+public record TemplateUsageDelta(String templateId, long count, LocalDateTime lastUsed) {
+}
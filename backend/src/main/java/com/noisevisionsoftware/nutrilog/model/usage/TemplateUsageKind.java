@@ -0,0 +1,9 @@
+package com.noisevisionsoftware.nutrilog.model.usage;
+
+/**
+ * Rodzaje szablonów, których użycia są zliczane
+ */
+public enum TemplateUsageKind {
+    MEAL_TEMPLATE,
+    DIET_TEMPLATE
+}
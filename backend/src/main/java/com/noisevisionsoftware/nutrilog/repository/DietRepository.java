@@ -1,17 +1,21 @@
 package com.noisevisionsoftware.nutrilog.repository;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import com.noisevisionsoftware.nutrilog.exception.DietConcurrentModificationException;
 import com.noisevisionsoftware.nutrilog.mapper.diet.FirestoreDietMapper;
 import com.noisevisionsoftware.nutrilog.model.diet.Diet;
+import com.noisevisionsoftware.nutrilog.model.diet.DietInterval;
+import com.noisevisionsoftware.nutrilog.model.diet.DietPeriod;
+import com.noisevisionsoftware.nutrilog.model.diet.VersionedDiet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Repository
@@ -21,6 +25,8 @@ public class DietRepository {
     private final Firestore firestore;
     private final FirestoreDietMapper firestoreDietMapper;
     private static final String COLLECTION_NAME = "diets";
+    // Limit wartości w zapytaniu "in" w Firestore
+    private static final int MAX_IN_QUERY_SIZE = 30;
 
     public Diet save(Diet diet) {
         try {
@@ -48,6 +54,25 @@ public class DietRepository {
         }
     }
 
+    /**
+     * Zapis diety pod warunkiem, że dokument nie zmienił się od odczytu; w przeciwnym razie
+     * DietConcurrentModificationException
+     */
+    public Diet update(String id, Diet diet, Timestamp expectedUpdateTime) {
+        try {
+            DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(id);
+            Map<String, Object> data = firestoreDietMapper.toFirestoreMap(diet);
+            docRef.update(data, Precondition.updatedAt(expectedUpdateTime)).get();
+            diet.setId(id);
+            return diet;
+        } catch (Exception e) {
+            if (isPreconditionFailure(e)) {
+                throw new DietConcurrentModificationException("Diet was modified concurrently: " + id);
+            }
+            throw new RuntimeException("Failed to update diet", e);
+        }
+    }
+
     public Optional<Diet> findById(String id) {
         try {
             DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(id);
@@ -58,6 +83,31 @@ public class DietRepository {
         }
     }
 
+    public Optional<VersionedDiet> findVersionedById(String id) {
+        try {
+            DocumentSnapshot document = firestore.collection(COLLECTION_NAME).document(id).get().get();
+            Diet diet = firestoreDietMapper.toDiet(document);
+            return diet != null
+                    ? Optional.of(new VersionedDiet(diet, document.getUpdateTime()))
+                    : Optional.empty();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch diet", e);
+        }
+    }
+
+    /**
+     * Właściciel diety z projekcji dokumentu (tylko pole userId)
+     */
+    public Optional<String> findUserIdById(String id) {
+        try {
+            DocumentSnapshot document = firestore.collection(COLLECTION_NAME).document(id)
+                    .get(FieldMask.of("userId")).get();
+            return document.exists() ? Optional.ofNullable(document.getString("userId")) : Optional.empty();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch diet owner", e);
+        }
+    }
+
     public List<Diet> findByUserId(String userId) {
         try {
             Query query = firestore.collection(COLLECTION_NAME)
@@ -73,6 +123,63 @@ public class DietRepository {
         }
     }
 
+    /**
+     * Okresy diet użytkownika z projekcji dokumentów (tylko startDate i endDate, bez listy dni)
+     */
+    public List<DietInterval> findIntervalsByUserId(String userId) {
+        return findPeriodsByUserIds(List.of(userId)).getOrDefault(userId, List.of()).stream()
+                .map(DietPeriod::toInterval)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Okresy diet wielu użytkowników z projekcji dokumentów. Zapytania "in" (po MAX_IN_QUERY_SIZE
+     * użytkowników) są wysyłane jednocześnie; użytkownicy bez diet nie mają wpisu w wyniku.
+     */
+    public Map<String, List<DietPeriod>> findPeriodsByUserIds(Collection<String> userIds) {
+        try {
+            List<String> distinctUserIds = new ArrayList<>(new LinkedHashSet<>(userIds));
+            List<ApiFuture<QuerySnapshot>> futures = new ArrayList<>();
+            for (int from = 0; from < distinctUserIds.size(); from += MAX_IN_QUERY_SIZE) {
+                List<String> chunk = distinctUserIds.subList(from, Math.min(distinctUserIds.size(), from + MAX_IN_QUERY_SIZE));
+                futures.add(firestore.collection(COLLECTION_NAME)
+                        .whereIn("userId", new ArrayList<>(chunk))
+                        .select("userId", "startDate", "endDate")
+                        .get());
+            }
+
+            Map<String, List<DietPeriod>> periods = new HashMap<>();
+            List<DocumentReference> withoutDates = new ArrayList<>();
+            for (ApiFuture<QuerySnapshot> future : futures) {
+                for (QueryDocumentSnapshot document : future.get().getDocuments()) {
+                    Timestamp startDate = document.getTimestamp("startDate");
+                    Timestamp endDate = document.getTimestamp("endDate");
+                    if (startDate != null && endDate != null) {
+                        periods.computeIfAbsent(document.getString("userId"), key -> new ArrayList<>())
+                                .add(new DietPeriod(document.getId(), startDate, endDate));
+                    } else {
+                        withoutDates.add(document.getReference());
+                    }
+                }
+            }
+
+            // Diety zapisane bez startDate/endDate - daty z listy dni, jednym odczytem dla wszystkich
+            if (!withoutDates.isEmpty()) {
+                for (DocumentSnapshot document : firestore.getAll(withoutDates.toArray(new DocumentReference[0])).get()) {
+                    Diet diet = firestoreDietMapper.toDiet(document);
+                    if (diet != null) {
+                        periods.computeIfAbsent(diet.getUserId(), key -> new ArrayList<>()).add(DietPeriod.of(diet));
+                    }
+                }
+            }
+
+            return periods;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch diet periods by userIds", e);
+        }
+    }
+
     public void delete(String id) {
         try {
             DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(id);
@@ -114,4 +221,14 @@ public class DietRepository {
             throw new RuntimeException("Failed to fetch paginated diets", e);
         }
     }
-}
\ No newline at end of file
+
+    private static boolean isPreconditionFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException apiException
+                    && apiException.getStatusCode().getCode() == StatusCode.Code.FAILED_PRECONDITION) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package com.noisevisionsoftware.nutrilog.repository;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.*;
+import com.noisevisionsoftware.nutrilog.mapper.diet.FirestoreDietSummaryMapper;
+import com.noisevisionsoftware.nutrilog.model.diet.DietSummary;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class DietSummaryRepository {
+    private final Firestore firestore;
+    private final FirestoreDietSummaryMapper firestoreDietSummaryMapper;
+    private static final String COLLECTION_NAME = "dietSummaries";
+    private static final int MAX_BATCH_SIZE = 450;
+
+    /**
+     * Podsumowania podanych użytkowników jednym odczytem; użytkownicy bez podsumowania są pomijani
+     */
+    public Map<String, DietSummary> findByUserIds(Collection<String> userIds) {
+        try {
+            DocumentReference[] refs = userIds.stream()
+                    .filter(userId -> userId != null && !userId.isBlank())
+                    .map(userId -> firestore.collection(COLLECTION_NAME).document(userId))
+                    .toArray(DocumentReference[]::new);
+            if (refs.length == 0) {
+                return new HashMap<>();
+            }
+
+            Map<String, DietSummary> summaries = new HashMap<>();
+            for (DocumentSnapshot document : firestore.getAll(refs).get()) {
+                DietSummary summary = firestoreDietSummaryMapper.toDietSummary(document);
+                if (summary != null) {
+                    summaries.put(summary.getUserId(), summary);
+                }
+            }
+            return summaries;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch diet summaries", e);
+        }
+    }
+
+    /**
+     * Użytkownicy, których podsumowanie zawiera podaną dietę
+     */
+    public List<String> findUserIdsByDietId(String dietId) {
+        try {
+            QuerySnapshot querySnapshot = firestore.collection(COLLECTION_NAME)
+                    .whereArrayContains("dietIds", dietId)
+                    .select("userId")
+                    .get().get();
+
+            return querySnapshot.getDocuments().stream()
+                    .map(DocumentSnapshot::getId)
+                    .toList();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch diet summaries by dietId", e);
+        }
+    }
+
+    public void saveAll(Collection<DietSummary> summaries) {
+        try {
+            WriteBatch batch = firestore.batch();
+            int batchSize = 0;
+
+            for (DietSummary summary : summaries) {
+                batch.set(firestore.collection(COLLECTION_NAME).document(summary.getUserId()),
+                        firestoreDietSummaryMapper.toFirestoreMap(summary));
+                batchSize++;
+
+                if (batchSize >= MAX_BATCH_SIZE) {
+                    batch.commit().get();
+                    batch = firestore.batch();
+                    batchSize = 0;
+                }
+            }
+
+            if (batchSize > 0) {
+                batch.commit().get();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to save diet summaries", e);
+        }
+    }
+
+    /**
+     * Zapisuje tylko podsumowania, których jeszcze nie ma - istniejący dokument (np. zapisany w międzyczasie
+     * przez przeliczenie po zmianie diety) nie jest nadpisywany. Zwraca liczbę utworzonych dokumentów.
+     */
+    public int createMissing(Collection<DietSummary> summaries) {
+        try {
+            List<ApiFuture<WriteResult>> futures = new ArrayList<>();
+            for (DietSummary summary : summaries) {
+                futures.add(firestore.collection(COLLECTION_NAME).document(summary.getUserId())
+                        .create(firestoreDietSummaryMapper.toFirestoreMap(summary)));
+            }
+
+            int created = 0;
+            for (ApiFuture<WriteResult> future : futures) {
+                try {
+                    future.get();
+                    created++;
+                } catch (Exception e) {
+                    if (!isAlreadyExists(e)) {
+                        throw e;
+                    }
+                }
+            }
+            return created;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create diet summaries", e);
+        }
+    }
+
+    public void delete(String userId) {
+        try {
+            firestore.collection(COLLECTION_NAME).document(userId).delete().get();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to delete diet summary", e);
+        }
+    }
+
+    private static boolean isAlreadyExists(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException apiException
+                    && apiException.getStatusCode().getCode() == StatusCode.Code.ALREADY_EXISTS) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
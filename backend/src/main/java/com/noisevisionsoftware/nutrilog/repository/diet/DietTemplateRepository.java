@@ -22,7 +22,5 @@ public interface DietTemplateRepository {
 
     void deleteById(String id);
 
-    void incrementUsageCount(String id);
-
     long countByCreatedBy(String createdBy);
 }
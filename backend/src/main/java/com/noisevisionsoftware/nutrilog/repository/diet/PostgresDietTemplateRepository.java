@@ -128,16 +128,6 @@ public class PostgresDietTemplateRepository implements DietTemplateRepository {
         }
     }
 
-    @Override
-    @Transactional
-    public void incrementUsageCount(String id) {
-        try {
-            jpaRepository.incrementUsageCount(id);
-        } catch (Exception e) {
-            log.error("Błąd podczas aktualizacji licznika użycia: {}", id, e);
-        }
-    }
-
     @Override
     public long countByCreatedBy(String createdBy) {
         try {
@@ -10,8 +10,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Repository
@@ -20,6 +24,9 @@ import java.util.stream.Collectors;
 @Transactional
 public class PostgresRecipeImageRepositoryImpl implements RecipeImageRepository {
 
+    private static final long ORPHAN_CLEANUP_LOCK_KEY = "nutrilog.orphaned-image-reaper".hashCode();
+    private static final int IMAGE_FILE_LOCK_NAMESPACE = "nutrilog.recipe-image-files".hashCode();
+
     private final RecipeImageReferenceJpaRepository jpaRepository;
     private final RecipeImageReferenceJpaConverter converter;
 
@@ -47,16 +54,26 @@ public class PostgresRecipeImageRepositoryImpl implements RecipeImageRepository
     }
 
     @Override
-    @Transactional
-    public void incrementReferenceCount(String imageUrl) {
+    public Optional<RecipeImageReference> findByContentHash(String contentHash) {
         try {
-            Optional<RecipeImageReferenceEntity> entityOpt = jpaRepository.findByImageUrl(imageUrl);
+            return jpaRepository.findByContentHash(contentHash)
+                    .map(converter::toModel);
+        } catch (Exception e) {
+            log.error("Błąd podczas wyszukiwania referencji po skrócie zawartości: {}", contentHash, e);
+            return Optional.empty();
+        }
+    }
 
-            if (entityOpt.isPresent()) {
-                jpaRepository.incrementReferenceCount(imageUrl);
-            } else {
+    @Override
+    @Transactional
+    public int incrementReferenceCount(String imageUrl) {
+        try {
+            // Jedno zapytanie - wpis usunięty w międzyczasie przez sprzątanie daje 0 zmienionych wierszy
+            int updated = jpaRepository.incrementReferenceCount(imageUrl);
+            if (updated == 0) {
                 log.warn("Próba zwiększenia licznika referencji dla nieistniejącego zdjęcia: {}", imageUrl);
             }
+            return updated;
         } catch (Exception e) {
             log.error("Błąd podczas zwiększania licznika referencji: {}", imageUrl, e);
             throw new RuntimeException("Nie udało się zwiększyć licznika referencji", e);
@@ -83,26 +100,55 @@ public class PostgresRecipeImageRepositoryImpl implements RecipeImageRepository
     }
 
     @Override
-    @Transactional
-    public void deleteByImageUrl(String imageUrl) {
+    public void updateThumbnailPath(String contentHash, String thumbnailPath) {
         try {
-            jpaRepository.deleteByImageUrl(imageUrl);
+            jpaRepository.updateThumbnailPath(contentHash, thumbnailPath);
         } catch (Exception e) {
-            log.error("Błąd podczas usuwania referencji: {}", imageUrl, e);
-            throw new RuntimeException("Nie udało się usunąć referencji zdjęcia", e);
+            log.error("Błąd podczas zapisywania ścieżki miniatury: {}", contentHash, e);
+            throw new RuntimeException("Nie udało się zapisać ścieżki miniatury", e);
         }
     }
 
     @Override
-    public List<RecipeImageReference> findAllWithZeroReferences() {
+    public Map<String, String> findThumbnailPaths(Collection<String> imageUrls) {
+        if (imageUrls.isEmpty()) {
+            return Map.of();
+        }
         try {
-            return jpaRepository.findByReferenceCount(0)
-                    .stream()
-                    .map(converter::toModel)
-                    .collect(Collectors.toList());
+            return jpaRepository.findWithThumbnailByImageUrlIn(imageUrls).stream()
+                    .collect(Collectors.toMap(RecipeImageReferenceEntity::getImageUrl,
+                            RecipeImageReferenceEntity::getThumbnailPath));
         } catch (Exception e) {
-            log.error("Błąd podczas wyszukiwania referencji z zerowym licznikiem", e);
-            return List.of(); // Zwracamy pustą listę zamiast rzucać wyjątek
+            log.error("Błąd podczas wyszukiwania miniatur zdjęć", e);
+            return Map.of();
+        }
+    }
+
+    @Override
+    public boolean tryLockOrphanCleanup() {
+        return jpaRepository.tryAdvisoryTransactionLock(ORPHAN_CLEANUP_LOCK_KEY);
+    }
+
+    @Override
+    public void lockImageFiles(Collection<String> storagePaths) {
+        // Klucze zajmowane zawsze w tej samej kolejności - dwie transakcje nie czekają na siebie nawzajem
+        storagePaths.stream()
+                .mapToInt(String::hashCode)
+                .distinct()
+                .sorted()
+                .forEach(key -> jpaRepository.advisoryTransactionLock(IMAGE_FILE_LOCK_NAMESPACE, key));
+    }
+
+    @Override
+    public List<String> deleteOrphanedBatch(int limit) {
+        return jpaRepository.deleteOrphanedBatchReturningStoragePaths(limit);
+    }
+
+    @Override
+    public Set<String> findReferencedStoragePaths(Collection<String> storagePaths) {
+        if (storagePaths.isEmpty()) {
+            return Set.of();
         }
+        return new HashSet<>(jpaRepository.findStoragePathsIn(storagePaths));
     }
 }
\ No newline at end of file
@@ -1,22 +1,37 @@
 package com.noisevisionsoftware.nutrilog.repository.impl;
 
+import com.google.cloud.Timestamp;
 import com.noisevisionsoftware.nutrilog.mapper.recipe.RecipeJpaConverter;
 import com.noisevisionsoftware.nutrilog.mapper.recipe.RecipeReferenceJpaConverter;
+import com.noisevisionsoftware.nutrilog.model.meal.MealNameEntry;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeCursorPage;
 import com.noisevisionsoftware.nutrilog.model.recipe.RecipeReference;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeSearchResult;
 import com.noisevisionsoftware.nutrilog.model.recipe.jpa.RecipeEntity;
 import com.noisevisionsoftware.nutrilog.model.recipe.jpa.RecipeReferenceEntity;
 import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeRepository;
 import com.noisevisionsoftware.nutrilog.repository.jpa.recipe.RecipeJpaRepository;
 import com.noisevisionsoftware.nutrilog.repository.jpa.recipe.RecipeReferenceJpaRepository;
+import com.noisevisionsoftware.nutrilog.repository.jpa.recipe.RecipeSearchHit;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Repository
@@ -24,10 +39,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PostgresRecipeRepositoryImpl implements RecipeRepository {
 
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int COLLECTION_FETCH_BATCH_SIZE = 500;
+    private static final int MAX_PAGE_LIMIT = 100;
+    private static final char CURSOR_SEPARATOR = '|';
+
     private final RecipeJpaRepository recipeJpaRepository;
     private final RecipeJpaConverter recipeJpaConverter;
     private final RecipeReferenceJpaRepository recipeReferenceJpaRepository;
     private final RecipeReferenceJpaConverter recipeReferenceJpaConverter;
+    private final EntityManager entityManager;
 
     @Override
     public Optional<Recipe> findById(String id) {
@@ -58,13 +79,49 @@ public class PostgresRecipeRepositoryImpl implements RecipeRepository {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Map<String, Recipe> findLatestByNames(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        try {
+            List<String> normalizedNames = names.stream()
+                    .filter(Objects::nonNull)
+                    .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                    .distinct()
+                    .toList();
+
+            // Wynik posortowany od najnowszych - pierwszy przepis dla nazwy wygrywa
+            Map<String, RecipeEntity> latestByName = new LinkedHashMap<>();
+            for (int from = 0; from < normalizedNames.size(); from += COLLECTION_FETCH_BATCH_SIZE) {
+                List<String> batch = normalizedNames.subList(from, Math.min(normalizedNames.size(), from + COLLECTION_FETCH_BATCH_SIZE));
+                for (RecipeEntity entity : recipeJpaRepository.findAllByLowerNameIn(batch)) {
+                    latestByName.putIfAbsent(entity.getName().trim().toLowerCase(Locale.ROOT), entity);
+                }
+            }
+
+            fetchCollections(new ArrayList<>(latestByName.values()));
+
+            Map<String, Recipe> result = new HashMap<>(latestByName.size() * 2);
+            latestByName.forEach((name, entity) -> result.put(name, recipeJpaConverter.toModel(entity)));
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to find recipes by names", e);
+            throw new RuntimeException("Failed to find recipes by names", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Recipe> findAllByIds(Collection<String> ids) {
         if (ids == null || ids.isEmpty()) {
             return Collections.emptyList();
         }
 
         try {
-            List<RecipeEntity> entities = recipeJpaRepository.findAllByExternalIdIn(new ArrayList<>(ids));
+            List<RecipeEntity> entities = fetchCollections(
+                    recipeJpaRepository.findAllByExternalIdIn(new ArrayList<>(new LinkedHashSet<>(ids))));
             return entities.stream()
                     .map(recipeJpaConverter::toModel)
                     .collect(Collectors.toList());
@@ -75,9 +132,10 @@ public class PostgresRecipeRepositoryImpl implements RecipeRepository {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Recipe> findAll() {
         try {
-            List<RecipeEntity> entities = recipeJpaRepository.findAll();
+            List<RecipeEntity> entities = fetchCollections(recipeJpaRepository.findAll());
 
             return entities.stream()
                     .map(recipeJpaConverter::toModel)
@@ -89,11 +147,29 @@ public class PostgresRecipeRepositoryImpl implements RecipeRepository {
     }
 
     @Override
+    public List<MealNameEntry> findAllNameEntries() {
+        try {
+            return recipeJpaRepository.findAllNameRows().stream()
+                    .map(row -> MealNameEntry.builder()
+                            .id(row.getExternalId())
+                            .name(row.getName())
+                            .lastUsed(toTimestamp(row.getCreatedAt()))
+                            .isPublic(true)
+                            .build())
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("Błąd podczas pobierania nazw przepisów", e);
+            throw new RuntimeException("Failed to fetch recipe names", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<Recipe> findAll(Pageable pageable) {
         try {
             Page<RecipeEntity> entityPage = recipeJpaRepository.findAll(pageable);
 
-            List<Recipe> recipes = entityPage.getContent().stream()
+            List<Recipe> recipes = fetchCollections(entityPage.getContent()).stream()
                     .map(recipeJpaConverter::toModel)
                     .collect(Collectors.toList());
 
@@ -104,6 +180,48 @@ public class PostgresRecipeRepositoryImpl implements RecipeRepository {
         }
     }
 
+    @Override
+    public Page<String> findAllIds(Pageable pageable) {
+        try {
+            return recipeJpaRepository.findAllExternalIds(pageable);
+        } catch (Exception e) {
+            log.error("Failed to fetch recipe ids page", e);
+            throw new RuntimeException("Failed to fetch recipes", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public RecipeCursorPage findPageAfter(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+        KeysetPosition position = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+
+        try {
+            // Jeden rekord ponad limit mówi, czy istnieje kolejna strona - bez zapytania count
+            Pageable fetchLimit = PageRequest.of(0, pageSize + 1);
+            List<RecipeEntity> entities = position == null
+                    ? recipeJpaRepository.findFirstKeysetPage(fetchLimit)
+                    : recipeJpaRepository.findKeysetPageAfter(position.createdAt(), position.id(), fetchLimit);
+
+            boolean hasNext = entities.size() > pageSize;
+            List<RecipeEntity> pageEntities = hasNext ? entities.subList(0, pageSize) : entities;
+
+            List<Recipe> recipes = fetchCollections(pageEntities).stream()
+                    .map(recipeJpaConverter::toModel)
+                    .collect(Collectors.toList());
+
+            String nextCursor = null;
+            if (hasNext) {
+                RecipeEntity last = pageEntities.get(pageEntities.size() - 1);
+                nextCursor = encodeCursor(last.getCreatedAt(), last.getId());
+            }
+            return new RecipeCursorPage(recipes, nextCursor);
+        } catch (Exception e) {
+            log.error("Failed to fetch recipes page after cursor: {}", cursor, e);
+            throw new RuntimeException("Failed to fetch recipes", e);
+        }
+    }
+
     @Override
     public Recipe update(String id, Recipe recipe) {
         try {
@@ -123,9 +241,10 @@ public class PostgresRecipeRepositoryImpl implements RecipeRepository {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Recipe> search(String query) {
         try {
-            List<RecipeEntity> entities = recipeJpaRepository.search(query);
+            List<RecipeEntity> entities = fetchCollections(recipeJpaRepository.search(query));
             return entities.stream()
                     .map(recipeJpaConverter::toModel)
                     .collect(Collectors.toList());
@@ -135,6 +254,58 @@ public class PostgresRecipeRepositoryImpl implements RecipeRepository {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<RecipeSearchResult> searchRanked(String query, int limit) {
+        if (query == null || query.isBlank() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        try {
+            String normalizedQuery = query.trim().toLowerCase();
+            String tsQuery = toPrefixTsQuery(normalizedQuery);
+            int cappedLimit = Math.min(limit, MAX_SEARCH_LIMIT);
+            if (tsQuery.isEmpty()) {
+                return searchSubstring(normalizedQuery, cappedLimit);
+            }
+
+            List<RecipeSearchHit> hits = recipeJpaRepository.searchRanked(
+                    normalizedQuery,
+                    tsQuery,
+                    "%" + escapeLikePattern(normalizedQuery) + "%",
+                    cappedLimit);
+            if (hits.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            Map<Long, RecipeEntity> entitiesById = fetchCollections(recipeJpaRepository.findAllById(
+                            hits.stream().map(RecipeSearchHit::getId).toList())).stream()
+                    .collect(Collectors.toMap(RecipeEntity::getId, Function.identity()));
+
+            // Kolejność według trafności zwróconej przez bazę
+            List<RecipeSearchResult> results = new ArrayList<>(hits.size());
+            for (RecipeSearchHit hit : hits) {
+                RecipeEntity entity = entitiesById.get(hit.getId());
+                if (entity != null) {
+                    results.add(new RecipeSearchResult(recipeJpaConverter.toModel(entity),
+                            hit.getScore() != null ? hit.getScore() : 0.0,
+                            hit.getSimilarity() != null ? hit.getSimilarity() : 0.0));
+                }
+            }
+            return results;
+        } catch (Exception e) {
+            log.error("Failed to search recipes", e);
+            throw new RuntimeException("Failed to search recipes", e);
+        }
+    }
+
+    /* Zapytanie bez słów daje pusty tsquery, który nic nie dopasowuje - wtedy wyszukiwanie fragmentu jak w search() */
+    private List<RecipeSearchResult> searchSubstring(String normalizedQuery, int limit) {
+        return fetchCollections(recipeJpaRepository.searchSubstring(normalizedQuery, PageRequest.of(0, limit))).stream()
+                .map(entity -> new RecipeSearchResult(recipeJpaConverter.toModel(entity), 0.0, 0.0))
+                .toList();
+    }
+
     @Override
     public void delete(String id) {
         try {
@@ -163,6 +334,42 @@ public class PostgresRecipeRepositoryImpl implements RecipeRepository {
         }
     }
 
+    @Override
+    @Transactional
+    public List<Recipe> saveAll(List<Recipe> recipes) {
+        if (recipes == null || recipes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            List<String> existingIds = recipes.stream()
+                    .map(Recipe::getId)
+                    .filter(id -> id != null && !id.isEmpty())
+                    .toList();
+            Map<String, Long> entityIds = existingIds.isEmpty() ? Collections.emptyMap()
+                    : recipeJpaRepository.findAllByExternalIdIn(existingIds).stream()
+                    .collect(Collectors.toMap(RecipeEntity::getExternalId, RecipeEntity::getId, (first, second) -> first));
+
+            List<RecipeEntity> entities = new ArrayList<>(recipes.size());
+            for (Recipe recipe : recipes) {
+                if (recipe.getId() == null || recipe.getId().isEmpty()) {
+                    recipe.setId(generateFirestoreStyleId());
+                }
+
+                RecipeEntity entity = recipeJpaConverter.toJpaEntity(recipe);
+                entity.setId(entityIds.get(recipe.getId()));
+                entities.add(entity);
+            }
+
+            return recipeJpaRepository.saveAll(entities).stream()
+                    .map(recipeJpaConverter::toModel)
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("Failed to save {} recipes", recipes.size(), e);
+            throw new RuntimeException("Failed to save recipes", e);
+        }
+    }
+
     @Override
     public List<Recipe> findByParentRecipeId(String parentId) {
         try {
@@ -187,6 +394,97 @@ public class PostgresRecipeRepositoryImpl implements RecipeRepository {
         }
     }
 
+    /**
+     * Referencje mają ID nadawane w aplikacji, więc persist (zamiast merge w save) nie wykonuje
+     * dodatkowego SELECT dla każdej referencji, a INSERT-y są grupowane w paczki JDBC (hibernate.jdbc.batch_size)
+     */
+    @Override
+    @Transactional
+    public void saveReferences(List<RecipeReference> references) {
+        if (references == null || references.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (RecipeReference reference : references) {
+                entityManager.persist(recipeReferenceJpaConverter.toJpaEntity(reference));
+            }
+            entityManager.flush();
+        } catch (Exception e) {
+            log.error("Błąd podczas zapisywania {} referencji przepisów w PostgreSQL", references.size(), e);
+            throw new RuntimeException("Failed to save recipe references", e);
+        }
+    }
+
+    /**
+     * Inicjalizuje składniki i zdjęcia wczytanych przepisów zapytaniami IN (po COLLECTION_FETCH_BATCH_SIZE ID),
+     * więc konwersja do modelu nie wykonuje już osobnych zapytań dla każdego przepisu
+     */
+    private List<RecipeEntity> fetchCollections(List<RecipeEntity> entities) {
+        List<Long> ids = entities.stream()
+                .map(RecipeEntity::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        for (int from = 0; from < ids.size(); from += COLLECTION_FETCH_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + COLLECTION_FETCH_BATCH_SIZE));
+            recipeJpaRepository.fetchIngredientsByIdIn(batch);
+            recipeJpaRepository.fetchPhotosByIdIn(batch);
+        }
+        return entities;
+    }
+
+    /**
+     * Kursor jest nieprzezroczysty dla klienta: Base64URL z "createdAt|id" ostatniego przepisu na stronie
+     */
+    static String encodeCursor(LocalDateTime createdAt, Long id) {
+        String position = createdAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + CURSOR_SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static KeysetPosition decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Nieprawidłowy kursor: " + cursor);
+            }
+            return new KeysetPosition(
+                    LocalDateTime.parse(position.substring(0, separator), DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                    Long.parseLong(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Nieprawidłowy kursor: " + cursor, e);
+        }
+    }
+
+    record KeysetPosition(LocalDateTime createdAt, Long id) {
+    }
+
+    /**
+     * Zapytanie tsquery z prefiksami słów, np. "zupa pomid" -> "zupa:* & pomid:*"
+     */
+    static String toPrefixTsQuery(String normalizedQuery) {
+        return Arrays.stream(normalizedQuery.split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime localDateTime) {
+        if (localDateTime == null) {
+            return null;
+        }
+        Instant instant = localDateTime.toInstant(ZoneOffset.UTC);
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+
     /**
      * Generuje ID w stylu Firestore - 20 znaków alfanumerycznych
      */
@@ -0,0 +1,74 @@
+package com.noisevisionsoftware.nutrilog.repository.impl;
+
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageDelta;
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageKind;
+import com.noisevisionsoftware.nutrilog.repository.usage.TemplateUsageRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class PostgresTemplateUsageRepositoryImpl implements TemplateUsageRepository {
+
+    // Trzy parametry na wiersz - daleko poniżej limitu parametrów jednego zapytania
+    static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final EntityManager entityManager;
+
+    @Override
+    public int applyUsageDeltas(TemplateUsageKind kind, List<TemplateUsageDelta> deltas) {
+        int updated = 0;
+        for (int from = 0; from < deltas.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<TemplateUsageDelta> batch = deltas.subList(from, Math.min(deltas.size(), from + MAX_ROWS_PER_STATEMENT));
+
+            Query query = entityManager.createNativeQuery(buildUpdateSql(tableFor(kind), batch.size()));
+            int position = 1;
+            for (TemplateUsageDelta delta : batch) {
+                query.setParameter(position++, delta.templateId());
+                query.setParameter(position++, delta.count());
+                query.setParameter(position++, delta.lastUsed());
+            }
+            updated += query.executeUpdate();
+        }
+        return updated;
+    }
+
+    /*
+     * Jedno zapytanie dla całej paczki: UPDATE ... FROM (VALUES ...) złączone po external_id.
+     * Rzutowania są potrzebne, bo PostgreSQL nie zna typów parametrów w VALUES.
+     */
+    static String buildUpdateSql(String table, int rows) {
+        StringBuilder sql = new StringBuilder()
+                .append("UPDATE ").append(table).append(" t ")
+                .append("SET usage_count = t.usage_count + v.delta, ")
+                .append("last_used = GREATEST(t.last_used, v.last_used) ")
+                .append("FROM (VALUES ");
+        for (int row = 0; row < rows; row++) {
+            int first = row * 3 + 1;
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(?").append(first).append(" AS VARCHAR), ")
+                    .append("CAST(?").append(first + 1).append(" AS INTEGER), ")
+                    .append("CAST(?").append(first + 2).append(" AS TIMESTAMP))");
+        }
+        sql.append(") AS v(external_id, delta, last_used) ")
+                .append("WHERE t.external_id = v.external_id");
+        return sql.toString();
+    }
+
+    private static String tableFor(TemplateUsageKind kind) {
+        return switch (kind) {
+            case MEAL_TEMPLATE -> "meal_templates";
+            case DIET_TEMPLATE -> "diet_templates";
+        };
+    }
+}
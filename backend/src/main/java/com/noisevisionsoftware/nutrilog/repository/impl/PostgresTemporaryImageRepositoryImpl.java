@@ -0,0 +1,64 @@
+package com.noisevisionsoftware.nutrilog.repository.impl;
+
+import com.noisevisionsoftware.nutrilog.mapper.recipe.TemporaryImageJpaConverter;
+import com.noisevisionsoftware.nutrilog.model.recipe.TemporaryImage;
+import com.noisevisionsoftware.nutrilog.model.recipe.jpa.TemporaryImageEntity;
+import com.noisevisionsoftware.nutrilog.repository.jpa.recipe.TemporaryImageJpaRepository;
+import com.noisevisionsoftware.nutrilog.repository.recipe.TemporaryImageRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class PostgresTemporaryImageRepositoryImpl implements TemporaryImageRepository {
+
+    private static final long EXPIRY_LOCK_KEY = "nutrilog.temporary-image-expiry".hashCode();
+
+    private final TemporaryImageJpaRepository jpaRepository;
+    private final TemporaryImageJpaConverter converter;
+
+    @Override
+    public TemporaryImage save(TemporaryImage temporaryImage) {
+        try {
+            TemporaryImageEntity entity = jpaRepository.save(converter.toJpaEntity(temporaryImage));
+            return converter.toModel(entity);
+        } catch (Exception e) {
+            log.error("Błąd podczas zapisywania tymczasowego zdjęcia: {}", temporaryImage.getImageUrl(), e);
+            throw new RuntimeException("Nie udało się zapisać tymczasowego zdjęcia", e);
+        }
+    }
+
+    @Override
+    public boolean tryLockExpiry() {
+        return jpaRepository.tryAdvisoryTransactionLock(EXPIRY_LOCK_KEY);
+    }
+
+    @Override
+    public List<TemporaryImage> deleteCreatedBefore(LocalDateTime cutoff, int limit) {
+        return jpaRepository.deleteCreatedBeforeReturningFiles(cutoff, limit).stream()
+                .map(row -> TemporaryImage.builder()
+                        .storagePath((String) row[0])
+                        .sizeBytes(((Number) row[1]).longValue())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /* Osobna transakcja - wywoływane po zatwierdzeniu zapisu przepisu, a błąd nie może wycofać zapisu */
+    @Override
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int deleteByImageUrls(Collection<String> imageUrls) {
+        if (imageUrls == null || imageUrls.isEmpty()) {
+            return 0;
+        }
+        return jpaRepository.deleteByImageUrlIn(imageUrls);
+    }
+}
@@ -4,7 +4,6 @@ import com.noisevisionsoftware.nutrilog.model.diet.template.DietTemplateCategory
 import com.noisevisionsoftware.nutrilog.model.diet.template.jpa.DietTemplateEntity;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -42,11 +41,6 @@ public interface DietTemplateJpaRepository extends JpaRepository<DietTemplateEnt
             Pageable pageable
     );
 
-    @Modifying
-    @Query("UPDATE DietTemplateEntity dt SET dt.usageCount = dt.usageCount + 1, " +
-            "dt.lastUsed = CURRENT_TIMESTAMP WHERE dt.externalId = :externalId")
-    void incrementUsageCount(@Param("externalId") String externalId);
-
     @Query("SELECT COUNT(dt) FROM DietTemplateEntity dt WHERE dt.createdBy = :createdBy")
     long countByCreatedBy(@Param("createdBy") String createdBy);
 
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,9 +16,11 @@ public interface RecipeImageReferenceJpaRepository extends JpaRepository<RecipeI
 
     Optional<RecipeImageReferenceEntity> findByImageUrl(String imageUrl);
 
+    Optional<RecipeImageReferenceEntity> findByContentHash(String contentHash);
+
     @Modifying
     @Query("UPDATE RecipeImageReferenceEntity r SET r.referenceCount = r.referenceCount + 1 WHERE r.imageUrl = :imageUrl")
-    void incrementReferenceCount(@Param("imageUrl") String imageUrl);
+    int incrementReferenceCount(@Param("imageUrl") String imageUrl);
 
     @Modifying
     @Query("UPDATE RecipeImageReferenceEntity r SET r.referenceCount = r.referenceCount - 1 WHERE r.imageUrl = :imageUrl AND r.referenceCount > 0")
@@ -26,7 +29,31 @@ public interface RecipeImageReferenceJpaRepository extends JpaRepository<RecipeI
     @Query("SELECT r.referenceCount FROM RecipeImageReferenceEntity r WHERE r.imageUrl = :imageUrl")
     Optional<Integer> findReferenceCount(@Param("imageUrl") String imageUrl);
 
-    List<RecipeImageReferenceEntity> findByReferenceCount(int referenceCount);
-
-    void deleteByImageUrl(String imageUrl);
+    @Modifying
+    @Query("UPDATE RecipeImageReferenceEntity r SET r.thumbnailPath = :thumbnailPath WHERE r.contentHash = :contentHash")
+    int updateThumbnailPath(@Param("contentHash") String contentHash, @Param("thumbnailPath") String thumbnailPath);
+
+    @Query("SELECT r FROM RecipeImageReferenceEntity r WHERE r.imageUrl IN :imageUrls AND r.thumbnailPath IS NOT NULL")
+    List<RecipeImageReferenceEntity> findWithThumbnailByImageUrlIn(@Param("imageUrls") Collection<String> imageUrls);
+
+    @Query("SELECT r.storagePath FROM RecipeImageReferenceEntity r WHERE r.storagePath IN :storagePaths")
+    List<String> findStoragePathsIn(@Param("storagePaths") Collection<String> storagePaths);
+
+    // Blokada na czas transakcji, wspólna dla wszystkich instancji aplikacji korzystających z tej bazy
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryTransactionLock(@Param("key") long key);
+
+    // Blokada czekająca na zwolnienie; dwuczęściowy klucz oddziela ją od pozostałych blokad w bazie
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:namespace, :key)) AS advisory_lock", nativeQuery = true)
+    int advisoryTransactionLock(@Param("namespace") int namespace, @Param("key") int key);
+
+    /*
+     * Usuwa paczkę wpisów bez referencji jednym zapytaniem i zwraca ścieżki ich plików. Warunek
+     * reference_count = 0 jest sprawdzany ponownie przy usuwaniu, więc wpis użyty w międzyczasie zostaje.
+     */
+    @Query(value = "DELETE FROM recipe_image_references " +
+            "WHERE id IN (SELECT id FROM recipe_image_references WHERE reference_count = 0 ORDER BY id LIMIT :limit) " +
+            "AND reference_count = 0 " +
+            "RETURNING storage_path", nativeQuery = true)
+    List<String> deleteOrphanedBatchReturningStoragePaths(@Param("limit") int limit);
 }
\ No newline at end of file
@@ -9,6 +9,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +21,9 @@ public interface RecipeJpaRepository extends JpaRepository<RecipeEntity, Long> {
 
     List<RecipeEntity> findAllByExternalIdIn(List<String> externalIds);
 
+    @Query("SELECT r.externalId AS externalId, r.name AS name, r.createdAt AS createdAt FROM RecipeEntity r")
+    List<RecipeNameRow> findAllNameRows();
+
     List<RecipeEntity> findByParentRecipeId(String parentRecipeId);
 
     @Query("SELECT r FROM RecipeEntity r WHERE " +
@@ -26,8 +31,65 @@ public interface RecipeJpaRepository extends JpaRepository<RecipeEntity, Long> {
             "LOWER(r.instructions) LIKE LOWER(CONCAT('%', :query, '%'))")
     List<RecipeEntity> search(@Param("query") String query);
 
+    /* Fragment tekstu bez LIKE - znaki % i _ w zapytaniu nie są symbolami wieloznacznymi */
+    @Query("SELECT r FROM RecipeEntity r WHERE " +
+            "LOCATE(:normalizedQuery, LOWER(r.name)) > 0 OR " +
+            "LOCATE(:normalizedQuery, LOWER(r.instructions)) > 0 " +
+            "ORDER BY r.name, r.id")
+    List<RecipeEntity> searchSubstring(@Param("normalizedQuery") String normalizedQuery, Pageable pageable);
+
+    /*
+     * Dopasowanie: prefiksy słów (tsvector, indeks GIN), fragment nazwy lub podobieństwo trigramowe nazwy
+     * (indeks pg_trgm). Sortowanie i limit po stronie bazy - zwracane są tylko ID i trafność top-k wyników.
+     * Podobieństwo nazwy liczone jest tak samo jak dla szablonów posiłków, żeby wyniki obu źródeł dało się porównać.
+     */
+    @Query(value = "SELECT r.id AS id, " +
+            "ts_rank(r.search_vector, to_tsquery('simple', :tsQuery)) + similarity(lower(r.name), :normalizedQuery) AS score, " +
+            "GREATEST(similarity(lower(r.name), :normalizedQuery), word_similarity(:normalizedQuery, lower(r.name))) AS similarity " +
+            "FROM recipes r " +
+            "WHERE r.search_vector @@ to_tsquery('simple', :tsQuery) " +
+            "OR lower(r.name) LIKE :namePattern " +
+            "OR lower(r.name) % :normalizedQuery " +
+            "ORDER BY score DESC, r.id " +
+            "LIMIT :limit", nativeQuery = true)
+    List<RecipeSearchHit> searchRanked(@Param("normalizedQuery") String normalizedQuery,
+                                       @Param("tsQuery") String tsQuery,
+                                       @Param("namePattern") String namePattern,
+                                       @Param("limit") int limit);
+
     @NonNull
     Page<RecipeEntity> findAll(@NonNull Pageable pageable);
 
+    @Query("SELECT r.externalId FROM RecipeEntity r")
+    Page<String> findAllExternalIds(Pageable pageable);
+
+    /*
+     * Stronicowanie kursorem po indeksie (created_at DESC, id DESC): bez OFFSET i bez zapytania count.
+     * Porównanie krotek pozwala bazie zacząć odczyt indeksu od pozycji kursora.
+     */
+    @Query("SELECT r FROM RecipeEntity r ORDER BY r.createdAt DESC, r.id DESC")
+    List<RecipeEntity> findFirstKeysetPage(Pageable pageable);
+
+    @Query("SELECT r FROM RecipeEntity r WHERE (r.createdAt, r.id) < (:createdAt, :id) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<RecipeEntity> findKeysetPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    /*
+     * Dociągają kolekcje przepisów wczytanych wcześniej w tej samej transakcji - po jednym zapytaniu
+     * na kolekcję zamiast osobnych zapytań dla każdego przepisu. Dwie listy (bag) nie mogą być
+     * pobrane jednym JOIN FETCH, stąd dwa zapytania. Hibernate sam usuwa powtórzenia przepisów z wyniku.
+     */
+    @Query("SELECT r FROM RecipeEntity r LEFT JOIN FETCH r.ingredients WHERE r.id IN :ids")
+    List<RecipeEntity> fetchIngredientsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT r FROM RecipeEntity r LEFT JOIN FETCH r.photos WHERE r.id IN :ids")
+    List<RecipeEntity> fetchPhotosByIdIn(@Param("ids") Collection<Long> ids);
+
     Optional<RecipeEntity> findFirstByNameIgnoreCaseOrderByCreatedAtDesc(String name);
+
+    // Nazwy w parametrze muszą być już zapisane małymi literami (indeks na lower(name))
+    @Query("SELECT r FROM RecipeEntity r WHERE LOWER(r.name) IN :names ORDER BY r.createdAt DESC, r.id DESC")
+    List<RecipeEntity> findAllByLowerNameIn(@Param("names") Collection<String> names);
 }
\ No newline at end of file
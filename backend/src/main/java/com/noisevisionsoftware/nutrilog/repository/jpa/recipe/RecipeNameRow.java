@@ -0,0 +1,15 @@
+package com.noisevisionsoftware.nutrilog.repository.jpa.recipe;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projekcja przepisu do indeksu podpowiedzi: ID, nazwa i data utworzenia
+ */
+public interface RecipeNameRow {
+
+    String getExternalId();
+
+    String getName();
+
+    LocalDateTime getCreatedAt();
+}
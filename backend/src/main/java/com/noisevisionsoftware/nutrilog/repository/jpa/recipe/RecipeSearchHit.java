@@ -0,0 +1,13 @@
+package com.noisevisionsoftware.nutrilog.repository.jpa.recipe;
+
+/**
+ * Projekcja wyniku wyszukiwania: ID przepisu, trafność i podobieństwo trigramowe nazwy
+ */
+public interface RecipeSearchHit {
+
+    Long getId();
+
+    Double getScore();
+
+    Double getSimilarity();
+}
@@ -0,0 +1,34 @@
+package com.noisevisionsoftware.nutrilog.repository.jpa.recipe;
+
+import com.noisevisionsoftware.nutrilog.model.recipe.jpa.TemporaryImageEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TemporaryImageJpaRepository extends JpaRepository<TemporaryImageEntity, Long> {
+
+    // Blokada na czas transakcji, wspólna dla wszystkich instancji aplikacji korzystających z tej bazy
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryTransactionLock(@Param("key") long key);
+
+    /*
+     * Usuwa paczkę najstarszych wpisów sprzed cutoff (zakres po indeksie created_at) i zwraca ścieżki
+     * oraz rozmiary ich plików. Wpis usunięty w międzyczasie przez promote() nie jest zwracany.
+     */
+    @Query(value = "DELETE FROM temporary_images " +
+            "WHERE id IN (SELECT id FROM temporary_images WHERE created_at < :cutoff ORDER BY created_at LIMIT :limit) " +
+            "AND created_at < :cutoff " +
+            "RETURNING storage_path, size_bytes", nativeQuery = true)
+    List<Object[]> deleteCreatedBeforeReturningFiles(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM TemporaryImageEntity t WHERE t.imageUrl IN :imageUrls")
+    int deleteByImageUrlIn(@Param("imageUrls") Collection<String> imageUrls);
+}
@@ -3,11 +3,11 @@ package com.noisevisionsoftware.nutrilog.repository.meal;
 import com.noisevisionsoftware.nutrilog.model.meal.jpa.MealTemplateEntity;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +16,12 @@ public interface MealTemplateJpaRepository extends JpaRepository<MealTemplateEnt
 
     Optional<MealTemplateEntity> findByExternalId(String externalId);
 
+    List<MealTemplateEntity> findAllByExternalIdIn(Collection<String> externalIds);
+
+    @Query("SELECT m.externalId AS externalId, m.name AS name, m.usageCount AS usageCount, " +
+            "m.lastUsed AS lastUsed, m.isPublic AS isPublic, m.createdBy AS createdBy FROM MealTemplateEntity m")
+    List<MealTemplateNameRow> findAllNameRows();
+
     @Query("SELECT m FROM MealTemplateEntity m WHERE " +
             "LOWER(m.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
             "LOWER(m.instructions) LIKE LOWER(CONCAT('%', :query, '%')) " +
@@ -38,24 +44,37 @@ public interface MealTemplateJpaRepository extends JpaRepository<MealTemplateEnt
             "ORDER BY m.usageCount DESC")
     List<MealTemplateEntity> findByMealTypeOrderByUsageCountDesc(@Param("mealType") String mealType, Pageable pageable);
 
-    @Modifying
-    @Query("UPDATE MealTemplateEntity m SET m.usageCount = m.usageCount + 1, m.lastUsed = CURRENT_TIMESTAMP " +
-            "WHERE m.externalId = :externalId")
-    void incrementUsageCount(@Param("externalId") String externalId);
-
     @Query("SELECT COUNT(m) FROM MealTemplateEntity m WHERE m.createdBy = :createdBy")
     long countByCreatedBy(@Param("createdBy") String createdBy);
 
-    @Query("SELECT m FROM MealTemplateEntity m WHERE " +
-            "(m.isPublic = true OR m.createdBy = :userId) AND " +
-            "(LOWER(m.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(m.instructions) LIKE LOWER(CONCAT('%', :query, '%'))) " +
-            "ORDER BY " +
-            "CASE WHEN LOWER(m.name) = LOWER(:query) THEN 1 " +
-            "     WHEN LOWER(m.name) LIKE LOWER(CONCAT(:query, '%')) THEN 2 " +
-            "     ELSE 3 END, " +
-            "m.usageCount DESC, m.lastUsed DESC NULLS LAST")
-    List<MealTemplateEntity> searchAccessibleTemplates(@Param("query") String query,
+    /*
+     * Szablony widoczne dla użytkownika, których nazwa zawiera zapytanie albo jest do niego podobna
+     * (indeks pg_trgm na name_lower). Trafność to większe z podobieństwa całej nazwy i najlepiej
+     * pasującego fragmentu nazwy; sortowanie i limit po stronie bazy, więc top-k jest dokładne.
+     */
+    @Query(value = "SELECT m.id AS id, " +
+            "GREATEST(similarity(m.name_lower, :normalizedQuery), word_similarity(:normalizedQuery, m.name_lower)) AS score " +
+            "FROM meal_templates m " +
+            "WHERE (m.is_public = true OR m.created_by = :userId) " +
+            "AND (m.name_lower LIKE :namePattern " +
+            "OR m.name_lower % :normalizedQuery " +
+            "OR :normalizedQuery <% m.name_lower) " +
+            "ORDER BY CASE WHEN m.name_lower = :normalizedQuery THEN 0 ELSE 1 END, " +
+            "score DESC, similarity(m.name_lower, :normalizedQuery) DESC, " +
+            "m.usage_count DESC, m.last_used DESC NULLS LAST, m.id " +
+            "LIMIT :limit", nativeQuery = true)
+    List<MealTemplateSearchHit> searchAccessibleRanked(@Param("normalizedQuery") String normalizedQuery,
+                                                       @Param("namePattern") String namePattern,
                                                        @Param("userId") String userId,
-                                                       Pageable pageable);
-}
\ No newline at end of file
+                                                       @Param("limit") int limit);
+
+    /*
+     * Dociągają kolekcje szablonów wczytanych wcześniej w tej samej transakcji - po jednym zapytaniu
+     * na kolekcję zamiast osobnych zapytań dla każdego szablonu
+     */
+    @Query("SELECT m FROM MealTemplateEntity m LEFT JOIN FETCH m.photos WHERE m.id IN :ids")
+    List<MealTemplateEntity> fetchPhotosByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT m FROM MealTemplateEntity m LEFT JOIN FETCH m.ingredients WHERE m.id IN :ids")
+    List<MealTemplateEntity> fetchIngredientsByIdIn(@Param("ids") Collection<Long> ids);
+}
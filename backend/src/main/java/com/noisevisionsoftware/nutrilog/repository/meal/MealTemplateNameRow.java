@@ -0,0 +1,21 @@
+package com.noisevisionsoftware.nutrilog.repository.meal;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projekcja szablonu do indeksu podpowiedzi: nazwa, licznik użyć i widoczność
+ */
+public interface MealTemplateNameRow {
+
+    String getExternalId();
+
+    String getName();
+
+    Integer getUsageCount();
+
+    LocalDateTime getLastUsed();
+
+    Boolean getIsPublic();
+
+    String getCreatedBy();
+}
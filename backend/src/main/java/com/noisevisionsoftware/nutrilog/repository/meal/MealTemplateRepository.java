@@ -1,7 +1,10 @@
 package com.noisevisionsoftware.nutrilog.repository.meal;
 
+import com.noisevisionsoftware.nutrilog.model.meal.MealNameEntry;
 import com.noisevisionsoftware.nutrilog.model.meal.MealTemplate;
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplateSearchResult;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,6 +12,18 @@ public interface MealTemplateRepository {
 
     Optional<MealTemplate> findById(String id);
 
+    List<MealTemplate> findAll();
+
+    /**
+     * Szablony o podanych ID w kolejności ID; nieistniejące są pomijane
+     */
+    List<MealTemplate> findAllByIds(Collection<String> ids);
+
+    /**
+     * Nazwy wszystkich szablonów z licznikiem użyć i widocznością - bez wczytywania pełnych szablonów
+     */
+    List<MealNameEntry> findAllNameEntries();
+
     List<MealTemplate> searchByName(String query, int limit);
 
     List<MealTemplate> findTopByUsageCount(int limit);
@@ -19,7 +34,8 @@ public interface MealTemplateRepository {
 
     void delete(String id);
 
-    void incrementUsageCount(String id);
-
-    List<MealTemplate> searchAccessibleTemplates(String query, String userId, int limit);
+    /**
+     * Szablony widoczne dla użytkownika najbardziej podobne do zapytania, z trafnością obliczoną w bazie
+     */
+    List<MealTemplateSearchResult> searchAccessibleRanked(String query, String userId, int limit);
 }
\ No newline at end of file
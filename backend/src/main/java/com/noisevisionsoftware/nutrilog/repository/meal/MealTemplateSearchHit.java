@@ -0,0 +1,11 @@
+package com.noisevisionsoftware.nutrilog.repository.meal;
+
+/**
+ * Projekcja wyniku wyszukiwania: ID szablonu i podobieństwo nazwy do zapytania (0.0 - 1.0)
+ */
+public interface MealTemplateSearchHit {
+
+    Long getId();
+
+    Double getScore();
+}
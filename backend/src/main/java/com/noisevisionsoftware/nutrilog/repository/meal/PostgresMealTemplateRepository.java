@@ -1,8 +1,11 @@
 package com.noisevisionsoftware.nutrilog.repository.meal;
 
+import com.google.cloud.Timestamp;
 import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
 import com.noisevisionsoftware.nutrilog.mapper.meal.MealTemplateJpaConverter;
+import com.noisevisionsoftware.nutrilog.model.meal.MealNameEntry;
 import com.noisevisionsoftware.nutrilog.model.meal.MealTemplate;
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplateSearchResult;
 import com.noisevisionsoftware.nutrilog.model.meal.jpa.MealTemplateEntity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,9 +14,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Repository
@@ -21,6 +26,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PostgresMealTemplateRepository implements MealTemplateRepository {
 
+    private static final int COLLECTION_FETCH_BATCH_SIZE = 1000;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final MealTemplateJpaRepository jpaRepository;
     private final MealTemplateJpaConverter converter;
 
@@ -35,10 +43,79 @@ public class PostgresMealTemplateRepository implements MealTemplateRepository {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<MealTemplate> findAll() {
+        try {
+            List<MealTemplateEntity> entities = jpaRepository.findAll();
+
+            // Kolekcje paczkami, żeby liczba parametrów zapytania nie rosła z liczbą szablonów
+            List<Long> ids = entities.stream().map(MealTemplateEntity::getId).toList();
+            for (int from = 0; from < ids.size(); from += COLLECTION_FETCH_BATCH_SIZE) {
+                List<Long> batch = ids.subList(from, Math.min(ids.size(), from + COLLECTION_FETCH_BATCH_SIZE));
+                jpaRepository.fetchPhotosByIdIn(batch);
+                jpaRepository.fetchIngredientsByIdIn(batch);
+            }
+
+            return entities.stream()
+                    .map(converter::toModel)
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("Błąd podczas pobierania wszystkich szablonów posiłków", e);
+            throw new RuntimeException("Nie udało się pobrać szablonów posiłków", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MealTemplate> findAllByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        try {
+            List<MealTemplateEntity> entities = jpaRepository.findAllByExternalIdIn(new LinkedHashSet<>(ids));
+            List<Long> entityIds = entities.stream().map(MealTemplateEntity::getId).toList();
+            jpaRepository.fetchPhotosByIdIn(entityIds);
+            jpaRepository.fetchIngredientsByIdIn(entityIds);
+
+            Map<String, MealTemplate> byId = entities.stream()
+                    .map(converter::toModel)
+                    .collect(Collectors.toMap(MealTemplate::getId, Function.identity(), (first, second) -> first));
+            return ids.stream()
+                    .distinct()
+                    .map(byId::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("Błąd podczas pobierania szablonów posiłków: {}", ids, e);
+            throw new RuntimeException("Nie udało się pobrać szablonów posiłków", e);
+        }
+    }
+
+    @Override
+    public List<MealNameEntry> findAllNameEntries() {
+        try {
+            return jpaRepository.findAllNameRows().stream()
+                    .map(row -> MealNameEntry.builder()
+                            .id(row.getExternalId())
+                            .name(row.getName())
+                            .usageCount(row.getUsageCount() != null ? row.getUsageCount() : 0)
+                            .lastUsed(toTimestamp(row.getLastUsed()))
+                            .isPublic(Boolean.TRUE.equals(row.getIsPublic()))
+                            .ownerId(row.getCreatedBy())
+                            .build())
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("Błąd podczas pobierania nazw szablonów posiłków", e);
+            throw new RuntimeException("Nie udało się pobrać nazw szablonów posiłków", e);
+        }
+    }
+
     @Override
     public List<MealTemplate> searchByName(String query, int limit) {
         try {
-            Pageable pageable = PageRequest.of(1, limit);
+            Pageable pageable = PageRequest.of(0, limit);
             List<MealTemplateEntity> entities = jpaRepository.searchByNameOrInstructions(query, pageable);
 
             return entities.stream()
@@ -53,7 +130,7 @@ public class PostgresMealTemplateRepository implements MealTemplateRepository {
     @Override
     public List<MealTemplate> findTopByUsageCount(int limit) {
         try {
-            Pageable pageable = PageRequest.of(1, limit);
+            Pageable pageable = PageRequest.of(0, limit);
             return jpaRepository.findTopByOrderByUsageCountDescLastUsedDesc(pageable).stream()
                     .map(converter::toModel)
                     .collect(Collectors.toList());
@@ -66,7 +143,7 @@ public class PostgresMealTemplateRepository implements MealTemplateRepository {
     @Override
     public List<MealTemplate> findRecentlyUsed(int limit) {
         try {
-            Pageable pageable = PageRequest.of(1, limit);
+            Pageable pageable = PageRequest.of(0, limit);
             return jpaRepository.findRecentlyUsed(pageable).stream()
                     .map(converter::toModel)
                     .collect(Collectors.toList());
@@ -111,24 +188,63 @@ public class PostgresMealTemplateRepository implements MealTemplateRepository {
         }
     }
 
-    public List<MealTemplate> searchAccessibleTemplates(String query, String userId, int limit) {
+    @Override
+    @Transactional(readOnly = true)
+    public List<MealTemplateSearchResult> searchAccessibleRanked(String query, String userId, int limit) {
+        if (query == null || query.isBlank() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
         try {
-            Pageable pageable = PageRequest.of(1, limit);
-            return jpaRepository.searchAccessibleTemplates(query, userId, pageable).stream()
-                    .map(converter::toModel)
-                    .collect(Collectors.toList());
+            String normalizedQuery = query.trim().toLowerCase();
+            List<MealTemplateSearchHit> hits = jpaRepository.searchAccessibleRanked(
+                    normalizedQuery,
+                    "%" + escapeLikePattern(normalizedQuery) + "%",
+                    userId,
+                    Math.min(limit, MAX_SEARCH_LIMIT));
+            return loadSearchResults(hits);
         } catch (Exception e) {
             log.error("Błąd podczas wyszukiwania dostępnych szablonów", e);
             return new ArrayList<>();
         }
     }
 
-    @Transactional
-    public void incrementUsageCount(String externalId) {
-        try {
-            jpaRepository.incrementUsageCount(externalId);
-        } catch (Exception e) {
-            log.error("Błąd podczas aktualizacji licznika użycia: {}", externalId, e);
+    /*
+     * Szablony z wyników wyszukiwania w kolejności trafności zwróconej przez bazę - szablony razem ze zdjęciami
+     * w jednym zapytaniu i składniki w drugim, niezależnie od liczby wyników
+     */
+    List<MealTemplateSearchResult> loadSearchResults(List<MealTemplateSearchHit> hits) {
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = hits.stream().map(MealTemplateSearchHit::getId).toList();
+        Map<Long, MealTemplateEntity> entitiesById = jpaRepository.fetchPhotosByIdIn(ids).stream()
+                .collect(Collectors.toMap(MealTemplateEntity::getId, Function.identity(), (first, second) -> first));
+        jpaRepository.fetchIngredientsByIdIn(ids);
+
+        List<MealTemplateSearchResult> results = new ArrayList<>(hits.size());
+        for (MealTemplateSearchHit hit : hits) {
+            MealTemplateEntity entity = entitiesById.get(hit.getId());
+            if (entity != null) {
+                results.add(new MealTemplateSearchResult(converter.toModel(entity),
+                        hit.getScore() != null ? hit.getScore() : 0.0));
+            }
+        }
+        return results;
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime localDateTime) {
+        if (localDateTime == null) {
+            return null;
         }
+        Instant instant = localDateTime.toInstant(ZoneOffset.UTC);
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+
+    static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
     }
 }
@@ -3,8 +3,11 @@ package com.noisevisionsoftware.nutrilog.repository.recipe;
 import com.noisevisionsoftware.nutrilog.model.recipe.RecipeImageReference;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface RecipeImageRepository {
@@ -13,11 +16,44 @@ public interface RecipeImageRepository {
 
     Optional<RecipeImageReference> findByImageUrl(String imageUrl);
 
-    void incrementReferenceCount(String imageUrl);
+    Optional<RecipeImageReference> findByContentHash(String contentHash);
 
-    int decrementReferenceCount(String imageUrl);
+    /**
+     * Zwiększa licznik referencji; zwraca liczbę zmienionych wpisów (0, gdy wpis został już usunięty)
+     */
+    int incrementReferenceCount(String imageUrl);
 
-    void deleteByImageUrl(String imageUrl);
+    int decrementReferenceCount(String imageUrl);
 
-    List<RecipeImageReference> findAllWithZeroReferences();
+    /**
+     * Zapisuje ścieżkę wygenerowanej miniatury zdjęcia o podanym skrócie zawartości
+     */
+    void updateThumbnailPath(String contentHash, String thumbnailPath);
+
+    /**
+     * Ścieżki miniatur podanych zdjęć (adres zdjęcia -> ścieżka); zdjęcia bez miniatury są pomijane
+     */
+    Map<String, String> findThumbnailPaths(Collection<String> imageUrls);
+
+    /**
+     * Próbuje zająć blokadę sprzątania osieroconych zdjęć do końca bieżącej transakcji;
+     * false, gdy sprzątanie trwa już w innej instancji aplikacji
+     */
+    boolean tryLockOrphanCleanup();
+
+    /**
+     * Zajmuje (czekając) blokady plików zdjęć o podanych ścieżkach do końca bieżącej transakcji - zapis pliku
+     * z wpisem i sprawdzenie referencji przed usunięciem pliku nie mogą się przeplatać
+     */
+    void lockImageFiles(Collection<String> storagePaths);
+
+    /**
+     * Usuwa najwyżej limit wpisów bez referencji i zwraca ścieżki ich plików
+     */
+    List<String> deleteOrphanedBatch(int limit);
+
+    /**
+     * Te z podanych ścieżek, do których prowadzi wpis w bazie (np. zapisany ponownie po usunięciu osieroconego)
+     */
+    Set<String> findReferencedStoragePaths(Collection<String> storagePaths);
 }
\ No newline at end of file
@@ -1,12 +1,16 @@
 package com.noisevisionsoftware.nutrilog.repository.recipe;
 
+import com.noisevisionsoftware.nutrilog.model.meal.MealNameEntry;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeCursorPage;
 import com.noisevisionsoftware.nutrilog.model.recipe.RecipeReference;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeSearchResult;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface RecipeRepository {
@@ -15,24 +19,69 @@ public interface RecipeRepository {
 
     Optional<Recipe> findByName(String name);
 
+    /**
+     * Najnowszy przepis dla każdej z nazw (bez względu na wielkość liter), pobrane jednym zapytaniem.
+     * Klucz mapy: nazwa po trim i toLowerCase(Locale.ROOT)
+     */
+    Map<String, Recipe> findLatestByNames(Collection<String> names);
+
     List<Recipe> findAllByIds(Collection<String> ids);
 
     List<Recipe> findAll();
 
+    /**
+     * Nazwy wszystkich przepisów bez wczytywania pełnych przepisów. Przepisy są publiczne i nie mają
+     * licznika użyć - jako ostatnie użycie podawana jest data utworzenia.
+     */
+    List<MealNameEntry> findAllNameEntries();
+
     Page<Recipe> findAll(Pageable pageable);
 
+    /**
+     * Sama strona ID przepisów - treść przepisów można wtedy pobrać przez cache pojedynczych przepisów
+     */
+    Page<String> findAllIds(Pageable pageable);
+
+    /**
+     * Strona przepisów od najnowszych, zaczynając za pozycją wskazaną kursorem (null - pierwsza strona).
+     * Nie liczy wszystkich przepisów; nextCursor jest null na ostatniej stronie.
+     *
+     * @throws IllegalArgumentException gdy kursor jest nieprawidłowy
+     */
+    RecipeCursorPage findPageAfter(String cursor, int limit);
+
     Recipe update(String id, Recipe recipe);
 
     List<Recipe> search(String query);
 
+    /**
+     * Najlepiej dopasowane przepisy (co najwyżej limit) posortowane malejąco według trafności.
+     * W przeciwieństwie do search() w instrukcjach dopasowywane są tylko początki słów ("mid" nie znajdzie
+     * "pomidorów"), a fragment tekstu tylko w nazwie. Zapytanie bez liter i cyfr (np. "--")
+     * daje pusty tsquery, więc jest szukane jak w search() - jako fragment nazwy lub instrukcji.
+     */
+    List<RecipeSearchResult> searchRanked(String query, int limit);
+
     void delete(String id);
 
     Recipe save(Recipe recipe);
 
+    /**
+     * Zapis wielu nowych lub zmienionych przepisów naraz; przepisom bez ID nadawane jest ID w przekazanym obiekcie
+     */
+    List<Recipe> saveAll(List<Recipe> recipes);
+
     List<Recipe> findByParentRecipeId(String parentId);
 
     // Jeśli ta metoda jest specyficzna tylko dla Firestore, można ją przenieść do FirestoreRecipeRepository
     default void saveReference(RecipeReference reference) {
         throw new UnsupportedOperationException("Method not implemented");
     }
+
+    /**
+     * Zapis wielu referencji naraz; domyślnie po jednej, implementacje mogą zapisywać je jedną operacją
+     */
+    default void saveReferences(List<RecipeReference> references) {
+        references.forEach(this::saveReference);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.noisevisionsoftware.nutrilog.repository.recipe;
+
+import com.noisevisionsoftware.nutrilog.model.recipe.TemporaryImage;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TemporaryImageRepository {
+
+    TemporaryImage save(TemporaryImage temporaryImage);
+
+    /**
+     * Próbuje zająć blokadę wygaszania zdjęć tymczasowych do końca bieżącej transakcji;
+     * false, gdy wygaszanie trwa już w innej instancji aplikacji
+     */
+    boolean tryLockExpiry();
+
+    /**
+     * Usuwa najwyżej limit najstarszych wpisów utworzonych przed podanym momentem i zwraca je
+     * (tylko ścieżka pliku i rozmiar)
+     */
+    List<TemporaryImage> deleteCreatedBefore(LocalDateTime cutoff, int limit);
+
+    /**
+     * Usuwa wpisy zdjęć o podanych adresach i zwraca liczbę usuniętych wpisów
+     */
+    int deleteByImageUrls(Collection<String> imageUrls);
+}
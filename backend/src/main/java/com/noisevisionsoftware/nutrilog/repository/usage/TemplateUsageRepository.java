@@ -0,0 +1,18 @@
+package com.noisevisionsoftware.nutrilog.repository.usage;
+
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageDelta;
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageKind;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TemplateUsageRepository {
+
+    /**
+     * Dodaje zebrane użycia do liczników szablonów; last_used jest przesuwane tylko do przodu
+     *
+     * @return liczba zaktualizowanych szablonów
+     */
+    int applyUsageDeltas(TemplateUsageKind kind, List<TemplateUsageDelta> deltas);
+}
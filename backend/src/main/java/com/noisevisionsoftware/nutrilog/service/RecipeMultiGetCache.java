@@ -0,0 +1,114 @@
+package com.noisevisionsoftware.nutrilog.service;
+
+import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pobieranie wielu przepisów przez cache pojedynczych przepisów (recipesCache, klucz = ID).
+ * Trafienia są zwracane z cache, brakujące ID wczytywane jednym zapytaniem i dokładane do cache,
+ * więc zapis przepisu unieważnia tylko jego własny wpis.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecipeMultiGetCache {
+
+    static final String RECIPES_CACHE = "recipesCache";
+
+    private final CacheManager cacheManager;
+    private final RecipeRepository recipeRepository;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong lastRequestHitRatioBits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+    /**
+     * Przepisy w kolejności pierwszego wystąpienia ID; powtórzone i nieistniejące ID są pomijane
+     */
+    public List<Recipe> getAll(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        Cache cache = cacheManager.getCache(RECIPES_CACHE);
+        Map<String, Recipe> found = new HashMap<>(uniqueIds.size() * 2);
+        List<String> missingIds = new ArrayList<>();
+
+        for (String id : uniqueIds) {
+            Recipe cached = cache != null ? cache.get(id, Recipe.class) : null;
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missingIds.add(id);
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            for (Recipe recipe : recipeRepository.findAllByIds(missingIds)) {
+                found.put(recipe.getId(), recipe);
+                if (cache != null) {
+                    cache.put(recipe.getId(), recipe);
+                }
+            }
+        }
+
+        recordRequest(uniqueIds.size(), missingIds.size());
+
+        List<Recipe> result = new ArrayList<>(found.size());
+        for (String id : uniqueIds) {
+            Recipe recipe = found.get(id);
+            if (recipe != null) {
+                result.add(recipe);
+            }
+        }
+        return result;
+    }
+
+    public void evict(String id) {
+        Cache cache = cacheManager.getCache(RECIPES_CACHE);
+        if (cache != null && id != null) {
+            cache.evict(id);
+        }
+    }
+
+    /*
+     * Trafienia liczone na poziomie żądań multi-get (statystyki Caffeine obejmują też pojedyncze odczyty)
+     * */
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("requestCount", requests.sum());
+        statistics.put("hitCount", hitCount);
+        statistics.put("missCount", missCount);
+        statistics.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        statistics.put("lastRequestHitRate", Double.longBitsToDouble(lastRequestHitRatioBits.get()));
+        return statistics;
+    }
+
+    private void recordRequest(int requested, int missing) {
+        int hit = requested - missing;
+        double hitRatio = (double) hit / requested;
+
+        requests.increment();
+        hits.add(hit);
+        misses.add(missing);
+        lastRequestHitRatioBits.set(Double.doubleToLongBits(hitRatio));
+
+        log.debug("Multi-get przepisów: {} ID, z cache {}, z bazy {} (hit ratio {})",
+                requested, hit, missing, String.format("%.2f", hitRatio));
+    }
+}
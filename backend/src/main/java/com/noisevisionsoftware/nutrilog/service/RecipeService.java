@@ -1,27 +1,34 @@
 package com.noisevisionsoftware.nutrilog.service;
 
 import com.google.cloud.Timestamp;
-import com.google.cloud.storage.*;
 import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
-import com.noisevisionsoftware.nutrilog.model.recipe.RecipeImageReference;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeCursorPage;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeReference;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeSearchResult;
 import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeImageRepository;
 import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeRepository;
+import com.noisevisionsoftware.nutrilog.service.diet.manual.MealTypeaheadService;
+import com.noisevisionsoftware.nutrilog.service.image.OrphanedImageReaper;
+import com.noisevisionsoftware.nutrilog.service.image.RecipeImagePipeline;
+import com.noisevisionsoftware.nutrilog.service.image.TemporaryImageService;
+import com.noisevisionsoftware.nutrilog.utils.CharSequenceInputStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.coyote.BadRequestException;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 @Service
@@ -31,14 +38,13 @@ public class RecipeService {
 
     private final RecipeRepository recipeRepository;
     private final RecipeImageRepository recipeImageRepository;
-    private final Storage storage;
-
-    @Value("${firebase.storage.bucket-name}")
-    private String storageBucket;
+    private final RecipeMultiGetCache recipeMultiGetCache;
+    private final RecipeImagePipeline recipeImagePipeline;
+    private final TemporaryImageService temporaryImageService;
+    private final OrphanedImageReaper orphanedImageReaper;
+    private final MealTypeaheadService mealTypeaheadService;
 
     private static final String RECIPES_CACHE = "recipesCache";
-    private static final String RECIPES_BATCH_CACHE = "recipesBatchCache";
-    private static final String RECIPES_PAGE_CACHE = "recipesPageCache";
 
     @Cacheable(value = RECIPES_CACHE, key = "#id")
     public Recipe getRecipeById(String id) {
@@ -46,38 +52,39 @@ public class RecipeService {
                 .orElseThrow(() -> new NotFoundException("Recipe not found with id: " + id));
     }
 
-    @Cacheable(value = RECIPES_BATCH_CACHE, key = "#ids")
     public List<Recipe> getRecipesByIds(Collection<String> ids) {
-        if (ids == null || ids.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        return recipeRepository.findAllByIds(ids);
+        return recipeMultiGetCache.getAll(ids);
     }
 
-    @Cacheable(value = RECIPES_PAGE_CACHE, key = "{#pageable.pageNumber, #pageable.pageSize, #pageable.sort}")
+    /**
+     * Strona ID jest zawsze pobierana z bazy, a same przepisy - przez cache pojedynczych przepisów
+     */
     public Page<Recipe> getAllRecipes(Pageable pageable) {
-        return recipeRepository.findAll(pageable);
+        Page<String> idsPage = recipeRepository.findAllIds(pageable);
+        List<Recipe> recipes = recipeMultiGetCache.getAll(idsPage.getContent());
+        return new PageImpl<>(recipes, pageable, idsPage.getTotalElements());
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = RECIPES_CACHE, key = "#id"),
-            @CacheEvict(value = RECIPES_BATCH_CACHE, allEntries = true),
-            @CacheEvict(value = RECIPES_PAGE_CACHE, allEntries = true)
-    })
+    /**
+     * Stronicowanie kursorem - nie jest cache'owane, bo kolejne strony zależą od kursora, a nie od numeru strony
+     */
+    public RecipeCursorPage getRecipesAfter(String cursor, int limit) {
+        return recipeRepository.findPageAfter(cursor, limit);
+    }
+
+    @CacheEvict(value = RECIPES_CACHE, key = "#id")
     public Recipe updateRecipe(String id, Recipe recipe) {
         getRecipeById(id);
 
         recipe.setId(id);
 
-        return recipeRepository.update(id, recipe);
+        Recipe updated = recipeRepository.update(id, recipe);
+        temporaryImageService.promote(recipe.getPhotos());
+        mealTypeaheadService.recipeSaved(updated);
+        return updated;
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = RECIPES_CACHE, key = "#id"),
-            @CacheEvict(value = RECIPES_BATCH_CACHE, allEntries = true),
-            @CacheEvict(value = RECIPES_PAGE_CACHE, allEntries = true)
-    })
+    @CacheEvict(value = RECIPES_CACHE, key = "#id")
     public void deleteRecipe(String id) {
         Recipe recipe = getRecipeById(id);
 
@@ -92,26 +99,10 @@ public class RecipeService {
         }
 
         recipeRepository.delete(id);
+        mealTypeaheadService.recipeDeleted(id);
 
-        cleanupOrphanedImages();
-    }
-
-    @Async
-    protected void cleanupOrphanedImages() {
-        List<RecipeImageReference> orphanedImages = recipeImageRepository.findAllWithZeroReferences();
-
-        for (RecipeImageReference image : orphanedImages) {
-            try {
-                if (image.getStoragePath() != null) {
-                    BlobId blobId = BlobId.of(storageBucket, image.getStoragePath());
-                    storage.delete(blobId);
-                    log.info("Usunięto osierocone zdjęcie: {}", image.getImageUrl());
-                }
-                recipeImageRepository.deleteByImageUrl(image.getImageUrl());
-            } catch (Exception e) {
-                log.error("Błąd podczas usuwania osieroconego zdjęcia: {}", image.getImageUrl(), e);
-            }
-        }
+        // Pliki bez referencji usuwa proces w tle - czas usuwania przepisu nie zależy od ich liczby
+        orphanedImageReaper.requestCleanup();
     }
 
     public Recipe createRecipe(Recipe recipe) {
@@ -119,7 +110,10 @@ public class RecipeService {
             recipe.setCreatedAt(Timestamp.now());
         }
 
-        return recipeRepository.save(recipe);
+        Recipe saved = recipeRepository.save(recipe);
+        temporaryImageService.promote(recipe.getPhotos());
+        mealTypeaheadService.recipeSaved(saved);
+        return saved;
     }
 
     public Recipe findOrCreateRecipe(Recipe recipe) {
@@ -133,115 +127,219 @@ public class RecipeService {
             Recipe existing = existingRecipe.get();
 
             // Tworzymy kopię z aktualizacjami, aby uniknąć modyfikacji obiektu w cache
-            Recipe updatedRecipe = Recipe.builder()
-                    .id(existing.getId())
-                    .name(existing.getName())
-                    .instructions(existing.getInstructions())
-                    .createdAt(existing.getCreatedAt())
-                    .photos(existing.getPhotos() != null ? new ArrayList<>(existing.getPhotos()) : new ArrayList<>())
-                    .nutritionalValues(existing.getNutritionalValues())
-                    .parentRecipeId(existing.getParentRecipeId())
-                    .ingredients(existing.getIngredients())
-                    .build();
-
-            boolean shouldUpdate = false;
-
-            // Jeśli nowy przepis ma instrukcje, a stary nie ma, lub nowe są dłuższe
-            if ((updatedRecipe.getInstructions() == null || updatedRecipe.getInstructions().isEmpty()) &&
-                    recipe.getInstructions() != null && !recipe.getInstructions().isEmpty()) {
-                updatedRecipe.setInstructions(recipe.getInstructions());
-                shouldUpdate = true;
-            } else if (updatedRecipe.getInstructions() != null && recipe.getInstructions() != null &&
-                    recipe.getInstructions().length() > updatedRecipe.getInstructions().length()) {
-                // Jeśli nowe instrukcje są bardziej szczegółowe (dłuższe)
-                updatedRecipe.setInstructions(recipe.getInstructions());
-                shouldUpdate = true;
+            Recipe updatedRecipe = copyForUpdate(existing);
+
+            if (mergeInto(updatedRecipe, recipe)) {
+                Recipe saved = recipeRepository.update(updatedRecipe.getId(), updatedRecipe);
+                recipeMultiGetCache.evict(updatedRecipe.getId());
+                temporaryImageService.promote(updatedRecipe.getPhotos());
+                mealTypeaheadService.recipeSaved(saved);
+                return saved;
             }
 
-            // Jeśli nowy przepis ma wartości odżywcze, a stary nie ma
-            if (updatedRecipe.getNutritionalValues() == null && recipe.getNutritionalValues() != null) {
-                updatedRecipe.setNutritionalValues(recipe.getNutritionalValues());
-                shouldUpdate = true;
-            }
+            return existing;
+        } else {
+            log.info("Tworzenie nowego przepisu: {}", recipe.getName());
+            return createRecipe(recipe);
+        }
+    }
 
-            if (recipe.getPhotos() != null && !recipe.getPhotos().isEmpty()) {
-                List<String> combinedPhotos = new ArrayList<>();
+    /**
+     * Zbiorczy odpowiednik findOrCreateRecipe (np. dla wszystkich posiłków diety): jedno zapytanie o istniejące
+     * przepisy po nazwach, scalanie w pamięci według tych samych reguł, a następnie zapis nowych i zmienionych
+     * przepisów oraz wszystkich referencji w jednej transakcji. Przepisy o tej samej nazwie (bez względu na
+     * wielkość liter) trafiają do jednego przepisu; przepisy bez nazwy są zawsze tworzone osobno.
+     *
+     * @param recipes    przepisy w kolejności posiłków
+     * @param references referencje odpowiadające kolejnym przepisom (może być null); recipeId jest uzupełniane
+     * @return nazwa przepisu (po trim) -> ID zapisanego przepisu
+     */
+    @Transactional
+    public Map<String, String> findOrCreateRecipes(List<Recipe> recipes, List<RecipeReference> references) {
+        if (recipes == null || recipes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (references != null && references.size() != recipes.size()) {
+            throw new IllegalArgumentException("Liczba referencji musi odpowiadać liczbie przepisów");
+        }
 
-                if (updatedRecipe.getPhotos() != null) {
-                    combinedPhotos.addAll(updatedRecipe.getPhotos());
-                }
+        Set<String> names = new LinkedHashSet<>();
+        for (Recipe recipe : recipes) {
+            if (hasName(recipe)) {
+                names.add(recipe.getName().trim());
+            }
+        }
+        Map<String, Recipe> existingByName = recipeRepository.findLatestByNames(names);
+
+        Map<String, Recipe> resolvedByName = new HashMap<>();
+        Set<Recipe> toSave = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Recipe> resolved = new ArrayList<>(recipes.size());
+
+        for (Recipe recipe : recipes) {
+            if (!hasName(recipe)) {
+                Recipe created = prepareNewRecipe(recipe);
+                toSave.add(created);
+                resolved.add(created);
+                continue;
+            }
 
-                for (String photo : recipe.getPhotos()) {
-                    if (!combinedPhotos.contains(photo)) {
-                        combinedPhotos.add(photo);
-                        shouldUpdate = true;
-                    }
+            String nameKey = normalizeName(recipe.getName());
+            Recipe current = resolvedByName.get(nameKey);
+            if (current == null) {
+                Recipe existing = existingByName.get(nameKey);
+                if (existing == null) {
+                    current = prepareNewRecipe(recipe);
+                    toSave.add(current);
+                    resolvedByName.put(nameKey, current);
+                    resolved.add(current);
+                    continue;
                 }
+                current = copyForUpdate(existing);
+                resolvedByName.put(nameKey, current);
+            }
 
-                updatedRecipe.setPhotos(combinedPhotos);
+            if (mergeInto(current, recipe)) {
+                toSave.add(current);
             }
+            resolved.add(current);
+        }
+
+        if (!toSave.isEmpty()) {
+            // Nowym przepisom repozytorium nadaje ID bezpośrednio w przekazanych obiektach
+            recipeRepository.saveAll(new ArrayList<>(toSave));
+            List<String> savedIds = toSave.stream().map(Recipe::getId).toList();
+            List<String> savedPhotos = toSave.stream()
+                    .filter(recipe -> recipe.getPhotos() != null)
+                    .flatMap(recipe -> recipe.getPhotos().stream())
+                    .toList();
+            // Cache i zdjęcia tymczasowe dopiero po zatwierdzeniu - wycofany zapis nie może ich zmienić
+            runAfterCommit(() -> {
+                savedIds.forEach(recipeMultiGetCache::evict);
+                temporaryImageService.promote(savedPhotos);
+            });
+            mealTypeaheadService.recipesSaved(toSave);
+        }
 
-            if (shouldUpdate) {
-                return recipeRepository.update(updatedRecipe.getId(), updatedRecipe);
+        if (references != null) {
+            for (int i = 0; i < references.size(); i++) {
+                references.get(i).setRecipeId(resolved.get(i).getId());
             }
+            recipeRepository.saveReferences(references);
+        }
 
-            return existing;
+        Map<String, String> idsByName = new LinkedHashMap<>();
+        for (int i = 0; i < recipes.size(); i++) {
+            if (hasName(recipes.get(i))) {
+                idsByName.putIfAbsent(recipes.get(i).getName().trim(), resolved.get(i).getId());
+            }
+        }
+
+        log.info("Zapisano przepisy zbiorczo: {} posiłków, {} nazw, {} nowych lub zmienionych przepisów",
+                recipes.size(), names.size(), toSave.size());
+        return idsByName;
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
         } else {
-            log.info("Tworzenie nowego przepisu: {}", recipe.getName());
-            return createRecipe(recipe);
+            action.run();
         }
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = RECIPES_CACHE, key = "#id"),
-            @CacheEvict(value = RECIPES_BATCH_CACHE, allEntries = true),
-            @CacheEvict(value = RECIPES_PAGE_CACHE, allEntries = true)
-    })
+    private Recipe copyForUpdate(Recipe existing) {
+        return Recipe.builder()
+                .id(existing.getId())
+                .name(existing.getName())
+                .instructions(existing.getInstructions())
+                .createdAt(existing.getCreatedAt())
+                .photos(existing.getPhotos() != null ? new ArrayList<>(existing.getPhotos()) : new ArrayList<>())
+                .nutritionalValues(existing.getNutritionalValues())
+                .parentRecipeId(existing.getParentRecipeId())
+                .ingredients(existing.getIngredients())
+                .build();
+    }
+
+    /**
+     * Uzupełnia przepis danymi z nowej wersji; zwraca true, jeśli coś się zmieniło
+     */
+    private boolean mergeInto(Recipe updatedRecipe, Recipe recipe) {
+        boolean shouldUpdate = false;
+
+        // Jeśli nowy przepis ma instrukcje, a stary nie ma, lub nowe są dłuższe
+        if ((updatedRecipe.getInstructions() == null || updatedRecipe.getInstructions().isEmpty()) &&
+                recipe.getInstructions() != null && !recipe.getInstructions().isEmpty()) {
+            updatedRecipe.setInstructions(recipe.getInstructions());
+            shouldUpdate = true;
+        } else if (updatedRecipe.getInstructions() != null && recipe.getInstructions() != null &&
+                recipe.getInstructions().length() > updatedRecipe.getInstructions().length()) {
+            // Jeśli nowe instrukcje są bardziej szczegółowe (dłuższe)
+            updatedRecipe.setInstructions(recipe.getInstructions());
+            shouldUpdate = true;
+        }
+
+        // Jeśli nowy przepis ma wartości odżywcze, a stary nie ma
+        if (updatedRecipe.getNutritionalValues() == null && recipe.getNutritionalValues() != null) {
+            updatedRecipe.setNutritionalValues(recipe.getNutritionalValues());
+            shouldUpdate = true;
+        }
+
+        if (recipe.getPhotos() != null && !recipe.getPhotos().isEmpty()) {
+            List<String> combinedPhotos = new ArrayList<>();
+
+            if (updatedRecipe.getPhotos() != null) {
+                combinedPhotos.addAll(updatedRecipe.getPhotos());
+            }
+
+            for (String photo : recipe.getPhotos()) {
+                if (!combinedPhotos.contains(photo)) {
+                    combinedPhotos.add(photo);
+                    shouldUpdate = true;
+                }
+            }
+
+            updatedRecipe.setPhotos(combinedPhotos);
+        }
+
+        return shouldUpdate;
+    }
+
+    private Recipe prepareNewRecipe(Recipe recipe) {
+        if (recipe.getCreatedAt() == null) {
+            recipe.setCreatedAt(Timestamp.now());
+        }
+        return recipe;
+    }
+
+    private static boolean hasName(Recipe recipe) {
+        return recipe.getName() != null && !recipe.getName().trim().isEmpty();
+    }
+
+    private static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Zdjęcie jest zapisywane strumieniowo pod skrótem zawartości - to samo zdjęcie w wielu przepisach
+     * to jeden plik z licznikiem referencji
+     */
+    @CacheEvict(value = RECIPES_CACHE, key = "#id")
     public String uploadImage(String id, MultipartFile image) throws BadRequestException {
         Recipe recipe = getRecipeById(id);
 
-        try {
-            String originalFilename = Optional.ofNullable(image.getOriginalFilename())
-                    .orElse("image.jpg");
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String filename = UUID.randomUUID() + extension;
-
-            String objectName = String.format("recipes/%s/images/%s", id, filename);
-
-            BlobId blobId = BlobId.of(storageBucket, objectName);
-            BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                    .setContentType(image.getContentType())
-                    .setMetadata(Map.of(
-                            "cacheControl", "public, max-age=31536000",
-                            "contentDisposition", "inline"
-                    ))
-                    .setAcl(new ArrayList<>(Collections.singletonList(
-                            Acl.of(Acl.User.ofAllUsers(), Acl.Role.READER)
-                    )))
-                    .build();
-
-            storage.create(blobInfo, image.getBytes());
-
-            String imageUrl = String.format("https://storage.googleapis.com/%s/%s",
-                    storageBucket, objectName);
-
-            Optional<RecipeImageReference> existingRef = recipeImageRepository.findByImageUrl(imageUrl);
-            if (existingRef.isPresent()) {
-                recipeImageRepository.incrementReferenceCount(imageUrl);
-            } else {
-                RecipeImageReference newRef = RecipeImageReference.builder()
-                        .imageUrl(imageUrl)
-                        .storagePath(objectName)
-                        .referenceCount(1)
-                        .build();
-                recipeImageRepository.save(newRef);
-            }
+        try (InputStream content = image.getInputStream()) {
+            String imageUrl = recipeImagePipeline.store(content, image.getContentType()).imageUrl();
 
             List<String> photos = new ArrayList<>(recipe.getPhotos() != null ? recipe.getPhotos() : new ArrayList<>());
             photos.add(imageUrl);
             recipe.setPhotos(photos);
 
-            recipeRepository.update(id, recipe);
+            mealTypeaheadService.recipeSaved(recipeRepository.update(id, recipe));
 
             return imageUrl;
         } catch (IOException e) {
@@ -250,11 +348,7 @@ public class RecipeService {
         }
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = RECIPES_CACHE, key = "#id"),
-            @CacheEvict(value = RECIPES_BATCH_CACHE, allEntries = true),
-            @CacheEvict(value = RECIPES_PAGE_CACHE, allEntries = true)
-    })
+    @CacheEvict(value = RECIPES_CACHE, key = "#id")
     public void deleteImage(String id, String imageUrl) throws BadRequestException {
         Recipe recipe = getRecipeById(id);
 
@@ -262,120 +356,67 @@ public class RecipeService {
             throw new BadRequestException("Podany obraz nie istnieje dla tego przepisu");
         }
 
-        if (imageUrl.contains("storage.googleapis.com")) {
-            try {
-                String objectPath = imageUrl.split(storageBucket + "/")[1];
-                BlobId blobId = BlobId.of(storageBucket, objectPath);
-                storage.delete(blobId);
-            } catch (Exception e) {
-                log.error("Błąd podczas usuwania obrazu z Cloud Storage", e);
-            }
+        // Plik może być współdzielony z innymi przepisami - tu zmniejszany jest tylko licznik referencji
+        try {
+            recipeImageRepository.decrementReferenceCount(imageUrl);
+        } catch (Exception e) {
+            log.error("Błąd podczas aktualizacji referencji zdjęcia: {}", imageUrl, e);
         }
 
         List<String> updatedPhotos = new ArrayList<>(recipe.getPhotos());
         updatedPhotos.remove(imageUrl);
         recipe.setPhotos(updatedPhotos);
 
-        recipeRepository.update(id, recipe);
+        mealTypeaheadService.recipeSaved(recipeRepository.update(id, recipe));
+
+        // Plik usuwa proces w tle, sprawdzając reference_count = 0 w tym samym zapytaniu co usunięcie wpisu -
+        // zdjęcie ponownie użyte w międzyczasie zostaje
+        orphanedImageReaper.requestCleanup();
     }
 
     public List<Recipe> searchRecipes(String query) {
         return recipeRepository.search(query);
     }
 
+    /**
+     * Najlepiej dopasowane przepisy z trafnością; limit jest stosowany w bazie
+     */
+    public List<RecipeSearchResult> searchRecipes(String query, int limit) {
+        return recipeRepository.searchRanked(query, limit);
+    }
+
     public String uploadBase64Image(String base64Image) throws BadRequestException {
         try {
             if (base64Image == null || !base64Image.startsWith("data:image/")) {
                 throw new BadRequestException("Nieprawidłowe dane obrazu");
             }
 
-            String[] parts = base64Image.split(",");
-            String imageData = parts.length > 1 ? parts[1] : "";
+            int separator = base64Image.indexOf(',');
+            if (separator < 0) {
+                throw new BadRequestException("Nieprawidłowe dane obrazu");
+            }
+            String header = base64Image.substring(0, separator);
 
             String contentType = "image/jpeg";
-            if (parts[0].contains("png")) {
+            if (header.contains("png")) {
                 contentType = "image/png";
-            } else if (parts[0].contains("gif")) {
+            } else if (header.contains("gif")) {
                 contentType = "image/gif";
             }
 
-            byte[] imageBytes = Base64.getDecoder().decode(imageData);
-
-            String extension = ".jpg";
-            if (contentType.equals("image/png")) {
-                extension = ".png";
-            } else if (contentType.equals("image/gif")) {
-                extension = ".gif";
+            // Dekodowanie w trakcie przesyłania prosto z tekstu - ani zakodowane dane, ani zdekodowany obraz
+            // nie są kopiowane do osobnej tablicy
+            try (InputStream content = Base64.getDecoder().wrap(
+                    new CharSequenceInputStream(base64Image, separator + 1, base64Image.length()))) {
+                return temporaryImageService.upload(content, contentType);
             }
-
-            UUID uuid = UUID.randomUUID();
-            String filename = uuid + extension;
-
-            String objectName = "temp-recipes/images/" + filename;
-
-            BlobId blobId = BlobId.of(storageBucket, objectName);
-            BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                    .setContentType(contentType)
-                    .setMetadata(Map.of(
-                            "cacheControl", "public, max-age=31536000",
-                            "contentDisposition", "inline"
-                    ))
-                    .setAcl(new ArrayList<>(Collections.singletonList(
-                            Acl.of(Acl.User.ofAllUsers(), Acl.Role.READER)
-                    )))
-                    .build();
-
-            storage.create(blobInfo, imageBytes);
-
-            return String.format("https://storage.googleapis.com/%s/%s",
-                    storageBucket, objectName);
         } catch (Exception e) {
             log.error("Błąd podczas przesyłania obrazu base64", e);
             throw new BadRequestException("Nie udało się przesłać obrazu: " + e.getMessage());
         }
     }
 
-    @Scheduled(cron = "0 0 3 * * ?")
-    public void cleanupTempImages() {
-        try {
-            Calendar calendar = Calendar.getInstance();
-            calendar.add(Calendar.DAY_OF_YEAR, -7);
-            long cutoffTime = calendar.getTimeInMillis();
-
-            Iterable<Blob> blobs = storage.list(
-                    storageBucket,
-                    Storage.BlobListOption.prefix("temp-recipes/images/")
-            ).iterateAll();
-
-            for (Blob blob : blobs) {
-                String name = blob.getName();
-
-                try {
-                    String fileName = name.substring(name.lastIndexOf('/') + 1);
-                    if (fileName.contains("_")) {
-                        String timestampStr = fileName.split("_")[0];
-                        long timestamp = Long.parseLong(timestampStr);
-
-                        if (timestamp < cutoffTime) {
-                            blob.delete();
-                        }
-                    }
-                } catch (Exception e) {
-                    log.warn("Problem z przetwarzaniem pliku {}: {}", name, e.getMessage());
-                }
-            }
-
-            log.info("Zakończono czyszczenie tymczasowych zdjęć");
-        } catch (Exception e) {
-            log.error("Błąd podczas czyszczenia tymczasowych zdjęć", e);
-        }
-    }
-
-    @Caching(evict = {
-            @CacheEvict(value = RECIPES_CACHE, allEntries = true),
-            @CacheEvict(value = RECIPES_BATCH_CACHE, allEntries = true),
-            @CacheEvict(value = RECIPES_PAGE_CACHE, allEntries = true)
-    })
+    @CacheEvict(value = RECIPES_CACHE, allEntries = true)
     public void refreshRecipesCache() {
         log.debug("Odświeżenie cache przepisów");
     }
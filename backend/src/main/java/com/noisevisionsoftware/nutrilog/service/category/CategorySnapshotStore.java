@@ -0,0 +1,198 @@
+package com.noisevisionsoftware.nutrilog.service.category;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.model.shopping.category.ProductCategoryData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Lokalna, binarna kopia danych kategoryzacji w app.data.directory.
+ * Pozwala wystartować bez czekania na Firestore; plik jest zapisywany atomowo (plik tymczasowy + move).
+ */
+@Service
+@Slf4j
+public class CategorySnapshotStore {
+
+    private static final int MAGIC = 0x4E4C4353;
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_STRING_BYTES = 1 << 20;
+
+    @Value("${app.data.directory}")
+    private String dataDirectory;
+
+    @Value("${product.categorization.snapshot-file:product-categories.snapshot}")
+    private String snapshotFile;
+
+    @Value("${product.categorization.local-snapshot-enabled:true}")
+    private boolean enabled;
+
+    public record StoredSnapshot(Map<String, ProductCategoryData> data, Instant savedAt) {
+    }
+
+    public Optional<StoredSnapshot> load() {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Path path = snapshotPath();
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return Optional.of(read(in));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Nie udało się wczytać lokalnej kopii kategorii {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Zapisuje kopię danych i zwraca czas zapisu; przy błędzie zwraca pusty wynik (kopia jest tylko przyspieszeniem).
+     */
+    public Optional<Instant> save(Map<String, ProductCategoryData> data) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Path path = snapshotPath();
+        Instant savedAt = Instant.now();
+        try {
+            Files.createDirectories(path.getParent());
+            Path tempFile = Files.createTempFile(path.getParent(), snapshotFile, ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                    write(out, data, savedAt);
+                }
+                moveAtomically(tempFile, path);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            return Optional.of(savedAt);
+        } catch (IOException e) {
+            log.warn("Nie udało się zapisać lokalnej kopii kategorii {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    Path snapshotPath() {
+        return Paths.get(dataDirectory).resolve(snapshotFile);
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /*
+     * Format: nagłówek (magic, wersja, czas zapisu, liczba wpisów), potem wpisy z polami w stałej kolejności.
+     * Napisy są zapisywane jako długość + bajty UTF-8, a wartości null jako długość -1.
+     */
+    private static void write(DataOutputStream out, Map<String, ProductCategoryData> data, Instant savedAt) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(savedAt.toEpochMilli());
+        out.writeInt(data.size());
+
+        for (Map.Entry<String, ProductCategoryData> entry : data.entrySet()) {
+            ProductCategoryData value = entry.getValue();
+            writeString(out, entry.getKey());
+            writeString(out, value.getProductName());
+            writeString(out, value.getCategoryId());
+            out.writeInt(value.getUsageCount());
+
+            List<String> variations = value.getVariations();
+            out.writeInt(variations != null ? variations.size() : -1);
+            if (variations != null) {
+                for (String variation : variations) {
+                    writeString(out, variation);
+                }
+            }
+
+            writeTimestamp(out, value.getLastUsed());
+            writeTimestamp(out, value.getCreatedAt());
+            writeTimestamp(out, value.getUpdatedAt());
+        }
+    }
+
+    private static StoredSnapshot read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Nieobsługiwany format pliku");
+        }
+        Instant savedAt = Instant.ofEpochMilli(in.readLong());
+        int size = in.readInt();
+
+        Map<String, ProductCategoryData> data = new HashMap<>(Math.min(Math.max(16, size * 4 / 3 + 1), 1 << 16));
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            ProductCategoryData.ProductCategoryDataBuilder builder = ProductCategoryData.builder()
+                    .productName(readString(in))
+                    .categoryId(readString(in))
+                    .usageCount(in.readInt());
+
+            int variationCount = in.readInt();
+            if (variationCount >= 0) {
+                List<String> variations = new ArrayList<>(Math.min(variationCount, 64));
+                for (int j = 0; j < variationCount; j++) {
+                    variations.add(readString(in));
+                }
+                builder.variations(variations);
+            }
+
+            data.put(key, builder
+                    .lastUsed(readTimestamp(in))
+                    .createdAt(readTimestamp(in))
+                    .updatedAt(readTimestamp(in))
+                    .build());
+        }
+        return new StoredSnapshot(data, savedAt);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_STRING_BYTES) {
+            throw new IOException("Uszkodzony plik: napis o długości " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTimestamp(DataOutputStream out, Timestamp timestamp) throws IOException {
+        out.writeBoolean(timestamp != null);
+        if (timestamp != null) {
+            out.writeLong(timestamp.getSeconds());
+            out.writeInt(timestamp.getNanos());
+        }
+    }
+
+    private static Timestamp readTimestamp(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return Timestamp.ofTimeSecondsAndNanos(in.readLong(), in.readInt());
+    }
+}
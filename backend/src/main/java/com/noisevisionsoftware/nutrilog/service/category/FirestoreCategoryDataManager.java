@@ -18,50 +18,71 @@ import java.util.concurrent.ConcurrentHashMap;
 public class FirestoreCategoryDataManager {
     private final Firestore firestore;
     private static final String COLLECTION_NAME = "product_categories";
+    private static final int MAX_BATCH_SIZE = 500;
+
+    /* Nazwa produktu -> ID dokumentu, budowane przy wczytaniu i uzupełniane przy zapisie */
+    private final Map<String, String> documentIds = new ConcurrentHashMap<>();
+    private volatile boolean documentIdsLoaded = false;
 
     public Map<String, ProductCategoryData> loadData() {
         try {
-            Map<String, ProductCategoryData> result = new ConcurrentHashMap<>();
-            CollectionReference categoriesRef = firestore.collection(COLLECTION_NAME);
-            ApiFuture<QuerySnapshot> future = categoriesRef.get();
-
-            List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-            for (QueryDocumentSnapshot document : documents) {
-                ProductCategoryData data = document.toObject(ProductCategoryData.class);
-
-                String normalizedKey = normalizeProductName(data.getProductName());
-                result.put(normalizedKey, data);
-            }
-
-            return result;
+            return loadAllData();
         } catch (Exception e) {
             log.error("Error loading category data from Firestore", e);
             return new ConcurrentHashMap<>();
         }
     }
 
+    /*
+     * Wczytuje całą kolekcję; w odróżnieniu od loadData błędy są przekazywane wywołującemu
+     * */
+    public Map<String, ProductCategoryData> loadAllData() throws Exception {
+        Map<String, ProductCategoryData> result = new ConcurrentHashMap<>();
+        CollectionReference categoriesRef = firestore.collection(COLLECTION_NAME);
+        ApiFuture<QuerySnapshot> future = categoriesRef.get();
+
+        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+        Map<String, String> idsByProductName = new HashMap<>();
+        Map<String, String> idsByNormalizedKey = new HashMap<>();
+        for (QueryDocumentSnapshot document : documents) {
+            ProductCategoryData data = toCategoryData(document);
+
+            String normalizedKey = normalizeProductName(data.getProductName());
+            result.put(normalizedKey, data);
+
+            if (data.getProductName() != null) {
+                idsByProductName.putIfAbsent(data.getProductName(), document.getId());
+            }
+            idsByNormalizedKey.putIfAbsent(normalizedKey, document.getId());
+        }
+
+        // Dokładna nazwa produktu ma pierwszeństwo (odpowiednik zapytania po productName)
+        documentIds.clear();
+        documentIds.putAll(idsByProductName);
+        idsByNormalizedKey.forEach(documentIds::putIfAbsent);
+        documentIdsLoaded = true;
+
+        return result;
+    }
+
+    /*
+     * Zapisuje tylko podane wpisy (wywołujący przekazują wpisy zmienione od ostatniego zapisu)
+     * */
     public void saveData(Map<String, ProductCategoryData> data) {
+        if (data.isEmpty()) {
+            return;
+        }
+
         try {
             WriteBatch batch = firestore.batch();
             int batchSize = 0;
-            final int MAX_BATCH_SIZE = 500;
 
             for (Map.Entry<String, ProductCategoryData> entry : data.entrySet()) {
                 String normalizedName = entry.getKey();
                 ProductCategoryData productData = entry.getValue();
 
-                // Check if document already exists
-                String existingDocId = findExistingDocumentId(normalizedName);
-
-                DocumentReference docRef;
-                if (existingDocId != null) {
-                    // Update current document
-                    docRef = firestore.collection(COLLECTION_NAME).document(existingDocId);
-                } else {
-                    // Create new document with determined ID
-                    String docId = createDeterministicDocumentId(normalizedName);
-                    docRef = firestore.collection(COLLECTION_NAME).document(docId);
-                }
+                DocumentReference docRef = firestore.collection(COLLECTION_NAME)
+                        .document(resolveDocumentId(normalizedName));
 
                 batch.set(docRef, productData, SetOptions.merge());
                 batchSize++;
@@ -88,13 +109,9 @@ public class FirestoreCategoryDataManager {
             String normalizedName = normalizeProductName(newProduct.getName());
             String existingDocId = findExistingDocumentId(normalizedName);
 
-            DocumentReference docRef;
-            if (existingDocId != null) {
-                docRef = firestore.collection(COLLECTION_NAME).document(existingDocId);
-            } else {
-                String docId = createDeterministicDocumentId(normalizedName);
-                docRef = firestore.collection(COLLECTION_NAME).document(docId);
-            }
+            String docId = existingDocId != null ? existingDocId : createDeterministicDocumentId(normalizedName);
+            DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(docId);
+            documentIds.put(normalizedName, docId);
 
             DocumentSnapshot doc = docRef.get().get();
             List<String> variations = new ArrayList<>();
@@ -128,6 +145,26 @@ public class FirestoreCategoryDataManager {
         }
     }
 
+    /*
+     * ID dokumentu z mapy w pamięci; zapytanie do Firestore tylko wtedy, gdy mapa nie została jeszcze wczytana
+     * */
+    private String resolveDocumentId(String normalizedName) {
+        String docId = documentIds.get(normalizedName);
+        if (docId != null) {
+            return docId;
+        }
+
+        if (!documentIdsLoaded) {
+            docId = findExistingDocumentId(normalizedName);
+        }
+        if (docId == null) {
+            docId = createDeterministicDocumentId(normalizedName);
+        }
+
+        documentIds.put(normalizedName, docId);
+        return docId;
+    }
+
     /*
      * Finds ID of existing document for given normalized product name
      * */
@@ -186,6 +223,20 @@ public class FirestoreCategoryDataManager {
         return cleanId;
     }
 
+    /* Wpis jest niezmienny, więc nie może go wypełnić toObject - pola są czytane z dokumentu wprost */
+    private ProductCategoryData toCategoryData(DocumentSnapshot document) {
+        Long usageCount = document.getLong("usageCount");
+        return ProductCategoryData.builder()
+                .productName(document.getString("productName"))
+                .categoryId(document.getString("categoryId"))
+                .usageCount(usageCount != null ? usageCount.intValue() : 0)
+                .variations(getVariationsFromDocument(document))
+                .lastUsed(document.getTimestamp("lastUsed"))
+                .createdAt(document.getTimestamp("createdAt"))
+                .updatedAt(document.getTimestamp("updatedAt"))
+                .build();
+    }
+
     private List<String> getVariationsFromDocument(DocumentSnapshot doc) {
         Object variationsObj = doc.get("variations");
         List<String> variations = new ArrayList<>();
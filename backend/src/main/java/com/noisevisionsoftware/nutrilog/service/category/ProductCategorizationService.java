@@ -2,16 +2,27 @@ package com.noisevisionsoftware.nutrilog.service.category;
 
 import com.google.cloud.Timestamp;
 import com.noisevisionsoftware.nutrilog.model.shopping.category.ProductCategoryData;
+import com.noisevisionsoftware.nutrilog.utils.LevenshteinSimilarity;
 import com.noisevisionsoftware.nutrilog.utils.StringUtils;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @RequiredArgsConstructor
@@ -20,38 +31,295 @@ public class ProductCategorizationService {
     private static final double SIMILARITY_THRESHOLD = 0.75;
 
     private final FirestoreCategoryDataManager dataManager;
-    private Map<String, ProductCategoryData> categoryData = new ConcurrentHashMap<>();
+    private final CategorySnapshotStore snapshotStore;
+
+    /* Uzgadnianie lokalnej kopii z Firestore odbywa się w tle, po starcie aplikacji, na osobnej puli */
+    private final TaskExecutor categoryReconcileExecutor;
+
+    /* Bieżący, niezmienny stan kategoryzacji - czytelnicy nie blokują się, zapisujący publikują nowy stan */
+    private final AtomicReference<CategorySnapshot> snapshot = new AtomicReference<>(CategorySnapshot.empty());
+
+    /* Zmiany czekające na nałożenie - nakłada je paczką pierwszy wątek, który zajmie blokadę serwisu */
+    private final Queue<ParsedProduct> pendingUpdates = new ConcurrentLinkedQueue<>();
+
+    /* Klucze wpisów zmienionych od ostatniego zapisu do Firestore */
+    private final Set<String> dirtyKeys = ConcurrentHashMap.newKeySet();
+
+    /* Klucze wpisów właśnie zapisywanych do Firestore oraz zapisanych od początku uzgadniania
+       (null poza uzgadnianiem) - pole chronione monitorem serwisu */
+    private Set<String> savingKeys = Set.of();
+    private Set<String> savedDuringReconcile;
+
+    /* Przy włączonym write-behind zmiany są zapisywane okresowo zamiast po każdej aktualizacji */
+    @Value("${product.categorization.write-behind-enabled:false}")
+    private boolean writeBehindEnabled;
+
+    /* Zapisy do Firestore wykonuje jeden wątek naraz, bez blokowania aktualizacji i odczytów */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /* Lokalna kopia po zapisie zmian jest zapisywana nie częściej niż raz na podany czas */
+    @Value("${product.categorization.snapshot-min-interval-ms:60000}")
+    private long snapshotMinIntervalMs = 60_000;
+
+    private final Object snapshotSaveLock = new Object();
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    private volatile Instant lastSnapshotSavedAt;
+
+    /* Nieudane uzgadnianie jest ponawiane okresowo, aż się powiedzie */
+    private final AtomicBoolean reconcileRetryPending = new AtomicBoolean();
+
+    /* Metryki lokalnej kopii: źródło danych, moment ostatniej synchronizacji i czas uzgadniania */
+    private volatile String dataSource = "none";
+    private volatile Instant dataSyncedAt;
+    private volatile Instant lastReconcileAt;
+    private volatile long lastReconcileDurationMs = -1;
+
+    /**
+     * Niezmienny stan: wpisy (nigdy nie modyfikowane po publikacji), indeksy i wersja danych.
+     * Wersja zmienia się przy każdej zmianie wpływającej na sugerowane kategorie.
+     */
+    record CategorySnapshot(Map<String, ProductCategoryData> data, ProductCategoryIndex index, long version) {
+
+        static CategorySnapshot empty() {
+            return new CategorySnapshot(Map.of(), ProductCategoryIndex.build(Map.of(), ProductCategorizationService::normalizeName), 0);
+        }
+    }
 
     @PostConstruct
     public void init() {
-        categoryData = dataManager.loadData();
+        Optional<CategorySnapshotStore.StoredSnapshot> local = snapshotStore.load();
+        if (local.isPresent()) {
+            // Start z lokalnej kopii, a uzgodnienie z Firestore w tle
+            Map<String, ProductCategoryData> loaded = new HashMap<>(local.get().data());
+            publish(loaded, ProductCategoryIndex.build(loaded, ProductCategorizationService::normalizeName), true);
+            dataSource = "local-snapshot";
+            dataSyncedAt = local.get().savedAt();
+            log.info("Wczytano lokalną kopię kategorii: {} wpisów z {}", loaded.size(), dataSyncedAt);
+
+            requestReconcile();
+            return;
+        }
+
+        Map<String, ProductCategoryData> loaded;
+        try {
+            loaded = new HashMap<>(dataManager.loadAllData());
+        } catch (Exception e) {
+            // Bez lokalnej kopii i bez Firestore start z pustym stanem, a wczytanie jest ponawiane w tle
+            publish(new HashMap<>(), ProductCategoryIndex.build(Map.of(), ProductCategorizationService::normalizeName), true);
+            reconcileRetryPending.set(true);
+            log.warn("Nie udało się wczytać kategorii z Firestore przy starcie (kolejna próba później)", e);
+            return;
+        }
+
+        publish(loaded, ProductCategoryIndex.build(loaded, ProductCategorizationService::normalizeName), true);
+        dataSource = "firestore";
+        dataSyncedAt = Instant.now();
+        if (!loaded.isEmpty()) {
+            saveLocalSnapshot();
+        }
     }
 
-    protected void saveDataIfChanged() {
+    @Scheduled(fixedDelayString = "${product.categorization.reconcile-retry-interval-ms:300000}")
+    public void retryReconcileIfPending() {
+        if (reconcileRetryPending.compareAndSet(true, false)) {
+            log.info("Ponowna próba uzgodnienia kategorii z Firestore");
+            requestReconcile();
+        }
+    }
+
+    private void requestReconcile() {
         try {
-            dataManager.saveData(categoryData);
+            categoryReconcileExecutor.execute(this::reconcileWithFirestore);
+        } catch (TaskRejectedException e) {
+            // Uzgadnianie już trwa lub czeka w kolejce
+            log.debug("Uzgadnianie kategorii z Firestore jest już zlecone: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Wczytuje pełne dane z Firestore i podmienia stan jednym zapisem. Wpisy zmienione lokalnie,
+     * a jeszcze niezapisane do Firestore lub zapisane w trakcie wczytywania (odczyt mógł ich nie
+     * zawierać), mają pierwszeństwo. Przy błędzie zostaje bieżący stan, a uzgadnianie jest ponawiane
+     * w retryReconcileIfPending.
+     */
+    public void reconcileWithFirestore() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            savedDuringReconcile = new HashSet<>(savingKeys);
+        }
+
+        Map<String, ProductCategoryData> remote;
+        try {
+            remote = dataManager.loadAllData();
         } catch (Exception e) {
-            log.error("Error during save of categorization data", e);
+            synchronized (this) {
+                savedDuringReconcile = null;
+            }
+            reconcileRetryPending.set(true);
+            log.warn("Nie udało się uzgodnić kategorii z Firestore, używana jest lokalna kopia (kolejna próba później)", e);
+            return;
+        }
+
+        synchronized (this) {
+            Set<String> localKeys = new HashSet<>(dirtyKeys);
+            localKeys.addAll(savedDuringReconcile);
+            savedDuringReconcile = null;
+
+            Map<String, ProductCategoryData> merged = new HashMap<>(remote);
+            CategorySnapshot current = snapshot.get();
+            for (String key : localKeys) {
+                ProductCategoryData pending = current.data().get(key);
+                if (pending != null) {
+                    merged.put(key, pending);
+                }
+            }
+            publish(merged, ProductCategoryIndex.build(merged, ProductCategorizationService::normalizeName), true);
+            dataSource = "firestore";
+            dataSyncedAt = Instant.now();
+        }
+
+        lastReconcileDurationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        lastReconcileAt = Instant.now();
+        saveLocalSnapshot();
+        log.info("Uzgodniono kategorie z Firestore: {} wpisów w {} ms", remote.size(), lastReconcileDurationMs);
+    }
+
+    public Map<String, Object> getSnapshotStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Instant syncedAt = dataSyncedAt;
+        stats.put("source", dataSource);
+        stats.put("entries", currentData().size());
+        stats.put("dataVersion", getDataVersion());
+        stats.put("pendingChanges", dirtyKeys.size());
+        stats.put("snapshotAgeSeconds", syncedAt != null ? Duration.between(syncedAt, Instant.now()).toSeconds() : null);
+        stats.put("lastReconcileAt", lastReconcileAt);
+        stats.put("lastReconcileDurationMs", lastReconcileDurationMs);
+        stats.put("reconcileRetryPending", reconcileRetryPending.get());
+        return stats;
+    }
+
+    private void saveLocalSnapshot() {
+        synchronized (snapshotSaveLock) {
+            // Stan odczytywany pod blokadą - późniejszy zapis zawsze zawiera nowsze dane
+            snapshotPending.set(false);
+            lastSnapshotSavedAt = Instant.now();
+            snapshotStore.save(snapshot.get().data());
+        }
+    }
+
+    /* Zapis lokalnej kopii po zmianach; zbyt częste zapisy są odkładane do saveSnapshotIfPending */
+    private void requestSnapshotSave() {
+        snapshotPending.set(true);
+        Instant lastSaved = lastSnapshotSavedAt;
+        if (lastSaved == null || Duration.between(lastSaved, Instant.now()).toMillis() >= snapshotMinIntervalMs) {
+            saveLocalSnapshot();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.categorization.snapshot-min-interval-ms:60000}")
+    public void saveSnapshotIfPending() {
+        if (snapshotPending.get()) {
+            saveLocalSnapshot();
+        }
+    }
+
+    public long getDataVersion() {
+        return snapshot.get().version();
+    }
+
+    /* Dane bieżącego stanu (tylko do odczytu) */
+    Map<String, ProductCategoryData> currentData() {
+        return snapshot.get().data();
+    }
+
+    protected void saveDataIfChanged() {
+        if (!writeBehindEnabled) {
+            flushChanges();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.categorization.write-behind-interval-ms:30000}")
+    public void flushPendingChanges() {
+        if (writeBehindEnabled) {
+            flushChanges();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushChanges();
+        saveLocalSnapshot();
+    }
+
+    private void flushChanges() {
+        if (dirtyKeys.isEmpty()) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            Map<String, ProductCategoryData> changed = takeDirtyEntries();
+            if (changed.isEmpty()) {
+                return;
+            }
+
+            try {
+                dataManager.saveData(changed);
+            } catch (Exception e) {
+                // Niezapisane wpisy wracają do kolejki i zostaną zapisane przy kolejnej próbie
+                dirtyKeys.addAll(changed.keySet());
+                log.error("Error during save of categorization data", e);
+                return;
+            } finally {
+                finishSaving();
+            }
+            requestSnapshotSave();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /* Kopia zmienionych wpisów pobierana pod blokadą; zapis do Firestore odbywa się już bez niej */
+    private synchronized Map<String, ProductCategoryData> takeDirtyEntries() {
+        Map<String, ProductCategoryData> current = snapshot.get().data();
+        Map<String, ProductCategoryData> changed = new HashMap<>();
+        for (String key : new ArrayList<>(dirtyKeys)) {
+            dirtyKeys.remove(key);
+            ProductCategoryData data = current.get(key);
+            if (data != null) {
+                changed.put(key, data);
+            }
         }
+
+        savingKeys = changed.keySet();
+        if (savedDuringReconcile != null) {
+            savedDuringReconcile.addAll(savingKeys);
+        }
+        return changed;
+    }
+
+    private synchronized void finishSaving() {
+        savingKeys = Set.of();
     }
 
     public String suggestCategory(ParsedProduct product) {
         String normalizedName = cleanProductName(product.getOriginal());
+        CategorySnapshot current = snapshot.get();
 
         // 1. Dokładne dopasowanie
-        Optional<ProductCategoryData> exactMatch = findExactMatch(normalizedName);
+        Optional<ProductCategoryData> exactMatch = findExactMatch(current, normalizedName);
         if (exactMatch.isPresent()) {
             return exactMatch.get().getCategoryId();
         }
 
         // 2. Dopasowanie przez warianty
-        Optional<ProductCategoryData> variationMatch = findVariationMatch(normalizedName);
+        Optional<ProductCategoryData> variationMatch = findVariationMatch(current, normalizedName);
         if (variationMatch.isPresent()) {
             return variationMatch.get().getCategoryId();
         }
 
         // 3. Dopasowanie przez podobieństwo
-        Optional<ProductCategoryData> similarMatch = findSimilarMatch(normalizedName);
+        Optional<ProductCategoryData> similarMatch = findSimilarMatch(current, normalizedName);
         return similarMatch.map(ProductCategoryData::getCategoryId).orElse(null);
 
     }
@@ -61,50 +329,157 @@ public class ProductCategorizationService {
             return;
         }
 
+        updateCategorizations(List.of(product));
+    }
+
+    /**
+     * Nakłada zmiany na kopię bieżącego stanu i publikuje nowy stan jednym zapisem. Zmiany zgłoszone
+     * przez inne wątki w czasie publikacji są nakładane razem, jedną kopią mapy - po powrocie
+     * zmiany wywołującego są zawsze widoczne w opublikowanym stanie.
+     */
+    public void updateCategorizations(Collection<ParsedProduct> products) {
+        boolean queued = false;
+        for (ParsedProduct product : products) {
+            if (product != null && product.getName() != null) {
+                pendingUpdates.add(product);
+                queued = true;
+            }
+        }
+
+        if (queued) {
+            applyPendingUpdates();
+        }
+    }
+
+    private synchronized void applyPendingUpdates() {
+        List<ParsedProduct> batch = new ArrayList<>();
+        for (ParsedProduct product = pendingUpdates.poll(); product != null; product = pendingUpdates.poll()) {
+            batch.add(product);
+        }
+        if (batch.isEmpty()) {
+            // Zmiany opublikował już wątek, który wcześniej zajął blokadę
+            return;
+        }
+
+        CategorySnapshot current = snapshot.get();
+        Map<String, ProductCategoryData> data = new HashMap<>(current.data());
+        Map<String, ProductCategoryData> removed = new HashMap<>();
+        Map<String, ProductCategoryData> added = new HashMap<>();
+        Map<String, ProductCategoryData> usageChanged = new HashMap<>();
+        boolean changed = false;
+
+        for (ParsedProduct product : batch) {
+            String key = applyUpdate(data, product);
+            ProductCategoryData previous = current.data().get(key);
+            ProductCategoryData updated = data.get(key);
+            if (previous != null) {
+                removed.putIfAbsent(key, previous);
+            }
+            added.put(key, updated);
+
+            // Znaczniki czasu nie wpływają na sugestie; zmiana samego licznika użyć jest sprawdzana po całej paczce
+            if (previous == null
+                    || !Objects.equals(previous.getCategoryId(), updated.getCategoryId())
+                    || !Objects.equals(previous.getVariations(), updated.getVariations())) {
+                changed = true;
+            } else if (previous.getUsageCount() != updated.getUsageCount()) {
+                usageChanged.putIfAbsent(key, previous);
+            }
+        }
+
+        if (added.isEmpty()) {
+            return;
+        }
+        if (!changed && !usageChanged.isEmpty()) {
+            changed = usageChangeCanAlterMatch(current.data(), data, usageChanged);
+        }
+
+        publish(data, current.index().withChanges(removed, added), changed);
+        dirtyKeys.addAll(added.keySet());
+    }
+
+    /**
+     * Licznik użyć rozstrzyga tylko wybór między kilkoma pasującymi wpisami (findBestMatch), więc jego zmiana
+     * może zmienić sugestię jedynie wtedy, gdy inny wpis z inną kategorią ma licznik w przedziale między starą
+     * a nową wartością - tylko wtedy kolejność wpisów może się odwrócić. Zwykłe zwiększenie licznika
+     * popularnego produktu nie zmienia więc wersji i nie unieważnia zapamiętanych sugestii.
+     */
+    private static boolean usageChangeCanAlterMatch(Map<String, ProductCategoryData> before,
+                                                    Map<String, ProductCategoryData> after,
+                                                    Map<String, ProductCategoryData> usageChanged) {
+        for (Map.Entry<String, ProductCategoryData> change : usageChanged.entrySet()) {
+            ProductCategoryData updated = after.get(change.getKey());
+            int low = Math.min(change.getValue().getUsageCount(), updated.getUsageCount());
+            int high = Math.max(change.getValue().getUsageCount(), updated.getUsageCount());
+
+            for (Map.Entry<String, ProductCategoryData> other : after.entrySet()) {
+                if (other.getKey().equals(change.getKey())
+                        || Objects.equals(other.getValue().getCategoryId(), updated.getCategoryId())) {
+                    continue;
+                }
+                // Wpis zmieniony w tej samej paczce porównywany jest też ze swoim poprzednim licznikiem
+                ProductCategoryData otherBefore = before.get(other.getKey());
+                if (inRange(other.getValue().getUsageCount(), low, high)
+                        || (otherBefore != null && inRange(otherBefore.getUsageCount(), low, high))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean inRange(int value, int low, int high) {
+        return value >= low && value <= high;
+    }
+
+    /* Zwraca klucz zmienionego wpisu; wpisy są niezmienne, więc zmiana zastępuje wpis nowym */
+    private String applyUpdate(Map<String, ProductCategoryData> data, ParsedProduct product) {
         String originalName = product.getOriginal();
         String normalizedName = cleanProductName(product.getName());
         Timestamp now = Timestamp.now();
 
-        String productKey = null;
-        for (Map.Entry<String, ProductCategoryData> entry : categoryData.entrySet()) {
-            if (entry.getKey().equals("mleko") &&
-                    normalizedName.contains("mleko")) {
-                productKey = entry.getKey();
-                break;
-            }
-        }
+        String productKey = normalizedName.contains("mleko") && data.containsKey("mleko") ? "mleko" : null;
 
         if (productKey != null) {
             // Aktualizacja istniejącego produktu
-            ProductCategoryData data = categoryData.get(productKey);
-            data.setUsageCount(data.getUsageCount() + 1);
+            ProductCategoryData existing = data.get(productKey);
 
-            // ZMIANA TUTAJ: Tworzenie nowej modyfikowalnej listy
-            List<String> newVariations = new ArrayList<>(data.getVariations());
+            List<String> newVariations = new ArrayList<>(existing.getVariations());
             if (!newVariations.contains(originalName)) {
                 newVariations.add(originalName);
             }
-            data.setVariations(newVariations);
-
-            data.setLastUsed(now);
-            data.setUpdatedAt(now);
-            data.setCategoryId(product.getCategoryId());
-        } else {
-            // Dodanie nowego produktu
-            String newKey = StringUtils.removeUnits(normalizedName);
-            List<String> variations = new ArrayList<>();
-            variations.add(originalName);
-
-            categoryData.put(newKey, ProductCategoryData.builder()
-                    .productName(newKey)
-                    .categoryId(product.getCategoryId())
-                    .usageCount(1)
-                    .variations(variations)
+
+            data.put(productKey, existing.toBuilder()
+                    .usageCount(existing.getUsageCount() + 1)
+                    .variations(newVariations)
                     .lastUsed(now)
-                    .createdAt(now)
                     .updatedAt(now)
+                    .categoryId(product.getCategoryId())
                     .build());
+            return productKey;
         }
+
+        // Dodanie nowego produktu
+        String newKey = StringUtils.removeUnits(normalizedName);
+        List<String> variations = new ArrayList<>();
+        variations.add(originalName);
+
+        data.put(newKey, ProductCategoryData.builder()
+                .productName(newKey)
+                .categoryId(product.getCategoryId())
+                .usageCount(1)
+                .variations(variations)
+                .lastUsed(now)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        return newKey;
+    }
+
+    private synchronized void publish(Map<String, ProductCategoryData> data, ProductCategoryIndex index, boolean changed) {
+        CategorySnapshot current = snapshot.get();
+        long version = changed ? current.version() + 1 : current.version();
+        snapshot.set(new CategorySnapshot(Collections.unmodifiableMap(data), index, version));
     }
 
     public void updateCategoriesInTransaction(Map<String, List<ParsedProduct>> categorizedProducts) {
@@ -113,52 +488,71 @@ public class ProductCategorizationService {
             return;
         }
 
+        List<ParsedProduct> allProducts = new ArrayList<>();
         categorizedProducts.forEach((categoryId, products) -> products.forEach(product -> {
             product.setCategoryId(categoryId);
-            updateCategorization(product);
+            allProducts.add(product);
         }));
+        updateCategorizations(allProducts);
 
         saveDataIfChanged();
     }
 
     Optional<ProductCategoryData> findExactMatch(String normalizedName) {
-        String nameWithoutUnits = StringUtils.removeUnits(normalizedName);
-        return categoryData.values().stream()
-                .filter(data -> data.getProductName().equals(nameWithoutUnits))
-                .max(Comparator.comparing(ProductCategoryData::getUsageCount));
+        return findExactMatch(snapshot.get(), normalizedName);
     }
 
     Optional<ProductCategoryData> findVariationMatch(String normalizedName) {
-        return categoryData.values().stream()
-                .filter(data -> data.getVariations() != null &&
-                        data.getVariations().stream()
-                                .map(this::cleanProductName)
-                                .anyMatch(v -> v.equals(normalizedName)))
-                .max(Comparator.comparing(ProductCategoryData::getUsageCount));
+        return findVariationMatch(snapshot.get(), normalizedName);
     }
 
     Optional<ProductCategoryData> findSimilarMatch(String normalizedName) {
-        return categoryData.values().stream()
-                .filter(data -> {
-                    double similarity = calculateSimilarity(
-                            normalizedName,
-                            cleanProductName(data.getProductName())
-                    );
-                    return similarity >= SIMILARITY_THRESHOLD;
-                })
+        return findSimilarMatch(snapshot.get(), normalizedName);
+    }
+
+    private Optional<ProductCategoryData> findExactMatch(CategorySnapshot current, String normalizedName) {
+        String nameWithoutUnits = StringUtils.removeUnits(normalizedName);
+        return findBestMatch(current, current.index().findByProductName(nameWithoutUnits));
+    }
+
+    private Optional<ProductCategoryData> findVariationMatch(CategorySnapshot current, String normalizedName) {
+        return findBestMatch(current, current.index().findByVariation(normalizedName));
+    }
+
+    private Optional<ProductCategoryData> findSimilarMatch(CategorySnapshot current, String normalizedName) {
+        ProductCategoryIndex index = current.index();
+        List<String> candidates = index.findSimilarCandidates(normalizedName, SIMILARITY_THRESHOLD);
+        List<String> candidateNames = candidates.stream().map(index::getNormalizedName).toList();
+
+        // Odległość liczona tylko w paśmie wynikającym z progu
+        double[] similarities = LevenshteinSimilarity.similarities(normalizedName, candidateNames, SIMILARITY_THRESHOLD);
+        List<String> similarKeys = new ArrayList<>();
+        for (int i = 0; i < similarities.length; i++) {
+            if (candidateNames.get(i).length() >= 3 && similarities[i] >= SIMILARITY_THRESHOLD) {
+                similarKeys.add(candidates.get(i));
+            }
+        }
+        return findBestMatch(current, similarKeys);
+    }
+
+    private Optional<ProductCategoryData> findBestMatch(CategorySnapshot current, Collection<String> keys) {
+        return keys.stream()
+                .map(current.data()::get)
+                .filter(Objects::nonNull)
                 .max(Comparator.comparing(ProductCategoryData::getUsageCount));
     }
 
     double calculateSimilarity(String s1, String s2) {
         if (s1.length() < 3 || s2.length() < 3) return 0.0;
 
-        int maxLength = Math.max(s1.length(), s2.length());
-
-        int levenshteinDistance = LevenshteinDistance.getDefaultInstance().apply(s1, s2);
-        return 1.0 - ((double) levenshteinDistance / maxLength);
+        return LevenshteinSimilarity.similarity(s1, s2);
     }
 
     protected String cleanProductName(String name) {
+        return normalizeName(name);
+    }
+
+    private static String normalizeName(String name) {
         if (name == null) return "";
 
         return name.toLowerCase()
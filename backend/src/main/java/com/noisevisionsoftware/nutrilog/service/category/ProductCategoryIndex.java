@@ -0,0 +1,242 @@
+package com.noisevisionsoftware.nutrilog.service.category;
+
+import com.noisevisionsoftware.nutrilog.model.shopping.category.ProductCategoryData;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Niezmienne indeksy danych kategoryzacji. Wszystkie indeksy zwracają klucze mapy,
+ * a nie same wpisy - wybór najlepszego wpisu (usageCount) odbywa się przy wyszukiwaniu.
+ * <ul>
+ *     <li>nazwa produktu -> klucze,</li>
+ *     <li>znormalizowany wariant -> klucze,</li>
+ *     <li>trigram znormalizowanej nazwy -> klucze z liczbą wystąpień (filtr kandydatów dla Levenshteina).</li>
+ * </ul>
+ * Zmiany tworzą nowy indeks (withChanges), kopiując tylko zmienione listy kluczy.
+ */
+final class ProductCategoryIndex {
+
+    private static final int GRAM_SIZE = 3;
+    private static final String PADDING = "$$";
+
+    private final UnaryOperator<String> normalizer;
+
+    private final Map<String, Set<String>> byProductName;
+    private final Map<String, Set<String>> byVariation;
+    private final Map<String, Map<String, Integer>> byTrigram;
+    private final Map<String, String> normalizedNames;
+
+    private ProductCategoryIndex(Builder builder) {
+        this.normalizer = builder.normalizer;
+        this.byProductName = builder.byProductName;
+        this.byVariation = builder.byVariation;
+        this.byTrigram = builder.byTrigram;
+        this.normalizedNames = builder.normalizedNames;
+    }
+
+    static ProductCategoryIndex build(Map<String, ProductCategoryData> data, UnaryOperator<String> normalizer) {
+        Builder builder = new Builder(normalizer);
+        data.forEach(builder::add);
+        return new ProductCategoryIndex(builder);
+    }
+
+    /**
+     * Nowy indeks bez wpisów removed i z wpisami added; bieżący indeks pozostaje bez zmian.
+     */
+    ProductCategoryIndex withChanges(Map<String, ProductCategoryData> removed, Map<String, ProductCategoryData> added) {
+        Builder builder = new Builder(this);
+        removed.forEach((key, data) -> {
+            if (!added.containsKey(key)) {
+                builder.remove(key, data);
+            }
+        });
+        added.forEach((key, data) -> {
+            ProductCategoryData previous = removed.get(key);
+            if (previous == null) {
+                builder.add(key, data);
+            } else {
+                builder.replace(key, previous, data);
+            }
+        });
+        return new ProductCategoryIndex(builder);
+    }
+
+    Set<String> findByProductName(String productName) {
+        return byProductName.getOrDefault(productName, Collections.emptySet());
+    }
+
+    Set<String> findByVariation(String normalizedVariation) {
+        return byVariation.getOrDefault(normalizedVariation, Collections.emptySet());
+    }
+
+    /**
+     * Klucze, których znormalizowana nazwa może mieć podobieństwo Levenshteina >= minSimilarity.
+     * Filtr nie pomija żadnego pasującego klucza: przy odległości d słowa o długości maksymalnej L
+     * współdzielą co najmniej L + 2 - 3d trigramów (z dopełnieniem), a ich długości różnią się o co najwyżej d.
+     */
+    List<String> findSimilarCandidates(String normalizedName, double minSimilarity) {
+        if (normalizedName.length() < GRAM_SIZE) {
+            return Collections.emptyList();
+        }
+        if (GRAM_SIZE * (1.0 - minSimilarity) >= 1.0) {
+            // Przy tak niskim progu słowa bez wspólnego trigramu też mogą pasować
+            return new ArrayList<>(normalizedNames.keySet());
+        }
+
+        Map<String, Integer> sharedGrams = new HashMap<>();
+        trigrams(normalizedName).forEach((gram, count) -> {
+            Map<String, Integer> postings = byTrigram.get(gram);
+            if (postings != null) {
+                postings.forEach((key, keyCount) -> sharedGrams.merge(key, Math.min(count, keyCount), Integer::sum));
+            }
+        });
+
+        List<String> candidates = new ArrayList<>();
+        sharedGrams.forEach((key, shared) -> {
+            String candidateName = normalizedNames.get(key);
+            if (candidateName == null || candidateName.length() < GRAM_SIZE) {
+                return;
+            }
+
+            int maxLength = Math.max(normalizedName.length(), candidateName.length());
+            int maxDistance = (int) Math.floor((1.0 - minSimilarity) * maxLength + 1e-9);
+            if (Math.abs(normalizedName.length() - candidateName.length()) <= maxDistance
+                    && shared >= maxLength + GRAM_SIZE - 1 - GRAM_SIZE * maxDistance) {
+                candidates.add(key);
+            }
+        });
+        return candidates;
+    }
+
+    String getNormalizedName(String key) {
+        return normalizedNames.get(key);
+    }
+
+    private static Map<String, Integer> trigrams(String value) {
+        String padded = PADDING + value + PADDING;
+        Map<String, Integer> grams = new HashMap<>();
+        for (int i = 0; i + GRAM_SIZE <= padded.length(); i++) {
+            grams.merge(padded.substring(i, i + GRAM_SIZE), 1, Integer::sum);
+        }
+        return grams;
+    }
+
+    /*
+     * Kopiuje mapy najwyższego poziomu; listy kluczy kopiuje dopiero przy pierwszej zmianie,
+     * więc opublikowany indeks nigdy nie jest modyfikowany.
+     */
+    private static final class Builder {
+        private final UnaryOperator<String> normalizer;
+        private final Map<String, Set<String>> byProductName;
+        private final Map<String, Set<String>> byVariation;
+        private final Map<String, Map<String, Integer>> byTrigram;
+        private final Map<String, String> normalizedNames;
+        private final Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Builder(UnaryOperator<String> normalizer) {
+            this.normalizer = normalizer;
+            this.byProductName = new HashMap<>();
+            this.byVariation = new HashMap<>();
+            this.byTrigram = new HashMap<>();
+            this.normalizedNames = new HashMap<>();
+        }
+
+        private Builder(ProductCategoryIndex source) {
+            this.normalizer = source.normalizer;
+            this.byProductName = new HashMap<>(source.byProductName);
+            this.byVariation = new HashMap<>(source.byVariation);
+            this.byTrigram = new HashMap<>(source.byTrigram);
+            this.normalizedNames = new HashMap<>(source.normalizedNames);
+        }
+
+        private void add(String key, ProductCategoryData data) {
+            if (data.getProductName() != null) {
+                ownedSet(byProductName, data.getProductName()).add(key);
+
+                String normalizedName = normalizer.apply(data.getProductName());
+                normalizedNames.put(key, normalizedName);
+                trigrams(normalizedName).forEach((gram, count) -> ownedPostings(gram).put(key, count));
+            }
+
+            if (data.getVariations() != null) {
+                data.getVariations().forEach(variation -> ownedSet(byVariation, normalizer.apply(variation)).add(key));
+            }
+        }
+
+        /* Przy samym dopisaniu wariantów (najczęstszy przypadek) indeksuje tylko nowe warianty */
+        private void replace(String key, ProductCategoryData previous, ProductCategoryData data) {
+            boolean sameName = Objects.equals(previous.getProductName(), data.getProductName());
+            List<String> previousVariations = previous.getVariations() != null ? previous.getVariations() : List.of();
+            List<String> variations = data.getVariations() != null ? data.getVariations() : List.of();
+            Set<String> variationSet = new HashSet<>(variations);
+
+            if (!sameName || !variationSet.containsAll(previousVariations)) {
+                remove(key, previous);
+                add(key, data);
+                return;
+            }
+
+            Set<String> previousSet = new HashSet<>(previousVariations);
+            for (String variation : variations) {
+                if (!previousSet.contains(variation)) {
+                    ownedSet(byVariation, normalizer.apply(variation)).add(key);
+                }
+            }
+        }
+
+        private void remove(String key, ProductCategoryData data) {
+            if (data.getProductName() != null) {
+                removeFrom(byProductName, data.getProductName(), key);
+            }
+
+            String normalizedName = normalizedNames.remove(key);
+            if (normalizedName != null) {
+                for (String gram : trigrams(normalizedName).keySet()) {
+                    if (byTrigram.containsKey(gram)) {
+                        Map<String, Integer> postings = ownedPostings(gram);
+                        postings.remove(key);
+                        if (postings.isEmpty()) {
+                            byTrigram.remove(gram);
+                        }
+                    }
+                }
+            }
+
+            if (data.getVariations() != null) {
+                data.getVariations().forEach(variation -> removeFrom(byVariation, normalizer.apply(variation), key));
+            }
+        }
+
+        private Set<String> ownedSet(Map<String, Set<String>> index, String value) {
+            Set<String> keys = index.get(value);
+            if (keys == null || !owned.contains(keys)) {
+                keys = keys == null ? new HashSet<>() : new HashSet<>(keys);
+                owned.add(keys);
+                index.put(value, keys);
+            }
+            return keys;
+        }
+
+        private Map<String, Integer> ownedPostings(String gram) {
+            Map<String, Integer> postings = byTrigram.get(gram);
+            if (postings == null || !owned.contains(postings)) {
+                postings = postings == null ? new HashMap<>() : new HashMap<>(postings);
+                owned.add(postings);
+                byTrigram.put(gram, postings);
+            }
+            return postings;
+        }
+
+        private void removeFrom(Map<String, Set<String>> index, String value, String key) {
+            if (!index.containsKey(value)) {
+                return;
+            }
+            Set<String> keys = ownedSet(index, value);
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+}
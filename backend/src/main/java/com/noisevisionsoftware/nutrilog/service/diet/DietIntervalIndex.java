@@ -0,0 +1,188 @@
+package com.noisevisionsoftware.nutrilog.service.diet;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noisevisionsoftware.nutrilog.model.diet.DietInterval;
+import com.noisevisionsoftware.nutrilog.model.diet.DietPeriod;
+import com.noisevisionsoftware.nutrilog.repository.DietRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indeks okresów diet użytkowników: dla każdego użytkownika posortowane okresy (ID diety, pierwszy
+ * i ostatni dzień), wczytywane przy pierwszym użyciu z projekcji dokumentów diet. Sprawdzenie nakładania
+ * się okresów i wyszukanie diety obejmującej dany dzień to jedno wyszukiwanie binarne - bez wczytywania
+ * dni i posiłków. Zapisy diet w tej instancji aktualizują indeks na bieżąco; zmiany z innych źródeł
+ * są widoczne najpóźniej po wygaśnięciu wpisu (jak w cache listy diet).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DietIntervalIndex {
+
+    private final DietRepository dietRepository;
+
+    private final Cache<String, UserIntervals> intervalsByUser = Caffeine.newBuilder()
+            .expireAfterWrite(15, TimeUnit.MINUTES)
+            .maximumSize(10_000)
+            .build();
+
+    /**
+     * Czy któraś z diet użytkownika (poza wykluczoną) obejmuje choć jeden dzień z podanego zakresu
+     */
+    public boolean hasOverlap(String userId, long startEpochDay, long endEpochDay, String dietIdToExclude) {
+        DietInterval furthest = intervalsFor(userId).furthestEndingStartingBy(endEpochDay, dietIdToExclude);
+        return furthest != null && furthest.endEpochDay() >= startEpochDay;
+    }
+
+    /**
+     * Dieta użytkownika obejmująca podany dzień; przy nakładających się dietach ta, która kończy się najpóźniej
+     */
+    public Optional<String> findDietCovering(String userId, long epochDay) {
+        DietInterval furthest = intervalsFor(userId).furthestEndingStartingBy(epochDay, null);
+        return furthest != null && furthest.endEpochDay() >= epochDay
+                ? Optional.of(furthest.dietId())
+                : Optional.empty();
+    }
+
+    /**
+     * Aktualizuje okres zapisanej diety; dieta bez dni jest usuwana z indeksu
+     */
+    public void dietSaved(String userId, String dietId, DietInterval interval) {
+        if (userId == null || dietId == null) {
+            return;
+        }
+        // Niewczytany użytkownik zostanie wczytany z bazy razem z tą zmianą
+        intervalsByUser.asMap().computeIfPresent(userId, (key, intervals) -> intervals.with(dietId, interval));
+    }
+
+    public void dietDeleted(String userId, String dietId) {
+        if (userId == null || dietId == null) {
+            return;
+        }
+        intervalsByUser.asMap().computeIfPresent(userId, (key, intervals) -> intervals.with(dietId, null));
+    }
+
+    /**
+     * Wstawia okresy użytkownika znane z innego źródła (podsumowania diet), gdy nie ma go jeszcze
+     * w indeksie - bez zapytania o diety. Wczytany już użytkownik zachowuje swoje okresy.
+     */
+    public void seed(String userId, Collection<DietPeriod> periods) {
+        if (userId == null) {
+            return;
+        }
+        intervalsByUser.asMap().putIfAbsent(userId, new UserIntervals(periods.stream()
+                .map(DietPeriod::toInterval)
+                .flatMap(Optional::stream)
+                .toList()));
+    }
+
+    /**
+     * Wymusza ponowne wczytanie okresów użytkownika - po zapisach diet z pominięciem DietService
+     */
+    public void invalidate(String userId) {
+        if (userId != null) {
+            intervalsByUser.invalidate(userId);
+        }
+    }
+
+    public void invalidateAll() {
+        intervalsByUser.invalidateAll();
+    }
+
+    private UserIntervals intervalsFor(String userId) {
+        return intervalsByUser.get(userId, key -> {
+            List<DietInterval> intervals = dietRepository.findIntervalsByUserId(key);
+            log.debug("Wczytano okresy diet użytkownika {}: {}", key, intervals.size());
+            return new UserIntervals(intervals);
+        });
+    }
+
+    /**
+     * Niezmienna lista okresów posortowana po dniu rozpoczęcia. Dla każdego prefiksu listy zapamiętany jest
+     * okres kończący się najpóźniej oraz drugi taki okres (na wypadek wykluczenia pierwszego), więc zapytanie
+     * "najpóźniej kończąca się dieta rozpoczęta nie później niż X" to wyszukiwanie binarne i dwa odczyty.
+     */
+    static final class UserIntervals {
+
+        private final DietInterval[] byStart;
+        private final int[] furthest;
+        private final int[] runnerUp;
+
+        UserIntervals(Collection<DietInterval> intervals) {
+            byStart = intervals.toArray(new DietInterval[0]);
+            Arrays.sort(byStart, Comparator.comparingLong(DietInterval::startEpochDay));
+            furthest = new int[byStart.length];
+            runnerUp = new int[byStart.length];
+
+            for (int i = 0; i < byStart.length; i++) {
+                if (i == 0) {
+                    furthest[i] = 0;
+                    runnerUp[i] = -1;
+                    continue;
+                }
+                int previousFurthest = furthest[i - 1];
+                int previousRunnerUp = runnerUp[i - 1];
+                if (endOf(i) > endOf(previousFurthest)) {
+                    furthest[i] = i;
+                    runnerUp[i] = previousFurthest;
+                } else {
+                    furthest[i] = previousFurthest;
+                    runnerUp[i] = previousRunnerUp < 0 || endOf(i) > endOf(previousRunnerUp) ? i : previousRunnerUp;
+                }
+            }
+        }
+
+        DietInterval furthestEndingStartingBy(long maxStartEpochDay, String dietIdToExclude) {
+            int last = lastStartingBy(maxStartEpochDay);
+            if (last < 0) {
+                return null;
+            }
+            int candidate = furthest[last];
+            if (byStart[candidate].dietId().equals(dietIdToExclude)) {
+                candidate = runnerUp[last];
+            }
+            return candidate >= 0 ? byStart[candidate] : null;
+        }
+
+        /**
+         * Kopia z zastąpionym (lub usuniętym, gdy interval == null) okresem diety
+         */
+        UserIntervals with(String dietId, DietInterval interval) {
+            List<DietInterval> intervals = new ArrayList<>(byStart.length + 1);
+            for (DietInterval existing : byStart) {
+                if (!existing.dietId().equals(dietId)) {
+                    intervals.add(existing);
+                }
+            }
+            if (interval != null) {
+                intervals.add(interval);
+            }
+            return new UserIntervals(intervals);
+        }
+
+        private int lastStartingBy(long maxStartEpochDay) {
+            int low = 0;
+            int high = byStart.length - 1;
+            int result = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (byStart[mid].startEpochDay() <= maxStartEpochDay) {
+                    result = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return result;
+        }
+
+        private long endOf(int index) {
+            return byStart[index].endEpochDay();
+        }
+    }
+}
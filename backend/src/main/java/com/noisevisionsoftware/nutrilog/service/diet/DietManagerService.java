@@ -10,13 +10,12 @@ import com.noisevisionsoftware.nutrilog.model.diet.DietMetadata;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
 import com.noisevisionsoftware.nutrilog.model.recipe.RecipeIngredient;
 import com.noisevisionsoftware.nutrilog.model.recipe.RecipeReference;
-import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeRepository;
 import com.noisevisionsoftware.nutrilog.service.RecipeService;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedDay;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedDietData;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedMeal;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
-import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ProductParsingService;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ParsedProductCacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -30,11 +29,12 @@ import java.util.stream.Collectors;
 public class DietManagerService {
 
     private final Firestore firestore;
-    private final ProductParsingService productParsingService;
+    private final ParsedProductCacheService parsedProductCacheService;
     private final FirestoreDietMapper firestoreMapper;
     private final DietService dietService;
+    private final DietIntervalIndex dietIntervalIndex;
+    private final DietSummaryService dietSummaryService;
     private final RecipeService recipeService;
-    private final RecipeRepository recipeRepository;
 
     public String saveDietWithShoppingList(
             ParsedDietData parsedData,
@@ -66,7 +66,10 @@ public class DietManagerService {
 
             // 3. Update diet days
             List<Map<String, Object>> updatedDays = createDaysWithMeals(parsedData, savedRecipeIds);
-            dietDocRef.update("days", updatedDays).get();
+            List<ParsedDay> parsedDays = parsedData.getDays();
+            dietDocRef.update("days", updatedDays,
+                    "startDate", parsedDays.isEmpty() ? null : parsedDays.getFirst().getDate(),
+                    "endDate", parsedDays.isEmpty() ? null : parsedDays.getLast().getDate()).get();
 
             // 4. Process and save shopping list
             saveShoppingList(parsedData, userId, dietDocRef.getId());
@@ -74,6 +77,8 @@ public class DietManagerService {
             recipeService.refreshRecipesCache();
 
             dietService.refreshDietsCache();
+            dietIntervalIndex.invalidate(userId);
+            dietSummaryService.refresh(userId);
 
             return dietDocRef.getId();
         } catch (Exception e) {
@@ -83,8 +88,10 @@ public class DietManagerService {
     }
 
     private Map<String, String> saveRecipes(ParsedDietData parsedData, String userId, String dietId) {
-        Map<String, String> savedRecipeIds = new HashMap<>();
         Timestamp now = Timestamp.now();
+        List<Recipe> recipes = new ArrayList<>();
+        List<RecipeReference> references = new ArrayList<>();
+        List<String> mealKeys = new ArrayList<>();
 
         for (int dayIndex = 0; dayIndex < parsedData.getDays().size(); dayIndex++) {
             ParsedDay day = parsedData.getDays().get(dayIndex);
@@ -92,7 +99,7 @@ public class DietManagerService {
             for (ParsedMeal meal : day.getMeals()) {
 
                 // Tworzenie obiektu Recipe
-                Recipe recipe = Recipe.builder()
+                recipes.add(Recipe.builder()
                         .name(meal.getName())
                         .instructions(meal.getInstructions())
                         .nutritionalValues(meal.getNutritionalValues())
@@ -100,26 +107,27 @@ public class DietManagerService {
                         .photos(meal.getPhotos() != null ? meal.getPhotos() : new ArrayList<>())
                         .ingredients(convertToRecipeIngredients(meal.getIngredients()))
                         .parentRecipeId(null)
-                        .build();
-
-                // Zapisywanie przez serwis
-                Recipe savedRecipe = recipeService.findOrCreateRecipe(recipe);
+                        .build());
 
-                // Tworzenie referencji
-                RecipeReference recipeRef = RecipeReference.builder()
-                        .recipeId(savedRecipe.getId())
+                // Tworzenie referencji - recipeId uzupełnia zapis zbiorczy
+                references.add(RecipeReference.builder()
                         .dietId(dietId)
                         .userId(userId)
                         .mealType(meal.getMealType())
                         .addedAt(now)
-                        .build();
+                        .build());
 
-                // Zapisujemy referencję przez odpowiednie repo
-                recipeRepository.saveReference(recipeRef);
-
-                savedRecipeIds.put(dayIndex + "_" + meal.getMealType().name(), savedRecipe.getId());
+                mealKeys.add(dayIndex + "_" + meal.getMealType().name());
             }
         }
+
+        // Jedno zapytanie o istniejące przepisy i zapis paczkami zamiast findOrCreateRecipe dla każdego posiłku
+        recipeService.findOrCreateRecipes(recipes, references);
+
+        Map<String, String> savedRecipeIds = new HashMap<>();
+        for (int i = 0; i < mealKeys.size(); i++) {
+            savedRecipeIds.put(mealKeys.get(i), references.get(i).getRecipeId());
+        }
         return savedRecipeIds;
     }
 
@@ -192,7 +200,7 @@ public class DietManagerService {
         for (String productString : productStrings) {
             Map<String, Object> itemMap = new HashMap<>();
 
-            ParsedProduct product = productParsingService.parseProduct(productString).getProduct();
+            ParsedProduct product = parsedProductCacheService.parseProduct(productString).getProduct();
 
             if (product != null) {
                 itemMap.put("name", product.getName());
@@ -2,12 +2,15 @@ package com.noisevisionsoftware.nutrilog.service.diet;
 
 import com.google.cloud.Timestamp;
 import com.noisevisionsoftware.nutrilog.dto.response.diet.DietInfo;
+import com.noisevisionsoftware.nutrilog.exception.DietConcurrentModificationException;
 import com.noisevisionsoftware.nutrilog.exception.DietOverlapException;
 import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
-import com.noisevisionsoftware.nutrilog.model.diet.Day;
 import com.noisevisionsoftware.nutrilog.model.diet.Diet;
+import com.noisevisionsoftware.nutrilog.model.diet.DietInterval;
+import com.noisevisionsoftware.nutrilog.model.diet.VersionedDiet;
 import com.noisevisionsoftware.nutrilog.repository.DietRepository;
 import com.noisevisionsoftware.nutrilog.service.firebase.FirestoreService;
+import com.noisevisionsoftware.nutrilog.utils.DateUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
@@ -19,6 +22,7 @@ import org.springframework.stereotype.Service;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -26,9 +30,13 @@ import java.util.Map;
 public class DietService {
     private final DietRepository dietRepository;
     private final FirestoreService firestoreService;
+    private final DietIntervalIndex dietIntervalIndex;
+    private final DietSummaryService dietSummaryService;
 
     private static final String DIETS_CACHE = "dietsCache";
     private static final String DIETS_LIST_CACHE = "dietsListCache";
+    private static final String CONCURRENT_MODIFICATION_MESSAGE = "Dieta została w międzyczasie zmieniona. " +
+            "Odśwież dane i spróbuj ponownie.";
 
     @Cacheable(value = DIETS_CACHE, key = "'allDiets'")
     public List<Diet> getAllDiets() {
@@ -46,42 +54,23 @@ public class DietService {
         return dietRepository.findByUserId(userId);
     }
 
+    /**
+     * Informacje o dietach wielu użytkowników z podsumowań diet - jeden odczyt zamiast zapytania na użytkownika.
+     * Aktywna dieta pochodzi z indeksu okresów; niewczytani użytkownicy trafiają do niego z okresów podsumowania.
+     */
     public Map<String, DietInfo> getDietsInfoForUsers(List<String> userIds) {
         Map<String, DietInfo> dietInfoMap = new HashMap<>();
-
-        for (String userId : userIds) {
-            List<Diet> userDiets = getDietsByUserId(userId);
-
-            if (!userDiets.isEmpty()) {
-                Timestamp earliestDate = null;
-                Timestamp latestDate = null;
-
-                for (Diet diet : userDiets) {
-                    for (Day day : diet.getDays()) {
-                        Timestamp dayDate = day.getDate();
-
-                        if (earliestDate == null || dayDate.compareTo(earliestDate) < 0) {
-                            earliestDate = dayDate;
-                        }
-                        if (latestDate == null || dayDate.compareTo(latestDate) > 0) {
-                            latestDate = dayDate;
-                        }
-                    }
-                }
-
-                dietInfoMap.put(userId, DietInfo.builder()
-                        .hasDiet(true)
-                        .startDate(earliestDate)
-                        .endDate(latestDate)
-                        .build());
-            } else {
-                dietInfoMap.put(userId, DietInfo.builder()
-                        .hasDiet(false)
-                        .startDate(null)
-                        .endDate(null)
-                        .build());
-            }
-        }
+        Timestamp now = Timestamp.now();
+
+        dietSummaryService.getSummaries(userIds).forEach((userId, summary) -> {
+            dietIntervalIndex.seed(userId, summary.getPeriods());
+            dietInfoMap.put(userId, DietInfo.builder()
+                    .hasDiet(summary.isHasDiet())
+                    .startDate(summary.getStartDate())
+                    .endDate(summary.getEndDate())
+                    .activeDietId(findDietIdCoveringDate(userId, now).orElse(null))
+                    .build());
+        });
 
         return dietInfoMap;
     }
@@ -104,48 +93,74 @@ public class DietService {
         }
 
         Diet savedDiet = dietRepository.save(diet);
+        dietIntervalIndex.dietSaved(savedDiet.getUserId(), savedDiet.getId(), DietInterval.of(savedDiet).orElse(null));
+        dietSummaryService.refresh(savedDiet.getUserId());
         refreshDietsCache();
         return savedDiet;
     }
 
+    /**
+     * Zapisuje dietę tylko wtedy, gdy nie zmieniła się od odczytu przez klienta (expectedUpdatedAt to
+     * updatedAt z pobranej diety). Zapis z warunkiem na updateTime dokumentu chroni też przed zmianą między
+     * odczytem a zapisem; gdy wersji brakuje (klient jej nie przesłał albo dokument jej nie ma), chroni tylko on.
+     * Przy konflikcie - 409 bez ponawiania, bo ponowny zapis treści przygotowanej na
+     * starszej wersji nadpisałby cudzą zmianę.
+     */
     @Caching(evict = {
             @CacheEvict(value = DIETS_CACHE, allEntries = true),
             @CacheEvict(value = DIETS_LIST_CACHE, allEntries = true)
     })
-    public Diet updateDiet(Diet diet) {
+    public Diet updateDiet(Diet diet, Timestamp expectedUpdatedAt) {
         if (diet.getId() == null) {
             throw new IllegalArgumentException("Diet ID cannot be null for update");
         }
 
-        synchronized (this) {
-            Diet existingDiet = getDietById(diet.getId());
+        VersionedDiet existing = dietRepository.findVersionedById(diet.getId())
+                .orElseThrow(() -> new NotFoundException("Diet not found with id: " + diet.getId()));
+        Diet existingDiet = existing.diet();
 
-            if (!existingDiet.getUserId().equals(diet.getUserId())) {
-                throw new AccessDeniedException("You don't have permission to update this diet");
-            }
+        if (!existingDiet.getUserId().equals(diet.getUserId())) {
+            throw new AccessDeniedException("You don't have permission to update this diet");
+        }
 
-            if (diet.getDays() == null || diet.getDays().isEmpty()) {
-                throw new IllegalArgumentException("Dieta musi zawierać przynajmniej jeden dzień.");
-            }
+        if (existingDiet.getUpdatedAt() == null || expectedUpdatedAt == null) {
+            // Starsze dokumenty bez updatedAt albo klient bez wersji - zostaje tylko warunek na updateTime dokumentu
+            log.debug("Dieta {} bez wersji do porównania - zapis tylko z warunkiem na updateTime", diet.getId());
+        } else if (!isSameVersion(existingDiet.getUpdatedAt(), expectedUpdatedAt)) {
+            log.debug("Dieta {} zmieniona od odczytu przez klienta ({} -> {})",
+                    diet.getId(), expectedUpdatedAt, existingDiet.getUpdatedAt());
+            throw new DietConcurrentModificationException(CONCURRENT_MODIFICATION_MESSAGE);
+        }
 
-            if (hasDietOverlapForUser(diet.getUserId(), getDietStartDate(diet), getDietEndDate(diet), diet.getId())) {
-                throw new DietOverlapException("Użytkownik posiada już dietę w podanym okresie. " +
-                        "Usuń istniejącą dietę lub zmień datę rozpoczęcia.");
-            }
+        if (diet.getDays() == null || diet.getDays().isEmpty()) {
+            throw new IllegalArgumentException("Dieta musi zawierać przynajmniej jeden dzień.");
+        }
 
-            diet.setCreatedAt(existingDiet.getCreatedAt());
-            diet.setUpdatedAt(Timestamp.now());
+        if (hasDietOverlapForUser(diet.getUserId(), getDietStartDate(diet), getDietEndDate(diet), diet.getId())) {
+            throw new DietOverlapException("Użytkownik posiada już dietę w podanym okresie. " +
+                    "Usuń istniejącą dietę lub zmień datę rozpoczęcia.");
+        }
 
-            diet.getDays().forEach(day -> {
-                if (day.getDate() == null) {
-                    day.setDate(Timestamp.now());
-                }
-            });
+        diet.setCreatedAt(existingDiet.getCreatedAt());
+        diet.setUpdatedAt(Timestamp.now());
 
-            Diet updatedDiet = dietRepository.update(diet.getId(), diet);
-            refreshDietsCache();
-            return updatedDiet;
+        diet.getDays().forEach(day -> {
+            if (day.getDate() == null) {
+                day.setDate(Timestamp.now());
+            }
+        });
+
+        Diet updatedDiet;
+        try {
+            updatedDiet = dietRepository.update(diet.getId(), diet, existing.updateTime());
+        } catch (DietConcurrentModificationException e) {
+            log.debug("Dieta {} zmieniona między odczytem a zapisem", diet.getId());
+            throw new DietConcurrentModificationException(CONCURRENT_MODIFICATION_MESSAGE);
         }
+        dietIntervalIndex.dietSaved(updatedDiet.getUserId(), updatedDiet.getId(), DietInterval.of(updatedDiet).orElse(null));
+        dietSummaryService.refresh(updatedDiet.getUserId());
+        refreshDietsCache();
+        return updatedDiet;
     }
 
     @Caching(evict = {
@@ -154,9 +169,13 @@ public class DietService {
     })
     public void deleteDiet(String id) {
         try {
+            // Właściciel odczytany przed usunięciem dokumentu - indeks okresów jest aktualizowany tylko dla niego
+            String userId = dietRepository.findUserIdById(id).orElse(null);
             firestoreService.deleteRelatedData(id);
 
             dietRepository.delete(id);
+            dietIntervalIndex.dietDeleted(userId, id);
+            dietSummaryService.dietDeleted(id);
 
             refreshDietsCache();
         } catch (Exception e) {
@@ -165,28 +184,25 @@ public class DietService {
         }
     }
 
+    /**
+     * Sprawdza nakładanie się okresów diet na podstawie indeksu okresów - bez wczytywania dokumentów diet
+     */
     public boolean hasDietOverlapForUser(String userId, Timestamp startDate, Timestamp endDate, String dietIdToExclude) {
-        List<Diet> userDiets = getDietsByUserId(userId);
-
-        for (Diet diet : userDiets) {
-            if (diet.getId().equals(dietIdToExclude)) {
-                continue;
-            }
-
-            Timestamp dietStartDate = getDietStartDate(diet);
-            Timestamp dietEndDate = getDietEndDate(diet);
-
-            if (dietStartDate == null || dietEndDate == null) {
-                continue;
-            }
-
-            boolean overlap = !(endDate.compareTo(dietStartDate) < 0 || startDate.compareTo(dietEndDate) > 0);
-            if (overlap) {
-                return true;
-            }
+        if (startDate == null || endDate == null) {
+            return false;
         }
+        return dietIntervalIndex.hasOverlap(userId,
+                DateUtils.toEpochDay(startDate), DateUtils.toEpochDay(endDate), dietIdToExclude);
+    }
 
-        return false;
+    /**
+     * ID diety użytkownika obejmującej podany dzień
+     */
+    public Optional<String> findDietIdCoveringDate(String userId, Timestamp date) {
+        if (date == null) {
+            return Optional.empty();
+        }
+        return dietIntervalIndex.findDietCovering(userId, DateUtils.toEpochDay(date));
     }
 
     /**
@@ -202,6 +218,14 @@ public class DietService {
         log.debug("Odświeżenie cache diet");
     }
 
+    /**
+     * Firestore przechowuje czas z dokładnością do mikrosekund - porównanie na tej samej dokładności
+     */
+    private static boolean isSameVersion(Timestamp stored, Timestamp expected) {
+        return stored.getSeconds() == expected.getSeconds()
+                && stored.getNanos() / 1000 == expected.getNanos() / 1000;
+    }
+
     public Timestamp getDietStartDate(Diet diet) {
         if (diet.getDays() == null || diet.getDays().isEmpty()) {
             return null;
@@ -0,0 +1,115 @@
+package com.noisevisionsoftware.nutrilog.service.diet;
+
+import com.noisevisionsoftware.nutrilog.model.diet.DietPeriod;
+import com.noisevisionsoftware.nutrilog.model.diet.DietSummary;
+import com.noisevisionsoftware.nutrilog.repository.DietRepository;
+import com.noisevisionsoftware.nutrilog.repository.DietSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Podsumowania diet użytkowników (czy ma dietę, pierwszy i ostatni dzień, okresy diet) trzymane
+ * w osobnej kolekcji i przeliczane przy zapisach diet. Lista użytkowników czyta je jednym odczytem
+ * zamiast zapytania o pełne dokumenty diet każdego użytkownika. Brakujące podsumowania (użytkownicy
+ * sprzed wprowadzenia kolekcji albo po nieudanym przeliczeniu) są wyliczane z projekcji diet
+ * i zapisywane przy okazji odczytu - tylko jeśli w międzyczasie nie zapisało ich przeliczenie.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DietSummaryService {
+
+    private final DietRepository dietRepository;
+    private final DietSummaryRepository dietSummaryRepository;
+
+    /**
+     * Podsumowania wszystkich podanych użytkowników, także tych bez diet
+     */
+    public Map<String, DietSummary> getSummaries(Collection<String> userIds) {
+        Set<String> distinctUserIds = new LinkedHashSet<>(userIds);
+        if (distinctUserIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        Map<String, DietSummary> summaries = findStoredSummaries(distinctUserIds);
+        List<String> missingUserIds = distinctUserIds.stream()
+                .filter(userId -> !summaries.containsKey(userId))
+                .toList();
+        if (!missingUserIds.isEmpty()) {
+            List<DietSummary> computed = computeSummaries(missingUserIds);
+            computed.forEach(summary -> summaries.put(summary.getUserId(), summary));
+            backfill(computed.stream()
+                    .filter(summary -> summary.getUserId() != null && !summary.getUserId().isBlank())
+                    .toList());
+        }
+
+        return summaries;
+    }
+
+    /**
+     * Przelicza podsumowanie użytkownika po zapisie jego diety
+     */
+    public void refresh(String userId) {
+        if (userId == null) {
+            return;
+        }
+        try {
+            dietSummaryRepository.saveAll(computeSummaries(List.of(userId)));
+        } catch (Exception e) {
+            log.error("Błąd podczas przeliczania podsumowania diet użytkownika {}", userId, e);
+            // Bez nieaktualnego podsumowania kolejny odczyt wyliczy je z diet
+            discard(userId);
+        }
+    }
+
+    /**
+     * Przelicza podsumowania zawierające usuniętą dietę
+     */
+    public void dietDeleted(String dietId) {
+        try {
+            dietSummaryRepository.findUserIdsByDietId(dietId).forEach(this::refresh);
+        } catch (Exception e) {
+            log.error("Błąd podczas aktualizacji podsumowań po usunięciu diety {}", dietId, e);
+        }
+    }
+
+    private Map<String, DietSummary> findStoredSummaries(Set<String> userIds) {
+        try {
+            return new HashMap<>(dietSummaryRepository.findByUserIds(userIds));
+        } catch (Exception e) {
+            log.warn("Nie udało się odczytać podsumowań diet, wyliczanie z diet: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    private List<DietSummary> computeSummaries(List<String> userIds) {
+        Map<String, List<DietPeriod>> periodsByUser = dietRepository.findPeriodsByUserIds(userIds);
+        return userIds.stream()
+                .map(userId -> DietSummary.of(userId, periodsByUser.getOrDefault(userId, List.of())))
+                .toList();
+    }
+
+    private void backfill(List<DietSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        try {
+            // Przeliczenie po zapisie diety mogło już zapisać nowsze podsumowanie - nie jest nadpisywane
+            int created = dietSummaryRepository.createMissing(summaries);
+            log.debug("Zapisano brakujące podsumowania diet: {} z {}", created, summaries.size());
+        } catch (Exception e) {
+            log.warn("Nie udało się zapisać brakujących podsumowań diet: {}", e.getMessage());
+        }
+    }
+
+    private void discard(String userId) {
+        try {
+            dietSummaryRepository.delete(userId);
+        } catch (Exception e) {
+            log.error("Nie udało się usunąć nieaktualnego podsumowania diet użytkownika {}", userId, e);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import com.noisevisionsoftware.nutrilog.model.meal.MealTemplate;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
 import com.noisevisionsoftware.nutrilog.service.RecipeService;
 import com.noisevisionsoftware.nutrilog.service.diet.DietManagerService;
+import com.noisevisionsoftware.nutrilog.service.image.TemporaryImageService;
 import com.noisevisionsoftware.nutrilog.utils.MealTemplateConverter;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedDietData;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
@@ -23,8 +24,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 
@@ -46,6 +47,7 @@ public class ManualDietService {
     private final IngredientManagementService ingredientManagementService;
     private final DietValidationService dietValidationService;
     private final DietDataConverter dietDataConverter;
+    private final TemporaryImageService temporaryImageService;
 
     // Konwertery
     private final MealTemplateConverter mealTemplateConverter;
@@ -162,10 +164,10 @@ public class ManualDietService {
             String userId = getCurrentUserId();
             String query = request.getName().trim();
 
-            // Wyszukaj podobne posiłki
-            List<MealSuggestionResponse> similarMeals = mealSuggestionService.findSimilarMeals(query, 5, userId);
-            boolean foundExact = mealSuggestionService.existsExactMeal(query, userId);
-            List<MealSuggestionResponse> highlySimilar = mealSuggestionService.findHighlySimilarMeals(query, userId);
+            // Jedno wyszukiwanie dla całego podglądu
+            MealSuggestionService.MealMatches matches = mealSuggestionService.findMealMatches(query, userId);
+            boolean foundExact = matches.exactMatch();
+            List<MealSuggestionResponse> highlySimilar = matches.highlySimilar();
 
             // Określ rekomendowaną akcję
             String recommendedAction;
@@ -212,12 +214,9 @@ public class ManualDietService {
             // Konwertuj żądanie na szablon
             MealTemplate template = mealTemplateConverter.convertRequestToTemplate(request);
 
-            // Zapisz szablon
+            // Zapisz szablon (zapis zlicza też użycie)
             MealTemplate savedTemplate = mealTemplateService.save(template);
 
-            // Zwiększ licznik użyć
-            mealTemplateService.incrementUsageCount(savedTemplate.getId());
-
             return mealTemplateConverter.convertTemplateToResponse(savedTemplate);
 
         } catch (Exception e) {
@@ -255,11 +254,10 @@ public class ManualDietService {
             if (mealId != null && !mealId.isEmpty()) {
                 return recipeService.uploadImage(mealId, image);
             } else {
-                // Dla tymczasowych zdjęć używaj base64
-                byte[] imageBytes = image.getBytes();
-                String base64Image = "data:" + image.getContentType() + ";base64," +
-                        Base64.getEncoder().encodeToString(imageBytes);
-                return recipeService.uploadBase64Image(base64Image);
+                // Zdjęcie tymczasowe - przesyłane strumieniowo, wygasa, jeśli nie zostanie użyte
+                try (InputStream content = image.getInputStream()) {
+                    return temporaryImageService.upload(content, image.getContentType());
+                }
             }
         } catch (Exception e) {
             log.error("Błąd podczas przesyłania zdjęcia posiłku", e);
@@ -2,18 +2,20 @@ package com.noisevisionsoftware.nutrilog.service.diet.manual;
 
 import com.noisevisionsoftware.nutrilog.dto.response.diet.manual.MealSuggestionResponse;
 import com.noisevisionsoftware.nutrilog.model.meal.MealTemplate;
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplateSearchResult;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeSearchResult;
 import com.noisevisionsoftware.nutrilog.service.RecipeService;
 import com.noisevisionsoftware.nutrilog.utils.MealTemplateConverter;
 import com.noisevisionsoftware.nutrilog.utils.SimilarityCalculator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Service odpowiedzialny za wyszukiwanie i konwersję sugestii posiłków
@@ -23,16 +25,47 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MealSuggestionService {
 
+    static final int PREVIEW_LIMIT = 10;
+    // Podgląd korzysta z podobieństwa trigramowego z bazy - wspólnego dla przepisów i szablonów
+    static final double HIGH_SIMILARITY_THRESHOLD = 0.6;
+
     private final RecipeService recipeService;
     private final MealTemplateService mealTemplateService;
     private final MealTemplateConverter mealTemplateConverter;
     private final SimilarityCalculator similarityCalculator;
+    private final MealTypeaheadService mealTypeaheadService;
 
     /**
-     * Wyszukuje sugestie posiłków na podstawie zapytania
+     * Wyszukuje sugestie posiłków na podstawie zapytania (podpowiedzi przy wpisywaniu). Po zbudowaniu
+     * indeksu w pamięci nie wykonuje zapytań do bazy.
      */
-    @Cacheable(value = "mealSuggestionCache", key = "{#query, #limit, #userId}")
     public List<MealSuggestionResponse> searchMealSuggestions(String query, int limit, String userId) {
+        return search(query, limit, userId, mealTypeaheadService.isReady());
+    }
+
+    /**
+     * Dopasowania do podglądu zapisywania posiłku. Jedno wyszukiwanie (po jednym zapytaniu na źródło),
+     * z którego wynikają zarówno dokładne trafienie, jak i bardzo podobne posiłki.
+     */
+    public MealMatches findMealMatches(String mealName, String userId) {
+        String query = mealName.trim();
+        List<MealSuggestionResponse> suggestions = search(query, PREVIEW_LIMIT, userId, false);
+
+        boolean exactMatch = suggestions.stream()
+                .anyMatch(meal -> meal.getName().equalsIgnoreCase(query));
+        List<MealSuggestionResponse> highlySimilar = suggestions.stream()
+                .filter(meal -> meal.getSimilarity() > HIGH_SIMILARITY_THRESHOLD)
+                .collect(Collectors.toList());
+
+        return new MealMatches(suggestions, exactMatch, highlySimilar);
+    }
+
+    public record MealMatches(List<MealSuggestionResponse> suggestions,
+                              boolean exactMatch,
+                              List<MealSuggestionResponse> highlySimilar) {
+    }
+
+    private List<MealSuggestionResponse> search(String query, int limit, String userId, boolean useTypeahead) {
         List<MealSuggestionResponse> suggestions = new ArrayList<>();
 
         try {
@@ -50,13 +83,38 @@ public class MealSuggestionService {
             int recipeLimit = Math.max(1, limit / 2);
             int templateLimit = Math.max(1, limit / 2);
 
-            // Wyszukuj przepisy
-            List<Recipe> recipes = recipeService.searchRecipes(query);
-            suggestions.addAll(convertRecipesToSuggestions(recipes, query, recipeLimit));
-
-            // Wyszukuj szablony posiłków
-            List<MealTemplate> templates = mealTemplateService.searchAccessibleTemplates(query, userId, templateLimit);
-            suggestions.addAll(convertTemplatesToSuggestions(templates, query));
+            // Trafność obu źródeł liczona jedną miarą, żeby wspólne sortowanie było porównywalne
+            List<Recipe> recipes;
+            List<MealTemplate> templates;
+            double[] recipeSimilarities;
+            double[] templateSimilarities;
+            if (useTypeahead) {
+                recipes = mealTypeaheadService.searchRecipes(query, recipeLimit);
+                templates = mealTypeaheadService.searchTemplates(query, userId, templateLimit);
+                recipeSimilarities = similarityCalculator.calculateSimilarities(query,
+                        recipes.stream().map(Recipe::getName).toList());
+                templateSimilarities = similarityCalculator.calculateSimilarities(query,
+                        templates.stream().map(MealTemplate::getName).toList());
+            } else {
+                // Wyszukiwanie w bazie dopasowuje też nazwy podobne, a nie tylko zawierające zapytanie;
+                // podobieństwo trigramowe nazw obliczone w bazie - bez ponownego liczenia w Javie
+                List<RecipeSearchResult> recipeResults = recipeService.searchRecipes(query, recipeLimit);
+                recipes = recipeResults.stream()
+                        .map(RecipeSearchResult::getRecipe)
+                        .toList();
+                recipeSimilarities = recipeResults.stream()
+                        .mapToDouble(RecipeSearchResult::getSimilarity)
+                        .toArray();
+                List<MealTemplateSearchResult> templateResults = mealTemplateService.searchAccessibleTemplates(query, userId, templateLimit);
+                templates = templateResults.stream()
+                        .map(MealTemplateSearchResult::getTemplate)
+                        .toList();
+                templateSimilarities = templateResults.stream()
+                        .mapToDouble(MealTemplateSearchResult::getScore)
+                        .toArray();
+            }
+            suggestions.addAll(convertRecipesToSuggestions(recipes, recipeSimilarities, query));
+            suggestions.addAll(convertTemplatesToSuggestions(templates, templateSimilarities, query));
 
             // Sortuj wyniki według trafności
             suggestions.sort((a, b) -> {
@@ -74,38 +132,11 @@ public class MealSuggestionService {
         }
     }
 
-    /**
-     * Wyszukuje podobne posiłki dla podglądu zapisywania
-     */
-    public List<MealSuggestionResponse> findSimilarMeals(String mealName, int limit, String userId) {
-        return searchMealSuggestions(mealName.trim(), limit, userId);
-    }
-
-    /**
-     * Sprawdza, czy istnieje posiłek o dokładnie takiej nazwie
-     */
-    public boolean existsExactMeal(String mealName, String userId) {
-        List<MealSuggestionResponse> suggestions = searchMealSuggestions(mealName.trim(), 5, userId);
-        return suggestions.stream()
-                .anyMatch(meal -> meal.getName().equalsIgnoreCase(mealName.trim()));
-    }
-
-    /**
-     * Znajduje bardzo podobne posiłki (podobieństwo > 0.8)
-     */
-    public List<MealSuggestionResponse> findHighlySimilarMeals(String mealName, String userId) {
-        List<MealSuggestionResponse> suggestions = searchMealSuggestions(mealName.trim(), 10, userId);
-        return suggestions.stream()
-                .filter(meal -> meal.getSimilarity() > 0.8)
-                .collect(Collectors.toList());
-    }
-
-
-    private List<MealSuggestionResponse> convertRecipesToSuggestions(List<Recipe> recipes, String query, int limit) {
-        return recipes.stream()
-                .limit(limit)
-                .map(recipe -> {
-                    double similarity = similarityCalculator.calculateSimilarity(query, recipe.getName());
+    private List<MealSuggestionResponse> convertRecipesToSuggestions(List<Recipe> recipes, double[] similarities, String query) {
+        return IntStream.range(0, recipes.size())
+                .mapToObj(i -> {
+                    Recipe recipe = recipes.get(i);
+                    double similarity = similarities[i];
                     boolean isExact = recipe.getName().equalsIgnoreCase(query.trim());
 
                     return MealSuggestionResponse.builder()
@@ -125,10 +156,11 @@ public class MealSuggestionService {
                 .collect(Collectors.toList());
     }
 
-    private List<MealSuggestionResponse> convertTemplatesToSuggestions(List<MealTemplate> templates, String query) {
-        return templates.stream()
-                .map(template -> {
-                    double similarity = similarityCalculator.calculateSimilarity(query, template.getName());
+    private List<MealSuggestionResponse> convertTemplatesToSuggestions(List<MealTemplate> templates, double[] similarities, String query) {
+        return IntStream.range(0, templates.size())
+                .mapToObj(i -> {
+                    MealTemplate template = templates.get(i);
+                    double similarity = similarities[i];
                     boolean isExact = template.getName().equalsIgnoreCase(query.trim());
 
                     return MealSuggestionResponse.builder()
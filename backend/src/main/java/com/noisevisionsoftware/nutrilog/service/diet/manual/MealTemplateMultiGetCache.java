@@ -0,0 +1,65 @@
+package com.noisevisionsoftware.nutrilog.service.diet.manual;
+
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplate;
+import com.noisevisionsoftware.nutrilog.repository.meal.MealTemplateRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Pobieranie wielu szablonów przez cache pojedynczych szablonów (mealTemplatesCache, klucz = ID, ten sam
+ * co w MealTemplateService.getById). Brakujące ID wczytywane są jednym zapytaniem i dokładane do cache.
+ */
+@Service
+@RequiredArgsConstructor
+public class MealTemplateMultiGetCache {
+
+    static final String MEAL_TEMPLATES_CACHE = "mealTemplatesCache";
+
+    private final CacheManager cacheManager;
+    private final MealTemplateRepository mealTemplateRepository;
+
+    /**
+     * Szablony w kolejności pierwszego wystąpienia ID; powtórzone i nieistniejące ID są pomijane
+     */
+    public List<MealTemplate> getAll(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        Cache cache = cacheManager.getCache(MEAL_TEMPLATES_CACHE);
+        Map<String, MealTemplate> found = new HashMap<>(uniqueIds.size() * 2);
+        List<String> missingIds = new ArrayList<>();
+
+        for (String id : uniqueIds) {
+            MealTemplate cached = cache != null ? cache.get(id, MealTemplate.class) : null;
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missingIds.add(id);
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            for (MealTemplate template : mealTemplateRepository.findAllByIds(missingIds)) {
+                found.put(template.getId(), template);
+                if (cache != null) {
+                    cache.put(template.getId(), template);
+                }
+            }
+        }
+
+        List<MealTemplate> result = new ArrayList<>(found.size());
+        for (String id : uniqueIds) {
+            MealTemplate template = found.get(id);
+            if (template != null) {
+                result.add(template);
+            }
+        }
+        return result;
+    }
+}
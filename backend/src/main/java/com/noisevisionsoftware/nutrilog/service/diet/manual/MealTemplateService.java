@@ -4,8 +4,12 @@ import com.google.cloud.Timestamp;
 import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
 import com.noisevisionsoftware.nutrilog.model.meal.MealIngredient;
 import com.noisevisionsoftware.nutrilog.model.meal.MealTemplate;
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplateSearchResult;
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageKind;
 import com.noisevisionsoftware.nutrilog.repository.meal.MealTemplateRepository;
 import com.noisevisionsoftware.nutrilog.service.category.ProductCategorizationService;
+import com.noisevisionsoftware.nutrilog.service.image.TemporaryImageService;
+import com.noisevisionsoftware.nutrilog.service.usage.TemplateUsageBuffer;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,7 +19,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -24,19 +30,28 @@ public class MealTemplateService {
 
     private final MealTemplateRepository mealTemplateRepository;
     private final ProductCategorizationService categorizationService;
+    private final TemporaryImageService temporaryImageService;
+    private final MealTypeaheadService mealTypeaheadService;
+    private final TemplateUsageBuffer templateUsageBuffer;
 
     private static final String MEAL_TEMPLATES_CACHE = "mealTemplatesCache";
     private static final String MEAL_SEARCH_CACHE = "mealSearchCache";
 
+    // Ile dodatkowych szablonów pobrać do rankingu, żeby po doliczeniu niezapisanych użyć nadal wypełnić limit
+    private static final int MAX_PENDING_OVERFETCH = 20;
+
     @Cacheable(value = MEAL_TEMPLATES_CACHE, key = "#id")
     public MealTemplate getById(String id) {
         return mealTemplateRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Meal template not found with id: " + id));
     }
 
-    public List<MealTemplate> searchAccessibleTemplates(String query, String userId, int limit) {
+    /**
+     * Najbardziej podobne szablony widoczne dla użytkownika, z trafnością; limit jest stosowany w bazie
+     */
+    public List<MealTemplateSearchResult> searchAccessibleTemplates(String query, String userId, int limit) {
         try {
-            return mealTemplateRepository.searchAccessibleTemplates(query, userId, limit);
+            return mealTemplateRepository.searchAccessibleRanked(query, userId, limit);
         } catch (Exception e) {
             log.error("Błąd podczas wyszukiwania dostępnych szablonów", e);
             return new ArrayList<>();
@@ -76,6 +91,8 @@ public class MealTemplateService {
             }
 
             MealTemplate saved = mealTemplateRepository.save(template);
+            temporaryImageService.promote(template.getPhotos());
+            mealTypeaheadService.templateSaved(saved);
 
             if (saved.getId() != null) {
                 incrementUsageCount(saved.getId());
@@ -88,26 +105,65 @@ public class MealTemplateService {
         }
     }
 
-    @CacheEvict(value = MEAL_TEMPLATES_CACHE, key = "#id")
-    @Transactional
+    /**
+     * Zlicza użycie szablonu w buforze - licznik w bazie jest aktualizowany zbiorczo co kilka sekund
+     */
     public void incrementUsageCount(String id) {
         try {
-            mealTemplateRepository.incrementUsageCount(id);
+            templateUsageBuffer.record(TemplateUsageKind.MEAL_TEMPLATE, id);
+            mealTypeaheadService.templateUsed(id);
         } catch (Exception e) {
             log.error("Błąd podczas aktualizacji licznika użycia dla szablonu: {}", id, e);
         }
     }
 
     public List<MealTemplate> getPopularTemplates(int limit) {
-        return mealTemplateRepository.findTopByUsageCount(limit);
+        Map<String, TemplateUsageBuffer.PendingUsage> pending = templateUsageBuffer.pending(TemplateUsageKind.MEAL_TEMPLATE);
+        List<MealTemplate> templates = mealTemplateRepository.findTopByUsageCount(limit + overfetch(pending));
+        return rankWithPendingUsage(templates, pending, Comparator
+                .comparingInt(MealTemplate::getUsageCount).reversed()
+                .thenComparing(MealTemplate::getLastUsed, Comparator.nullsLast(Comparator.reverseOrder())), limit);
     }
 
     public List<MealTemplate> getRecentTemplates(int limit) {
-        return mealTemplateRepository.findRecentlyUsed(limit);
+        Map<String, TemplateUsageBuffer.PendingUsage> pending = templateUsageBuffer.pending(TemplateUsageKind.MEAL_TEMPLATE);
+        List<MealTemplate> templates = mealTemplateRepository.findRecentlyUsed(limit + overfetch(pending));
+        return rankWithPendingUsage(templates, pending,
+                Comparator.comparing(MealTemplate::getLastUsed, Comparator.nullsLast(Comparator.reverseOrder())), limit);
     }
 
     @CacheEvict(value = {MEAL_TEMPLATES_CACHE, MEAL_SEARCH_CACHE}, allEntries = true)
     public void refreshCache() {
         log.debug("Odświeżenie cache szablonów posiłków");
     }
+
+    private static int overfetch(Map<String, TemplateUsageBuffer.PendingUsage> pending) {
+        return Math.min(pending.size(), MAX_PENDING_OVERFETCH);
+    }
+
+    /*
+     * Dolicza niezapisane jeszcze użycia, żeby ranking nie czekał na zapis bufora. Szablony spoza
+     * pobranego okna pojawią się w rankingu po najbliższym zapisie.
+     */
+    private static List<MealTemplate> rankWithPendingUsage(List<MealTemplate> templates,
+                                                           Map<String, TemplateUsageBuffer.PendingUsage> pending,
+                                                           Comparator<MealTemplate> ranking,
+                                                           int limit) {
+        if (pending.isEmpty()) {
+            return templates.size() > limit ? templates.subList(0, limit) : templates;
+        }
+
+        for (MealTemplate template : templates) {
+            TemplateUsageBuffer.PendingUsage usage = pending.get(template.getId());
+            if (usage != null) {
+                template.setUsageCount(usage.addToUsageCount(template.getUsageCount()));
+                template.setLastUsed(usage.mergeLastUsed(template.getLastUsed()));
+            }
+        }
+
+        return templates.stream()
+                .sorted(ranking)
+                .limit(limit)
+                .toList();
+    }
 }
@@ -0,0 +1,183 @@
+package com.noisevisionsoftware.nutrilog.service.diet.manual;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.model.meal.MealNameEntry;
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplate;
+import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.repository.meal.MealTemplateRepository;
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeRepository;
+import com.noisevisionsoftware.nutrilog.service.RecipeMultiGetCache;
+import com.noisevisionsoftware.nutrilog.utils.NameSuffixIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Podpowiedzi nazw posiłków przy wpisywaniu - z indeksu w pamięci zamiast zapytań LIKE przy każdym
+ * naciśnięciu klawisza. Indeks jest budowany z bazy przy starcie i okresowo (zmiany zapisane przez inne
+ * instancje), a zapisy szablonów i przepisów w tej instancji aktualizują go na bieżąco po zatwierdzeniu transakcji.
+ * Indeks trzyma tylko nazwy i dane do rankingu - pełne szablony i przepisy z wyników są pobierane przez cache
+ * pojedynczych obiektów.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MealTypeaheadService {
+
+    private final MealTemplateRepository mealTemplateRepository;
+    private final RecipeRepository recipeRepository;
+    private final MealTemplateMultiGetCache mealTemplateMultiGetCache;
+    private final RecipeMultiGetCache recipeMultiGetCache;
+
+    private record Indexes(NameSuffixIndex templates, NameSuffixIndex recipes) {
+    }
+
+    private volatile Indexes indexes = new Indexes(new NameSuffixIndex(), new NameSuffixIndex());
+    private volatile boolean ready;
+
+    // Zmiany zapisane w trakcie przebudowy są powtarzane na nowym indeksie, żeby nie zginęły przy podmianie
+    private final Object changeLock = new Object();
+    private final List<Consumer<Indexes>> changesDuringRebuild = new ArrayList<>();
+    private boolean rebuilding;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<MealTemplate> searchTemplates(String query, String userId, int limit) {
+        List<String> ids = indexes.templates().search(query,
+                entry -> entry.isPublic() || (userId != null && userId.equals(entry.ownerId())),
+                limit);
+        return mealTemplateMultiGetCache.getAll(ids);
+    }
+
+    public List<Recipe> searchRecipes(String query, int limit) {
+        return recipeMultiGetCache.getAll(indexes.recipes().search(query, entry -> true, limit));
+    }
+
+    public void templateSaved(MealTemplate template) {
+        if (template == null || template.getId() == null) {
+            return;
+        }
+        NameSuffixIndex.Entry entry = templateEntry(template);
+        applyAfterCommit(current -> current.templates().put(entry));
+    }
+
+    public void templateUsed(String templateId) {
+        long usedAt = System.currentTimeMillis();
+        // Przy powtórzeniu po przebudowie licznik może być chwilowo zawyżony o jeden - do następnej przebudowy
+        applyAfterCommit(current -> current.templates().get(templateId)
+                .ifPresent(entry -> current.templates().put(new NameSuffixIndex.Entry(entry.id(), entry.name(),
+                        entry.usageCount() + 1, usedAt, entry.isPublic(), entry.ownerId()))));
+    }
+
+    public void recipeSaved(Recipe recipe) {
+        if (recipe != null) {
+            recipesSaved(List.of(recipe));
+        }
+    }
+
+    public void recipesSaved(Collection<Recipe> recipes) {
+        List<NameSuffixIndex.Entry> entries = recipes.stream()
+                .filter(recipe -> recipe.getId() != null)
+                .map(MealTypeaheadService::recipeEntry)
+                .toList();
+        if (!entries.isEmpty()) {
+            applyAfterCommit(current -> entries.forEach(current.recipes()::put));
+        }
+    }
+
+    public void recipeDeleted(String recipeId) {
+        applyAfterCommit(current -> current.recipes().remove(recipeId));
+    }
+
+    /**
+     * Buduje indeks od nowa na podstawie bazy i podmienia go w całości; wyszukiwania w tym czasie
+     * korzystają z poprzedniego indeksu
+     */
+    @Scheduled(fixedDelayString = "${meals.typeahead.rebuild-interval-ms:900000}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (changeLock) {
+            rebuilding = true;
+            changesDuringRebuild.clear();
+        }
+
+        try {
+            // Same nazwy i dane do rankingu, bez składników i zdjęć
+            Indexes rebuilt = new Indexes(new NameSuffixIndex(), new NameSuffixIndex());
+            mealTemplateRepository.findAllNameEntries().forEach(entry -> rebuilt.templates().put(indexEntry(entry)));
+            recipeRepository.findAllNameEntries().forEach(entry -> rebuilt.recipes().put(indexEntry(entry)));
+
+            synchronized (changeLock) {
+                changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+                indexes = rebuilt;
+                ready = true;
+            }
+
+            log.info("Zbudowano indeks podpowiedzi posiłków: {} szablonów, {} przepisów ({} ms)",
+                    rebuilt.templates().size(), rebuilt.recipes().size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // Do udanej przebudowy działa poprzedni indeks, a przed pierwszą - wyszukiwanie w bazie
+            log.error("Błąd podczas budowania indeksu podpowiedzi posiłków", e);
+        } finally {
+            synchronized (changeLock) {
+                rebuilding = false;
+                changesDuringRebuild.clear();
+            }
+        }
+    }
+
+    private void applyAfterCommit(Consumer<Indexes> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Indexes> change) {
+        try {
+            synchronized (changeLock) {
+                change.accept(indexes);
+                if (rebuilding) {
+                    changesDuringRebuild.add(change);
+                }
+            }
+        } catch (Exception e) {
+            // Zapis w bazie już się udał; indeks wyrówna najbliższa przebudowa
+            log.warn("Nie udało się zaktualizować indeksu podpowiedzi posiłków: {}", e.getMessage());
+        }
+    }
+
+    private static NameSuffixIndex.Entry indexEntry(MealNameEntry entry) {
+        return new NameSuffixIndex.Entry(entry.getId(), entry.getName(), entry.getUsageCount(),
+                toMillis(entry.getLastUsed()), entry.isPublic(), entry.getOwnerId());
+    }
+
+    private static NameSuffixIndex.Entry templateEntry(MealTemplate template) {
+        return new NameSuffixIndex.Entry(template.getId(), template.getName(),
+                template.getUsageCount(), toMillis(template.getLastUsed()), template.isPublic(), template.getCreatedBy());
+    }
+
+    private static NameSuffixIndex.Entry recipeEntry(Recipe recipe) {
+        // Przepisy są widoczne dla wszystkich i nie mają licznika użyć - nowsze wyżej
+        return new NameSuffixIndex.Entry(recipe.getId(), recipe.getName(),
+                0, toMillis(recipe.getCreatedAt()), true, null);
+    }
+
+    private static long toMillis(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toSqlTimestamp().getTime() : 0L;
+    }
+}
@@ -8,7 +8,10 @@ import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
 import com.noisevisionsoftware.nutrilog.mapper.diet.DietTemplateMapper;
 import com.noisevisionsoftware.nutrilog.model.diet.template.DietTemplate;
 import com.noisevisionsoftware.nutrilog.model.diet.template.DietTemplateCategory;
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageKind;
 import com.noisevisionsoftware.nutrilog.repository.diet.DietTemplateRepository;
+import com.noisevisionsoftware.nutrilog.service.image.TemporaryImageService;
+import com.noisevisionsoftware.nutrilog.service.usage.TemplateUsageBuffer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.access.AccessDeniedException;
@@ -26,6 +29,11 @@ public class DietTemplateService {
     private final DietTemplateMapper dietTemplateMapper;
     private final DietTemplateRepository dietTemplateRepository;
     private final DietTemplateConverter dietTemplateConverter;
+    private final TemporaryImageService temporaryImageService;
+    private final TemplateUsageBuffer templateUsageBuffer;
+
+    // Ile dodatkowych szablonów pobrać do rankingu, żeby po doliczeniu niezapisanych użyć nadal wypełnić limit
+    private static final int MAX_PENDING_OVERFETCH = 20;
 
     public DietTemplate saveTemplate(DietTemplate template) {
         if (template.getId() == null) {
@@ -36,19 +44,31 @@ public class DietTemplateService {
         }
         template.setUpdatedAt(Timestamp.now());
 
-        return dietTemplateRepository.save(template);
+        DietTemplate saved = dietTemplateRepository.save(template);
+        temporaryImageService.promote(collectPhotos(template));
+        return saved;
+    }
+
+    private static List<String> collectPhotos(DietTemplate template) {
+        if (template.getDays() == null) {
+            return Collections.emptyList();
+        }
+        return template.getDays().stream()
+                .filter(day -> day.getMeals() != null)
+                .flatMap(day -> day.getMeals().stream())
+                .filter(meal -> meal.getPhotos() != null)
+                .flatMap(meal -> meal.getPhotos().stream())
+                .collect(Collectors.toList());
     }
 
     // src/main/java/com/noisevisionsoftware/nutrilog/service/diet/manual/dietTemplate/DietTemplateService.java
 
-    @Transactional
     public void incrementUsageCount(String templateId) {
         log.info("Incrementing usage count for template: {}", templateId);
 
         try {
-            // Użyj bezpośredniego update zamiast saveTemplate
-            dietTemplateRepository.incrementUsageCount(templateId);
-            log.info("Successfully incremented usage count for template: {}", templateId);
+            // Licznik w bazie jest aktualizowany zbiorczo przez bufor użyć
+            templateUsageBuffer.record(TemplateUsageKind.DIET_TEMPLATE, templateId);
         } catch (Exception e) {
             log.error("Error incrementing usage count for template: {}", templateId, e);
             throw new RuntimeException("Nie udało się zaktualizować licznika użyć", e);
@@ -81,8 +101,23 @@ public class DietTemplateService {
 
     @Transactional(readOnly = true)
     public List<DietTemplateResponse> getMostUsedTemplates(String userId, int limit) {
-        List<DietTemplate> templates = dietTemplateRepository.findTopByCreatedByOrderByUsageCountDesc(userId, limit);
+        Map<String, TemplateUsageBuffer.PendingUsage> pending = templateUsageBuffer.pending(TemplateUsageKind.DIET_TEMPLATE);
+        List<DietTemplate> templates = dietTemplateRepository.findTopByCreatedByOrderByUsageCountDesc(userId,
+                limit + Math.min(pending.size(), MAX_PENDING_OVERFETCH));
+
+        // Niezapisane jeszcze użycia są doliczane, żeby ranking nie czekał na zapis bufora
+        for (DietTemplate template : templates) {
+            TemplateUsageBuffer.PendingUsage usage = pending.get(template.getId());
+            if (usage != null) {
+                template.setUsageCount(usage.addToUsageCount(template.getUsageCount()));
+                template.setLastUsed(usage.mergeLastUsed(template.getLastUsed()));
+            }
+        }
+
         return templates.stream()
+                .sorted(Comparator.comparingInt(DietTemplate::getUsageCount).reversed()
+                        .thenComparing(DietTemplate::getLastUsed, Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(limit)
                 .map(dietTemplateMapper::toResponse)
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,100 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import com.google.cloud.storage.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+
+@Component
+@RequiredArgsConstructor
+public class GcsImageBlobStore implements ImageBlobStore {
+
+    private final Storage storage;
+
+    @Value("${firebase.storage.bucket-name}")
+    private String storageBucket;
+
+    @Override
+    public WritableByteChannel openWriter(String path, String contentType) throws IOException {
+        try {
+            return storage.writer(publicBlobInfo(path, contentType));
+        } catch (StorageException e) {
+            throw new IOException("Nie udało się otworzyć zapisu pliku: " + path, e);
+        }
+    }
+
+    @Override
+    public ReadableByteChannel openReader(String path) throws IOException {
+        try {
+            return storage.reader(BlobId.of(storageBucket, path));
+        } catch (StorageException e) {
+            throw new IOException("Nie udało się otworzyć odczytu pliku: " + path, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return storage.get(BlobId.of(storageBucket, path)) != null;
+    }
+
+    /*
+     * Kopia po stronie Cloud Storage - zawartość nie przechodzi przez aplikację
+     * */
+    @Override
+    public void move(String sourcePath, String targetPath, String contentType) throws IOException {
+        try {
+            BlobId source = BlobId.of(storageBucket, sourcePath);
+            storage.copy(Storage.CopyRequest.newBuilder()
+                    .setSource(source)
+                    .setTarget(publicBlobInfo(targetPath, contentType))
+                    .build()).getResult();
+            storage.delete(source);
+        } catch (StorageException e) {
+            throw new IOException("Nie udało się przenieść pliku " + sourcePath + " do " + targetPath, e);
+        }
+    }
+
+    @Override
+    public boolean delete(String path) {
+        return storage.delete(BlobId.of(storageBucket, path));
+    }
+
+    /*
+     * Jedno żądanie wsadowe do Cloud Storage zamiast osobnego żądania na plik
+     * */
+    @Override
+    public int deleteAll(Collection<String> paths) {
+        if (paths.isEmpty()) {
+            return 0;
+        }
+        List<BlobId> blobIds = paths.stream()
+                .map(path -> BlobId.of(storageBucket, path))
+                .toList();
+        return (int) storage.delete(blobIds).stream()
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+
+    @Override
+    public String publicUrl(String path) {
+        return String.format("https://storage.googleapis.com/%s/%s", storageBucket, path);
+    }
+
+    private BlobInfo publicBlobInfo(String path, String contentType) {
+        return BlobInfo.newBuilder(BlobId.of(storageBucket, path))
+                .setContentType(contentType)
+                .setMetadata(Map.of(
+                        "cacheControl", "public, max-age=31536000",
+                        "contentDisposition", "inline"
+                ))
+                .setAcl(new ArrayList<>(Collections.singletonList(
+                        Acl.of(Acl.User.ofAllUsers(), Acl.Role.READER)
+                )))
+                .build();
+    }
+}
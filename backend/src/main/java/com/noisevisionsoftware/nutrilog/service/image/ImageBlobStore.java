@@ -0,0 +1,29 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+
+/**
+ * Magazyn plików zdjęć. Zapis i odczyt strumieniowy, bez wczytywania całego pliku do pamięci.
+ */
+public interface ImageBlobStore {
+
+    WritableByteChannel openWriter(String path, String contentType) throws IOException;
+
+    ReadableByteChannel openReader(String path) throws IOException;
+
+    boolean exists(String path);
+
+    void move(String sourcePath, String targetPath, String contentType) throws IOException;
+
+    boolean delete(String path);
+
+    /**
+     * Usuwa wiele plików naraz; zwraca liczbę faktycznie usuniętych
+     */
+    int deleteAll(Collection<String> paths);
+
+    String publicUrl(String path);
+}
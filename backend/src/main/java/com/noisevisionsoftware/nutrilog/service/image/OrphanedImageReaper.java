@@ -0,0 +1,200 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeImageRepository;
+import com.noisevisionsoftware.nutrilog.utils.ImageStoragePaths;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Usuwanie zdjęć przepisów, do których nie prowadzi już żadna referencja. Działa w osobnym wątku,
+ * więc usunięcie przepisu nie czeka na magazyn. Zgłoszenia w oknie opóźnienia są łączone w jedno
+ * uruchomienie (w kolejce czeka najwyżej jedno), a blokada w bazie sprawia, że w całym klastrze
+ * sprząta naraz tylko jedna instancja. Każda paczka wpisów jest usuwana i zatwierdzana w osobnej
+ * transakcji, a pliki są usuwane z magazynu dopiero po jej zatwierdzeniu - transakcja nie czeka
+ * na magazyn i nie trzyma blokad przez całe uruchomienie. Sprawdzenie referencji i usunięcie plików
+ * odbywa się pod blokadami ich ścieżek, tymi samymi, pod którymi RecipeImagePipeline zapisuje plik z wpisem.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrphanedImageReaper {
+
+    static final int BATCH_SIZE = 200;
+
+    private final RecipeImageRepository recipeImageRepository;
+    private final ImageBlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${images.orphan-reaper.debounce-ms:5000}")
+    private long debounceMs = 5000;
+
+    private ScheduledExecutorService reaperExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("orphaned-image-reaper").daemon(true).factory());
+
+    private final AtomicBoolean runPending = new AtomicBoolean();
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder runCount = new LongAdder();
+    private final LongAdder skippedRunCount = new LongAdder();
+    private final LongAdder reclaimedCount = new LongAdder();
+    private final LongAdder fileDeleteFailureCount = new LongAdder();
+
+    private volatile Instant lastRunAt;
+    private volatile long lastRunReclaimedCount;
+    private volatile long lastRunDurationMs = -1;
+
+    /**
+     * Zleca sprzątanie po upływie okna opóźnienia. Jeśli uruchomienie już czeka, zgłoszenie jest
+     * do niego dołączane - wywołanie nigdy nie blokuje.
+     */
+    public void requestCleanup() {
+        requestCount.increment();
+        if (!runPending.compareAndSet(false, true)) {
+            coalescedCount.increment();
+            return;
+        }
+
+        try {
+            reaperExecutor.schedule(this::runPendingCleanup, debounceMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            runPending.set(false);
+            log.warn("Nie udało się zlecić usuwania osieroconych zdjęć: {}", e.getMessage());
+        }
+    }
+
+    /* Zdjęcia osierocone poza usuwaniem przepisów (lub w innej instancji) też zostaną kiedyś usunięte */
+    @Scheduled(fixedDelayString = "${images.orphan-reaper.sweep-interval-ms:3600000}")
+    public void scheduledSweep() {
+        requestCleanup();
+    }
+
+    /**
+     * Usuwa wszystkie zdjęcia bez referencji paczkami: jedno zapytanie w osobnej transakcji usuwa paczkę
+     * wpisów i zwraca ich ścieżki, a po zatwierdzeniu jedno żądanie do magazynu usuwa pliki razem z miniaturami
+     */
+    public int reapOrphans() {
+        long start = System.currentTimeMillis();
+        int reclaimed = 0;
+
+        try {
+            List<String> storagePaths;
+            do {
+                storagePaths = transactionTemplate.execute(status -> recipeImageRepository.tryLockOrphanCleanup()
+                        ? recipeImageRepository.deleteOrphanedBatch(BATCH_SIZE)
+                        : null);
+
+                if (storagePaths == null) {
+                    // Blokadę przejęła inna instancja - ona dokończy sprzątanie
+                    if (reclaimed == 0) {
+                        skippedRunCount.increment();
+                        log.debug("Usuwanie osieroconych zdjęć trwa w innej instancji - pominięto");
+                    }
+                    break;
+                }
+
+                if (!storagePaths.isEmpty()) {
+                    reclaimed += storagePaths.size();
+                    deleteFiles(storagePaths);
+                }
+            } while (storagePaths.size() == BATCH_SIZE);
+
+            if (reclaimed > 0) {
+                log.info("Usunięto osierocone zdjęcia: {}", reclaimed);
+            }
+        } catch (Exception e) {
+            // Niezatwierdzona paczka wraca razem z wycofaniem transakcji i zostanie usunięta przy kolejnym uruchomieniu
+            log.error("Błąd podczas usuwania osieroconych zdjęć", e);
+        } finally {
+            runCount.increment();
+            reclaimedCount.add(reclaimed);
+            lastRunAt = Instant.now();
+            lastRunReclaimedCount = reclaimed;
+            lastRunDurationMs = System.currentTimeMillis() - start;
+        }
+
+        return reclaimed;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("requestCount", requestCount.sum());
+        statistics.put("coalescedCount", coalescedCount.sum());
+        statistics.put("runCount", runCount.sum());
+        statistics.put("skippedRunCount", skippedRunCount.sum());
+        statistics.put("reclaimedCount", reclaimedCount.sum());
+        statistics.put("fileDeleteFailureCount", fileDeleteFailureCount.sum());
+        statistics.put("runPending", runPending.get());
+        statistics.put("lastRunAt", lastRunAt != null ? lastRunAt.toString() : null);
+        statistics.put("lastRunReclaimedCount", lastRunReclaimedCount);
+        statistics.put("lastRunDurationMs", lastRunDurationMs);
+        return statistics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reaperExecutor.shutdownNow();
+    }
+
+    private void runPendingCleanup() {
+        // Zgłoszenia od tej chwili dotyczą zdjęć, których to uruchomienie może już nie zobaczyć
+        runPending.set(false);
+        reapOrphans();
+    }
+
+    /*
+     * Wpisy są już usunięte, więc błąd magazynu zostawia tylko niepotrzebne pliki - paczka nie jest powtarzana.
+     * Ten sam plik mógł zostać w międzyczasie przesłany ponownie (zapis zawsze nadpisuje plik i tworzy nowy
+     * wpis) - pliki, do których prowadzi wpis w chwili usuwania, zostają. Blokady ścieżek sprawiają, że nowy
+     * wpis jest albo widoczny przy sprawdzeniu, albo plik zostaje zapisany dopiero po jego usunięciu.
+     */
+    private void deleteFiles(List<String> storagePaths) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                recipeImageRepository.lockImageFiles(storagePaths);
+                Set<String> referenced = recipeImageRepository.findReferencedStoragePaths(storagePaths);
+                List<String> orphaned = storagePaths.stream()
+                        .filter(storagePath -> !referenced.contains(storagePath))
+                        .toList();
+                if (orphaned.size() < storagePaths.size()) {
+                    log.info("Pominięto pliki zdjęć zapisanych ponownie w trakcie sprzątania: {}", referenced);
+                }
+                if (!orphaned.isEmpty()) {
+                    blobStore.deleteAll(withThumbnails(orphaned));
+                }
+            });
+        } catch (Exception e) {
+            fileDeleteFailureCount.increment();
+            log.error("Nie udało się usunąć z magazynu plików osieroconych zdjęć: {}", storagePaths, e);
+        }
+    }
+
+    private static List<String> withThumbnails(List<String> storagePaths) {
+        List<String> paths = new ArrayList<>(storagePaths.size() * 2);
+        for (String storagePath : storagePaths) {
+            paths.add(storagePath);
+            String thumbnailPath = ImageStoragePaths.thumbnailPathFor(storagePath);
+            if (thumbnailPath != null) {
+                paths.add(thumbnailPath);
+            }
+        }
+        return paths;
+    }
+}
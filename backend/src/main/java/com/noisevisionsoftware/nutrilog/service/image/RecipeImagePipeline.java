@@ -0,0 +1,273 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeImageReference;
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeImageRepository;
+import com.noisevisionsoftware.nutrilog.utils.ImageStoragePaths;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Zapis zdjęć przepisów adresowanych zawartością. Plik jest przesyłany strumieniowo do magazynu
+ * i jednocześnie liczony jest jego skrót SHA-256; zdjęcie o znanym skrócie nie jest zapisywane
+ * ponownie, tylko zwiększany jest licznik referencji. Miniatury powstają w tle, a ich ścieżka jest
+ * zapisywana przy referencji dopiero po zapisaniu pliku.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecipeImagePipeline {
+
+    static final int THUMBNAIL_MAX_SIZE = 320;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String DEFAULT_CONTENT_TYPE = "image/jpeg";
+
+    private final ImageBlobStore blobStore;
+    private final RecipeImageRepository recipeImageRepository;
+    private final TaskExecutor thumbnailExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    public record StoredImage(String imageUrl, String storagePath, String contentHash, boolean deduplicated) {
+    }
+
+    public record StoredTemporaryImage(String imageUrl, String storagePath, long sizeBytes) {
+    }
+
+    private record CopiedContent(String contentHash, long sizeBytes) {
+    }
+
+    /**
+     * Zapisuje zdjęcie pod ścieżką wyznaczoną przez skrót zawartości albo zwraca już zapisane zdjęcie
+     * o tej samej zawartości (ze zwiększonym licznikiem referencji)
+     */
+    public StoredImage store(InputStream content, String contentType) throws IOException {
+        String type = contentType != null ? contentType : DEFAULT_CONTENT_TYPE;
+        String stagingPath = ImageStoragePaths.STAGING_PREFIX + UUID.randomUUID();
+
+        // Skrót jest znany dopiero po przesłaniu całego pliku, więc najpierw trafia on pod ścieżkę tymczasową
+        String contentHash;
+        try (WritableByteChannel target = blobStore.openWriter(stagingPath, type)) {
+            contentHash = copyWithDigest(content, target).contentHash();
+        } catch (IOException e) {
+            blobStore.delete(stagingPath);
+            throw e;
+        }
+
+        Optional<RecipeImageReference> existing = recipeImageRepository.findByContentHash(contentHash);
+        if (existing.isPresent()) {
+            Optional<StoredImage> reused = reuse(existing.get(), contentHash);
+            if (reused.isPresent()) {
+                blobStore.delete(stagingPath);
+                return reused.get();
+            }
+        }
+
+        // Plik jest zawsze zapisywany od nowa, nawet gdy istnieje - mógł należeć do wpisu właśnie usuniętego
+        // jako osierocony. Przeniesienie pliku i zapis wpisu odbywają się pod blokadą ścieżki, pod którą
+        // sprzątanie sprawdza referencje i usuwa pliki - nie usunie więc pliku, do którego prowadzi ten wpis.
+        String storagePath = ImageStoragePaths.contentPath(contentHash, extensionFor(type));
+        String imageUrl = blobStore.publicUrl(storagePath);
+        RecipeImageReference reference = RecipeImageReference.builder()
+                .imageUrl(imageUrl)
+                .storagePath(storagePath)
+                .contentHash(contentHash)
+                .referenceCount(1)
+                .build();
+
+        AtomicReference<RuntimeException> saveFailure = new AtomicReference<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                recipeImageRepository.lockImageFiles(List.of(storagePath));
+                try {
+                    blobStore.move(stagingPath, storagePath, type);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                try {
+                    recipeImageRepository.save(reference);
+                } catch (RuntimeException e) {
+                    saveFailure.set(e);
+                    status.setRollbackOnly();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Plik tymczasowy nie ma wpisu w bazie, więc bez usunięcia zostałby w magazynie na zawsze
+            blobStore.delete(stagingPath);
+            if (e instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            throw e;
+        }
+
+        if (saveFailure.get() != null) {
+            // Równoległe przesłanie tego samego zdjęcia zdążyło zapisać referencję
+            return recipeImageRepository.findByContentHash(contentHash)
+                    .flatMap(concurrent -> reuse(concurrent, contentHash))
+                    .orElseThrow(saveFailure::get);
+        }
+
+        scheduleThumbnail(storagePath, contentHash);
+        log.info("Zapisano zdjęcie {} ({})", storagePath, type);
+
+        return new StoredImage(imageUrl, storagePath, contentHash, false);
+    }
+
+    /**
+     * Zdjęcie tymczasowe (przed zapisaniem przepisu) - strumieniowo, bez deduplikacji i bez miniatury
+     */
+    public StoredTemporaryImage storeTemporary(InputStream content, String contentType) throws IOException {
+        String type = contentType != null ? contentType : DEFAULT_CONTENT_TYPE;
+        String path = ImageStoragePaths.TEMP_IMAGES_PREFIX + UUID.randomUUID() + extensionFor(type);
+
+        long sizeBytes;
+        try (WritableByteChannel target = blobStore.openWriter(path, type)) {
+            sizeBytes = copyWithDigest(content, target).sizeBytes();
+        } catch (IOException | RuntimeException e) {
+            // Wpis zdjęcia tymczasowego powstaje dopiero po zapisie, więc wygasanie nie znalazłoby tego pliku
+            blobStore.delete(path);
+            throw e;
+        }
+
+        return new StoredTemporaryImage(blobStore.publicUrl(path), path, sizeBytes);
+    }
+
+    void generateThumbnail(String storagePath, String contentHash) {
+        String thumbnailPath = ImageStoragePaths.thumbnailPath(contentHash);
+        try {
+            if (blobStore.exists(thumbnailPath)) {
+                recipeImageRepository.updateThumbnailPath(contentHash, thumbnailPath);
+                return;
+            }
+
+            BufferedImage original;
+            try (InputStream in = Channels.newInputStream(blobStore.openReader(storagePath))) {
+                original = ImageIO.read(in);
+            }
+            if (original == null) {
+                log.debug("Pominięto miniaturę dla {} - nieobsługiwany format obrazu", storagePath);
+                return;
+            }
+
+            BufferedImage thumbnail = downscale(original, THUMBNAIL_MAX_SIZE);
+            try (OutputStream out = Channels.newOutputStream(blobStore.openWriter(thumbnailPath, "image/jpeg"))) {
+                ImageIO.write(thumbnail, "jpg", out);
+            }
+            // Adres miniatury jest podawany klientom dopiero, gdy plik istnieje
+            recipeImageRepository.updateThumbnailPath(contentHash, thumbnailPath);
+
+            log.debug("Wygenerowano miniaturę {} ({}x{})", thumbnailPath, thumbnail.getWidth(), thumbnail.getHeight());
+        } catch (Exception e) {
+            log.warn("Nie udało się wygenerować miniatury dla {}: {}", storagePath, e.getMessage());
+        }
+    }
+
+    /**
+     * Zmniejsza obraz tak, by dłuższy bok miał najwyżej maxSize pikseli. Skalowanie kolejnymi
+     * połówkami ogranicza aliasing przy dużych zdjęciach; wynik jest zawsze RGB (zapis do JPEG).
+     */
+    static BufferedImage downscale(BufferedImage source, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = resize(current, width, height);
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    /* Pusty wynik, gdy wpis zdążyło usunąć sprzątanie osieroconych zdjęć - wtedy plik trzeba zapisać */
+    private Optional<StoredImage> reuse(RecipeImageReference reference, String contentHash) {
+        if (recipeImageRepository.incrementReferenceCount(reference.getImageUrl()) == 0) {
+            log.info("Wpis zdjęcia o skrócie {} został usunięty jako osierocony - zapis pliku od nowa", contentHash);
+            return Optional.empty();
+        }
+        log.info("Zdjęcie o skrócie {} jest już zapisane - użyto istniejącego pliku", contentHash);
+        return Optional.of(new StoredImage(reference.getImageUrl(), reference.getStoragePath(), contentHash, true));
+    }
+
+    private void scheduleThumbnail(String storagePath, String contentHash) {
+        try {
+            thumbnailExecutor.execute(() -> generateThumbnail(storagePath, contentHash));
+        } catch (Exception e) {
+            log.warn("Nie udało się zlecić generowania miniatury dla {}: {}", storagePath, e.getMessage());
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // Przezroczyste tło (PNG, GIF) zastępowane białym
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private static CopiedContent copyWithDigest(InputStream content, WritableByteChannel target) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long sizeBytes = 0;
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            sizeBytes += read;
+            ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+            while (chunk.hasRemaining()) {
+                target.write(chunk);
+            }
+        }
+        return new CopiedContent(HexFormat.of().formatHex(digest.digest()), sizeBytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Brak algorytmu SHA-256", e);
+        }
+    }
+
+    static String extensionFor(String contentType) {
+        return switch (contentType.toLowerCase(Locale.ROOT)) {
+            case "image/png" -> ".png";
+            case "image/gif" -> ".gif";
+            case "image/webp" -> ".webp";
+            default -> ".jpg";
+        };
+    }
+}
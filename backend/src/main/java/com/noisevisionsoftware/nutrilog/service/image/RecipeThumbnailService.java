@@ -0,0 +1,60 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeImageRepository;
+import com.noisevisionsoftware.nutrilog.utils.ImageStoragePaths;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adresy miniatur zdjęć przepisów. Miniatura jest podawana tylko wtedy, gdy jej ścieżka została
+ * zapisana przy referencji zdjęcia (po wygenerowaniu pliku); w pozostałych przypadkach zwracany jest
+ * adres oryginału. Znalezione miniatury są zapamiętywane - brakujące są sprawdzane ponownie,
+ * bo mogą jeszcze powstawać w tle.
+ */
+@Service
+@RequiredArgsConstructor
+public class RecipeThumbnailService {
+
+    private final RecipeImageRepository recipeImageRepository;
+    private final ImageBlobStore blobStore;
+
+    private final Cache<String, String> thumbnailUrls = Caffeine.newBuilder()
+            .expireAfterAccess(8, TimeUnit.HOURS)
+            .maximumSize(20_000)
+            .build();
+
+    /**
+     * Adres zdjęcia -> adres miniatury dla wszystkich zdjęć, które mają zapisaną miniaturę; jedno
+     * zapytanie o wszystkie zdjęcia bez zapamiętanej miniatury
+     */
+    public Map<String, String> resolve(Collection<String> photos) {
+        Map<String, String> resolved = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String photo : photos) {
+            if (!ImageStoragePaths.isContentAddressedUrl(photo)) {
+                // Starsze zdjęcia i zdjęcia tymczasowe nie mają miniatur
+                continue;
+            }
+            String thumbnailUrl = thumbnailUrls.getIfPresent(photo);
+            if (thumbnailUrl != null) {
+                resolved.put(photo, thumbnailUrl);
+            } else {
+                missing.add(photo);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            recipeImageRepository.findThumbnailPaths(missing).forEach((imageUrl, thumbnailPath) -> {
+                String thumbnailUrl = blobStore.publicUrl(thumbnailPath);
+                thumbnailUrls.put(imageUrl, thumbnailUrl);
+                resolved.put(imageUrl, thumbnailUrl);
+            });
+        }
+        return resolved;
+    }
+}
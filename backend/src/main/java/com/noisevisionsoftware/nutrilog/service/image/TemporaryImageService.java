@@ -0,0 +1,175 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import com.noisevisionsoftware.nutrilog.model.recipe.TemporaryImage;
+import com.noisevisionsoftware.nutrilog.repository.recipe.TemporaryImageRepository;
+import com.noisevisionsoftware.nutrilog.utils.ImageStoragePaths;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Zdjęcia przesłane przed zapisaniem przepisu lub szablonu. Każde jest zapisywane w tabeli
+ * temporary_images; użycie w przepisie lub szablonie usuwa wpis (zdjęcie staje się trwałe),
+ * a nieużyte wygasają po okresie retencji - zapytaniem zakresowym po indeksie created_at,
+ * bez listowania plików w magazynie. Wpis jest usuwany przed plikiem, więc plik znika tylko
+ * wtedy, gdy jego wpis usunęło wygaszanie, a nie użycie zdjęcia.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TemporaryImageService {
+
+    static final int EXPIRY_BATCH_SIZE = 200;
+
+    private final RecipeImagePipeline recipeImagePipeline;
+    private final ImageBlobStore blobStore;
+    private final TemporaryImageRepository temporaryImageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${images.temporary.retention-days:7}")
+    private int retentionDays = 7;
+
+    private final LongAdder uploadedCount = new LongAdder();
+    private final LongAdder promotedCount = new LongAdder();
+    private final LongAdder reclaimedCount = new LongAdder();
+    private final LongAdder reclaimedBytes = new LongAdder();
+    private final LongAdder fileDeleteFailureCount = new LongAdder();
+
+    private volatile Instant lastExpiryAt;
+    private volatile long lastExpiryReclaimedCount;
+    private volatile long lastExpiryReclaimedBytes;
+    private volatile long lastExpiryDurationMs = -1;
+
+    public String upload(InputStream content, String contentType) throws IOException {
+        RecipeImagePipeline.StoredTemporaryImage stored = recipeImagePipeline.storeTemporary(content, contentType);
+
+        temporaryImageRepository.save(TemporaryImage.builder()
+                .imageUrl(stored.imageUrl())
+                .storagePath(stored.storagePath())
+                .sizeBytes(stored.sizeBytes())
+                .build());
+        uploadedCount.increment();
+
+        return stored.imageUrl();
+    }
+
+    /**
+     * Zdjęcia użyte w zapisanym przepisie lub szablonie przestają wygasać. Adresy spoza
+     * przestrzeni zdjęć tymczasowych są pomijane, więc zapis bez nowych zdjęć nie wykonuje zapytania.
+     */
+    public void promote(Collection<String> imageUrls) {
+        if (imageUrls == null || imageUrls.isEmpty()) {
+            return;
+        }
+
+        Set<String> temporaryUrls = imageUrls.stream()
+                .filter(ImageStoragePaths::isTemporaryImageUrl)
+                .collect(Collectors.toSet());
+        if (temporaryUrls.isEmpty()) {
+            return;
+        }
+
+        try {
+            int promoted = temporaryImageRepository.deleteByImageUrls(temporaryUrls);
+            promotedCount.add(promoted);
+            log.debug("Zdjęcia tymczasowe oznaczone jako trwałe: {}", promoted);
+        } catch (Exception e) {
+            // Zapis przepisu nie może się nie udać z tego powodu; zdjęcie najwyżej wygaśnie
+            log.error("Błąd podczas oznaczania zdjęć tymczasowych jako trwałe: {}", temporaryUrls, e);
+        }
+    }
+
+    /**
+     * Usuwa nieużyte zdjęcia starsze niż okres retencji, paczkami: jedno zapytanie w osobnej transakcji
+     * usuwa paczkę wpisów i zwraca ścieżki plików, a po zatwierdzeniu jedno żądanie usuwa pliki z magazynu.
+     * Usuwane są tylko pliki zwrócone przez zapytanie, więc zdjęcie użyte w międzyczasie (promote) zostaje.
+     * Blokada w bazie sprawia, że w całym klastrze wygasza naraz tylko jedna instancja.
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void expireTemporaryImages() {
+        long start = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long count = 0;
+        long bytes = 0;
+
+        try {
+            List<TemporaryImage> batch;
+            do {
+                batch = transactionTemplate.execute(status -> temporaryImageRepository.tryLockExpiry()
+                        ? temporaryImageRepository.deleteCreatedBefore(cutoff, EXPIRY_BATCH_SIZE)
+                        : null);
+
+                if (batch == null) {
+                    // Blokadę przejęła inna instancja - ona dokończy wygaszanie
+                    log.debug("Czyszczenie tymczasowych zdjęć trwa w innej instancji - pominięto");
+                    break;
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                List<String> paths = new ArrayList<>(batch.size());
+                long batchBytes = 0;
+                for (TemporaryImage image : batch) {
+                    paths.add(image.getStoragePath());
+                    batchBytes += image.getSizeBytes();
+                }
+                count += batch.size();
+                bytes += batchBytes;
+                deleteFiles(paths);
+            } while (batch.size() == EXPIRY_BATCH_SIZE);
+
+            log.info("Zakończono czyszczenie tymczasowych zdjęć: usunięto {} ({} B)", count, bytes);
+        } catch (Exception e) {
+            // Niezatwierdzona paczka wraca razem z wycofaniem transakcji i wygaśnie przy kolejnym uruchomieniu
+            log.error("Błąd podczas czyszczenia tymczasowych zdjęć", e);
+        } finally {
+            reclaimedCount.add(count);
+            reclaimedBytes.add(bytes);
+            lastExpiryAt = Instant.now();
+            lastExpiryReclaimedCount = count;
+            lastExpiryReclaimedBytes = bytes;
+            lastExpiryDurationMs = System.currentTimeMillis() - start;
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("uploadedCount", uploadedCount.sum());
+        statistics.put("promotedCount", promotedCount.sum());
+        statistics.put("reclaimedCount", reclaimedCount.sum());
+        statistics.put("reclaimedBytes", reclaimedBytes.sum());
+        statistics.put("fileDeleteFailureCount", fileDeleteFailureCount.sum());
+        statistics.put("lastExpiryAt", lastExpiryAt != null ? lastExpiryAt.toString() : null);
+        statistics.put("lastExpiryReclaimedCount", lastExpiryReclaimedCount);
+        statistics.put("lastExpiryReclaimedBytes", lastExpiryReclaimedBytes);
+        statistics.put("lastExpiryDurationMs", lastExpiryDurationMs);
+        statistics.put("retentionDays", retentionDays);
+        return statistics;
+    }
+
+    /* Wpisy są już usunięte, więc błąd magazynu zostawia tylko niepotrzebne pliki - paczka nie jest powtarzana */
+    private void deleteFiles(List<String> paths) {
+        try {
+            int deletedFiles = blobStore.deleteAll(paths);
+            if (deletedFiles < paths.size()) {
+                log.debug("Część wygasłych zdjęć nie istniała już w magazynie: {} z {}",
+                        paths.size() - deletedFiles, paths.size());
+            }
+        } catch (Exception e) {
+            fileDeleteFailureCount.increment();
+            log.error("Nie udało się usunąć z magazynu plików wygasłych zdjęć: {}", paths, e);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.noisevisionsoftware.nutrilog.service.usage;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageDelta;
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageKind;
+import com.noisevisionsoftware.nutrilog.repository.usage.TemplateUsageRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bufor liczników użyć szablonów. Zamiast osobnego UPDATE na każde użycie (blokady na popularnych
+ * wierszach) użycia są zliczane w pamięci i co kilka sekund zapisywane jednym zapytaniem dla
+ * wszystkich zmienionych szablonów. Zapis następuje też przy zamykaniu aplikacji.
+ * <p>
+ * Mapa trzyma mały licznik dla każdego szablonu użytego od ostatniego zapisu; liczniki wyzerowane
+ * udanym zapisem są usuwane, a zliczanie nie wymaga żadnej blokady (użycie trafiające na licznik
+ * właśnie usuwany jest cofane i zliczane w nowym liczniku).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TemplateUsageBuffer {
+
+    private final TemplateUsageRepository templateUsageRepository;
+
+    /**
+     * Użycia jeszcze niezapisane w bazie
+     */
+    public record PendingUsage(long count, long lastUsedMillis) {
+
+        public int addToUsageCount(int usageCount) {
+            return (int) Math.min(Integer.MAX_VALUE, usageCount + count);
+        }
+
+        public Timestamp mergeLastUsed(Timestamp lastUsed) {
+            Timestamp pendingLastUsed = Timestamp.ofTimeMicroseconds(lastUsedMillis * 1000);
+            return lastUsed == null || lastUsed.compareTo(pendingLastUsed) < 0 ? pendingLastUsed : lastUsed;
+        }
+    }
+
+    private static final class Counter {
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong lastUsedMillis = new AtomicLong();
+        private volatile boolean removed;
+    }
+
+    private final Map<TemplateUsageKind, Map<String, Counter>> counters = createCounters();
+    private final Object flushLock = new Object();
+
+    private final LongAdder recordedCount = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder failedFlushCount = new LongAdder();
+    private final LongAdder flushedRowCount = new LongAdder();
+
+    private volatile Instant lastFlushAt;
+    private volatile long lastFlushRowCount;
+    private volatile long lastFlushDurationMs = -1;
+
+    /**
+     * Zlicza jedno użycie szablonu; nie wykonuje zapytań do bazy
+     */
+    public void record(TemplateUsageKind kind, String templateId) {
+        if (templateId == null) {
+            return;
+        }
+        Map<String, Counter> kindCounters = counters.get(kind);
+        long now = System.currentTimeMillis();
+        while (true) {
+            Counter counter = kindCounters.computeIfAbsent(templateId, id -> new Counter());
+            counter.lastUsedMillis.accumulateAndGet(now, Math::max);
+            counter.count.increment();
+            if (!counter.removed) {
+                break;
+            }
+            // Licznik jest właśnie usuwany - użycie jest cofane i zliczane ponownie
+            counter.count.decrement();
+        }
+        recordedCount.increment();
+    }
+
+    /**
+     * Migawka niezapisanych użyć danego rodzaju szablonów - do uwzględnienia w rankingach
+     */
+    public Map<String, PendingUsage> pending(TemplateUsageKind kind) {
+        Map<String, PendingUsage> pending = new HashMap<>();
+        counters.get(kind).forEach((id, counter) -> {
+            long count = counter.count.sum();
+            if (count > 0) {
+                pending.put(id, new PendingUsage(count, counter.lastUsedMillis.get()));
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Zapisuje zebrane użycia w bazie - jedno zapytanie na rodzaj szablonu. Przy błędzie
+     * liczniki wracają do bufora i zostaną zapisane przy następnej próbie.
+     */
+    @Scheduled(fixedDelayString = "${templates.usage.flush-interval-ms:5000}")
+    public void flush() {
+        synchronized (flushLock) {
+            long start = System.currentTimeMillis();
+            long rows = 0;
+
+            for (TemplateUsageKind kind : TemplateUsageKind.values()) {
+                rows += flush(kind);
+            }
+
+            flushCount.increment();
+            flushedRowCount.add(rows);
+            lastFlushAt = Instant.now();
+            lastFlushRowCount = rows;
+            lastFlushDurationMs = System.currentTimeMillis() - start;
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("recordedCount", recordedCount.sum());
+        statistics.put("flushCount", flushCount.sum());
+        statistics.put("failedFlushCount", failedFlushCount.sum());
+        statistics.put("flushedRowCount", flushedRowCount.sum());
+        for (TemplateUsageKind kind : TemplateUsageKind.values()) {
+            statistics.put("pending." + kind.name(), pending(kind).size());
+            statistics.put("counters." + kind.name(), counters.get(kind).size());
+        }
+        statistics.put("lastFlushAt", lastFlushAt != null ? lastFlushAt.toString() : null);
+        statistics.put("lastFlushRowCount", lastFlushRowCount);
+        statistics.put("lastFlushDurationMs", lastFlushDurationMs);
+        return statistics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private long flush(TemplateUsageKind kind) {
+        Map<String, Counter> kindCounters = counters.get(kind);
+        Map<Counter, Long> drained = new HashMap<>();
+        List<TemplateUsageDelta> deltas = new ArrayList<>();
+        kindCounters.forEach((id, counter) -> {
+            // Użycia zliczone w trakcie odczytu trafią do tego albo do następnego zapisu - żadne nie ginie
+            long count = counter.count.sumThenReset();
+            if (count > 0) {
+                drained.put(counter, count);
+                deltas.add(new TemplateUsageDelta(id, count, toLocalDateTime(counter.lastUsedMillis.get())));
+            } else if (count < 0) {
+                // Cofnięcie użycia, które trafiło już do wcześniejszego zapisu
+                counter.count.add(count);
+            }
+        });
+
+        if (deltas.isEmpty()) {
+            removeDrainedCounters(kindCounters);
+            return 0;
+        }
+
+        try {
+            templateUsageRepository.applyUsageDeltas(kind, deltas);
+            removeDrainedCounters(kindCounters);
+            return deltas.size();
+        } catch (Exception e) {
+            drained.forEach((counter, count) -> counter.count.add(count));
+            failedFlushCount.increment();
+            log.error("Błąd podczas zapisywania liczników użyć szablonów ({}): {} szablonów czeka na ponowienie",
+                    kind, deltas.size(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * Usuwa wyzerowane liczniki. Licznik jest najpierw oznaczany jako usuwany, a dopiero potem
+     * sprawdzana jest jego wartość - użycie zliczone przed oznaczeniem zostawia licznik w mapie,
+     * a zliczone po nim jest cofane i ponawiane przez record.
+     */
+    private static void removeDrainedCounters(Map<String, Counter> kindCounters) {
+        kindCounters.forEach((id, counter) -> kindCounters.computeIfPresent(id, (key, current) -> {
+            if (current != counter) {
+                return current;
+            }
+            current.removed = true;
+            if (current.count.sum() != 0) {
+                current.removed = false;
+                return current;
+            }
+            return null;
+        }));
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static Map<TemplateUsageKind, Map<String, Counter>> createCounters() {
+        Map<TemplateUsageKind, Map<String, Counter>> counters = new EnumMap<>(TemplateUsageKind.class);
+        for (TemplateUsageKind kind : TemplateUsageKind.values()) {
+            counters.put(kind, new ConcurrentHashMap<>());
+        }
+        return counters;
+    }
+}
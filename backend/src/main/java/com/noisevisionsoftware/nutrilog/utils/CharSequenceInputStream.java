@@ -0,0 +1,56 @@
+package com.noisevisionsoftware.nutrilog.utils;
+
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Strumień bajtów czytany bezpośrednio z fragmentu tekstu ASCII (np. danych base64) - bez kopiowania
+ * tekstu do tablicy bajtów. Znaki spoza zakresu jednego bajtu są obcinane do niższych 8 bitów.
+ */
+public class CharSequenceInputStream extends InputStream {
+
+    private final CharSequence text;
+    private final int end;
+    private int position;
+
+    public CharSequenceInputStream(CharSequence text, int start, int end) {
+        Objects.checkFromToIndex(start, end, text.length());
+        this.text = text;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public int read() {
+        return position < end ? text.charAt(position++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, buffer.length);
+        if (length == 0) {
+            return 0;
+        }
+        if (position >= end) {
+            return -1;
+        }
+
+        int count = Math.min(length, end - position);
+        for (int i = 0; i < count; i++) {
+            buffer[offset + i] = (byte) text.charAt(position++);
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return end - position;
+    }
+}
@@ -16,6 +16,10 @@ public class DateUtils {
                 .toLocalDateTime();
     }
 
+    public static long toEpochDay(Timestamp timestamp) {
+        return timestampToLocalDateTime(timestamp).toLocalDate().toEpochDay();
+    }
+
     public static int getWeekNumber(Timestamp timestamp) {
         LocalDateTime date = timestampToLocalDateTime(timestamp);
         return date.get(WeekFields.of(Locale.getDefault()).weekOfWeekBasedYear());
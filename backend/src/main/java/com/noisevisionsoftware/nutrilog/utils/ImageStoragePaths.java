@@ -0,0 +1,50 @@
+package com.noisevisionsoftware.nutrilog.utils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ścieżki zdjęć adresowanych zawartością: oryginał pod skrótem SHA-256, miniatura pod tym samym skrótem
+ */
+public class ImageStoragePaths {
+
+    public static final String IMAGES_PREFIX = "recipes/images/";
+    public static final String THUMBNAILS_PREFIX = "recipes/thumbnails/";
+    public static final String STAGING_PREFIX = "recipes/staging/";
+    public static final String TEMP_IMAGES_PREFIX = "temp-recipes/images/";
+    public static final String THUMBNAIL_EXTENSION = ".jpg";
+
+    private static final Pattern CONTENT_PATH_PATTERN = Pattern.compile(
+            Pattern.quote(IMAGES_PREFIX) + "([0-9a-f]{64})\\.[A-Za-z0-9]+$"
+    );
+
+    public static String contentPath(String contentHash, String extension) {
+        return IMAGES_PREFIX + contentHash + extension;
+    }
+
+    public static String thumbnailPath(String contentHash) {
+        return THUMBNAILS_PREFIX + contentHash + THUMBNAIL_EXTENSION;
+    }
+
+    /**
+     * Ścieżka miniatury dla ścieżki oryginału lub null, gdy zdjęcie nie jest adresowane zawartością
+     */
+    public static String thumbnailPathFor(String storagePath) {
+        if (storagePath == null) {
+            return null;
+        }
+        Matcher matcher = CONTENT_PATH_PATTERN.matcher(storagePath);
+        return matcher.matches() ? thumbnailPath(matcher.group(1)) : null;
+    }
+
+    public static boolean isTemporaryImageUrl(String imageUrl) {
+        return imageUrl != null && imageUrl.contains("/" + TEMP_IMAGES_PREFIX);
+    }
+
+    /**
+     * Czy adres wskazuje zdjęcie adresowane zawartością - tylko takie zdjęcia mogą mieć miniaturę
+     */
+    public static boolean isContentAddressedUrl(String imageUrl) {
+        return imageUrl != null && CONTENT_PATH_PATTERN.matcher(imageUrl).find();
+    }
+}
@@ -0,0 +1,148 @@
+package com.noisevisionsoftware.nutrilog.utils;
+
+import java.util.List;
+
+/**
+ * Odległość i podobieństwo Levenshteina (1 - odległość / dłuższa długość) bez alokacji na porównanie.
+ * <ul>
+ *     <li>dwa wiersze macierzy są współdzielone w obrębie wątku (ThreadLocal),</li>
+ *     <li>przy podanym progu liczone jest tylko pasmo przekątnych |i - j| <= k (Ukkonen),</li>
+ *     <li>obliczenie kończy się, gdy minimum w wierszu przekroczy k - próg jest już nieosiągalny.</li>
+ * </ul>
+ */
+public final class LevenshteinSimilarity {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+    private static final double EPSILON = 1e-9;
+
+    private static final ThreadLocal<Rows> ROWS = ThreadLocal.withInitial(Rows::new);
+
+    private LevenshteinSimilarity() {
+    }
+
+    public static int distance(CharSequence a, CharSequence b) {
+        return boundedDistance(a, b, Math.max(a.length(), b.length()));
+    }
+
+    /**
+     * Odległość, o ile nie przekracza maxDistance; w przeciwnym razie -1.
+     */
+    public static int boundedDistance(CharSequence a, CharSequence b, int maxDistance) {
+        return boundedDistance(a, b, maxDistance, ROWS.get());
+    }
+
+    public static double similarity(CharSequence a, CharSequence b) {
+        int maxLength = Math.max(a.length(), b.length());
+        if (maxLength == 0) return 1.0;
+
+        return 1.0 - ((double) distance(a, b) / maxLength);
+    }
+
+    /**
+     * Podobieństwo, jeśli wynosi co najmniej minSimilarity; wynik poniżej progu jest zwracany jako 0.0.
+     */
+    public static double similarity(CharSequence a, CharSequence b, double minSimilarity) {
+        return similarity(a, b, minSimilarity, ROWS.get());
+    }
+
+    /**
+     * Podobieństwo zapytania do każdego kandydata (jak similarity z progiem), z jednym zestawem buforów.
+     */
+    public static double[] similarities(CharSequence query, List<? extends CharSequence> candidates, double minSimilarity) {
+        Rows rows = ROWS.get();
+        double[] result = new double[candidates.size()];
+        for (int i = 0; i < result.length; i++) {
+            CharSequence candidate = candidates.get(i);
+            result[i] = candidate != null ? similarity(query, candidate, minSimilarity, rows) : 0.0;
+        }
+        return result;
+    }
+
+    private static double similarity(CharSequence a, CharSequence b, double minSimilarity, Rows rows) {
+        int maxLength = Math.max(a.length(), b.length());
+        if (maxLength == 0) return 1.0;
+
+        int maxDistance = (int) Math.floor((1.0 - minSimilarity) * maxLength + EPSILON);
+        if (maxDistance < 0) return 0.0;
+
+        int distance = boundedDistance(a, b, Math.min(maxDistance, maxLength), rows);
+        return distance < 0 ? 0.0 : 1.0 - ((double) distance / maxLength);
+    }
+
+    private static int boundedDistance(CharSequence a, CharSequence b, int maxDistance, Rows rows) {
+        // Wiersze macierzy indeksowane krótszym tekstem
+        if (a.length() < b.length()) {
+            CharSequence swap = a;
+            a = b;
+            b = swap;
+        }
+        int n = a.length();
+        int m = b.length();
+
+        if (maxDistance < 0 || n - m > maxDistance) return -1;
+        if (m == 0) return n;
+
+        int k = Math.min(maxDistance, n);
+        int[] previous = rows.previous(m + 1);
+        int[] current = rows.current(m + 1);
+
+        int firstRowEnd = Math.min(m, k);
+        for (int j = 0; j <= firstRowEnd; j++) {
+            previous[j] = j;
+        }
+        if (firstRowEnd < m) {
+            previous[firstRowEnd + 1] = UNREACHABLE;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            char ca = a.charAt(i - 1);
+            int from = Math.max(1, i - k);
+            int to = Math.min(m, i + k);
+
+            current[from - 1] = from == 1 ? i : UNREACHABLE;
+            int rowMin = current[from - 1];
+
+            for (int j = from; j <= to; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+                current[j] = value;
+                if (value < rowMin) {
+                    rowMin = value;
+                }
+            }
+            if (to < m) {
+                current[to + 1] = UNREACHABLE;
+            }
+
+            if (rowMin > k) {
+                return -1;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int distance = previous[m];
+        return distance <= k ? distance : -1;
+    }
+
+    private static final class Rows {
+        private int[] first = new int[64];
+        private int[] second = new int[64];
+
+        private int[] previous(int size) {
+            if (first.length < size) {
+                first = new int[Math.max(size, first.length * 2)];
+            }
+            return first;
+        }
+
+        private int[] current(int size) {
+            if (second.length < size) {
+                second = new int[Math.max(size, second.length * 2)];
+            }
+            return second;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.noisevisionsoftware.nutrilog.utils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * Indeks nazw w pamięci do podpowiedzi przy wpisywaniu. Wszystkie sufiksy znormalizowanych nazw
+ * (skrócone do MAX_KEY_LENGTH znaków) trzymane są w posortowanej mapie, więc wyszukanie fragmentu
+ * nazwy to jeden przedział kluczy zaczynających się od zapytania - tak jak LIKE '%q%', ale bez bazy.
+ * Wyniki są sortowane: dokładna nazwa, początek nazwy, początek słowa, dowolny fragment, a w obrębie
+ * grupy według liczby użyć i daty ostatniego użycia.
+ * <p>
+ * Indeks trzyma tylko nazwy i dane do rankingu; wyszukiwanie zwraca ID, a pełne obiekty wczytuje wywołujący.
+ * Zapisy są serializowane, odczyty nie blokują.
+ */
+public class NameSuffixIndex {
+
+    static final int MAX_KEY_LENGTH = 24;
+
+    public record Entry(String id,
+                        String name,
+                        int usageCount,
+                        long lastUsedMillis,
+                        boolean isPublic,
+                        String ownerId) {
+    }
+
+    private record IndexedEntry(Entry entry, String normalizedName) {
+    }
+
+    private record Match(Entry entry, int quality) {
+    }
+
+    private static final Comparator<Match> RANKING = Comparator
+            .comparingInt(Match::quality)
+            .thenComparing(match -> match.entry().usageCount(), Comparator.reverseOrder())
+            .thenComparing(match -> match.entry().lastUsedMillis(), Comparator.reverseOrder())
+            .thenComparing(match -> match.entry().name());
+
+    private final ConcurrentSkipListMap<String, Set<String>> idsBySuffix = new ConcurrentSkipListMap<>();
+    private final Map<String, IndexedEntry> entries = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    /**
+     * Dodaje lub zastępuje wpis o danym ID; wpis bez nazwy jest usuwany z indeksu
+     */
+    public void put(Entry entry) {
+        String normalizedName = normalize(entry.name());
+        synchronized (writeLock) {
+            if (normalizedName.isEmpty()) {
+                remove(entry.id());
+                return;
+            }
+
+            IndexedEntry previous = entries.put(entry.id(), new IndexedEntry(entry, normalizedName));
+            if (previous != null && previous.normalizedName().equals(normalizedName)) {
+                return;
+            }
+
+            // Najpierw nowe sufiksy, potem usunięcie starych - wpis nie znika chwilowo z wyników
+            Set<String> keys = suffixKeys(normalizedName);
+            for (String key : keys) {
+                idsBySuffix.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(entry.id());
+            }
+            if (previous != null) {
+                Set<String> staleKeys = suffixKeys(previous.normalizedName());
+                staleKeys.removeAll(keys);
+                unlink(entry.id(), staleKeys);
+            }
+        }
+    }
+
+    public void remove(String id) {
+        synchronized (writeLock) {
+            IndexedEntry previous = entries.remove(id);
+            if (previous != null) {
+                unlink(id, suffixKeys(previous.normalizedName()));
+            }
+        }
+    }
+
+    public Optional<Entry> get(String id) {
+        IndexedEntry indexed = entries.get(id);
+        return indexed != null ? Optional.of(indexed.entry()) : Optional.empty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * ID najlepszych wpisów, których nazwa zawiera zapytanie i które spełniają filtr (np. widoczność)
+     */
+    public List<String> search(String query, Predicate<Entry> filter, int limit) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        String from = normalizedQuery.length() > MAX_KEY_LENGTH
+                ? normalizedQuery.substring(0, MAX_KEY_LENGTH)
+                : normalizedQuery;
+        Set<String> candidateIds = new HashSet<>();
+        for (Set<String> ids : idsBySuffix.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+            candidateIds.addAll(ids);
+        }
+
+        // Najsłabszy z dotychczas wybranych wyników na szczycie kolejki
+        PriorityQueue<Match> best = new PriorityQueue<>(Math.min(limit, 64) + 1, RANKING.reversed());
+        for (String id : candidateIds) {
+            IndexedEntry indexed = entries.get(id);
+            // Klucze są skracane, a indeks może się zmieniać w trakcie wyszukiwania - nazwa jest sprawdzana ponownie
+            if (indexed == null || !indexed.normalizedName().contains(normalizedQuery) || !filter.test(indexed.entry())) {
+                continue;
+            }
+
+            best.add(new Match(indexed.entry(), matchQuality(indexed.normalizedName(), normalizedQuery)));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(RANKING);
+        return matches.stream()
+                .map(match -> match.entry().id())
+                .toList();
+    }
+
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        return name.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static int matchQuality(String normalizedName, String normalizedQuery) {
+        if (normalizedName.equals(normalizedQuery)) {
+            return 0;
+        }
+        if (normalizedName.startsWith(normalizedQuery)) {
+            return 1;
+        }
+        if (normalizedName.contains(" " + normalizedQuery)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private static Set<String> suffixKeys(String normalizedName) {
+        Set<String> keys = new HashSet<>();
+        for (int start = 0; start < normalizedName.length(); start++) {
+            keys.add(normalizedName.substring(start, Math.min(normalizedName.length(), start + MAX_KEY_LENGTH)));
+        }
+        return keys;
+    }
+
+    private void unlink(String id, Set<String> keys) {
+        for (String key : keys) {
+            Set<String> ids = idsBySuffix.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    idsBySuffix.remove(key, ids);
+                }
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.noisevisionsoftware.nutrilog.utils;
 
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * Utility do obliczania podobieństwa między tekstami
  */
@@ -17,9 +19,29 @@ public class SimilarityCalculator {
     public double calculateSimilarity(String query, String target) {
         if (query == null || target == null) return 0.0;
 
+        return calculateNormalizedSimilarity(normalizeText(query), normalizeText(target), 0.0);
+    }
+
+    /**
+     * Oblicza podobieństwo zapytania do wielu tekstów (zapytanie jest normalizowane raz)
+     * @return wartości podobieństwa w kolejności tekstów docelowych
+     */
+    public double[] calculateSimilarities(String query, List<String> targets) {
+        double[] result = new double[targets.size()];
+        if (query == null) return result;
+
         String normalizedQuery = normalizeText(query);
-        String normalizedTarget = normalizeText(target);
+        for (int i = 0; i < result.length; i++) {
+            String target = targets.get(i);
+            result[i] = target != null ? calculateNormalizedSimilarity(normalizedQuery, normalizeText(target), 0.0) : 0.0;
+        }
+        return result;
+    }
 
+    /*
+     * Przy minSimilarity > 0 odległość Levenshteina liczona jest tylko do progu (wynik poniżej progu to 0.0)
+     */
+    private double calculateNormalizedSimilarity(String normalizedQuery, String normalizedTarget, double minSimilarity) {
         // Dokładne dopasowanie
         if (normalizedQuery.equals(normalizedTarget)) {
             return 1.0;
@@ -31,52 +53,7 @@ public class SimilarityCalculator {
         }
 
         // Oblicz podobieństwo za pomocą odległości Levenshtein
-        return calculateLevenshteinSimilarity(normalizedQuery, normalizedTarget);
-    }
-
-    /**
-     * Oblicza podobieństwo na podstawie odległości Levenshtein
-     */
-    private double calculateLevenshteinSimilarity(String a, String b) {
-        int maxLength = Math.max(a.length(), b.length());
-        if (maxLength == 0) return 1.0;
-
-        int distance = calculateLevenshteinDistance(a, b);
-        return 1.0 - ((double) distance / maxLength);
-    }
-
-    /**
-     * Oblicza odległość Levenshtein między dwoma tekstami
-     */
-    private int calculateLevenshteinDistance(String a, String b) {
-        if (a.isEmpty()) return b.length();
-        if (b.isEmpty()) return a.length();
-
-        int[][] matrix = new int[a.length() + 1][b.length() + 1];
-
-        // Inicjalizacja pierwszego wiersza i kolumny
-        for (int i = 0; i <= a.length(); i++) {
-            matrix[i][0] = i;
-        }
-        for (int j = 0; j <= b.length(); j++) {
-            matrix[0][j] = j;
-        }
-
-        // Wypełnienie macierzy
-        for (int i = 1; i <= a.length(); i++) {
-            for (int j = 1; j <= b.length(); j++) {
-                int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
-                matrix[i][j] = Math.min(
-                        Math.min(
-                                matrix[i - 1][j] + 1,      // usunięcie
-                                matrix[i][j - 1] + 1       // wstawienie
-                        ),
-                        matrix[i - 1][j - 1] + cost    // zamiana
-                );
-            }
-        }
-
-        return matrix[a.length()][b.length()];
+        return LevenshteinSimilarity.similarity(normalizedQuery, normalizedTarget, minSimilarity);
     }
 
     /**
@@ -99,6 +76,8 @@ public class SimilarityCalculator {
      * Sprawdza, czy podobieństwo jest wysokie (> threshold)
      */
     public boolean isHighSimilarity(String query, String target, double threshold) {
-        return calculateSimilarity(query, target) > threshold;
+        if (query == null || target == null) return false;
+
+        return calculateNormalizedSimilarity(normalizeText(query), normalizeText(target), threshold) > threshold;
     }
 }
\ No newline at end of file
@@ -5,11 +5,14 @@ import com.noisevisionsoftware.nutrilog.dto.request.diet.DietTemplateExcelReques
 import com.noisevisionsoftware.nutrilog.dto.response.ValidationResponse;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.validation.ValidationResult;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.validation.ValidationSeverity;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.session.UploadSession;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.session.UploadSessionService;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.service.validation.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -18,19 +21,25 @@ import java.util.*;
 @RequiredArgsConstructor
 public class DietExcelTemplateService {
 
-    private final ExcelStructureValidator excelStructureValidator;
     private final MealsPerDayValidator mealsPerDayValidator;
     private final DateValidator dateValidator;
     private final MealsConfigValidator mealsConfigValidator;
-    private final ExcelParserService excelParserService;
+    private final UploadSessionService uploadSessionService;
     private final ValidationCacheService cacheService;
     private final DietOverlapValidator dietOverlapValidator;
     private final CalorieValidator calorieValidator;
 
     /**
-     * Waliduje szablon diety na podstawie przesłanych parametrów.
+     * Waliduje szablon diety na podstawie przesłanych parametrów. userId to użytkownik, dla którego
+     * tworzona jest dieta, a ownerId - zalogowany użytkownik, do którego należy sesja przesyłania.
      */
-    public ValidationResponse validateDietTemplate(DietTemplateExcelRequest request, String userId) {
+    public ValidationResponse validateDietTemplate(DietTemplateExcelRequest request, String userId, String ownerId) {
+        // Sesja innego użytkownika nie może zwrócić nawet zapamiętanej odpowiedzi
+        if (request.hasUploadSession()
+                && uploadSessionService.findSession(request.getUploadSessionId(), ownerId).isEmpty()) {
+            return createErrorResponse(Collections.singletonList(sessionExpired()));
+        }
+
         String cacheKey = cacheService.generateCacheKey(request, userId);
 
         // Sprawdź cache
@@ -49,15 +58,23 @@ public class DietExcelTemplateService {
         Map<String, Object> additionalData = new HashMap<>();
 
         try {
+            // Sesja przesyłania - plik jest haszowany i walidowany tylko raz
+            UploadSession session = resolveUploadSession(request, ownerId);
+            if (session == null) {
+                allValidations.add(sessionExpired());
+                return createErrorResponse(allValidations);
+            }
+            additionalData.put("uploadSessionId", session.getId());
+
             // Walidacja struktury Excel
-            List<ValidationResult> excelValidation = excelStructureValidator.validateExcelStructure(request.getFile());
+            List<ValidationResult> excelValidation = session.getStructureValidation();
             allValidations.addAll(excelValidation);
             if (containsErrors(excelValidation)) {
                 return createErrorResponse(allValidations);
             }
 
             // Parsowanie Excel
-            ExcelParserService.ParsedExcelResult parseResult = parseExcelFile(request, allValidations, additionalData);
+            ExcelParserService.ParsedExcelResult parseResult = parseExcelFile(session, request, allValidations, additionalData);
             if (parseResult == null) {
                 return createErrorResponse(allValidations);
             }
@@ -164,12 +181,8 @@ public class DietExcelTemplateService {
         }
     }
 
-    public ValidationResponse validateDietTemplate(DietTemplateExcelRequest request) {
-        return validateDietTemplate(request, null);
-    }
-
     private ValidationResult validateBasicParameters(DietTemplateExcelRequest request) {
-        if (request.getFile() == null || request.getFile().isEmpty()) {
+        if (!request.hasUploadSession() && (request.getFile() == null || request.getFile().isEmpty())) {
             return new ValidationResult(false, "Plik jest wymagany", ValidationSeverity.ERROR);
         }
 
@@ -238,19 +251,27 @@ public class DietExcelTemplateService {
         return null;
     }
 
+    private UploadSession resolveUploadSession(DietTemplateExcelRequest request, String ownerId) throws IOException {
+        if (request.hasUploadSession()) {
+            return uploadSessionService.findSession(request.getUploadSessionId(), ownerId).orElse(null);
+        }
+        return uploadSessionService.openSession(request.getFile(), ownerId);
+    }
+
+    private static ValidationResult sessionExpired() {
+        return new ValidationResult(false, "Sesja przesyłania pliku wygasła. Prześlij plik ponownie.",
+                ValidationSeverity.ERROR);
+    }
+
     private ExcelParserService.ParsedExcelResult parseExcelFile(
+            UploadSession session,
             DietTemplateExcelRequest request,
             List<ValidationResult> allValidations,
             Map<String, Object> additionalData) {
 
         try {
-            ExcelParserService.ParsedExcelResult parseResult;
-
-            if (request.getSkipColumnsCount() != null) {
-                parseResult = excelParserService.parseDietExcel(request.getFile(), request.getSkipColumnsCount());
-            } else {
-                parseResult = excelParserService.parseDietExcel(request.getFile());
-            }
+            ExcelParserService.ParsedExcelResult parseResult =
+                    uploadSessionService.getParseResult(session, request.getSkipColumnsCount());
 
             // Dodanie danych do response
             additionalData.put("totalMeals", parseResult.totalMeals());
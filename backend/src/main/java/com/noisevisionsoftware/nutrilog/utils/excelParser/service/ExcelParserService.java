@@ -29,7 +29,7 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ExcelParserService {
 
-    private final ProductParsingService productParsingService;
+    private final ParsedProductCacheService parsedProductCacheService;
     private final ProductCategorizationService categorizationService;
     private final ExcelParserConfig excelParserConfig;
 
@@ -44,151 +44,162 @@ public class ExcelParserService {
         return parseDietExcel(file, excelParserConfig.getSkipColumnsCount());
     }
 
+    /**
+     * Parsowanie pliku Excel wiersz po wierszu w callbacku EasyExcel, bez buforowania całego
+     * arkusza w pamięci - zatrzymywane są tylko sparsowane posiłki (potrzebne w podglądzie
+     * i przy zapisie), a produkty są na bieżąco scalane w mapie listy zakupów. Kategorie
+     * rozpoznanych produktów są zapisywane do kategoryzacji jedną zmianą po przeczytaniu całego pliku.
+     */
     public ParsedExcelResult parseDietExcel(MultipartFile file, int skipColumnsCount) throws IOException {
-        if (skipColumnsCount < 0) {
-            skipColumnsCount = excelParserConfig.getSkipColumnsCount();
-        } else if (skipColumnsCount > excelParserConfig.getMaxSkipColumnsCount()) {
-            skipColumnsCount = excelParserConfig.getSkipColumnsCount();
-        }
-
-        List<List<String>> rows = new ArrayList<>();
+        int effectiveSkipColumnsCount = resolveSkipColumnsCount(skipColumnsCount);
+        DietRowListener listener = new DietRowListener(effectiveSkipColumnsCount);
 
         EasyExcel.read(file.getInputStream())
                 .sheet()
                 .headRowNumber(0)
-                .registerReadListener(new AnalysisEventListener<Map<Integer, String>>() {
-                    @Override
-                    public void invoke(Map<Integer, String> rowMap, AnalysisContext context) {
-                        List<String> rowData = new ArrayList<>();
-                        for (int i = 0; i < rowMap.size(); i++) {
-                            String value = rowMap.get(i);
-                            rowData.add(value != null ? value.trim() : "");
-                        }
-                        rows.add(rowData);
-                    }
-
-                    @Override
-                    public void doAfterAllAnalysed(AnalysisContext context) {
-                        log.debug("Zakończono czytanie pliku Excel. Znaleziono {} wierszy.", rows.size());
-                    }
-                })
+                .registerReadListener(listener)
                 .doRead();
 
-        List<ParsedMeal> meals = new ArrayList<>();
-        Map<String, ParsedProduct> uniqueItems = new HashMap<>();
+        if (!listener.categorizedProducts.isEmpty()) {
+            categorizationService.updateCategorizations(listener.categorizedProducts);
+        }
+
+        List<Map.Entry<String, ParsedProduct>> shoppingList = listener.uniqueItems.values().stream()
+                .map(product -> Map.entry(product.getOriginal(), product))
+                .collect(Collectors.toList());
+
+        return new ParsedExcelResult(listener.meals, listener.meals.size(), shoppingList);
+    }
+
+    private int resolveSkipColumnsCount(int skipColumnsCount) {
+        if (skipColumnsCount < 0 || skipColumnsCount > excelParserConfig.getMaxSkipColumnsCount()) {
+            return excelParserConfig.getSkipColumnsCount();
+        }
+        return skipColumnsCount;
+    }
+
+    private class DietRowListener extends AnalysisEventListener<Map<Integer, String>> {
 
-        // Pomijamy pierwszy wiersz (nagłówki)
-        for (int i = 1; i < rows.size(); i++) {
-            List<String> row = rows.get(i);
+        private final int skipColumnsCount;
+        private final List<ParsedMeal> meals = new ArrayList<>();
+        private final Map<String, ParsedProduct> uniqueItems = new HashMap<>();
+        private final List<ParsedProduct> categorizedProducts = new ArrayList<>();
+        private int rowsCount = 0;
 
-            if (row.size() <= skipColumnsCount + 1) {
-                continue;
+        DietRowListener(int skipColumnsCount) {
+            this.skipColumnsCount = skipColumnsCount;
+        }
+
+        @Override
+        public void invoke(Map<Integer, String> rowMap, AnalysisContext context) {
+            // Pomijamy pierwszy wiersz (nagłówki)
+            if (rowsCount++ == 0) {
+                return;
             }
 
-            String mealName = row.get(skipColumnsCount).trim();
-            if (mealName.isEmpty()) {
-                continue;
+            ParsedMeal meal = parseMealRow(rowMap, skipColumnsCount, uniqueItems, categorizedProducts);
+            if (meal != null) {
+                meals.add(meal);
             }
+        }
 
-            ParsedMeal meal = new ParsedMeal();
-            meal.setName(mealName);
+        @Override
+        public void doAfterAllAnalysed(AnalysisContext context) {
+            log.debug("Zakończono czytanie pliku Excel. Znaleziono {} wierszy.", rowsCount);
+        }
+    }
 
-            String instructions = "";
-            if (row.size() > skipColumnsCount + 1) {
-                instructions = row.get(skipColumnsCount + 1).trim();
-            }
-            meal.setInstructions(instructions);
-
-            // Parsowanie składników-trzecia kolumna po pominiętych
-            if (row.size() > skipColumnsCount + 2 && !row.get(skipColumnsCount + 2).trim().isEmpty()) {
-                List<String> shoppingItems = splitIngredientsList(row.get(skipColumnsCount + 2));
-                for (String item : shoppingItems) {
-                    item = item.trim();
-                    if (!item.isEmpty()) {
-                        try {
-                            ParsedProduct product = parseProduct(item);
-
-                            // Dodawanie bezpośrednio do listy zakupów
-                            String key = product.getOriginal().toLowerCase().trim();
-                            uniqueItems.merge(key, product, (existing, newProduct) -> {
-                                if (existing.getUnit().equals(newProduct.getUnit())) {
-                                    existing.setQuantity(existing.getQuantity() + newProduct.getQuantity());
-                                    return existing;
-                                }
-                                return newProduct;
-                            });
-                        } catch (Exception e) {
-                            log.error("Błąd podczas parsowania produktu: {}", item, e);
-                            // Tworzymy podstawowy produkt, gdy parsowanie się nie powiedzie
-                            ParsedProduct fallbackProduct = ParsedProduct.builder()
-                                    .name(item)
-                                    .quantity(1.0)
-                                    .unit("szt")
-                                    .original(item)
-                                    .hasCustomUnit(false)
-                                    .build();
-
-                            // Dodawanie do listy zakupów
-                            String key = item.toLowerCase().trim();
-                            uniqueItems.put(key, fallbackProduct);
-                        }
-                    }
+    private ParsedMeal parseMealRow(Map<Integer, String> row, int skipColumnsCount,
+                                    Map<String, ParsedProduct> uniqueItems,
+                                    List<ParsedProduct> categorizedProducts) {
+        int rowSize = row.size();
+        if (rowSize <= skipColumnsCount + 1) {
+            return null;
+        }
+
+        String mealName = cellValue(row, skipColumnsCount);
+        if (mealName.isEmpty()) {
+            return null;
+        }
+
+        ParsedMeal meal = new ParsedMeal();
+        meal.setName(mealName);
+        meal.setInstructions(cellValue(row, skipColumnsCount + 1));
+
+        // Parsowanie składników-trzecia kolumna po pominiętych
+        String ingredientsCell = rowSize > skipColumnsCount + 2 ? cellValue(row, skipColumnsCount + 2) : "";
+        if (!ingredientsCell.isEmpty()) {
+            for (String item : splitIngredientsList(ingredientsCell)) {
+                item = item.trim();
+                if (!item.isEmpty()) {
+                    mergeShoppingItem(item, uniqueItems, categorizedProducts);
                 }
             }
+        }
 
-            // Parsowanie wartości odżywczych-czwarta kolumna po pominiętych
-            if (row.size() > skipColumnsCount + 3 && !row.get(skipColumnsCount + 3).trim().isEmpty()) {
-                try {
-                    meal.setNutritionalValues(parseNutritionalValues(row.get(skipColumnsCount + 3)));
-                } catch (Exception e) {
-                    log.error("Błąd podczas parsowania wartości odżywczych: {}", row.get(skipColumnsCount + 3), e);
-                }
+        // Parsowanie wartości odżywczych-czwarta kolumna po pominiętych
+        String nutritionCell = rowSize > skipColumnsCount + 3 ? cellValue(row, skipColumnsCount + 3) : "";
+        if (!nutritionCell.isEmpty()) {
+            try {
+                meal.setNutritionalValues(parseNutritionalValues(nutritionCell));
+            } catch (Exception e) {
+                log.error("Błąd podczas parsowania wartości odżywczych: {}", nutritionCell, e);
             }
+        }
 
-            meal.setMealType(MealType.BREAKFAST);
-            meal.setTime("");
+        meal.setMealType(MealType.BREAKFAST);
+        meal.setTime("");
 
-            meal.setIngredients(new ArrayList<>());
+        meal.setIngredients(new ArrayList<>());
 
-            meals.add(meal);
-        }
+        return meal;
+    }
 
-//        List<ParsedProduct> allProducts = new ArrayList<>(uniqueItems.values());
-//        List<ParsedProduct> combinedProducts = combineSimilarProducts(allProducts);
+    private void mergeShoppingItem(String item, Map<String, ParsedProduct> uniqueItems,
+                                   List<ParsedProduct> categorizedProducts) {
+        try {
+            ParsedProduct product = parseProduct(item);
+            if (product.getCategoryId() != null) {
+                categorizedProducts.add(product);
+            }
 
-        List<Map.Entry<String, ParsedProduct>> shoppingList = uniqueItems.values().stream()
-                .map(product -> Map.entry(product.getOriginal(), product))
-                .collect(Collectors.toList());
+            // Dodawanie bezpośrednio do listy zakupów
+            String key = product.getOriginal().toLowerCase().trim();
+            uniqueItems.merge(key, product, (existing, newProduct) -> {
+                if (existing.getUnit().equals(newProduct.getUnit())) {
+                    existing.setQuantity(existing.getQuantity() + newProduct.getQuantity());
+                    return existing;
+                }
+                return newProduct;
+            });
+        } catch (Exception e) {
+            log.error("Błąd podczas parsowania produktu: {}", item, e);
+            // Tworzymy podstawowy produkt, gdy parsowanie się nie powiedzie
+            ParsedProduct fallbackProduct = ParsedProduct.builder()
+                    .name(item)
+                    .quantity(1.0)
+                    .unit("szt")
+                    .original(item)
+                    .hasCustomUnit(false)
+                    .build();
 
-        return new ParsedExcelResult(
-                meals,
-                meals.size(),
-                shoppingList
-        );
+            // Dodawanie do listy zakupów
+            String key = item.toLowerCase().trim();
+            uniqueItems.put(key, fallbackProduct);
+        }
+    }
+
+    private String cellValue(Map<Integer, String> row, int index) {
+        String value = row.get(index);
+        return value != null ? value.trim() : "";
     }
 
     private ParsedProduct parseProduct(String ingredient) {
         try {
-            ParsingResult result = productParsingService.parseProduct(ingredient);
+            ParsingResult result = parsedProductCacheService.parseProductWithCategory(ingredient);
 
             if (result.isSuccess() && result.getProduct() != null) {
-                ParsedProduct originalProduct = result.getProduct();
-
-                String suggestedCategory = categorizationService.suggestCategory(originalProduct);
-
-                ParsedProduct product = ParsedProduct.builder()
-                        .name(originalProduct.getName())
-                        .quantity(originalProduct.getQuantity())
-                        .unit(originalProduct.getUnit())
-                        .original(originalProduct.getOriginal())
-                        .hasCustomUnit(originalProduct.isHasCustomUnit())
-                        .categoryId(suggestedCategory)
-                        .build();
-
-                if (suggestedCategory != null) {
-                    categorizationService.updateCategorization(product);
-                }
-                return product;
+                return result.getProduct();
             } else {
 
                 return ParsedProduct.builder()
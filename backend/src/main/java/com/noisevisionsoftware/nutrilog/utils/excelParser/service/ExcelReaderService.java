@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 @Service
 @Slf4j
@@ -18,7 +19,15 @@ public class ExcelReaderService {
 
     public List<List<String>> readExcelFile(MultipartFile file) throws IOException {
         List<List<String>> rows = new ArrayList<>();
+        readExcelFile(file, (rowIndex, row) -> rows.add(row));
+        return rows;
+    }
 
+    /**
+     * Czyta plik wiersz po wierszu i przekazuje każdy oczyszczony wiersz do {@code rowConsumer},
+     * bez zatrzymywania całego arkusza w pamięci.
+     */
+    public void readExcelFile(MultipartFile file, BiConsumer<Integer, List<String>> rowConsumer) throws IOException {
         EasyExcel.read(file.getInputStream())
                 .sheet()
                 .headRowNumber(0) // Pierwszy wiersz to nagłówki
@@ -30,7 +39,7 @@ public class ExcelReaderService {
                             String cell = rowMap.get(i);
                             cleanRow.add(cell != null ? cell.trim() : "");
                         }
-                        rows.add(cleanRow);
+                        rowConsumer.accept(context.readRowHolder().getRowIndex(), cleanRow);
                     }
 
                     @Override
@@ -45,7 +54,5 @@ public class ExcelReaderService {
                     }
                 })
                 .doRead();
-
-        return rows;
     }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.noisevisionsoftware.nutrilog.utils.excelParser.service;
+
+import com.noisevisionsoftware.nutrilog.service.category.ProductCategorizationService;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsingResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+
+/**
+ * Współdzielony cache wyników parsowania składników (klucz: znormalizowany tekst składnika).
+ * Wpis jest niezmienny; kategoria jest liczona leniwie i ważna tylko dla wersji danych kategoryzacji,
+ * dla której została wyznaczona. Każde wywołanie zwraca nową, modyfikowalną kopię produktu.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ParsedProductCacheService {
+
+    public static final String CACHE_NAME = "parsedProductsCache";
+
+    private static final long NO_CATEGORY_VERSION = -1;
+
+    private final ProductParsingService productParsingService;
+    private final ProductCategorizationService categorizationService;
+    private final CacheManager cacheManager;
+
+    record CachedProduct(
+            boolean success,
+            String name,
+            Double quantity,
+            String unit,
+            boolean hasCustomUnit,
+            String categoryId,
+            long categoryVersion
+    ) {
+        CachedProduct withCategory(String newCategoryId, long version) {
+            return new CachedProduct(success, name, quantity, unit, hasCustomUnit, newCategoryId, version);
+        }
+
+        ParsedProduct toProduct(String original, String category) {
+            return new ParsedProduct(null, name, quantity, unit, original, hasCustomUnit, category);
+        }
+    }
+
+    /**
+     * Odpowiednik ProductParsingService.parseProduct korzystający z cache.
+     */
+    public ParsingResult parseProduct(String input) {
+        CachedProduct cached = lookup(input).product();
+        return toResult(cached, input, null);
+    }
+
+    /**
+     * Parsuje składnik i uzupełnia sugerowaną kategorię (ProductCategorizationService.suggestCategory).
+     */
+    public ParsingResult parseProductWithCategory(String input) {
+        Lookup lookup = lookup(input);
+        CachedProduct cached = lookup.product();
+        if (!cached.success()) {
+            return toResult(cached, input, null);
+        }
+
+        long version = categorizationService.getDataVersion();
+        if (cached.categoryVersion() != version) {
+            String categoryId = categorizationService.suggestCategory(cached.toProduct(input, null));
+            cached = cached.withCategory(categoryId, version);
+
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            if (cache != null && lookup.key() != null) {
+                cache.put(lookup.key(), cached);
+            }
+        }
+
+        return toResult(cached, input, cached.categoryId());
+    }
+
+    /* Klucz null oznacza wynik spoza cache */
+    private record Lookup(String key, CachedProduct product) {
+    }
+
+    /**
+     * Składniki z pliku są zwykle już znormalizowane, więc najpierw szukany jest wpis pod surowym tekstem,
+     * a normalizacja jest liczona dopiero przy chybieniu. Jest to poprawne, bo w cache trafiają tylko klucze,
+     * których normalizacja nic nie zmienia - surowy tekst równy kluczowi daje więc ten sam wynik parsowania.
+     */
+    private Lookup lookup(String input) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            return new Lookup(null, parse(input));
+        }
+
+        CachedProduct cached = cache.get(input, CachedProduct.class);
+        if (cached != null) {
+            return new Lookup(input, cached);
+        }
+
+        String key = normalizeKey(input);
+        // Np. "- - mąka": po jednej normalizacji zostaje "- mąka", a ten tekst sam normalizuje się dalej
+        if (!Objects.equals(key, normalizeKey(key))) {
+            return new Lookup(null, parse(input));
+        }
+        return new Lookup(key, cache.get(key, () -> parse(input)));
+    }
+
+    private CachedProduct parse(String input) {
+        ParsingResult result = productParsingService.parseProduct(input);
+        ParsedProduct product = result.getProduct();
+
+        if (!result.isSuccess() || product == null) {
+            return new CachedProduct(false, null, null, null, false, null, NO_CATEGORY_VERSION);
+        }
+
+        return new CachedProduct(
+                true,
+                product.getName(),
+                product.getQuantity(),
+                product.getUnit(),
+                product.isHasCustomUnit(),
+                null,
+                NO_CATEGORY_VERSION
+        );
+    }
+
+    private ParsingResult toResult(CachedProduct cached, String input, String categoryId) {
+        if (!cached.success()) {
+            return new ParsingResult(null, false);
+        }
+        return new ParsingResult(cached.toProduct(input, categoryId), true);
+    }
+
+    private String normalizeKey(String input) {
+        return productParsingService.normalizeInput(input);
+    }
+}
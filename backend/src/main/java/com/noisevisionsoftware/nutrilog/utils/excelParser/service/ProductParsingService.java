@@ -5,10 +5,13 @@ import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsingResult;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.QuantityInfo;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.UnitProcessingResult;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.unit.UnitDetectionResult;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers.IngredientLexer;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers.IngredientLexer.Token;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers.QuantityParser;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers.UnitService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Arrays;
@@ -23,6 +26,17 @@ public class ProductParsingService {
 
     private final UnitService unitService;
     private final QuantityParser quantityParser;
+    private final IngredientLexer ingredientLexer;
+
+    /* Przełącznik między kaskadą wyrażeń regularnych a lekserem (IngredientLexer) */
+    @Value("${product.parsing.lexer-enabled:false}")
+    private boolean lexerEnabled;
+
+    private static final Pattern DIRECT_LEADING_PATTERN = Pattern.compile("^(\\d+)\\s*([a-ząćęłńóśźż]+)\\s+(.+)$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DIRECT_TRAILING_PATTERN = Pattern.compile("^(.+?)\\s+(\\d+)\\s*([a-ząćęłńóśźż]+)$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("(\\d+(?:[.,]\\d+)?)");
+    private static final Pattern BULLET_PATTERN = Pattern.compile("^[•\\-]\\s*");
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
 
     // Wzorce dla różnych formatów ilości
     private static final List<Pattern> QUANTITY_PATTERNS = Arrays.asList(
@@ -36,11 +50,14 @@ public class ProductParsingService {
     );
 
     public ParsingResult parseProduct(String input) {
+        if (lexerEnabled) {
+            return parseProductWithLexer(input);
+        }
+
         try {
             String cleanInput = cleanInputString(input);
 
-            Pattern directPattern1 = Pattern.compile("^(\\d+)\\s*([a-ząćęłńóśźż]+)\\s+(.+)$", Pattern.CASE_INSENSITIVE);
-            Matcher directMatcher1 = directPattern1.matcher(cleanInput);
+            Matcher directMatcher1 = DIRECT_LEADING_PATTERN.matcher(cleanInput);
             if (directMatcher1.matches()) {
                 double quantity = Double.parseDouble(directMatcher1.group(1));
                 String unit = directMatcher1.group(2).toLowerCase();
@@ -55,8 +72,7 @@ public class ProductParsingService {
                 ));
             }
 
-            Pattern directPattern2 = Pattern.compile("^(.+?)\\s+(\\d+)\\s*([a-ząćęłńóśźż]+)$", Pattern.CASE_INSENSITIVE);
-            Matcher directMatcher2 = directPattern2.matcher(cleanInput);
+            Matcher directMatcher2 = DIRECT_TRAILING_PATTERN.matcher(cleanInput);
             if (directMatcher2.matches()) {
                 String name = directMatcher2.group(1);
                 double quantity = Double.parseDouble(directMatcher2.group(2));
@@ -75,8 +91,7 @@ public class ProductParsingService {
 
             if (!quantityInfo.isSuccess() || quantityInfo.getQuantity() == null || quantityInfo.getRemainingText() == null) {
 
-                Pattern numberPattern = Pattern.compile("(\\d+(?:[.,]\\d+)?)");
-                Matcher numberMatcher = numberPattern.matcher(cleanInput);
+                Matcher numberMatcher = NUMBER_PATTERN.matcher(cleanInput);
                 if (numberMatcher.find()) {
                     double quantity = Double.parseDouble(numberMatcher.group(1).replace(',', '.'));
                     return new ParsingResult(new ParsedProduct(
@@ -144,11 +159,165 @@ public class ProductParsingService {
         }
     }
 
+    /**
+     * Znormalizowane wejście - wynik parsowania (poza polem original) zależy tylko od niego.
+     */
+    public String normalizeInput(String input) {
+        return lexerEnabled ? ingredientLexer.cleanInput(input) : cleanInputString(input);
+    }
+
+    /**
+     * Parsowanie jednoprzebiegowym lekserem - ten sam wynik co kaskada wyrażeń regularnych, z wyjątkiem:
+     * liczebniki słowne są rozpoznawane tylko jako całe słowa ("półtorej" = 1.5, a nie "pół" + "torej"),
+     * ułamki i liczby mieszane na początku tekstu są traktowane jako jedna ilość ("1/2 szklanki" = 0.5),
+     * a zakres ze spacjami na końcu ("mąka 2 - 3 kg") daje średnią zamiast ostatniej liczby.
+     */
+    private ParsingResult parseProductWithLexer(String input) {
+        try {
+            String cleanInput = ingredientLexer.cleanInput(input);
+            List<Token> tokens = ingredientLexer.tokenize(cleanInput);
+            int count = tokens.size();
+
+            // "500 g mąka"
+            if (count >= 3 && tokens.get(0).isInteger() && tokens.get(1).isLettersOnly() && tokens.get(2).spaceBefore()) {
+                return new ParsingResult(new ParsedProduct(
+                        ingredientLexer.cleanProductName(cleanInput.substring(tokens.get(2).start())),
+                        tokens.get(0).value(),
+                        tokens.get(1).text().toLowerCase(),
+                        input,
+                        false
+                ));
+            }
+
+            // "mąka 500 g"
+            Token trailingNumber = count >= 3 ? tokens.get(count - 2) : null;
+            if (trailingNumber != null && trailingNumber.isInteger() && trailingNumber.spaceBefore()
+                    && tokens.get(count - 1).isLettersOnly()) {
+                return new ParsingResult(new ParsedProduct(
+                        ingredientLexer.cleanProductName(cleanInput.substring(0, trailingNumber.start())),
+                        trailingNumber.value(),
+                        tokens.get(count - 1).text().toLowerCase(),
+                        input,
+                        false
+                ));
+            }
+
+            QuantityInfo quantityInfo = extractQuantityWithLexer(cleanInput, tokens);
+
+            if (!quantityInfo.isSuccess()) {
+                String number = ingredientLexer.findFirstNumber(cleanInput);
+                if (number != null) {
+                    return new ParsingResult(new ParsedProduct(
+                            ingredientLexer.cleanProductName(cleanInput.replace(number, "").trim()),
+                            Double.parseDouble(number.replace(',', '.')),
+                            "szt",
+                            input,
+                            false
+                    ));
+                }
+
+                return new ParsingResult(new ParsedProduct(
+                        ingredientLexer.cleanProductName(cleanInput),
+                        1.0,
+                        "szt",
+                        input,
+                        false
+                ));
+            }
+
+            UnitProcessingResult processedUnit = processUnitAndNameWithLexer(
+                    quantityInfo.getPotentialUnit(),
+                    quantityInfo.getRemainingText()
+            );
+
+            return new ParsingResult(new ParsedProduct(
+                    ingredientLexer.cleanProductName(processedUnit.getName()),
+                    quantityInfo.getQuantity(),
+                    processedUnit.getUnit(),
+                    input,
+                    !processedUnit.isFoundKnownUnit() && unitService.isValidUnit(processedUnit.getUnit())
+            ), true);
+        } catch (Exception e) {
+            return new ParsingResult(new ParsedProduct(
+                    ingredientLexer.cleanInput(input),
+                    1.0,
+                    "szt",
+                    input,
+                    false
+            ), true);
+        }
+    }
+
+    /* Ilość na początku ("2-3 kg mąki") albo na końcu ("mąka 2-3 kg") listy tokenów */
+    private QuantityInfo extractQuantityWithLexer(String cleanInput, List<Token> tokens) {
+        int count = tokens.size();
+
+        Token leading = count > 0 ? tokens.get(0) : null;
+        if (leading != null && leading.isQuantity() && leading.value() != null && count > 1) {
+            boolean hasUnit = tokens.get(1).isWordLike();
+            String potentialUnit = hasUnit ? tokens.get(1).text().toLowerCase() : null;
+            int nameIndex = hasUnit ? 2 : 1;
+
+            if (nameIndex < count) {
+                return new QuantityInfo(leading.value(), potentialUnit,
+                        cleanInput.substring(tokens.get(nameIndex).start()).trim());
+            }
+            return new QuantityInfo(leading.value(), null, potentialUnit);
+        }
+
+        // Najwcześniejszy podział: "nazwa ilość jednostka", potem "nazwa ilość"
+        for (int quantityIndex = count - 2; quantityIndex < count; quantityIndex++) {
+            if (quantityIndex < 1) {
+                continue;
+            }
+            Token trailing = tokens.get(quantityIndex);
+            boolean hasUnit = quantityIndex == count - 2;
+            if (!trailing.isQuantity() || !trailing.spaceBefore() || (hasUnit && !tokens.get(count - 1).isWordLike())) {
+                continue;
+            }
+            if (trailing.value() == null) {
+                break;
+            }
+
+            String potentialUnit = hasUnit ? tokens.get(count - 1).text().toLowerCase() : null;
+            return new QuantityInfo(trailing.value(), potentialUnit, cleanInput.substring(0, trailing.start()).trim());
+        }
+
+        return new QuantityInfo(false);
+    }
+
+    private UnitProcessingResult processUnitAndNameWithLexer(String potentialUnit, String remainingText) {
+        String unit = "";
+        String name = remainingText;
+        boolean foundKnownUnit = false;
+
+        if (potentialUnit != null && !potentialUnit.isEmpty()) {
+            UnitDetectionResult unitInfo = unitService.scanUnitInText(potentialUnit);
+            if (unitInfo.isMatch()) {
+                unit = unitInfo.getUnit();
+                foundKnownUnit = true;
+            }
+        }
+
+        if (!foundKnownUnit && remainingText != null && !remainingText.isEmpty()) {
+            UnitDetectionResult unitInfo = unitService.scanUnitInText(remainingText);
+            if (unitInfo.isMatch()) {
+                unit = unitInfo.getUnit();
+                name = ingredientLexer.removeWholeWord(remainingText, unit).trim();
+            }
+        }
+
+        if (unit.isEmpty()) {
+            unit = "szt";
+        }
+
+        return new UnitProcessingResult(unit, name, true);
+    }
+
     private String cleanInputString(String input) {
-        return input
-                .trim()
-                .replaceAll("^[•\\-]\\s*", "")  // Usuń znaki wypunktowania
-                .replaceAll("\\s+", " ");       // Normalizuj spacje
+        String trimmed = input.trim();
+        String withoutBullet = BULLET_PATTERN.matcher(trimmed).replaceFirst("");  // Usuń znaki wypunktowania
+        return WHITESPACE_PATTERN.matcher(withoutBullet).replaceAll(" ");        // Normalizuj spacje
     }
 
     protected QuantityInfo extractQuantityAndUnit(String input) {
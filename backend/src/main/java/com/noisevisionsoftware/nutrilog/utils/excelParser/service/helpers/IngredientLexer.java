@@ -0,0 +1,353 @@
+package com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers;
+
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Jednoprzebiegowy lekser składników (automat skończony, bez wyrażeń regularnych).
+ * Dzieli oczyszczony tekst na liczby, zakresy ("2-3"), ułamki ("1/2"), liczby mieszane ("1 1/2"),
+ * liczebniki słowne ("pół", "półtorej"...) oraz słowa.
+ */
+@Service
+public class IngredientLexer {
+
+    private static final String POLISH_LETTERS = "ąćęłńóśźż";
+
+    public enum TokenType {
+        NUMBER,
+        RANGE,
+        FRACTION,
+        MIXED,
+        NUMERAL,
+        WORD
+    }
+
+    /**
+     * @param value       wartość liczbowa tokenu ilościowego; null dla słów i niepoprawnych ułamków (np. "1/0")
+     * @param spaceBefore czy token poprzedza biały znak
+     */
+    public record Token(TokenType type, String text, int start, int end, Double value, boolean spaceBefore) {
+
+        public boolean isQuantity() {
+            return type != TokenType.WORD;
+        }
+
+        /* Słowo w rozumieniu "[^\d\s]+" - liczebnik słowny też może pełnić rolę jednostki */
+        public boolean isWordLike() {
+            return type == TokenType.WORD || type == TokenType.NUMERAL;
+        }
+
+        public boolean isInteger() {
+            if (type != TokenType.NUMBER) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (!isAsciiDigit(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /* Słowo złożone wyłącznie z liter [a-ząćęłńóśźż] (wielkość liter tylko dla ASCII) */
+        public boolean isLettersOnly() {
+            if (!isWordLike()) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                boolean asciiLetter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+                if (!asciiLetter && POLISH_LETTERS.indexOf(c) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public List<Token> tokenize(String input) {
+        List<Token> tokens = new ArrayList<>();
+        if (input == null) {
+            return tokens;
+        }
+
+        int length = input.length();
+        int i = 0;
+        boolean spaceBefore = false;
+
+        while (i < length) {
+            char c = input.charAt(i);
+            if (isWhitespace(c)) {
+                spaceBefore = true;
+                i++;
+                continue;
+            }
+
+            Token token = isAsciiDigit(c)
+                    ? readQuantity(input, i, spaceBefore)
+                    : readWord(input, i, spaceBefore);
+            tokens.add(token);
+            i = token.end();
+            spaceBefore = false;
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Odpowiednik: trim, usunięcie znaku wypunktowania ("•", "-") i normalizacja spacji.
+     */
+    public String cleanInput(String input) {
+        String trimmed = input.trim();
+        int start = 0;
+        if (!trimmed.isEmpty() && (trimmed.charAt(0) == '•' || trimmed.charAt(0) == '-')) {
+            start = 1;
+            while (start < trimmed.length() && isWhitespace(trimmed.charAt(start))) {
+                start++;
+            }
+        }
+        return collapseWhitespace(trimmed, start);
+    }
+
+    /**
+     * Odpowiednik: usunięcie nawiasów z zawartością, normalizacja spacji, trim i małe litery.
+     */
+    public String cleanProductName(String name) {
+        StringBuilder withoutBrackets = new StringBuilder(name.length());
+        int length = name.length();
+        int i = 0;
+
+        while (i < length) {
+            int j = i;
+            while (j < length && isWhitespace(name.charAt(j))) {
+                j++;
+            }
+            if (j < length && name.charAt(j) == '(') {
+                int close = name.indexOf(')', j + 1);
+                if (close > j + 1) {
+                    i = close + 1;
+                    continue;
+                }
+            }
+            if (j > i) {
+                withoutBrackets.append(name, i, j);
+                i = j;
+            } else {
+                withoutBrackets.append(name.charAt(i));
+                i++;
+            }
+        }
+
+        return collapseWhitespace(withoutBrackets, 0).trim().toLowerCase();
+    }
+
+    /**
+     * Pierwsza liczba (całkowita lub dziesiętna) w tekście albo null.
+     */
+    public String findFirstNumber(String input) {
+        int length = input.length();
+        for (int i = 0; i < length; i++) {
+            if (isAsciiDigit(input.charAt(i))) {
+                return input.substring(i, scanDecimal(input, scanDigits(input, i)));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Usuwa wszystkie wystąpienia słowa (bez rozróżniania wielkości liter ASCII),
+     * zachowując semantykę granic słów "\b" z java.util.regex.
+     */
+    public String removeWholeWord(String text, String word) {
+        if (word == null || word.isEmpty()) {
+            return text;
+        }
+
+        StringBuilder result = new StringBuilder(text.length());
+        int length = text.length();
+        int wordLength = word.length();
+        int i = 0;
+
+        while (i < length) {
+            int end = i + wordLength;
+            if (end <= length
+                    && isWordBoundary(text, i)
+                    && regionMatchesAsciiIgnoreCase(text, i, word)
+                    && isWordBoundary(text, end)) {
+                i = end;
+                continue;
+            }
+            result.append(text.charAt(i));
+            i++;
+        }
+
+        return result.toString();
+    }
+
+    private Token readQuantity(String input, int start, boolean spaceBefore) {
+        int integerEnd = scanDigits(input, start);
+        int numberEnd = scanDecimal(input, integerEnd);
+
+        // Zakres: "2-3", "2 - 3", "1,5-2"
+        int dash = skipWhitespace(input, numberEnd);
+        if (dash < input.length() && input.charAt(dash) == '-') {
+            int secondStart = skipWhitespace(input, dash + 1);
+            if (secondStart < input.length() && isAsciiDigit(input.charAt(secondStart))) {
+                int secondEnd = scanDecimal(input, scanDigits(input, secondStart));
+                double min = parseDecimal(input.substring(start, numberEnd));
+                double max = parseDecimal(input.substring(secondStart, secondEnd));
+                return new Token(TokenType.RANGE, input.substring(start, secondEnd), start, secondEnd,
+                        (min + max) / 2, spaceBefore);
+            }
+        }
+
+        if (numberEnd == integerEnd) {
+            // Ułamek: "1/2"
+            int fractionEnd = scanFraction(input, integerEnd);
+            if (fractionEnd > 0) {
+                return new Token(TokenType.FRACTION, input.substring(start, fractionEnd), start, fractionEnd,
+                        fractionValue(input, start, integerEnd, fractionEnd), spaceBefore);
+            }
+
+            // Liczba mieszana: "1 1/2"
+            int numeratorStart = skipWhitespace(input, integerEnd);
+            if (numeratorStart > integerEnd && numeratorStart < input.length()
+                    && isAsciiDigit(input.charAt(numeratorStart))) {
+                int numeratorEnd = scanDigits(input, numeratorStart);
+                int mixedEnd = scanFraction(input, numeratorEnd);
+                if (mixedEnd > 0) {
+                    Double fraction = fractionValue(input, numeratorStart, numeratorEnd, mixedEnd);
+                    Integer whole = parseInteger(input.substring(start, integerEnd));
+                    Double value = fraction != null && whole != null ? whole + fraction : null;
+                    return new Token(TokenType.MIXED, input.substring(start, mixedEnd), start, mixedEnd,
+                            value, spaceBefore);
+                }
+            }
+        }
+
+        return new Token(TokenType.NUMBER, input.substring(start, numberEnd), start, numberEnd,
+                parseDecimal(input.substring(start, numberEnd)), spaceBefore);
+    }
+
+    private Token readWord(String input, int start, boolean spaceBefore) {
+        int end = start;
+        while (end < input.length() && !isAsciiDigit(input.charAt(end)) && !isWhitespace(input.charAt(end))) {
+            end++;
+        }
+
+        String text = input.substring(start, end);
+        Double numeral = QuantityParser.PREFIX_MULTIPLIERS.get(text.toLowerCase());
+        return new Token(numeral != null ? TokenType.NUMERAL : TokenType.WORD, text, start, end, numeral, spaceBefore);
+    }
+
+    /* Zwraca koniec "/\d+" zaczynającego się od pozycji slash albo -1 */
+    private int scanFraction(String input, int slash) {
+        if (slash + 1 < input.length() && input.charAt(slash) == '/' && isAsciiDigit(input.charAt(slash + 1))) {
+            return scanDigits(input, slash + 1);
+        }
+        return -1;
+    }
+
+    private Double fractionValue(String input, int numeratorStart, int numeratorEnd, int fractionEnd) {
+        Integer numerator = parseInteger(input.substring(numeratorStart, numeratorEnd));
+        Integer denominator = parseInteger(input.substring(numeratorEnd + 1, fractionEnd));
+        if (numerator == null || denominator == null || denominator == 0) {
+            return null;
+        }
+        return (double) numerator / denominator;
+    }
+
+    private Integer parseInteger(String digits) {
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private double parseDecimal(String number) {
+        return Double.parseDouble(number.replace(',', '.'));
+    }
+
+    private static int scanDigits(String input, int from) {
+        int i = from;
+        while (i < input.length() && isAsciiDigit(input.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /* Opcjonalna część dziesiętna "[.,]\d+" */
+    private static int scanDecimal(String input, int from) {
+        if (from + 1 < input.length()
+                && (input.charAt(from) == '.' || input.charAt(from) == ',')
+                && isAsciiDigit(input.charAt(from + 1))) {
+            return scanDigits(input, from + 1);
+        }
+        return from;
+    }
+
+    private static int skipWhitespace(String input, int from) {
+        int i = from;
+        while (i < input.length() && isWhitespace(input.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String collapseWhitespace(CharSequence input, int from) {
+        StringBuilder result = new StringBuilder(input.length() - from);
+        boolean inWhitespace = false;
+        for (int i = from; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (isWhitespace(c)) {
+                inWhitespace = true;
+                continue;
+            }
+            if (inWhitespace) {
+                result.append(' ');
+                inWhitespace = false;
+            }
+            result.append(c);
+        }
+        if (inWhitespace) {
+            result.append(' ');
+        }
+        return result.toString();
+    }
+
+    private static boolean regionMatchesAsciiIgnoreCase(String text, int offset, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (!equalsAsciiIgnoreCase(text.charAt(offset + i), word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean equalsAsciiIgnoreCase(char a, char b) {
+        return a == b || (a < 128 && b < 128 && Character.toLowerCase(a) == Character.toLowerCase(b));
+    }
+
+    /* Granica słowa jak "\b" (Java 21: znaki słowa to [a-zA-Z0-9_]) */
+    static boolean isWordBoundary(String text, int index) {
+        boolean before = index > 0 && isAsciiWordChar(text.charAt(index - 1));
+        boolean after = index < text.length() && isAsciiWordChar(text.charAt(index));
+        return before != after;
+    }
+
+    static boolean isAsciiWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isAsciiDigit(c) || c == '_';
+    }
+
+    static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /* Odpowiednik "\s" */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -51,6 +51,14 @@ public class UnitService {
             )
     );
 
+    /* Te same alternatywy co w UNIT_PATTERNS, w kolejności dopasowania wyrażenia regularnego */
+    private static final List<List<String>> UNIT_WORDS = List.of(
+            List.of("kg", "g", "dag", "dkg"),
+            List.of("ml", "l", "litry", "litrów", "litr"),
+            List.of("szt", "sztuki", "sztuka", "sztuk", "opakowanie", "opak"),
+            List.of("łyżka", "łyżki", "łyżeczka", "łyżeczki", "szklanka", "szklanki", "garść", "garści")
+    );
+
     private static final Map<String, String> UNIT_ALIASES = new HashMap<>() {{
         // Waga
         put("gram", "g");
@@ -134,12 +142,9 @@ public class UnitService {
 
         String cleanText = text.toLowerCase().replaceAll("\\b\\.+", "");
 
-        if (UNIT_ALIASES.containsKey(cleanText)) {
-            String normalizedUnit = UNIT_ALIASES.get(cleanText);
-            Optional<ProductUnit> unit = getUnit(normalizedUnit);
-            if (unit.isPresent()) {
-                return new UnitDetectionResult(normalizedUnit, unit.get().getType(), true);
-            }
+        UnitDetectionResult exactMatch = findExactAlias(cleanText);
+        if (exactMatch != null) {
+            return exactMatch;
         }
 
         // Jeśli nie znajdziemy dokładnego dopasowania, szukamy jednostki w tekście
@@ -147,20 +152,65 @@ public class UnitService {
             Pattern pattern = (Pattern) patternInfo.get("pattern");
             Matcher matcher = pattern.matcher(text);
             if (matcher.find()) {
-                String detectedUnit = matcher.group(2).toLowerCase();
-                String normalizedUnit = normalizeUnitAlias(detectedUnit);
-
-                Optional<ProductUnit> validUnit = getUnit(normalizedUnit);
-                if (validUnit.isPresent()) {
-                    return new UnitDetectionResult(
-                            normalizedUnit,
-                            validUnit.get().getType(),
-                            true
-                    );
+                UnitDetectionResult detected = toDetectionResult(matcher.group(2));
+                if (detected != null) {
+                    return detected;
                 }
             }
         }
 
+        return findContainedAlias(cleanText);
+    }
+
+    /**
+     * Odpowiednik detectUnitInText bez wyrażeń regularnych - używany przez IngredientLexer.
+     */
+    public UnitDetectionResult scanUnitInText(String text) {
+        if (text == null || text.isEmpty()) {
+            return new UnitDetectionResult("szt", "piece", false);
+        }
+
+        String cleanText = removeDotsAfterWords(text.toLowerCase());
+
+        UnitDetectionResult exactMatch = findExactAlias(cleanText);
+        if (exactMatch != null) {
+            return exactMatch;
+        }
+
+        for (List<String> unitWords : UNIT_WORDS) {
+            String detectedUnit = findQuantifiedUnit(text, unitWords);
+            if (detectedUnit != null) {
+                UnitDetectionResult detected = toDetectionResult(detectedUnit);
+                if (detected != null) {
+                    return detected;
+                }
+            }
+        }
+
+        return findContainedAlias(cleanText);
+    }
+
+    private UnitDetectionResult findExactAlias(String cleanText) {
+        if (UNIT_ALIASES.containsKey(cleanText)) {
+            String normalizedUnit = UNIT_ALIASES.get(cleanText);
+            Optional<ProductUnit> unit = getUnit(normalizedUnit);
+            if (unit.isPresent()) {
+                return new UnitDetectionResult(normalizedUnit, unit.get().getType(), true);
+            }
+        }
+        return null;
+    }
+
+    private UnitDetectionResult toDetectionResult(String detectedUnit) {
+        String normalizedUnit = normalizeUnitAlias(detectedUnit.toLowerCase());
+
+        Optional<ProductUnit> validUnit = getUnit(normalizedUnit);
+        return validUnit
+                .map(unit -> new UnitDetectionResult(normalizedUnit, unit.getType(), true))
+                .orElse(null);
+    }
+
+    private UnitDetectionResult findContainedAlias(String cleanText) {
         for (String alias : UNIT_ALIASES.keySet()) {
             if (cleanText.contains(alias)) {
                 String normalizedUnit = UNIT_ALIASES.get(alias);
@@ -174,6 +224,65 @@ public class UnitService {
         return new UnitDetectionResult("szt", "piece", false);
     }
 
+    /* Odpowiednik replaceAll("\\b\\.+", "") */
+    private String removeDotsAfterWords(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            if (text.charAt(i) == '.' && IngredientLexer.isWordBoundary(text, i)) {
+                while (i < text.length() && text.charAt(i) == '.') {
+                    i++;
+                }
+                continue;
+            }
+            result.append(text.charAt(i));
+            i++;
+        }
+        return result.toString();
+    }
+
+    /* Pierwsze wystąpienie "\b liczba \s* jednostka \b" dla danej grupy jednostek */
+    private String findQuantifiedUnit(String text, List<String> unitWords) {
+        for (int start = 0; start < text.length(); start++) {
+            if (!IngredientLexer.isAsciiDigit(text.charAt(start)) || !IngredientLexer.isWordBoundary(text, start)) {
+                continue;
+            }
+
+            int i = start;
+            while (i < text.length() && IngredientLexer.isAsciiDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i + 1 < text.length() && (text.charAt(i) == '.' || text.charAt(i) == ',')
+                    && IngredientLexer.isAsciiDigit(text.charAt(i + 1))) {
+                i++;
+                while (i < text.length() && IngredientLexer.isAsciiDigit(text.charAt(i))) {
+                    i++;
+                }
+            }
+            while (i < text.length() && IngredientLexer.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+
+            for (String unitWord : unitWords) {
+                int end = i + unitWord.length();
+                if (end <= text.length() && matchesAsciiIgnoreCase(text, i, unitWord)
+                        && IngredientLexer.isWordBoundary(text, end)) {
+                    return text.substring(i, end);
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean matchesAsciiIgnoreCase(String text, int offset, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (!IngredientLexer.equalsAsciiIgnoreCase(text.charAt(offset + i), word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public String normalizeUnitAlias(String unit) {
         if (unit == null) return "";
 
@@ -0,0 +1,117 @@
+package com.noisevisionsoftware.nutrilog.utils.excelParser.service.session;
+
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.validation.ValidationResult;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ExcelParserService;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.lang.NonNull;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sesja przesyłania pliku Excel - przechowuje zawartość pliku, wynik walidacji struktury
+ * oraz wyniki parsowania (dla każdej liczby pomijanych kolumn), tak aby kolejne kroki
+ * walidacja → podgląd → zapis nie musiały ponownie przesyłać i parsować pliku.
+ */
+@Getter
+public class UploadSession {
+
+    /* Przybliżony rozmiar sparsowanego posiłku (nazwa, instrukcje, wartości odżywcze) i produktu listy zakupów */
+    private static final int ESTIMATED_MEAL_BYTES = 2048;
+    private static final int ESTIMATED_PRODUCT_BYTES = 512;
+
+    private final String id;
+    private final String ownerId;
+    private final String contentHash;
+    private final String originalFilename;
+    private final String contentType;
+    private final byte[] content;
+    private final Instant createdAt;
+
+    @Setter
+    private List<ValidationResult> structureValidation;
+
+    private final Map<Integer, ExcelParserService.ParsedExcelResult> parseResults = new ConcurrentHashMap<>();
+
+    public UploadSession(String id, String ownerId, String contentHash, String originalFilename, String contentType,
+                         byte[] content) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.contentHash = contentHash;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.content = content;
+        this.createdAt = Instant.now();
+    }
+
+    /**
+     * Przybliżony rozmiar sesji w pamięci - zawartość pliku razem z zapamiętanymi wynikami parsowania
+     */
+    public int estimatedWeight() {
+        long weight = content.length;
+        for (ExcelParserService.ParsedExcelResult result : parseResults.values()) {
+            weight += (long) result.meals().size() * ESTIMATED_MEAL_BYTES
+                    + (long) result.shoppingList().size() * ESTIMATED_PRODUCT_BYTES;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, weight));
+    }
+
+    public MultipartFile asMultipartFile() {
+        return new SessionMultipartFile();
+    }
+
+    private class SessionMultipartFile implements MultipartFile {
+
+        @Override
+        @NonNull
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return originalFilename;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return content.length == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+
+        @Override
+        @NonNull
+        public byte[] getBytes() {
+            return content;
+        }
+
+        @Override
+        @NonNull
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void transferTo(@NonNull File dest) throws IOException {
+            Files.write(dest.toPath(), content);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.noisevisionsoftware.nutrilog.utils.excelParser.service.session;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.config.ExcelParserConfig;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ExcelParserService;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.validation.ExcelStructureValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Zarządza sesjami przesyłania plików Excel. Plik jest haszowany (SHA-256) i parsowany
+ * tylko raz, a kolejne wywołania posługują się identyfikatorem sesji zamiast ponownie
+ * przesyłać plik. Sesja należy do użytkownika, który przesłał plik - ten sam plik przesłany
+ * przez innego użytkownika otwiera osobną sesję. Magazyn sesji jest ograniczony rozmiarem
+ * (plik razem z wynikami parsowania) i wygasa po czasie bezczynności, a zapis diety zamyka sesję.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionService {
+
+    private static final long MAX_STORE_BYTES = 64L * 1024 * 1024;
+    private static final Duration SESSION_TTL = Duration.ofMinutes(30);
+
+    private final ExcelStructureValidator excelStructureValidator;
+    private final ExcelParserService excelParserService;
+    private final ExcelParserConfig excelParserConfig;
+
+    private final Cache<String, UploadSession> sessions = Caffeine.newBuilder()
+            .maximumWeight(MAX_STORE_BYTES)
+            .weigher((String id, UploadSession session) -> session.estimatedWeight())
+            .expireAfterAccess(SESSION_TTL)
+            .recordStats()
+            .build();
+
+    /* Klucz: właściciel i skrót zawartości pliku */
+    private final Cache<String, String> sessionIdsByContentHash = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterAccess(SESSION_TTL)
+            .build();
+
+    /**
+     * Otwiera sesję dla przesłanego pliku. Jeśli ten sam użytkownik przesłał już plik o tej
+     * samej zawartości, zwracana jest jego istniejąca sesja bez ponownej walidacji struktury.
+     */
+    public UploadSession openSession(MultipartFile file, String ownerId) throws IOException {
+        byte[] content = file.getBytes();
+        String contentHash = hashContent(content);
+        String hashKey = hashKey(ownerId, contentHash);
+
+        String existingId = sessionIdsByContentHash.getIfPresent(hashKey);
+        if (existingId != null) {
+            UploadSession existing = sessions.getIfPresent(existingId);
+            if (existing != null && isOwnedBy(existing, ownerId)) {
+                log.debug("Ponowne użycie sesji przesyłania {} dla pliku {}", existingId, file.getOriginalFilename());
+                return existing;
+            }
+        }
+
+        UploadSession session = new UploadSession(
+                UUID.randomUUID().toString(),
+                ownerId,
+                contentHash,
+                file.getOriginalFilename(),
+                file.getContentType(),
+                content
+        );
+        session.setStructureValidation(excelStructureValidator.validateExcelStructure(session.asMultipartFile()));
+
+        sessions.put(session.getId(), session);
+        sessionIdsByContentHash.put(hashKey, session.getId());
+        return session;
+    }
+
+    /**
+     * Zwraca sesję tylko jej właścicielowi; sesja innego użytkownika jest traktowana jak nieistniejąca
+     */
+    public Optional<UploadSession> findSession(String sessionId, String ownerId) {
+        if (sessionId == null || sessionId.isBlank()) {
+            return Optional.empty();
+        }
+        UploadSession session = sessions.getIfPresent(sessionId);
+        if (session != null && !isOwnedBy(session, ownerId)) {
+            log.warn("Odmowa dostępu do sesji przesyłania {} innego użytkownika", sessionId);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(session);
+    }
+
+    /**
+     * Zwraca wynik parsowania pliku z sesji. Plik jest parsowany co najwyżej raz
+     * dla danej liczby pomijanych kolumn.
+     */
+    public ExcelParserService.ParsedExcelResult getParseResult(UploadSession session, Integer skipColumnsCount)
+            throws IOException {
+        int skip = skipColumnsCount != null ? skipColumnsCount : excelParserConfig.getSkipColumnsCount();
+
+        ExcelParserService.ParsedExcelResult cached = session.getParseResults().get(skip);
+        if (cached != null) {
+            return cached;
+        }
+
+        ExcelParserService.ParsedExcelResult parseResult = excelParserService.parseDietExcel(session.asMultipartFile(), skip);
+        ExcelParserService.ParsedExcelResult previous = session.getParseResults().putIfAbsent(skip, parseResult);
+        if (previous != null) {
+            return previous;
+        }
+
+        // Ponowne wstawienie przelicza wagę sesji z nowym wynikiem; sesja usunięta w międzyczasie nie wraca
+        sessions.asMap().replace(session.getId(), session);
+        return parseResult;
+    }
+
+    /**
+     * Zamyka sesję po zapisie diety; sesja innego użytkownika zostaje
+     */
+    public void invalidate(String sessionId, String ownerId) {
+        findSession(sessionId, ownerId).ifPresent(session -> {
+            sessionIdsByContentHash.invalidate(hashKey(session.getOwnerId(), session.getContentHash()));
+            sessions.invalidate(session.getId());
+        });
+    }
+
+    public Map<String, Object> getStatistics() {
+        CacheStats stats = sessions.stats();
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("sessionCount", sessions.estimatedSize());
+        statistics.put("hitRate", stats.hitRate());
+        statistics.put("hitCount", stats.hitCount());
+        statistics.put("missCount", stats.missCount());
+        statistics.put("evictionCount", stats.evictionCount());
+        statistics.put("evictionWeight", stats.evictionWeight());
+        sessions.policy().eviction().ifPresent(eviction -> {
+            statistics.put("weightedSize", eviction.weightedSize().orElse(0L));
+            statistics.put("maximumWeight", eviction.getMaximum());
+        });
+        return statistics;
+    }
+
+    private static boolean isOwnedBy(UploadSession session, String ownerId) {
+        return Objects.equals(session.getOwnerId(), ownerId);
+    }
+
+    private static String hashKey(String ownerId, String contentHash) {
+        return ownerId + ":" + contentHash;
+    }
+
+    static String hashContent(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Algorytm SHA-256 jest niedostępny", e);
+        }
+    }
+}
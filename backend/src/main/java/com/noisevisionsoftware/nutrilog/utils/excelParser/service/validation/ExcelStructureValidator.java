@@ -13,6 +13,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,21 +28,28 @@ public class ExcelStructureValidator {
 
     public List<ValidationResult> validateExcelStructure(MultipartFile file) {
         try {
-            // Użyj EasyExcel do walidacji struktury
-            List<List<String>> rows = excelReaderService.readExcelFile(file);
+            // Walidacja wiersz po wierszu - bez wczytywania całego arkusza do pamięci
+            List<ErrorObject> errors = new ArrayList<>();
+            int[] rowCount = {0};
+            excelReaderService.readExcelFile(file, (rowIndex, row) -> {
+                rowCount[0]++;
+                // Pomiń wiersz nagłówkowy
+                if (rowCount[0] > 1) {
+                    validateRow(rowCount[0], row).ifPresent(errors::add);
+                }
+            });
 
-            if (rows.isEmpty()) {
+            if (rowCount[0] == 0) {
                 return Collections.singletonList(
                         new ValidationResult(false, "Plik jest pusty", ValidationSeverity.ERROR)
                 );
             }
 
-            List<ErrorObject> errors = validateRows(rows);
             if (errors.isEmpty()) {
                 return Collections.singletonList(
                         new ValidationResult(
                                 true,
-                                String.format("Struktura pliku jest poprawna. Znaleziono %d posiłków.", rows.size() - 1),
+                                String.format("Struktura pliku jest poprawna. Znaleziono %d posiłków.", rowCount[0] - 1),
                                 ValidationSeverity.SUCCESS
                         )
                 );
@@ -67,29 +75,19 @@ public class ExcelStructureValidator {
         }
     }
 
-    private List<ErrorObject> validateRows(List<List<String>> rows) {
-        List<ErrorObject> errors = new ArrayList<>();
-
-        // Pomiń wiersz nagłówkowy
-        for (int i = 1; i < rows.size(); i++) {
-            List<String> row = rows.get(i);
-            List<String> rowErrors = new ArrayList<>();
-
-            // Walidacja struktury wiersza
-            if (row.size() < 4) {
-                rowErrors.add("Nieprawidłowa liczba kolumn");
-            } else {
-                if (row.get(1).trim().isEmpty()) {
-                    rowErrors.add("Brak nazwy posiłku");
-                }
-                // Dodaj więcej walidacji według potrzeb
-            }
+    private Optional<ErrorObject> validateRow(int rowNumber, List<String> row) {
+        List<String> rowErrors = new ArrayList<>();
 
-            if (!rowErrors.isEmpty()) {
-                errors.add(new ErrorObject(i + 1, rowErrors));
+        // Walidacja struktury wiersza
+        if (row.size() < 4) {
+            rowErrors.add("Nieprawidłowa liczba kolumn");
+        } else {
+            if (row.get(1).trim().isEmpty()) {
+                rowErrors.add("Brak nazwy posiłku");
             }
+            // Dodaj więcej walidacji według potrzeb
         }
 
-        return errors;
+        return rowErrors.isEmpty() ? Optional.empty() : Optional.of(new ErrorObject(rowNumber, rowErrors));
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.noisevisionsoftware.nutrilog.dto.response.ValidationResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
@@ -38,15 +39,14 @@ public class ValidationCacheService {
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
 
-            // Dodajemy nazwę pliku i jego rozmiar
-            String fileName = request.getFile().getOriginalFilename();
-            long fileSize = request.getFile().getSize();
-            md.update((fileName + fileSize).getBytes());
+            // Dodajemy zawartość pliku (lub identyfikator sesji przesyłania)
+            md.update(contentFingerprint(request));
 
             // Dodajemy inne parametry
             md.update(String.valueOf(request.getMealsPerDay()).getBytes());
             md.update(String.valueOf(request.getDuration()).getBytes());
             md.update(request.getStartDate().getBytes());
+            md.update(String.valueOf(request.getSkipColumnsCount()).getBytes());
 
             if (userId != null) {
                 md.update(userId.getBytes());
@@ -57,8 +57,27 @@ public class ValidationCacheService {
             return HexFormat.of().formatHex(digest);
         } catch (NoSuchAlgorithmException e) {
             // Fallback, jeśli nie można użyć MD5
-            return request.getFile().getOriginalFilename() + request.getFile().getSize() +
-                    request.getMealsPerDay() + request.getDuration() + request.getStartDate();
+            String fileIdentity = request.getFile() != null
+                    ? request.getFile().getOriginalFilename() + request.getFile().getSize()
+                    : request.getUploadSessionId();
+            return fileIdentity + request.getMealsPerDay() + request.getDuration() + request.getStartDate();
+        }
+    }
+
+    /*
+     * Klucz opiera się na zawartości pliku, a nie na jego nazwie i rozmiarze,
+     * dzięki czemu różne pliki o tej samej nazwie nie kolidują ze sobą
+     * */
+    private byte[] contentFingerprint(DietTemplateExcelRequest request) {
+        if (request.getFile() == null || request.getFile().isEmpty()) {
+            return String.valueOf(request.getUploadSessionId()).getBytes();
+        }
+
+        try {
+            return request.getFile().getBytes();
+        } catch (IOException e) {
+            log.warn("Nie można odczytać zawartości pliku do klucza cache, używam nazwy i rozmiaru", e);
+            return (request.getFile().getOriginalFilename() + request.getFile().getSize()).getBytes();
         }
     }
 
@@ -0,0 +1,13 @@
+-- Wyszukiwanie pełnotekstowe i trigramowe przepisów
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Konfiguracja 'simple' (bez stemmingu) - PostgreSQL nie ma wbudowanego słownika polskiego
+ALTER TABLE recipes ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(instructions, '')), 'B')
+    ) STORED;
+
+-- Indeksy dla wydajności
+CREATE INDEX IF NOT EXISTS idx_recipes_search_vector ON recipes USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_recipes_name_trgm ON recipes USING GIN (lower(name) gin_trgm_ops);
@@ -0,0 +1,2 @@
+-- Stronicowanie kursorem (created_at, id) - kolejność indeksu zgodna z ORDER BY zapytania
+CREATE INDEX IF NOT EXISTS idx_recipes_created_at_id ON recipes (created_at DESC, id DESC);
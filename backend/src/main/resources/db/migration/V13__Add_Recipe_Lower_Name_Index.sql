@@ -0,0 +1,2 @@
+-- Wyszukiwanie przepisów po nazwie bez względu na wielkość liter (LOWER(name) IN ...)
+CREATE INDEX IF NOT EXISTS idx_recipes_lower_name ON recipes (lower(name));
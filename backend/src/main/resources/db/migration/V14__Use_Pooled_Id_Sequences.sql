@@ -0,0 +1,15 @@
+-- Sekwencje kolumn BIGSERIAL przydzielają ID pulami po 50 (Hibernate: allocationSize = 50, optymalizator pooled).
+-- Dzięki temu Hibernate nie potrzebuje IDENTITY i może grupować INSERT-y w paczki JDBC.
+-- Wartość sekwencji jest górną granicą puli, więc dotychczasowe ID nie zostaną użyte ponownie.
+ALTER SEQUENCE recipes_id_seq INCREMENT BY 50;
+ALTER SEQUENCE recipe_ingredients_id_seq INCREMENT BY 50;
+
+ALTER SEQUENCE meal_templates_id_seq INCREMENT BY 50;
+ALTER SEQUENCE meal_template_ingredients_id_seq INCREMENT BY 50;
+ALTER SEQUENCE meal_template_photos_id_seq INCREMENT BY 50;
+
+ALTER SEQUENCE diet_templates_id_seq INCREMENT BY 50;
+ALTER SEQUENCE diet_template_days_id_seq INCREMENT BY 50;
+ALTER SEQUENCE diet_template_meals_id_seq INCREMENT BY 50;
+ALTER SEQUENCE diet_template_ingredients_id_seq INCREMENT BY 50;
+ALTER SEQUENCE diet_template_meal_photos_id_seq INCREMENT BY 50;
@@ -0,0 +1,4 @@
+-- Skrót SHA-256 zawartości zdjęcia - to samo zdjęcie przesłane do wielu przepisów jest zapisywane raz
+ALTER TABLE recipe_image_references ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_recipe_image_references_content_hash ON recipe_image_references (content_hash);
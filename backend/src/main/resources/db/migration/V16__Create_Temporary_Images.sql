@@ -0,0 +1,11 @@
+-- Zdjęcia przesłane przed zapisaniem przepisu lub szablonu - wygasają, jeśli nie zostaną użyte
+CREATE TABLE IF NOT EXISTS temporary_images (
+    id BIGSERIAL PRIMARY KEY,
+    image_url VARCHAR(512) NOT NULL UNIQUE,
+    storage_path VARCHAR(512) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Wygasanie zapytaniem zakresowym po created_at zamiast listowania plików w magazynie
+CREATE INDEX IF NOT EXISTS idx_temporary_images_created_at ON temporary_images (created_at);
@@ -0,0 +1,5 @@
+-- Wyszukiwanie szablonów posiłków po podobieństwie nazwy (similarity / word_similarity) z rankingiem w bazie
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Obsługuje operatory %, <% oraz LIKE '%...%' na name_lower (indeks btree obsługuje tylko równość i prefiksy)
+CREATE INDEX IF NOT EXISTS idx_meal_templates_name_lower_trgm ON meal_templates USING GIN (name_lower gin_trgm_ops);
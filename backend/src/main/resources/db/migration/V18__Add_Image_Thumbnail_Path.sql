@@ -0,0 +1,2 @@
+-- Ścieżka miniatury ustawiana dopiero po jej zapisaniu - miniatury powstają w tle i nie dla każdego formatu
+ALTER TABLE recipe_image_references ADD COLUMN IF NOT EXISTS thumbnail_path VARCHAR(512);
@@ -1,6 +1,9 @@
 package com.noisevisionsoftware.nutrilog.controller;
 
 import com.noisevisionsoftware.nutrilog.service.CacheMonitoringService;
+import com.noisevisionsoftware.nutrilog.service.RecipeMultiGetCache;
+import com.noisevisionsoftware.nutrilog.service.usage.TemplateUsageBuffer;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.session.UploadSessionService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -22,6 +25,15 @@ class CacheAdminControllerTest {
     @Mock
     private CacheMonitoringService cacheMonitoringService;
 
+    @Mock
+    private RecipeMultiGetCache recipeMultiGetCache;
+
+    @Mock
+    private TemplateUsageBuffer templateUsageBuffer;
+
+    @Mock
+    private UploadSessionService uploadSessionService;
+
     @InjectMocks
     private CacheAdminController cacheAdminController;
 
@@ -77,11 +89,39 @@ class CacheAdminControllerTest {
 
         // Verify that invalidateCache was called for each recipe cache
         verify(cacheMonitoringService, times(1)).invalidateCache("recipesCache");
-        verify(cacheMonitoringService, times(1)).invalidateCache("recipesBatchCache");
-        verify(cacheMonitoringService, times(1)).invalidateCache("recipesPageCache");
         verify(cacheMonitoringService, times(1)).invalidateCache("recipesSearchCache");
 
-        // Verify that invalidateCache was called exactly 4 times
-        verify(cacheMonitoringService, times(4)).invalidateCache(anyString());
+        // Verify that invalidateCache was called exactly 2 times
+        verify(cacheMonitoringService, times(2)).invalidateCache(anyString());
+    }
+
+    @Test
+    void getRecipeMultiGetStatistics_ShouldReturnMultiGetStatistics() {
+        // Arrange
+        Map<String, Object> mockStats = new HashMap<>();
+        mockStats.put("hitRate", 0.5);
+        when(recipeMultiGetCache.getStatistics()).thenReturn(mockStats);
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = cacheAdminController.getRecipeMultiGetStatistics();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(mockStats, response.getBody());
+    }
+
+    @Test
+    void getTemplateUsageStatistics_ShouldReturnUsageBufferStatistics() {
+        // Arrange
+        Map<String, Object> mockStats = new HashMap<>();
+        mockStats.put("flushCount", 3L);
+        when(templateUsageBuffer.getStatistics()).thenReturn(mockStats);
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = cacheAdminController.getTemplateUsageStatistics();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(mockStats, response.getBody());
     }
 }
\ No newline at end of file
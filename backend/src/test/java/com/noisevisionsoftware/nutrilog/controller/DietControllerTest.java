@@ -132,7 +132,7 @@ class DietControllerTest {
     void updateDiet_WhenDietExists_ShouldReturnUpdatedDiet() {
         // Arrange
         when(dietMapper.toDomain(testDietRequest)).thenReturn(testDiet);
-        when(dietService.updateDiet(testDiet)).thenReturn(testDiet);
+        when(dietService.updateDiet(testDiet, testDietRequest.getUpdatedAt())).thenReturn(testDiet);
         when(dietMapper.toResponse(testDiet)).thenReturn(testDietResponse);
 
         // Act
@@ -142,7 +142,7 @@ class DietControllerTest {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(testDietResponse, response.getBody());
         assertEquals(TEST_ID, testDiet.getId());
-        verify(dietService).updateDiet(testDiet);
+        verify(dietService).updateDiet(testDiet, testDietRequest.getUpdatedAt());
     }
 
     @Test
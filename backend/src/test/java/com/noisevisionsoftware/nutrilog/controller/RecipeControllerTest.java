@@ -3,9 +3,11 @@ package com.noisevisionsoftware.nutrilog.controller;
 import com.google.cloud.Timestamp;
 import com.noisevisionsoftware.nutrilog.dto.request.recipe.RecipeUpdateRequest;
 import com.noisevisionsoftware.nutrilog.dto.response.recipe.RecipeResponse;
+import com.noisevisionsoftware.nutrilog.dto.response.recipe.RecipesCursorResponse;
 import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
 import com.noisevisionsoftware.nutrilog.mapper.recipe.RecipeMapper;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeCursorPage;
 import com.noisevisionsoftware.nutrilog.service.RecipeService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -87,8 +89,7 @@ class RecipeControllerTest {
         );
 
         when(recipeService.getRecipesByIds(requestedIds)).thenReturn(recipes);
-        when(recipeMapper.toResponse(recipes.get(0))).thenReturn(expectedResponses.get(0));
-        when(recipeMapper.toResponse(recipes.get(1))).thenReturn(expectedResponses.get(1));
+        when(recipeMapper.toResponses(recipes)).thenReturn(expectedResponses);
 
         // when
         ResponseEntity<List<RecipeResponse>> response = recipeController.getRecipesByIds(idsParam);
@@ -101,6 +102,40 @@ class RecipeControllerTest {
                 .isEqualTo(expectedResponses);
     }
 
+    @Test
+    void getRecipesAfter_ShouldReturnContentAndNextCursor() {
+        // given
+        Recipe recipe = createTestRecipe();
+        RecipeResponse expectedResponse = createTestRecipeResponse();
+
+        when(recipeService.getRecipesAfter("cursor", 20))
+                .thenReturn(new RecipeCursorPage(List.of(recipe), "next-cursor"));
+        when(recipeMapper.toResponses(List.of(recipe))).thenReturn(List.of(expectedResponse));
+
+        // when
+        ResponseEntity<RecipesCursorResponse> response = recipeController.getRecipesAfter("cursor", 20);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getContent()).containsExactly(expectedResponse);
+        assertThat(response.getBody().getNextCursor()).isEqualTo("next-cursor");
+    }
+
+    @Test
+    void getRecipesAfter_WhenCursorIsInvalid_ShouldReturnBadRequest() {
+        // given
+        when(recipeService.getRecipesAfter("zły", 20))
+                .thenThrow(new IllegalArgumentException("Nieprawidłowy kursor: zły"));
+
+        // when
+        ResponseEntity<RecipesCursorResponse> response = recipeController.getRecipesAfter("zły", 20);
+
+        // then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).isNull();
+    }
+
     @Test
     void updateRecipe_WhenRecipeExists_ShouldReturnUpdatedRecipeResponse() {
         // given
@@ -74,6 +74,8 @@ class FirestoreDietMapperTest {
         assertEquals(TEST_USER_ID, result.get("userId"));
         assertEquals(testDiet.getCreatedAt(), result.get("createdAt"));
         assertEquals(testDiet.getUpdatedAt(), result.get("updatedAt"));
+        assertEquals(testDiet.getDays().get(0).getDate(), result.get("startDate"));
+        assertEquals(testDiet.getDays().get(0).getDate(), result.get("endDate"));
 
         // Verify days
         List<Map<String, Object>> days = (List<Map<String, Object>>) result.get("days");
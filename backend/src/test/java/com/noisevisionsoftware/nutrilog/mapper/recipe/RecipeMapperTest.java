@@ -7,25 +7,45 @@ import com.noisevisionsoftware.nutrilog.dto.response.recipe.NutritionalValuesRes
 import com.noisevisionsoftware.nutrilog.dto.response.recipe.RecipeResponse;
 import com.noisevisionsoftware.nutrilog.model.recipe.NutritionalValues;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeImageRepository;
+import com.noisevisionsoftware.nutrilog.service.image.ImageBlobStore;
+import com.noisevisionsoftware.nutrilog.service.image.RecipeThumbnailService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
 import org.mockito.internal.verification.Times;
+import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.sql.Time;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
+@ExtendWith(MockitoExtension.class)
 class RecipeMapperTest {
 
+    private static final String BUCKET_URL = "https://storage.googleapis.com/bucket/";
+
+    @Mock
+    private RecipeImageRepository recipeImageRepository;
+
+    @Mock
+    private ImageBlobStore blobStore;
+
     private RecipeMapper mapper;
     private static final String TEST_RECIPE_ID = "test-recipe-id";
     private static final Timestamp TEST_TIMESTAMP = Timestamp.parseTimestamp("2025-02-23T10:52:47Z");
 
     @BeforeEach
     void setUp() {
-        mapper = new RecipeMapper();
+        mapper = new RecipeMapper(new RecipeThumbnailService(recipeImageRepository, blobStore));
     }
 
     @Test
@@ -95,6 +115,58 @@ class RecipeMapperTest {
                 });
     }
 
+    @Test
+    void toResponse_ShouldMapOnlyGeneratedThumbnails() {
+        // given
+        String withThumbnail = BUCKET_URL + "recipes/images/" + "a".repeat(64) + ".png";
+        String withoutThumbnail = BUCKET_URL + "recipes/images/" + "b".repeat(64) + ".webp";
+        String thumbnailPath = "recipes/thumbnails/" + "a".repeat(64) + ".jpg";
+        Recipe recipe = Recipe.builder()
+                .id(TEST_RECIPE_ID)
+                .photos(Arrays.asList(withThumbnail, withoutThumbnail, "photo1.jpg"))
+                .build();
+        when(recipeImageRepository.findThumbnailPaths(Set.of(withThumbnail, withoutThumbnail)))
+                .thenReturn(Map.of(withThumbnail, thumbnailPath));
+        when(blobStore.publicUrl(thumbnailPath)).thenReturn(BUCKET_URL + thumbnailPath);
+
+        // when
+        RecipeResponse response = mapper.toResponse(recipe);
+
+        // then
+        // Miniatura jeszcze niewygenerowana (lub pominięta dla formatu) - adres oryginału
+        assertThat(response.getThumbnails()).containsExactly(
+                BUCKET_URL + thumbnailPath,
+                withoutThumbnail,
+                "photo1.jpg");
+    }
+
+    @Test
+    void toResponses_ShouldResolveThumbnailsWithOneQueryAndRememberFoundOnes() {
+        // given
+        String first = BUCKET_URL + "recipes/images/" + "a".repeat(64) + ".png";
+        String second = BUCKET_URL + "recipes/images/" + "c".repeat(64) + ".jpg";
+        String thumbnailPath = "recipes/thumbnails/" + "a".repeat(64) + ".jpg";
+        List<Recipe> recipes = List.of(
+                Recipe.builder().id("r1").photos(List.of(first)).build(),
+                Recipe.builder().id("r2").photos(List.of(second, first)).build());
+        when(recipeImageRepository.findThumbnailPaths(any()))
+                .thenReturn(Map.of(first, thumbnailPath))
+                .thenReturn(Map.of());
+        when(blobStore.publicUrl(thumbnailPath)).thenReturn(BUCKET_URL + thumbnailPath);
+
+        // when
+        List<RecipeResponse> responses = mapper.toResponses(recipes);
+        List<RecipeResponse> again = mapper.toResponses(recipes);
+
+        // then
+        assertThat(responses.get(0).getThumbnails()).containsExactly(BUCKET_URL + thumbnailPath);
+        assertThat(responses.get(1).getThumbnails()).containsExactly(second, BUCKET_URL + thumbnailPath);
+        assertThat(again).isEqualTo(responses);
+        verify(recipeImageRepository).findThumbnailPaths(Set.of(first, second));
+        // Przy kolejnym odczycie sprawdzane jest tylko zdjęcie, którego miniatura mogła jeszcze nie powstać
+        verify(recipeImageRepository).findThumbnailPaths(Set.of(second));
+    }
+
     @Test
     void toModel_WhenRequestIsComplete_ShouldMapAllFields() {
         // given
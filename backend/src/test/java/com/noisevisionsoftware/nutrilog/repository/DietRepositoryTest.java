@@ -1,11 +1,16 @@
 package com.noisevisionsoftware.nutrilog.repository;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.FailedPreconditionException;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import com.noisevisionsoftware.nutrilog.exception.DietConcurrentModificationException;
 import com.noisevisionsoftware.nutrilog.mapper.diet.FirestoreDietMapper;
 import com.noisevisionsoftware.nutrilog.model.diet.Diet;
 import com.noisevisionsoftware.nutrilog.model.diet.DietMetadata;
+import com.noisevisionsoftware.nutrilog.model.diet.VersionedDiet;
+import io.grpc.Status;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,10 +19,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -111,6 +119,24 @@ class DietRepositoryTest {
         assertEquals(TEST_ID, result.get().getId());
     }
 
+    @Test
+    void findUserIdById_ShouldReadOnlyUserIdField() throws Exception {
+        // Arrange
+        when(firestore.collection(anyString())).thenReturn(collectionReference);
+        when(collectionReference.document(TEST_ID)).thenReturn(documentReference);
+        when(documentReference.get(any(FieldMask.class))).thenReturn(documentFuture);
+        when(documentFuture.get()).thenReturn(documentSnapshot);
+        when(documentSnapshot.exists()).thenReturn(true);
+        when(documentSnapshot.getString("userId")).thenReturn(TEST_USER_ID);
+
+        // Act
+        Optional<String> result = dietRepository.findUserIdById(TEST_ID);
+
+        // Assert
+        assertEquals(Optional.of(TEST_USER_ID), result);
+        verify(firestoreDietMapper, never()).toDiet(any());
+    }
+
     @Test
     void findByUserId_ShouldReturnListOfDiets() throws Exception {
         // Arrange
@@ -266,4 +292,60 @@ class DietRepositoryTest {
         assertNotNull(updatedDiet);
         assertEquals(TEST_ID, updatedDiet.getId());
     }
+
+    @Test
+    void findVersionedById_ShouldReturnDietWithUpdateTime() throws Exception {
+        // Arrange
+        Timestamp updateTime = Timestamp.ofTimeSecondsAndNanos(1646092800, 0);
+        when(firestore.collection(anyString())).thenReturn(collectionReference);
+        when(collectionReference.document(TEST_ID)).thenReturn(documentReference);
+        when(documentReference.get()).thenReturn(documentFuture);
+        when(documentFuture.get()).thenReturn(documentSnapshot);
+        when(firestoreDietMapper.toDiet(documentSnapshot)).thenReturn(testDiet);
+        when(documentSnapshot.getUpdateTime()).thenReturn(updateTime);
+
+        // Act
+        Optional<VersionedDiet> result = dietRepository.findVersionedById(TEST_ID);
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertEquals(testDiet, result.get().diet());
+        assertEquals(updateTime, result.get().updateTime());
+    }
+
+    @Test
+    void update_WithExpectedUpdateTime_ShouldWriteWithPrecondition() throws Exception {
+        // Arrange
+        Timestamp updateTime = Timestamp.ofTimeSecondsAndNanos(1646092800, 0);
+        Map<String, Object> firestoreMap = new HashMap<>();
+        when(firestore.collection(anyString())).thenReturn(collectionReference);
+        when(collectionReference.document(TEST_ID)).thenReturn(documentReference);
+        when(firestoreDietMapper.toFirestoreMap(any(Diet.class))).thenReturn(firestoreMap);
+        when(documentReference.update(eq(firestoreMap), any(Precondition.class))).thenReturn(writeFuture);
+
+        // Act
+        Diet updatedDiet = dietRepository.update(TEST_ID, testDiet, updateTime);
+
+        // Assert
+        assertEquals(TEST_ID, updatedDiet.getId());
+        verify(documentReference).update(eq(firestoreMap), any(Precondition.class));
+        verify(writeFuture).get();
+    }
+
+    @Test
+    void update_WhenPreconditionFails_ShouldThrowDietConcurrentModificationException() throws Exception {
+        // Arrange
+        Timestamp updateTime = Timestamp.ofTimeSecondsAndNanos(1646092800, 0);
+        Map<String, Object> firestoreMap = new HashMap<>();
+        when(firestore.collection(anyString())).thenReturn(collectionReference);
+        when(collectionReference.document(TEST_ID)).thenReturn(documentReference);
+        when(firestoreDietMapper.toFirestoreMap(any(Diet.class))).thenReturn(firestoreMap);
+        when(documentReference.update(eq(firestoreMap), any(Precondition.class))).thenReturn(writeFuture);
+        when(writeFuture.get()).thenThrow(new ExecutionException(new FailedPreconditionException(
+                "update_time mismatch", null, GrpcStatusCode.of(Status.Code.FAILED_PRECONDITION), false)));
+
+        // Act & Assert
+        assertThrows(DietConcurrentModificationException.class,
+                () -> dietRepository.update(TEST_ID, testDiet, updateTime));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.noisevisionsoftware.nutrilog.repository.diet;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.mapper.diet.DietTemplateJpaConverter;
+import com.noisevisionsoftware.nutrilog.model.diet.template.DietTemplate;
+import com.noisevisionsoftware.nutrilog.model.diet.template.DietTemplateCategory;
+import com.noisevisionsoftware.nutrilog.model.diet.template.DietTemplateDayData;
+import com.noisevisionsoftware.nutrilog.model.diet.template.DietTemplateIngredient;
+import com.noisevisionsoftware.nutrilog.model.diet.template.DietTemplateMealData;
+import com.noisevisionsoftware.nutrilog.model.meal.MealType;
+import com.noisevisionsoftware.nutrilog.repository.support.SqlStatementCounter;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Zapis 28-dniowego szablonu diety (dni -> posiłki -> składniki i zdjęcia) z paczkami JDBC i bez nich.
+ * Bez paczek (tak jak przy ID typu IDENTITY) każdy wiersz to osobny INSERT; raportowana jest liczba
+ * zapytań SQL i czas zapisu obu wariantów. Baza H2, schemat z encji.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.noisevisionsoftware.nutrilog.repository.support.SqlStatementCounter"
+})
+@Import({PostgresDietTemplateRepository.class, DietTemplateJpaConverter.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class PostgresDietTemplateRepositoryBatchInsertTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresDietTemplateRepositoryBatchInsertTest.class);
+
+    private static final int DAYS = 28;
+    private static final int MEALS_PER_DAY = 5;
+    private static final int INGREDIENTS_PER_MEAL = 4;
+    private static final int PHOTOS_PER_MEAL = 1;
+    private static final int ROWS = 1 + DAYS + DAYS * MEALS_PER_DAY * (1 + INGREDIENTS_PER_MEAL + PHOTOS_PER_MEAL);
+
+    @Autowired
+    private PostgresDietTemplateRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("Zapis 28-dniowego szablonu diety powinien grupować INSERT-y w paczki JDBC")
+    void save_28DayTemplate_ShouldBatchInserts() {
+        // rozgrzewka - pierwsze zapytania do świeżej bazy są wolniejsze
+        saveAndMeasure(1);
+
+        SaveMeasurement unbatched = saveAndMeasure(1);
+        SaveMeasurement batched = saveAndMeasure(50);
+
+        log.info("Zapis szablonu {} dni ({} wierszy): bez paczek {} zapytań SQL w {} ms, paczki po 50: {} zapytań SQL w {} ms",
+                DAYS, ROWS, unbatched.statements(), unbatched.millis(), batched.statements(), batched.millis());
+
+        assertThat(unbatched.statements()).isGreaterThanOrEqualTo(ROWS);
+        assertThat(batched.statements()).isLessThan(unbatched.statements() / 10);
+    }
+
+    private SaveMeasurement saveAndMeasure(int jdbcBatchSize) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+        DietTemplate template = createTemplate();
+
+        SqlStatementCounter.reset();
+        long start = System.nanoTime();
+
+        repository.save(template);
+        entityManager.flush();
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        int statements = SqlStatementCounter.count();
+        entityManager.clear();
+
+        return new SaveMeasurement(statements, millis);
+    }
+
+    private static DietTemplate createTemplate() {
+        Timestamp now = Timestamp.now();
+        List<DietTemplateDayData> days = new ArrayList<>();
+        for (int day = 1; day <= DAYS; day++) {
+            List<DietTemplateMealData> meals = new ArrayList<>();
+            for (int meal = 0; meal < MEALS_PER_DAY; meal++) {
+                List<DietTemplateIngredient> ingredients = new ArrayList<>();
+                for (int ingredient = 0; ingredient < INGREDIENTS_PER_MEAL; ingredient++) {
+                    ingredients.add(DietTemplateIngredient.builder()
+                            .name("składnik " + ingredient)
+                            .quantity(100.0)
+                            .unit("g")
+                            .original("100 g składnik " + ingredient)
+                            .build());
+                }
+
+                List<String> photos = new ArrayList<>();
+                for (int photo = 0; photo < PHOTOS_PER_MEAL; photo++) {
+                    photos.add("https://example.com/" + day + "/" + meal + "/" + photo + ".jpg");
+                }
+
+                meals.add(DietTemplateMealData.builder()
+                        .name("Posiłek " + day + "." + meal)
+                        .mealType(MealType.values()[meal % MealType.values().length])
+                        .time(String.format("%02d:00", 7 + 3 * meal))
+                        .instructions("Instrukcje " + day + "." + meal)
+                        .ingredients(ingredients)
+                        .photos(photos)
+                        .build());
+            }
+
+            days.add(DietTemplateDayData.builder()
+                    .dayNumber(day)
+                    .dayName("Dzień " + day)
+                    .meals(meals)
+                    .build());
+        }
+
+        return DietTemplate.builder()
+                .name("Szablon 28 dni")
+                .category(DietTemplateCategory.MAINTENANCE)
+                .createdBy("user-id")
+                .createdAt(now)
+                .updatedAt(now)
+                .duration(DAYS)
+                .mealsPerDay(MEALS_PER_DAY)
+                .days(days)
+                .build();
+    }
+
+    private record SaveMeasurement(int statements, long millis) {
+    }
+}
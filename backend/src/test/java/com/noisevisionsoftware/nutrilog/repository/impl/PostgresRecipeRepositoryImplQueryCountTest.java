@@ -0,0 +1,158 @@
+package com.noisevisionsoftware.nutrilog.repository.impl;
+
+import com.noisevisionsoftware.nutrilog.mapper.recipe.RecipeJpaConverter;
+import com.noisevisionsoftware.nutrilog.mapper.recipe.RecipeReferenceJpaConverter;
+import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeCursorPage;
+import com.noisevisionsoftware.nutrilog.model.recipe.jpa.RecipeEntity;
+import com.noisevisionsoftware.nutrilog.model.recipe.jpa.RecipeIngredientEntity;
+import com.noisevisionsoftware.nutrilog.repository.support.SqlStatementCounter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Liczba zapytań SQL na wywołanie repozytorium nie może rosnąć z liczbą przepisów (N+1).
+ * Baza H2 w trybie PostgreSQL; schemat z encji, bez migracji Flyway (zawierają elementy specyficzne dla PostgreSQL).
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.noisevisionsoftware.nutrilog.repository.support.SqlStatementCounter"
+})
+@Import({PostgresRecipeRepositoryImpl.class, RecipeJpaConverter.class, RecipeReferenceJpaConverter.class})
+class PostgresRecipeRepositoryImplQueryCountTest {
+
+    private static final int RECIPE_COUNT = 12;
+
+    @Autowired
+    private PostgresRecipeRepositoryImpl repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final List<String> externalIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < RECIPE_COUNT; i++) {
+            RecipeEntity recipe = RecipeEntity.builder()
+                    .externalId("recipe-" + i)
+                    .name("Przepis " + i)
+                    .instructions("Instrukcje " + i)
+                    .createdAt(LocalDateTime.now())
+                    .photos(new ArrayList<>(List.of("photo-" + i + "-a.jpg", "photo-" + i + "-b.jpg")))
+                    .build();
+
+            List<RecipeIngredientEntity> ingredients = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                ingredients.add(RecipeIngredientEntity.builder()
+                        .recipe(recipe)
+                        .name("składnik " + j)
+                        .quantity(BigDecimal.ONE)
+                        .unit("g")
+                        .displayOrder(j)
+                        .build());
+            }
+            recipe.setIngredients(ingredients);
+
+            entityManager.persist(recipe);
+            externalIds.add(recipe.getExternalId());
+        }
+
+        // Odczyty mają trafiać do bazy, a nie do kontekstu persystencji wypełnionego przy zapisie
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("findAll powinien wykonać stałą liczbę zapytań")
+    void findAll_ShouldNotIssueQueryPerRecipe() {
+        List<Recipe> recipes = countStatements(() -> repository.findAll(), 3);
+
+        assertCollectionsLoaded(recipes, RECIPE_COUNT);
+    }
+
+    @Test
+    @DisplayName("findAll ze stronicowaniem powinien wykonać stałą liczbę zapytań")
+    void findAllPaged_ShouldNotIssueQueryPerRecipe() {
+        // zapytanie o stronę, zapytanie count i po jednym zapytaniu na kolekcję
+        Page<Recipe> page = countStatements(() -> repository.findAll(PageRequest.of(0, 5, Sort.by("id"))), 4);
+
+        assertCollectionsLoaded(page.getContent(), 5);
+        assertThat(page.getTotalElements()).isEqualTo(RECIPE_COUNT);
+    }
+
+    @Test
+    @DisplayName("findAllByIds powinien wykonać stałą liczbę zapytań i pominąć powtórzone ID")
+    void findAllByIds_ShouldNotIssueQueryPerRecipe() {
+        List<String> ids = new ArrayList<>(externalIds.subList(0, 8));
+        ids.addAll(externalIds.subList(0, 3));
+
+        List<Recipe> recipes = countStatements(() -> repository.findAllByIds(ids), 3);
+
+        assertCollectionsLoaded(recipes, 8);
+    }
+
+    @Test
+    @DisplayName("search powinien wykonać stałą liczbę zapytań")
+    void search_ShouldNotIssueQueryPerRecipe() {
+        List<Recipe> recipes = countStatements(() -> repository.search("przepis"), 3);
+
+        assertCollectionsLoaded(recipes, RECIPE_COUNT);
+    }
+
+    @Test
+    @DisplayName("findPageAfter powinien przejść wszystkie przepisy kursorem bez zapytania count")
+    void findPageAfter_ShouldWalkAllRecipesWithoutCountQuery() {
+        List<String> visited = new ArrayList<>();
+        String cursor = null;
+        do {
+            String after = cursor;
+            // zapytanie o stronę i po jednym zapytaniu na kolekcję
+            RecipeCursorPage page = countStatements(() -> repository.findPageAfter(after, 5), 3);
+            assertCollectionsLoaded(page.getContent(), page.getContent().size());
+            page.getContent().forEach(recipe -> visited.add(recipe.getId()));
+            assertThat(SqlStatementCounter.statements())
+                    .noneMatch(sql -> sql.toLowerCase().contains("count("));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(visited).containsExactlyInAnyOrderElementsOf(externalIds);
+    }
+
+    private <T> T countStatements(Supplier<T> call, int expectedStatements) {
+        SqlStatementCounter.reset();
+
+        T result = call.get();
+
+        assertThat(SqlStatementCounter.statements())
+                .as("Zapytania SQL wykonane przez repozytorium")
+                .hasSize(expectedStatements);
+        return result;
+    }
+
+    private static void assertCollectionsLoaded(List<Recipe> recipes, int expectedCount) {
+        assertThat(recipes).hasSize(expectedCount);
+        assertThat(recipes).allSatisfy(recipe -> {
+            assertThat(recipe.getIngredients()).hasSize(3);
+            assertThat(recipe.getPhotos()).hasSize(2);
+        });
+    }
+}
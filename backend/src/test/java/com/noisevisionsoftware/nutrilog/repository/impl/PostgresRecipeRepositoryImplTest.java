@@ -5,11 +5,15 @@ import com.noisevisionsoftware.nutrilog.mapper.recipe.RecipeJpaConverter;
 import com.noisevisionsoftware.nutrilog.mapper.recipe.RecipeReferenceJpaConverter;
 import com.noisevisionsoftware.nutrilog.model.meal.MealType;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeCursorPage;
 import com.noisevisionsoftware.nutrilog.model.recipe.RecipeReference;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeSearchResult;
 import com.noisevisionsoftware.nutrilog.model.recipe.jpa.RecipeEntity;
 import com.noisevisionsoftware.nutrilog.model.recipe.jpa.RecipeReferenceEntity;
 import com.noisevisionsoftware.nutrilog.repository.jpa.recipe.RecipeJpaRepository;
 import com.noisevisionsoftware.nutrilog.repository.jpa.recipe.RecipeReferenceJpaRepository;
+import com.noisevisionsoftware.nutrilog.repository.jpa.recipe.RecipeSearchHit;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,11 +31,13 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -49,6 +55,9 @@ class PostgresRecipeRepositoryImplTest {
     @Mock
     private RecipeReferenceJpaConverter recipeReferenceJpaConverter;
 
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private PostgresRecipeRepositoryImpl repository;
 
@@ -296,6 +305,131 @@ class PostgresRecipeRepositoryImplTest {
         verify(recipeJpaConverter).toModel(mockEntity);
     }
 
+    @Test
+    void searchRanked_ShouldReturnRecipesInRelevanceOrder() {
+        // given
+        RecipeEntity secondEntity = new RecipeEntity();
+        secondEntity.setId(2L);
+        Recipe secondRecipe = Recipe.builder().id("second").name("Zupa pomidorowa").build();
+        List<RecipeSearchHit> hits = List.of(searchHit(2L, 0.8, 0.5), searchHit(1L, 0.3, null));
+
+        when(recipeJpaRepository.searchRanked("zupa pomid", "zupa:* & pomid:*", "%zupa pomid%", 10)).thenReturn(hits);
+        when(recipeJpaRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(mockEntity, secondEntity));
+        when(recipeJpaConverter.toModel(mockEntity)).thenReturn(mockRecipe);
+        when(recipeJpaConverter.toModel(secondEntity)).thenReturn(secondRecipe);
+
+        // when
+        List<RecipeSearchResult> results = repository.searchRanked("  Zupa Pomid ", 10);
+
+        // then
+        assertThat(results).extracting(RecipeSearchResult::getRecipe).containsExactly(secondRecipe, mockRecipe);
+        assertThat(results).extracting(RecipeSearchResult::getScore).containsExactly(0.8, 0.3);
+        assertThat(results).extracting(RecipeSearchResult::getSimilarity).containsExactly(0.5, 0.0);
+    }
+
+    @Test
+    void searchRanked_ShouldCapLimitAndEscapeLikeWildcards() {
+        // given
+        when(recipeJpaRepository.searchRanked(any(), any(), any(), anyInt())).thenReturn(Collections.emptyList());
+
+        // when
+        List<RecipeSearchResult> results = repository.searchRanked("100%_owsianka", 10_000);
+
+        // then
+        assertThat(results).isEmpty();
+        verify(recipeJpaRepository).searchRanked("100%_owsianka", "100:* & owsianka:*", "%100\\%\\_owsianka%", 100);
+        verify(recipeJpaRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void searchRanked_ShouldFallBackToSubstringSearch_WhenQueryHasNoWords() {
+        // given
+        when(recipeJpaRepository.searchSubstring("--", PageRequest.of(0, 10))).thenReturn(List.of(mockEntity));
+        when(recipeJpaConverter.toModel(mockEntity)).thenReturn(mockRecipe);
+
+        // when
+        List<RecipeSearchResult> results = repository.searchRanked(" -- ", 10);
+
+        // then
+        assertThat(results).extracting(RecipeSearchResult::getRecipe).containsExactly(mockRecipe);
+        assertThat(results).extracting(RecipeSearchResult::getScore).containsExactly(0.0);
+        verify(recipeJpaRepository, never()).searchRanked(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void toPrefixTsQuery_ShouldMatchWordPrefixesOnly() {
+        // Fragment ze środka słowa ("midor") nie jest prefiksem żadnego słowa "pomidorowa", więc nie zostanie dopasowany
+        assertThat(PostgresRecipeRepositoryImpl.toPrefixTsQuery("zupa pomid")).isEqualTo("zupa:* & pomid:*");
+        assertThat(PostgresRecipeRepositoryImpl.toPrefixTsQuery("sól, pieprz!")).isEqualTo("sól:* & pieprz:*");
+        assertThat(PostgresRecipeRepositoryImpl.toPrefixTsQuery("-- !?")).isEmpty();
+    }
+
+    @Test
+    void searchRanked_ShouldNotQueryDatabase_WhenQueryIsBlank() {
+        // when
+        List<RecipeSearchResult> results = repository.searchRanked("   ", 10);
+
+        // then
+        assertThat(results).isEmpty();
+        verifyNoInteractions(recipeJpaRepository);
+    }
+
+    @Test
+    void findPageAfter_ShouldReturnNextCursor_WhenMoreRecipesExist() {
+        // given
+        RecipeEntity secondEntity = new RecipeEntity();
+        secondEntity.setId(2L);
+        secondEntity.setCreatedAt(LocalDateTime.of(2024, 3, 1, 12, 0, 0, 500_000));
+        RecipeEntity thirdEntity = new RecipeEntity();
+        thirdEntity.setId(3L);
+        thirdEntity.setCreatedAt(LocalDateTime.of(2024, 2, 1, 12, 0));
+        Recipe secondRecipe = Recipe.builder().id("second").build();
+
+        when(recipeJpaRepository.findFirstKeysetPage(PageRequest.of(0, 3)))
+                .thenReturn(List.of(mockEntity, secondEntity, thirdEntity));
+        when(recipeJpaConverter.toModel(mockEntity)).thenReturn(mockRecipe);
+        when(recipeJpaConverter.toModel(secondEntity)).thenReturn(secondRecipe);
+
+        // when
+        RecipeCursorPage page = repository.findPageAfter(null, 2);
+
+        // then
+        assertThat(page.getContent()).containsExactly(mockRecipe, secondRecipe);
+        assertThat(page.getNextCursor()).isNotBlank();
+        assertThat(PostgresRecipeRepositoryImpl.decodeCursor(page.getNextCursor()))
+                .isEqualTo(new PostgresRecipeRepositoryImpl.KeysetPosition(secondEntity.getCreatedAt(), 2L));
+        verify(recipeJpaRepository).fetchIngredientsByIdIn(List.of(1L, 2L));
+        verify(recipeJpaConverter, never()).toModel(thirdEntity);
+    }
+
+    @Test
+    void findPageAfter_ShouldContinueFromCursor_AndReturnNoCursorOnLastPage() {
+        // given
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 12, 0);
+        String cursor = PostgresRecipeRepositoryImpl.encodeCursor(createdAt, 7L);
+
+        when(recipeJpaRepository.findKeysetPageAfter(createdAt, 7L, PageRequest.of(0, 101)))
+                .thenReturn(List.of(mockEntity));
+        when(recipeJpaConverter.toModel(mockEntity)).thenReturn(mockRecipe);
+
+        // when
+        RecipeCursorPage page = repository.findPageAfter(cursor, 10_000);
+
+        // then
+        assertThat(page.getContent()).containsExactly(mockRecipe);
+        assertThat(page.getNextCursor()).isNull();
+        verify(recipeJpaRepository, never()).findFirstKeysetPage(any());
+    }
+
+    @Test
+    void findPageAfter_ShouldRejectInvalidCursor() {
+        // when/then
+        assertThatThrownBy(() -> repository.findPageAfter("nie-kursor", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Nieprawidłowy kursor");
+        verifyNoInteractions(recipeJpaRepository);
+    }
+
     @Test
     void delete_ShouldDeleteRecipe_WhenRecipeExists() {
         // given
@@ -430,6 +564,72 @@ class PostgresRecipeRepositoryImplTest {
                 .hasMessageContaining("Failed to save recipe reference");
     }
 
+    @Test
+    void saveReferences_ShouldPersistAllReferencesAndFlushOnce() {
+        // given
+        RecipeReference first = RecipeReference.builder().recipeId(TEST_RECIPE_ID).mealType(MealType.BREAKFAST).build();
+        RecipeReference second = RecipeReference.builder().recipeId("anotherId").mealType(MealType.DINNER).build();
+        RecipeReferenceEntity firstEntity = RecipeReferenceEntity.builder().id("ref-1").build();
+        RecipeReferenceEntity secondEntity = RecipeReferenceEntity.builder().id("ref-2").build();
+
+        when(recipeReferenceJpaConverter.toJpaEntity(first)).thenReturn(firstEntity);
+        when(recipeReferenceJpaConverter.toJpaEntity(second)).thenReturn(secondEntity);
+
+        // when
+        repository.saveReferences(List.of(first, second));
+
+        // then
+        verify(entityManager).persist(firstEntity);
+        verify(entityManager).persist(secondEntity);
+        verify(entityManager).flush();
+        verifyNoInteractions(recipeReferenceJpaRepository);
+    }
+
+    @Test
+    void findLatestByNames_ShouldReturnNewestRecipePerLowercaseName() {
+        // given
+        RecipeEntity newest = createAnotherRecipeEntity();
+        newest.setName("Testowy Przepis ");
+        Recipe newestRecipe = Recipe.builder().id("anotherId").name("Testowy Przepis").build();
+
+        // mockEntity ("Testowy przepis") jest starszy - zapytanie sortuje od najnowszych
+        when(recipeJpaRepository.findAllByLowerNameIn(List.of("testowy przepis", "inny")))
+                .thenReturn(List.of(newest, mockEntity));
+        when(recipeJpaConverter.toModel(newest)).thenReturn(newestRecipe);
+
+        // when
+        Map<String, Recipe> result = repository.findLatestByNames(List.of(" Testowy przepis", "testowy PRZEPIS", "Inny"));
+
+        // then
+        assertThat(result).containsOnlyKeys("testowy przepis");
+        assertThat(result.get("testowy przepis")).isSameAs(newestRecipe);
+        verify(recipeJpaRepository).fetchIngredientsByIdIn(List.of(2L));
+        verify(recipeJpaConverter, never()).toModel(mockEntity);
+    }
+
+    @Test
+    void saveAll_ShouldAssignIdsToNewRecipesAndKeepEntityIdsOfExistingOnes() {
+        // given
+        Recipe newRecipe = Recipe.builder().name("Nowy przepis").build();
+        RecipeEntity newEntity = new RecipeEntity();
+        RecipeEntity updatedEntity = new RecipeEntity();
+
+        when(recipeJpaRepository.findAllByExternalIdIn(List.of(TEST_RECIPE_ID))).thenReturn(List.of(mockEntity));
+        when(recipeJpaConverter.toJpaEntity(mockRecipe)).thenReturn(updatedEntity);
+        when(recipeJpaConverter.toJpaEntity(newRecipe)).thenReturn(newEntity);
+        when(recipeJpaRepository.saveAll(List.of(updatedEntity, newEntity))).thenReturn(List.of(updatedEntity, newEntity));
+
+        // when
+        List<Recipe> result = repository.saveAll(List.of(mockRecipe, newRecipe));
+
+        // then
+        assertThat(result).hasSize(2);
+        assertThat(newRecipe.getId()).hasSize(20);
+        assertThat(updatedEntity.getId()).isEqualTo(1L);
+        assertThat(newEntity.getId()).isNull();
+        verify(recipeJpaRepository, never()).save(any());
+    }
+
     private RecipeEntity createAnotherRecipeEntity() {
         RecipeEntity entity = new RecipeEntity();
         entity.setId(2L);
@@ -439,4 +639,23 @@ class PostgresRecipeRepositoryImplTest {
         entity.setCreatedAt(LocalDateTime.now());
         return entity;
     }
-}
\ No newline at end of file
+
+    private static RecipeSearchHit searchHit(Long id, Double score, Double similarity) {
+        return new RecipeSearchHit() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Double getScore() {
+                return score;
+            }
+
+            @Override
+            public Double getSimilarity() {
+                return similarity;
+            }
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package com.noisevisionsoftware.nutrilog.repository.meal;
+
+import com.noisevisionsoftware.nutrilog.mapper.meal.MealTemplateJpaConverter;
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplateSearchResult;
+import com.noisevisionsoftware.nutrilog.model.meal.jpa.MealTemplateEntity;
+import com.noisevisionsoftware.nutrilog.model.meal.jpa.MealTemplateIngredientEntity;
+import com.noisevisionsoftware.nutrilog.model.meal.jpa.MealTemplatePhotoEntity;
+import com.noisevisionsoftware.nutrilog.repository.support.SqlStatementCounter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Wyszukiwanie szablonów do sugestii posiłków: stała liczba zapytań SQL przy wczytywaniu wyników,
+ * niezależnie od liczby znalezionych szablonów.
+ * Baza H2 w trybie PostgreSQL; schemat z encji, bez migracji Flyway. Samo zapytanie rankingowe korzysta
+ * z pg_trgm, więc tutaj wczytywane są wyniki o podanych ID i trafności.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.noisevisionsoftware.nutrilog.repository.support.SqlStatementCounter"
+})
+@Import(MealTemplateJpaConverter.class)
+class PostgresMealTemplateRepositoryQueryCountTest {
+
+    private static final String USER_ID = "user-1";
+
+    @Autowired
+    private MealTemplateJpaRepository jpaRepository;
+
+    @Autowired
+    private MealTemplateJpaConverter converter;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private PostgresMealTemplateRepository repository;
+
+    private final List<Long> publicTemplateIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Bez proxy Springa - loadSearchResults jest widoczne tylko w pakiecie
+        repository = new PostgresMealTemplateRepository(jpaRepository, converter);
+        for (int i = 0; i < 10; i++) {
+            publicTemplateIds.add(persistTemplate("Owsianka z owocami " + i, true, "other-user", 10 - i));
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("loadSearchResults powinien wykonać dwa zapytania i zachować kolejność trafności z bazy")
+    void loadSearchResults_ShouldLoadTemplatesWithCollectionsInBulkAndKeepRanking() {
+        List<MealTemplateSearchHit> hits = new ArrayList<>();
+        for (int i = 0; i < publicTemplateIds.size(); i++) {
+            hits.add(hit(publicTemplateIds.get(publicTemplateIds.size() - 1 - i), 1.0 - i * 0.05));
+        }
+        hits.add(hit(-1L, 0.1));
+        SqlStatementCounter.reset();
+
+        List<MealTemplateSearchResult> results = repository.loadSearchResults(hits);
+
+        // szablony razem ze zdjęciami w jednym zapytaniu, składniki w drugim
+        assertThat(SqlStatementCounter.statements())
+                .as("Zapytania SQL wykonane przez repozytorium")
+                .hasSize(2);
+        // Kolejność i trafność z bazy; ID, którego już nie ma, jest pomijane
+        assertThat(results).hasSize(10);
+        assertThat(results.get(0).getTemplate().getName()).isEqualTo("Owsianka z owocami 9");
+        assertThat(results.get(0).getScore()).isEqualTo(1.0);
+        assertThat(results.get(9).getTemplate().getName()).isEqualTo("Owsianka z owocami 0");
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.getTemplate().getPhotos()).hasSize(1);
+            assertThat(result.getTemplate().getIngredients()).hasSize(2);
+        });
+    }
+
+    @Test
+    @DisplayName("searchAccessibleRanked z pustym zapytaniem nie powinien wykonywać zapytań")
+    void searchAccessibleRanked_WithBlankQuery_ShouldNotQueryDatabase() {
+        SqlStatementCounter.reset();
+
+        List<MealTemplateSearchResult> results = repository.searchAccessibleRanked("  ", USER_ID, 5);
+
+        assertThat(results).isEmpty();
+        assertThat(SqlStatementCounter.statements()).isEmpty();
+    }
+
+    private static MealTemplateSearchHit hit(Long id, Double score) {
+        return new MealTemplateSearchHit() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Double getScore() {
+                return score;
+            }
+        };
+    }
+
+    private Long persistTemplate(String name, boolean isPublic, String createdBy, int usageCount) {
+        MealTemplateEntity template = MealTemplateEntity.builder()
+                .name(name)
+                .isPublic(isPublic)
+                .createdBy(createdBy)
+                .usageCount(usageCount)
+                .build();
+
+        template.setPhotos(new ArrayList<>(List.of(MealTemplatePhotoEntity.builder()
+                .mealTemplate(template)
+                .photoUrl("photo-" + name + ".jpg")
+                .displayOrder(0)
+                .build())));
+
+        List<MealTemplateIngredientEntity> ingredients = new ArrayList<>();
+        for (int j = 0; j < 2; j++) {
+            ingredients.add(MealTemplateIngredientEntity.builder()
+                    .mealTemplate(template)
+                    .name("składnik " + j)
+                    .quantity(BigDecimal.ONE)
+                    .unit("g")
+                    .displayOrder(j)
+                    .build());
+        }
+        template.setIngredients(ingredients);
+
+        entityManager.persist(template);
+        return template.getId();
+    }
+}
@@ -14,10 +14,12 @@ import com.noisevisionsoftware.nutrilog.model.recipe.NutritionalValues;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
 import com.noisevisionsoftware.nutrilog.model.recipe.RecipeReference;
 import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeRepository;
+import com.noisevisionsoftware.nutrilog.service.diet.DietIntervalIndex;
 import com.noisevisionsoftware.nutrilog.service.diet.DietManagerService;
 import com.noisevisionsoftware.nutrilog.service.diet.DietService;
+import com.noisevisionsoftware.nutrilog.service.diet.DietSummaryService;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.*;
-import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ProductParsingService;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ParsedProductCacheService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -39,7 +41,7 @@ class DietManagerServiceTest {
     private Firestore firestore;
 
     @Mock
-    private ProductParsingService productParsingService;
+    private ParsedProductCacheService parsedProductCacheService;
 
     @Mock
     private FirestoreDietMapper firestoreMapper;
@@ -47,6 +49,12 @@ class DietManagerServiceTest {
     @Mock
     private DietService dietService;
 
+    @Mock
+    private DietIntervalIndex dietIntervalIndex;
+
+    @Mock
+    private DietSummaryService dietSummaryService;
+
     @Mock
     private RecipeService recipeService;
 
@@ -86,7 +94,7 @@ class DietManagerServiceTest {
         WriteResult writeResult = mock(WriteResult.class);
         when(writeResultFuture.get()).thenReturn(writeResult);
         when(dietDocRef.set(any())).thenReturn(writeResultFuture);
-        when(dietDocRef.update(eq("days"), any())).thenReturn(writeResultFuture);
+        when(dietDocRef.update(eq("days"), any(), eq("startDate"), any(), eq("endDate"), any())).thenReturn(writeResultFuture);
 
         // Mockowanie shopping_lists
         CollectionReference shoppingListsCollectionRef = mock(CollectionReference.class);
@@ -102,9 +110,9 @@ class DietManagerServiceTest {
         Map<String, Object> dietMap = new HashMap<>();
         when(firestoreMapper.toFirestoreMap(any(Diet.class))).thenReturn(dietMap);
 
-        // Mockowanie ProductParsingService
+        // Mockowanie ParsedProductCacheService
         ParsingResult parsingResult = mock(ParsingResult.class);
-        when(productParsingService.parseProduct(anyString())).thenReturn(parsingResult);
+        when(parsedProductCacheService.parseProduct(anyString())).thenReturn(parsingResult);
 
         ParsedProduct parsedProduct = new ParsedProduct("jabłka", 1.0, "kg", "1kg jabłek", false);
         when(parsingResult.getProduct()).thenReturn(parsedProduct);
@@ -123,7 +131,9 @@ class DietManagerServiceTest {
 
         // Weryfikacja zapisania diety
         verify(dietDocRef).set(any());
-        verify(dietDocRef).update(eq("days"), any());
+        verify(dietDocRef).update(eq("days"), any(), eq("startDate"), any(), eq("endDate"), any());
+        verify(dietIntervalIndex).invalidate(testUserId);
+        verify(dietSummaryService).refresh(testUserId);
 
         // Weryfikacja zapisania przepisów
         verify(recipeService, times(testParsedDietData.getDays().stream()
@@ -175,8 +185,8 @@ class DietManagerServiceTest {
         ParsedProduct product2 = new ParsedProduct("banany", 2.0, "szt", "2 sztuki bananów", false);
         when(result2.getProduct()).thenReturn(product2);
 
-        when(productParsingService.parseProduct("1kg jabłek")).thenReturn(result1);
-        when(productParsingService.parseProduct("2 sztuki bananów")).thenReturn(result2);
+        when(parsedProductCacheService.parseProduct("1kg jabłek")).thenReturn(result1);
+        when(parsedProductCacheService.parseProduct("2 sztuki bananów")).thenReturn(result2);
 
         // Dostęp do metody prywatnej przez refleksję
         java.lang.reflect.Method method = DietManagerService.class.getDeclaredMethod(
@@ -209,7 +219,7 @@ class DietManagerServiceTest {
 
         ParsingResult result = mock(ParsingResult.class);
         when(result.getProduct()).thenReturn(null); // Parsowanie nie powiodło się
-        when(productParsingService.parseProduct(anyString())).thenReturn(result);
+        when(parsedProductCacheService.parseProduct(anyString())).thenReturn(result);
 
         // Dostęp do metody prywatnej przez refleksję
         java.lang.reflect.Method method = DietManagerService.class.getDeclaredMethod(
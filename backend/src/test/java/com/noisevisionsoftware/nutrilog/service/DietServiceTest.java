@@ -2,18 +2,25 @@ package com.noisevisionsoftware.nutrilog.service;
 
 import com.google.cloud.Timestamp;
 import com.noisevisionsoftware.nutrilog.dto.response.diet.DietInfo;
+import com.noisevisionsoftware.nutrilog.exception.DietConcurrentModificationException;
 import com.noisevisionsoftware.nutrilog.exception.DietOverlapException;
 import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
 import com.noisevisionsoftware.nutrilog.model.diet.Day;
 import com.noisevisionsoftware.nutrilog.model.diet.Diet;
+import com.noisevisionsoftware.nutrilog.model.diet.DietInterval;
 import com.noisevisionsoftware.nutrilog.model.diet.DietMetadata;
+import com.noisevisionsoftware.nutrilog.model.diet.DietPeriod;
+import com.noisevisionsoftware.nutrilog.model.diet.DietSummary;
+import com.noisevisionsoftware.nutrilog.model.diet.VersionedDiet;
 import com.noisevisionsoftware.nutrilog.repository.DietRepository;
+import com.noisevisionsoftware.nutrilog.repository.DietSummaryRepository;
+import com.noisevisionsoftware.nutrilog.service.diet.DietIntervalIndex;
 import com.noisevisionsoftware.nutrilog.service.diet.DietService;
+import com.noisevisionsoftware.nutrilog.service.diet.DietSummaryService;
 import com.noisevisionsoftware.nutrilog.service.firebase.FirestoreService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
@@ -33,16 +40,21 @@ class DietServiceTest {
     @Mock
     private FirestoreService firestoreService;
 
-    @InjectMocks
+    @Mock
+    private DietSummaryRepository dietSummaryRepository;
+
     private DietService dietService;
 
     private Diet testDiet;
     private static final String TEST_ID = "test123";
     private static final String TEST_USER_ID = "user123";
-    private List<Diet> testDietList;
+    private static final Timestamp VERSION = Timestamp.ofTimeSecondsAndNanos(1646092800, 0);
 
     @BeforeEach
     void setUp() {
+        dietService = new DietService(dietRepository, firestoreService, new DietIntervalIndex(dietRepository),
+                new DietSummaryService(dietRepository, dietSummaryRepository));
+
         // Przygotowanie dni dla testowej diety
         Day day1 = Day.builder()
                 .date(Timestamp.now())
@@ -60,8 +72,6 @@ class DietServiceTest {
                 .days(days)
                 .metadata(DietMetadata.builder().build())
                 .build();
-
-        testDietList = List.of(testDiet);
     }
 
     @Test
@@ -127,7 +137,7 @@ class DietServiceTest {
                 .build();
 
         when(dietRepository.save(any(Diet.class))).thenReturn(testDiet);
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(new ArrayList<>());
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(new ArrayList<>());
 
         // Act
         Diet createdDiet = dietService.createDiet(dietToCreate);
@@ -138,6 +148,8 @@ class DietServiceTest {
         assertNotNull(dietToCreate.getCreatedAt());
         assertNotNull(dietToCreate.getUpdatedAt());
         assertEquals(TEST_ID, createdDiet.getId());
+        verify(dietRepository).findPeriodsByUserIds(List.of(TEST_USER_ID));
+        verify(dietSummaryRepository).saveAll(any());
     }
 
     @Test
@@ -152,18 +164,18 @@ class DietServiceTest {
                 .days(days)
                 .build();
 
-        when(dietRepository.findById(TEST_ID)).thenReturn(Optional.of(testDiet));
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(List.of(testDiet));
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(testDiet, VERSION)));
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(List.of(intervalOf(testDiet)));
 
-        when(dietRepository.update(eq(TEST_ID), any(Diet.class))).thenAnswer(invocation -> invocation.getArgument(1));
+        when(dietRepository.update(eq(TEST_ID), any(Diet.class), eq(VERSION))).thenAnswer(invocation -> invocation.getArgument(1));
 
         // Act
-        Diet updatedDiet = dietService.updateDiet(dietToUpdate);
+        Diet updatedDiet = dietService.updateDiet(dietToUpdate, testDiet.getUpdatedAt());
 
         // Assert
         assertNotNull(updatedDiet);
-        verify(dietRepository).findById(TEST_ID);
-        verify(dietRepository).update(eq(TEST_ID), any(Diet.class));
+        verify(dietRepository).findVersionedById(TEST_ID);
+        verify(dietRepository).update(eq(TEST_ID), any(Diet.class), eq(VERSION));
         assertEquals(testDiet.getCreatedAt(), updatedDiet.getCreatedAt());
         assertNotNull(updatedDiet.getUpdatedAt());
     }
@@ -177,11 +189,11 @@ class DietServiceTest {
                 .userId(TEST_USER_ID)
                 .build();
 
-        when(dietRepository.findById(TEST_ID)).thenReturn(Optional.empty());
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.empty());
 
         // Act & Assert
-        assertThrows(NotFoundException.class, () -> dietService.updateDiet(dietToUpdate));
-        verify(dietRepository).findById(TEST_ID);
+        assertThrows(NotFoundException.class, () -> dietService.updateDiet(dietToUpdate, testDiet.getUpdatedAt()));
+        verify(dietRepository).findVersionedById(TEST_ID);
         verify(dietRepository, never()).save(any(Diet.class));
     }
 
@@ -191,12 +203,16 @@ class DietServiceTest {
         doNothing().when(dietRepository).delete(TEST_ID);
         doNothing().when(firestoreService).deleteRelatedData(TEST_ID);
 
+        when(dietSummaryRepository.findUserIdsByDietId(TEST_ID)).thenReturn(List.of(TEST_USER_ID));
+
         // Act
         dietService.deleteDiet(TEST_ID);
 
         // Assert
         verify(dietRepository).delete(TEST_ID);
         verify(firestoreService).deleteRelatedData(TEST_ID);
+        verify(dietRepository).findPeriodsByUserIds(List.of(TEST_USER_ID));
+        verify(dietSummaryRepository).saveAll(any());
     }
 
 
@@ -213,7 +229,7 @@ class DietServiceTest {
 
         // Ważne: zwracamy tę samą dietę, którą przekazujemy do save
         when(dietRepository.save(any(Diet.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(new ArrayList<>());
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(new ArrayList<>());
 
         // Act
         Diet createdDiet = dietService.createDiet(dietToCreate);
@@ -243,14 +259,14 @@ class DietServiceTest {
                 .days(days)
                 .build();
 
-        when(dietRepository.findById(TEST_ID)).thenReturn(Optional.of(testDiet));
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(List.of(testDiet));
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(testDiet, VERSION)));
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(List.of(intervalOf(testDiet)));
 
         // Zwracamy zaktualizowaną dietę
-        when(dietRepository.update(eq(TEST_ID), any(Diet.class))).thenAnswer(invocation -> invocation.<Diet>getArgument(1));
+        when(dietRepository.update(eq(TEST_ID), any(Diet.class), eq(VERSION))).thenAnswer(invocation -> invocation.<Diet>getArgument(1));
 
         // Act
-        Diet updatedDiet = dietService.updateDiet(dietToUpdate);
+        Diet updatedDiet = dietService.updateDiet(dietToUpdate, testDiet.getUpdatedAt());
 
         // Assert
         assertEquals(originalCreatedAt, updatedDiet.getCreatedAt());
@@ -265,16 +281,10 @@ class DietServiceTest {
         Timestamp date1 = Timestamp.ofTimeSecondsAndNanos(1646092800, 0); // 2022-03-01
         Timestamp date2 = Timestamp.ofTimeSecondsAndNanos(1646179200, 0); // 2022-03-02
 
-        Day day1 = new Day();
-        day1.setDate(date1);
-
-        Day day2 = new Day();
-        day2.setDate(date2);
-
-        testDiet.setDays(Arrays.asList(day1, day2));
-
         List<String> userIds = List.of(TEST_USER_ID);
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(testDietList);
+        when(dietSummaryRepository.findByUserIds(any())).thenReturn(new HashMap<>());
+        when(dietRepository.findPeriodsByUserIds(List.of(TEST_USER_ID)))
+                .thenReturn(Map.of(TEST_USER_ID, List.of(new DietPeriod(TEST_ID, date1, date2))));
 
         // when
         Map<String, DietInfo> result = dietService.getDietsInfoForUsers(userIds);
@@ -287,7 +297,26 @@ class DietServiceTest {
         assertNotNull(result.get(TEST_USER_ID).getEndDate());
         assertEquals(date1, result.get(TEST_USER_ID).getStartDate());
         assertEquals(date2, result.get(TEST_USER_ID).getEndDate());
-        verify(dietRepository).findByUserId(TEST_USER_ID);
+        assertNull(result.get(TEST_USER_ID).getActiveDietId());
+        verify(dietSummaryRepository).createMissing(any());
+        verify(dietRepository, never()).findByUserId(any());
+    }
+
+    @Test
+    void getDietsInfoForUsers_ShouldResolveActiveDietFromIntervalIndex() {
+        // given
+        Timestamp today = Timestamp.now();
+        when(dietSummaryRepository.findByUserIds(any())).thenReturn(new HashMap<>());
+        when(dietRepository.findPeriodsByUserIds(List.of(TEST_USER_ID)))
+                .thenReturn(Map.of(TEST_USER_ID, List.of(new DietPeriod(TEST_ID, today, today))));
+
+        // when
+        Map<String, DietInfo> result = dietService.getDietsInfoForUsers(List.of(TEST_USER_ID));
+
+        // then
+        assertEquals(TEST_ID, result.get(TEST_USER_ID).getActiveDietId());
+        assertEquals(Optional.of(TEST_ID), dietService.findDietIdCoveringDate(TEST_USER_ID, today));
+        verify(dietRepository, never()).findIntervalsByUserId(any());
     }
 
     @Test
@@ -295,7 +324,8 @@ class DietServiceTest {
         // given
         String emptyUserId = "emptyUser";
         List<String> userIds = List.of(emptyUserId);
-        when(dietRepository.findByUserId(emptyUserId)).thenReturn(Collections.emptyList());
+        when(dietSummaryRepository.findByUserIds(any())).thenReturn(new HashMap<>());
+        when(dietRepository.findPeriodsByUserIds(List.of(emptyUserId))).thenReturn(new HashMap<>());
 
         // when
         Map<String, DietInfo> result = dietService.getDietsInfoForUsers(userIds);
@@ -306,7 +336,7 @@ class DietServiceTest {
         assertFalse(result.get(emptyUserId).isHasDiet());
         assertNull(result.get(emptyUserId).getStartDate());
         assertNull(result.get(emptyUserId).getEndDate());
-        verify(dietRepository).findByUserId(emptyUserId);
+        verify(dietRepository, never()).findByUserId(any());
     }
 
     @Test
@@ -322,7 +352,7 @@ class DietServiceTest {
 
         // Zwracamy tę samą dietę
         when(dietRepository.save(any(Diet.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(new ArrayList<>());
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(new ArrayList<>());
 
         // when
         Diet result = dietService.createDiet(newDiet);
@@ -343,7 +373,7 @@ class DietServiceTest {
                 .build();
 
         // when, then
-        assertThrows(IllegalArgumentException.class, () -> dietService.updateDiet(dietWithNullId));
+        assertThrows(IllegalArgumentException.class, () -> dietService.updateDiet(dietWithNullId, testDiet.getUpdatedAt()));
     }
 
     @Test
@@ -355,10 +385,10 @@ class DietServiceTest {
                 .userId(differentUserId)
                 .build();
 
-        when(dietRepository.findById(TEST_ID)).thenReturn(Optional.of(testDiet));
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(testDiet, VERSION)));
 
         // when, then
-        assertThrows(AccessDeniedException.class, () -> dietService.updateDiet(dietWithDifferentUserId));
+        assertThrows(AccessDeniedException.class, () -> dietService.updateDiet(dietWithDifferentUserId, testDiet.getUpdatedAt()));
     }
 
     @Test
@@ -376,18 +406,18 @@ class DietServiceTest {
                 .days(days)
                 .build();
 
-        when(dietRepository.findById(TEST_ID)).thenReturn(Optional.of(testDiet));
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(List.of(testDiet));
-        when(dietRepository.update(eq(TEST_ID), any(Diet.class))).thenAnswer(invocation -> invocation.getArgument(1));
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(testDiet, VERSION)));
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(List.of(intervalOf(testDiet)));
+        when(dietRepository.update(eq(TEST_ID), any(Diet.class), eq(VERSION))).thenAnswer(invocation -> invocation.getArgument(1));
 
         // when
-        Diet result = dietService.updateDiet(updatedDiet);
+        Diet result = dietService.updateDiet(updatedDiet, testDiet.getUpdatedAt());
 
         // then
         assertEquals(originalCreatedAt, result.getCreatedAt());
         assertNotNull(result.getUpdatedAt());
-        verify(dietRepository).findById(TEST_ID);
-        verify(dietRepository).update(eq(TEST_ID), any(Diet.class));
+        verify(dietRepository).findVersionedById(TEST_ID);
+        verify(dietRepository).update(eq(TEST_ID), any(Diet.class), eq(VERSION));
     }
 
     @Test
@@ -402,15 +432,99 @@ class DietServiceTest {
                 .days(List.of(dayWithoutDate))
                 .build();
 
-        when(dietRepository.findById(TEST_ID)).thenReturn(Optional.of(testDiet));
-        when(dietRepository.update(eq(TEST_ID), any(Diet.class))).thenAnswer(invocation -> invocation.getArgument(1));
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(testDiet, VERSION)));
+        when(dietRepository.update(eq(TEST_ID), any(Diet.class), eq(VERSION))).thenAnswer(invocation -> invocation.getArgument(1));
 
         // when
-        Diet result = dietService.updateDiet(dietWithDayWithoutDate);
+        Diet result = dietService.updateDiet(dietWithDayWithoutDate, testDiet.getUpdatedAt());
 
         // then
         assertNotNull(result.getDays().getFirst().getDate());
-        verify(dietRepository).update(eq(TEST_ID), any(Diet.class));
+        verify(dietRepository).update(eq(TEST_ID), any(Diet.class), eq(VERSION));
+    }
+
+    @Test
+    void updateDiet_WhenClientVersionIsStale_ShouldThrowConflictWithoutWriting() {
+        // given
+        Timestamp staleVersion = Timestamp.ofTimeSecondsAndNanos(testDiet.getUpdatedAt().getSeconds() - 60, 0);
+        Diet dietToUpdate = Diet.builder()
+                .id(TEST_ID)
+                .userId(TEST_USER_ID)
+                .days(List.of(Day.builder().date(Timestamp.now()).build()))
+                .build();
+
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(testDiet, VERSION)));
+
+        // when, then
+        assertThrows(DietConcurrentModificationException.class,
+                () -> dietService.updateDiet(dietToUpdate, staleVersion));
+        verify(dietRepository, never()).update(any(), any(Diet.class), any());
+    }
+
+    @Test
+    void updateDiet_WhenClientVersionHasNanosecondPrecision_ShouldMatchStoredMicroseconds() {
+        // given
+        Timestamp storedVersion = Timestamp.ofTimeSecondsAndNanos(1646092800, 123_456_000);
+        Timestamp clientVersion = Timestamp.ofTimeSecondsAndNanos(1646092800, 123_456_789);
+        testDiet.setUpdatedAt(storedVersion);
+        Diet dietToUpdate = Diet.builder()
+                .id(TEST_ID)
+                .userId(TEST_USER_ID)
+                .days(List.of(Day.builder().date(Timestamp.now()).build()))
+                .build();
+
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(testDiet, VERSION)));
+        when(dietRepository.update(eq(TEST_ID), any(Diet.class), eq(VERSION))).thenAnswer(invocation -> invocation.getArgument(1));
+
+        // when
+        Diet result = dietService.updateDiet(dietToUpdate, clientVersion);
+
+        // then
+        assertEquals(TEST_ID, result.getId());
+    }
+
+    @Test
+    void updateDiet_WhenVersionIsMissing_ShouldWriteWithDocumentUpdateTimePrecondition() {
+        // given
+        // Starszy dokument bez updatedAt i klient, który nie przesłał wersji
+        testDiet.setUpdatedAt(null);
+        Diet dietToUpdate = Diet.builder()
+                .id(TEST_ID)
+                .userId(TEST_USER_ID)
+                .days(List.of(Day.builder().date(Timestamp.now()).build()))
+                .build();
+
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(testDiet, VERSION)));
+        when(dietRepository.update(eq(TEST_ID), any(Diet.class), eq(VERSION))).thenAnswer(invocation -> invocation.getArgument(1));
+
+        // when
+        Diet result = dietService.updateDiet(dietToUpdate, null);
+
+        // then
+        assertEquals(TEST_ID, result.getId());
+        assertNotNull(result.getUpdatedAt());
+        verify(dietRepository).update(eq(TEST_ID), any(Diet.class), eq(VERSION));
+    }
+
+    @Test
+    void updateDiet_WhenDocumentChangesBeforeWrite_ShouldThrowConflictWithoutRetry() {
+        // given
+        Diet dietToUpdate = Diet.builder()
+                .id(TEST_ID)
+                .userId(TEST_USER_ID)
+                .days(List.of(Day.builder().date(Timestamp.now()).build()))
+                .build();
+
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(testDiet, VERSION)));
+        when(dietRepository.update(eq(TEST_ID), any(Diet.class), eq(VERSION)))
+                .thenThrow(new DietConcurrentModificationException("Diet was modified concurrently: " + TEST_ID));
+
+        // when, then
+        assertThrows(DietConcurrentModificationException.class,
+                () -> dietService.updateDiet(dietToUpdate, testDiet.getUpdatedAt()));
+        verify(dietRepository, times(1)).findVersionedById(TEST_ID);
+        verify(dietRepository, times(1)).update(eq(TEST_ID), any(Diet.class), eq(VERSION));
+        verify(dietSummaryRepository, never()).saveAll(any());
     }
 
     @Test
@@ -499,14 +613,15 @@ class DietServiceTest {
                 .days(Arrays.asList(existingDay1, existingDay2))
                 .build();
 
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(Collections.singletonList(existingDiet));
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(List.of(intervalOf(existingDiet)));
 
         // when
         boolean hasOverlap = dietService.hasDietOverlapForUser(TEST_USER_ID, startDate, endDate, null);
 
         // then
         assertTrue(hasOverlap);
-        verify(dietRepository).findByUserId(TEST_USER_ID);
+        verify(dietRepository).findIntervalsByUserId(TEST_USER_ID);
+        verify(dietRepository, never()).findByUserId(any());
     }
 
     @Test
@@ -528,14 +643,15 @@ class DietServiceTest {
                 .days(Arrays.asList(existingDay1, existingDay2))
                 .build();
 
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(Collections.singletonList(existingDiet));
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(List.of(intervalOf(existingDiet)));
 
         // when
         boolean hasOverlap = dietService.hasDietOverlapForUser(TEST_USER_ID, startDate, endDate, null);
 
         // then
         assertFalse(hasOverlap);
-        verify(dietRepository).findByUserId(TEST_USER_ID);
+        verify(dietRepository).findIntervalsByUserId(TEST_USER_ID);
+        verify(dietRepository, never()).findByUserId(any());
     }
 
     @Test
@@ -557,14 +673,15 @@ class DietServiceTest {
                 .days(Arrays.asList(existingDay1, existingDay2))
                 .build();
 
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(Collections.singletonList(existingDiet));
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(List.of(intervalOf(existingDiet)));
 
         // when
         boolean hasOverlap = dietService.hasDietOverlapForUser(TEST_USER_ID, startDate, endDate, "existing-diet");
 
         // then
         assertFalse(hasOverlap);
-        verify(dietRepository).findByUserId(TEST_USER_ID);
+        verify(dietRepository).findIntervalsByUserId(TEST_USER_ID);
+        verify(dietRepository, never()).findByUserId(any());
     }
 
     @Test
@@ -615,7 +732,7 @@ class DietServiceTest {
                 .days(Collections.singletonList(newDay))
                 .build();
 
-        when(dietRepository.findByUserId(TEST_USER_ID)).thenReturn(Collections.singletonList(existingDiet));
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(List.of(intervalOf(existingDiet)));
 
         // when, then
         DietOverlapException exception = assertThrows(
@@ -632,6 +749,7 @@ class DietServiceTest {
         Diet existingDiet = Diet.builder()
                 .id(TEST_ID)
                 .userId(TEST_USER_ID)
+                .updatedAt(testDiet.getUpdatedAt())
                 .days(testDiet.getDays())
                 .build();
 
@@ -641,12 +759,12 @@ class DietServiceTest {
                 .days(new ArrayList<>())
                 .build();
 
-        when(dietRepository.findById(TEST_ID)).thenReturn(Optional.of(existingDiet));
+        when(dietRepository.findVersionedById(TEST_ID)).thenReturn(Optional.of(new VersionedDiet(existingDiet, VERSION)));
 
         // when, then
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
-                () -> dietService.updateDiet(dietToUpdate)
+                () -> dietService.updateDiet(dietToUpdate, testDiet.getUpdatedAt())
         );
         assertEquals("Dieta musi zawierać przynajmniej jeden dzień.", exception.getMessage());
     }
@@ -658,17 +776,11 @@ class DietServiceTest {
         String userId2 = "user2";
         List<String> userIds = Arrays.asList(userId1, userId2);
 
-        Day day1 = Day.builder()
-                .date(Timestamp.ofTimeSecondsAndNanos(1646092800, 0)) // 2022-03-01
-                .build();
-        Diet diet1 = Diet.builder()
-                .id("diet1")
-                .userId(userId1)
-                .days(Collections.singletonList(day1))
-                .build();
+        Timestamp today = Timestamp.now();
+        DietSummary storedSummary = DietSummary.of(userId1, List.of(new DietPeriod("diet1", today, today)));
 
-        when(dietRepository.findByUserId(userId1)).thenReturn(Collections.singletonList(diet1));
-        when(dietRepository.findByUserId(userId2)).thenReturn(Collections.emptyList());
+        when(dietSummaryRepository.findByUserIds(any())).thenReturn(Map.of(userId1, storedSummary));
+        when(dietRepository.findPeriodsByUserIds(List.of(userId2))).thenReturn(new HashMap<>());
 
         // when
         Map<String, DietInfo> result = dietService.getDietsInfoForUsers(userIds);
@@ -677,9 +789,60 @@ class DietServiceTest {
         assertEquals(2, result.size());
         assertTrue(result.get(userId1).isHasDiet());
         assertFalse(result.get(userId2).isHasDiet());
-        assertEquals(day1.getDate(), result.get(userId1).getStartDate());
-        assertEquals(day1.getDate(), result.get(userId1).getEndDate());
+        assertEquals(today, result.get(userId1).getStartDate());
+        assertEquals(today, result.get(userId1).getEndDate());
+        assertEquals("diet1", result.get(userId1).getActiveDietId());
         assertNull(result.get(userId2).getStartDate());
         assertNull(result.get(userId2).getEndDate());
+        verify(dietRepository, never()).findPeriodsByUserIds(List.of(userId1, userId2));
+        verify(dietRepository, times(1)).findPeriodsByUserIds(any());
+        verify(dietRepository, never()).findIntervalsByUserId(any());
+    }
+
+    @Test
+    void hasDietOverlapForUser_ShouldLoadIntervalsOncePerUser() {
+        // given
+        Timestamp startDate = Timestamp.ofTimeSecondsAndNanos(1646092800, 0); // 2022-03-01
+        Timestamp endDate = Timestamp.ofTimeSecondsAndNanos(1646265600, 0);   // 2022-03-03
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(new ArrayList<>());
+        when(dietRepository.save(any(Diet.class))).thenAnswer(invocation -> {
+            Diet diet = invocation.getArgument(0);
+            diet.setId("new-diet");
+            return diet;
+        });
+
+        // when
+        boolean overlapBefore = dietService.hasDietOverlapForUser(TEST_USER_ID, startDate, endDate, null);
+        dietService.createDiet(Diet.builder()
+                .userId(TEST_USER_ID)
+                .days(new ArrayList<>(List.of(Day.builder().date(endDate).build())))
+                .build());
+        boolean overlapAfter = dietService.hasDietOverlapForUser(TEST_USER_ID, startDate, endDate, null);
+
+        // then
+        assertFalse(overlapBefore);
+        assertTrue(overlapAfter);
+        assertEquals(Optional.of("new-diet"), dietService.findDietIdCoveringDate(TEST_USER_ID, endDate));
+        verify(dietRepository, times(1)).findIntervalsByUserId(TEST_USER_ID);
+    }
+
+    @Test
+    void deleteDiet_ShouldRemoveDietFromOverlapChecks() {
+        // given
+        when(dietRepository.findIntervalsByUserId(TEST_USER_ID)).thenReturn(List.of(intervalOf(testDiet)));
+        when(dietRepository.findUserIdById(TEST_ID)).thenReturn(Optional.of(TEST_USER_ID));
+        Timestamp dietDate = testDiet.getDays().getFirst().getDate();
+        boolean overlapBefore = dietService.hasDietOverlapForUser(TEST_USER_ID, dietDate, dietDate, null);
+
+        // when
+        dietService.deleteDiet(TEST_ID);
+
+        // then
+        assertTrue(overlapBefore);
+        assertFalse(dietService.hasDietOverlapForUser(TEST_USER_ID, dietDate, dietDate, null));
+    }
+
+    private static DietInterval intervalOf(Diet diet) {
+        return DietInterval.of(diet).orElseThrow();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.noisevisionsoftware.nutrilog.service;
+
+import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecipeMultiGetCacheTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    private CacheManager cacheManager;
+    private RecipeMultiGetCache recipeMultiGetCache;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager(RecipeMultiGetCache.RECIPES_CACHE);
+        recipeMultiGetCache = new RecipeMultiGetCache(cacheManager, recipeRepository);
+    }
+
+    @Test
+    void getAll_ShouldLoadOnlyMissingIdsAndKeepRequestOrder() {
+        // given
+        Recipe cached = recipe("a");
+        Recipe loaded = recipe("b");
+        cacheManager.getCache(RecipeMultiGetCache.RECIPES_CACHE).put("a", cached);
+        when(recipeRepository.findAllByIds(List.of("b", "missing"))).thenReturn(List.of(loaded));
+
+        // when
+        List<Recipe> result = recipeMultiGetCache.getAll(List.of("b", "a", "missing", "a"));
+
+        // then
+        assertThat(result).containsExactly(loaded, cached);
+        assertThat(cacheManager.getCache(RecipeMultiGetCache.RECIPES_CACHE).get("b", Recipe.class)).isSameAs(loaded);
+    }
+
+    @Test
+    void getAll_ShouldNotQueryRepository_WhenAllIdsAreCached() {
+        // given
+        cacheManager.getCache(RecipeMultiGetCache.RECIPES_CACHE).put("a", recipe("a"));
+        cacheManager.getCache(RecipeMultiGetCache.RECIPES_CACHE).put("b", recipe("b"));
+
+        // when
+        List<Recipe> result = recipeMultiGetCache.getAll(List.of("a", "b"));
+
+        // then
+        assertThat(result).extracting(Recipe::getId).containsExactly("a", "b");
+        verify(recipeRepository, never()).findAllByIds(anyCollection());
+    }
+
+    @Test
+    void getAll_ShouldReturnEmptyList_WhenIdsAreEmptyOrNull() {
+        // when / then
+        assertThat(recipeMultiGetCache.getAll(null)).isEmpty();
+        assertThat(recipeMultiGetCache.getAll(Collections.emptyList())).isEmpty();
+        verifyNoInteractions(recipeRepository);
+    }
+
+    @Test
+    void evict_ShouldRemoveOnlyGivenRecipe() {
+        // given
+        cacheManager.getCache(RecipeMultiGetCache.RECIPES_CACHE).put("a", recipe("a"));
+        cacheManager.getCache(RecipeMultiGetCache.RECIPES_CACHE).put("b", recipe("b"));
+
+        // when
+        recipeMultiGetCache.evict("a");
+
+        // then
+        assertThat(cacheManager.getCache(RecipeMultiGetCache.RECIPES_CACHE).get("a")).isNull();
+        assertThat(cacheManager.getCache(RecipeMultiGetCache.RECIPES_CACHE).get("b")).isNotNull();
+    }
+
+    @Test
+    void getStatistics_ShouldReportHitRatios() {
+        // given
+        cacheManager.getCache(RecipeMultiGetCache.RECIPES_CACHE).put("a", recipe("a"));
+        when(recipeRepository.findAllByIds(List.of("b", "c", "d"))).thenReturn(List.of(recipe("b"), recipe("c"), recipe("d")));
+
+        // when
+        recipeMultiGetCache.getAll(List.of("a", "b", "c", "d"));
+        recipeMultiGetCache.getAll(List.of("a", "b"));
+        Map<String, Object> statistics = recipeMultiGetCache.getStatistics();
+
+        // then
+        assertThat(statistics)
+                .containsEntry("requestCount", 2L)
+                .containsEntry("hitCount", 3L)
+                .containsEntry("missCount", 3L)
+                .containsEntry("hitRate", 0.5)
+                .containsEntry("lastRequestHitRate", 1.0);
+    }
+
+    private static Recipe recipe(String id) {
+        return Recipe.builder()
+                .id(id)
+                .name("Przepis " + id)
+                .build();
+    }
+}
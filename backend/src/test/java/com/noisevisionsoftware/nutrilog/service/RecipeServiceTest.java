@@ -1,36 +1,39 @@
 package com.noisevisionsoftware.nutrilog.service;
 
 import com.google.cloud.Timestamp;
-import com.google.cloud.storage.Blob;
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.BlobInfo;
-import com.google.cloud.storage.Storage;
 import com.noisevisionsoftware.nutrilog.exception.NotFoundException;
 import com.noisevisionsoftware.nutrilog.model.recipe.NutritionalValues;
 import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
-import com.noisevisionsoftware.nutrilog.model.recipe.RecipeImageReference;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeCursorPage;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeReference;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeSearchResult;
 import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeImageRepository;
 import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeRepository;
+import com.noisevisionsoftware.nutrilog.service.diet.manual.MealTypeaheadService;
+import com.noisevisionsoftware.nutrilog.service.image.OrphanedImageReaper;
+import com.noisevisionsoftware.nutrilog.service.image.RecipeImagePipeline;
+import com.noisevisionsoftware.nutrilog.service.image.TemporaryImageService;
 import org.apache.coyote.BadRequestException;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -41,38 +44,32 @@ class RecipeServiceTest {
     private RecipeRepository recipeRepository;
 
     @Mock
-    private Storage storage;
+    private RecipeImageRepository recipeImageRepository;
 
     @Mock
-    private RecipeImageRepository recipeImageRepository;
+    private RecipeMultiGetCache recipeMultiGetCache;
 
-    @InjectMocks
-    private RecipeService recipeService;
+    @Mock
+    private RecipeImagePipeline recipeImagePipeline;
 
-    @Captor
-    private ArgumentCaptor<Recipe> recipeCaptor;
+    @Mock
+    private TemporaryImageService temporaryImageService;
 
-    @Captor
-    private ArgumentCaptor<BlobInfo> blobInfoCaptor;
+    @Mock
+    private OrphanedImageReaper orphanedImageReaper;
 
-    @Captor
-    private ArgumentCaptor<byte[]> byteArrayCaptor;
+    @Mock
+    private MealTypeaheadService mealTypeaheadService;
 
-    @Captor
-    private ArgumentCaptor<RecipeImageReference> imageReferenceCaptor;
+    @InjectMocks
+    private RecipeService recipeService;
 
-    @Value("${firebase.storage.bucket-name:test-bucket}")
-    private String storageBucket = "test-bucket";
+    @Captor
+    private ArgumentCaptor<Recipe> recipeCaptor;
 
     private static final String TEST_RECIPE_ID = "test-recipe-id";
-    private static final String TEST_BUCKET_NAME = "test-bucket";
     private static final String TEST_IMAGE_URL = "https://storage.googleapis.com/test-bucket/recipes/test-recipe-id/images/test-image.jpg";
 
-    @BeforeEach
-    void setUp() {
-        ReflectionTestUtils.setField(recipeService, "storageBucket", TEST_BUCKET_NAME);
-    }
-
     @Test
     void getRecipeById_WhenRecipeExists_ShouldReturnRecipe() {
         // given
@@ -109,7 +106,7 @@ class RecipeServiceTest {
                 createTestRecipe(),
                 createTestRecipe("test-recipe-id-2")
         );
-        when(recipeRepository.findAllByIds(recipeIds)).thenReturn(expectedRecipes);
+        when(recipeMultiGetCache.getAll(recipeIds)).thenReturn(expectedRecipes);
 
         // when
         List<Recipe> actualRecipes = recipeService.getRecipesByIds(recipeIds);
@@ -122,40 +119,32 @@ class RecipeServiceTest {
     }
 
     @Test
-    void getRecipesByIds_WhenIdsIsEmpty_ShouldReturnEmptyList() {
+    void getRecipesByIds_ShouldNotQueryRepositoryDirectly() {
         // when
-        List<Recipe> actualRecipes = recipeService.getRecipesByIds(Collections.emptyList());
+        recipeService.getRecipesByIds(Collections.emptyList());
 
         // then
-        assertThat(actualRecipes).isEmpty();
+        verify(recipeMultiGetCache).getAll(Collections.emptyList());
         verify(recipeRepository, never()).findAllByIds(anyCollection());
     }
 
     @Test
-    void getRecipesByIds_WhenIdsIsNull_ShouldReturnEmptyList() {
-        // when
-        List<Recipe> actualRecipes = recipeService.getRecipesByIds(null);
-
-        // then
-        assertThat(actualRecipes).isEmpty();
-        verify(recipeRepository, never()).findAllByIds(anyCollection());
-    }
-
-    @Test
-    void getAllRecipes_ShouldReturnPageOfRecipes() {
+    void getAllRecipes_ShouldComposePageFromIdsAndRecipeCache() {
         // given
         Pageable pageable = PageRequest.of(0, 10);
+        List<String> ids = List.of(TEST_RECIPE_ID, "test-recipe-id-2");
         List<Recipe> recipes = Arrays.asList(createTestRecipe(), createTestRecipe("test-recipe-id-2"));
-        Page<Recipe> expectedPage = new PageImpl<>(recipes, pageable, recipes.size());
 
-        when(recipeRepository.findAll(pageable)).thenReturn(expectedPage);
+        when(recipeRepository.findAllIds(pageable)).thenReturn(new PageImpl<>(ids, pageable, 25));
+        when(recipeMultiGetCache.getAll(ids)).thenReturn(recipes);
 
         // when
         Page<Recipe> actualPage = recipeService.getAllRecipes(pageable);
 
         // then
-        assertThat(actualPage).isEqualTo(expectedPage);
-        assertThat(actualPage.getContent()).hasSize(2);
+        assertThat(actualPage.getContent()).isEqualTo(recipes);
+        assertThat(actualPage.getTotalElements()).isEqualTo(25);
+        verify(recipeRepository, never()).findAll(any(Pageable.class));
     }
 
     @Test
@@ -224,6 +213,23 @@ class RecipeServiceTest {
         assertThat(result).isEqualTo(savedRecipe);
     }
 
+    @Test
+    void createRecipe_ShouldPromoteTemporaryPhotos() {
+        // given
+        String tempPhoto = "https://storage.googleapis.com/test-bucket/temp-recipes/images/photo.jpg";
+        Recipe recipeToCreate = Recipe.builder()
+                .name("New Recipe")
+                .photos(List.of(tempPhoto))
+                .build();
+        when(recipeRepository.save(recipeToCreate)).thenReturn(recipeToCreate);
+
+        // when
+        recipeService.createRecipe(recipeToCreate);
+
+        // then
+        verify(temporaryImageService).promote(List.of(tempPhoto));
+    }
+
     @Test
     void createRecipe_WhenCreatedAtIsAlreadySet_ShouldNotOverwrite() {
         // given
@@ -341,6 +347,127 @@ class RecipeServiceTest {
         assertThat(result).isEqualTo(updatedRecipe);
     }
 
+    @Test
+    void findOrCreateRecipes_ShouldResolveNamesInOneQueryAndSaveOnlyNewOrChangedRecipes() {
+        // given
+        Recipe existing = Recipe.builder()
+                .id("existing-id")
+                .name("Jajecznica")
+                .instructions("Usmaż jajka")
+                .photos(new ArrayList<>(List.of("a.jpg")))
+                .build();
+        Recipe oatmeal = Recipe.builder().name("Owsianka").instructions("Krótko").build();
+        Recipe oatmealAgain = Recipe.builder().name(" owsianka ").instructions("Dłuższe instrukcje owsianki").build();
+        Recipe scrambledEggs = Recipe.builder().name("Jajecznica").photos(List.of("b.jpg")).build();
+        Recipe unchanged = Recipe.builder().name("Kanapka").build();
+        Recipe kanapkaExisting = Recipe.builder().id("kanapka-id").name("Kanapka").build();
+        List<Recipe> recipes = List.of(oatmeal, oatmealAgain, scrambledEggs, unchanged);
+        List<RecipeReference> references = recipes.stream()
+                .map(recipe -> RecipeReference.builder().dietId("diet-id").build())
+                .toList();
+
+        when(recipeRepository.findLatestByNames(Set.of("Owsianka", "owsianka", "Jajecznica", "Kanapka")))
+                .thenReturn(Map.of("jajecznica", existing, "kanapka", kanapkaExisting));
+        when(recipeRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Recipe> toSave = invocation.getArgument(0);
+            toSave.stream().filter(recipe -> recipe.getId() == null).forEach(recipe -> recipe.setId("new-id"));
+            return toSave;
+        });
+
+        // when
+        Map<String, String> result = recipeService.findOrCreateRecipes(recipes, references);
+
+        // then
+        ArgumentCaptor<List<Recipe>> savedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(recipeRepository).saveAll(savedCaptor.capture());
+        assertThat(savedCaptor.getValue()).hasSize(2);
+        assertThat(savedCaptor.getValue())
+                .extracting(Recipe::getName, Recipe::getInstructions)
+                .containsExactlyInAnyOrder(
+                        tuple("Owsianka", "Dłuższe instrukcje owsianki"),
+                        tuple("Jajecznica", "Usmaż jajka"));
+        assertThat(savedCaptor.getValue())
+                .filteredOn(recipe -> "existing-id".equals(recipe.getId()))
+                .singleElement()
+                .satisfies(recipe -> assertThat(recipe.getPhotos()).containsExactly("a.jpg", "b.jpg"));
+        assertThat(existing.getPhotos()).containsExactly("a.jpg");
+
+        assertThat(references).extracting(RecipeReference::getRecipeId)
+                .containsExactly("new-id", "new-id", "existing-id", "kanapka-id");
+        verify(recipeRepository).saveReferences(references);
+        verify(recipeRepository, never()).findByName(anyString());
+        verify(recipeRepository, never()).update(anyString(), any(Recipe.class));
+
+        assertThat(result).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "Owsianka", "new-id",
+                "owsianka", "new-id",
+                "Jajecznica", "existing-id",
+                "Kanapka", "kanapka-id"));
+    }
+
+    @Test
+    void findOrCreateRecipes_ShouldCreateEachUnnamedRecipeSeparately() {
+        // given
+        Recipe first = Recipe.builder().name(" ").build();
+        Recipe second = Recipe.builder().build();
+
+        when(recipeRepository.findLatestByNames(Set.of())).thenReturn(Map.of());
+        when(recipeRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        Map<String, String> result = recipeService.findOrCreateRecipes(List.of(first, second), null);
+
+        // then
+        ArgumentCaptor<List<Recipe>> savedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(recipeRepository).saveAll(savedCaptor.capture());
+        assertThat(savedCaptor.getValue()).hasSize(2);
+        assertThat(first.getCreatedAt()).isNotNull();
+        assertThat(result).isEmpty();
+        verify(recipeRepository, never()).saveReferences(anyList());
+    }
+
+    @Test
+    void findOrCreateRecipes_ShouldEvictCacheAndPromotePhotosOnlyAfterCommit() {
+        // given
+        Recipe recipe = Recipe.builder().name("Owsianka").photos(List.of("temp.jpg")).build();
+        when(recipeRepository.findLatestByNames(Set.of("Owsianka"))).thenReturn(Map.of());
+        when(recipeRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Recipe> toSave = invocation.getArgument(0);
+            toSave.forEach(saved -> saved.setId("new-id"));
+            return toSave;
+        });
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // when
+            recipeService.findOrCreateRecipes(List.of(recipe), null);
+
+            // then
+            verify(recipeMultiGetCache, never()).evict(anyString());
+            verify(temporaryImageService, never()).promote(anyCollection());
+
+            // when
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            // then
+            verify(recipeMultiGetCache).evict("new-id");
+            verify(temporaryImageService).promote(List.of("temp.jpg"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void findOrCreateRecipes_WhenReferencesDoNotMatchRecipes_ShouldThrowException() {
+        // given
+        List<Recipe> recipes = List.of(createTestRecipe());
+        List<RecipeReference> references = List.of();
+
+        // when/then
+        assertThatThrownBy(() -> recipeService.findOrCreateRecipes(recipes, references))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(recipeRepository);
+    }
+
     @Test
     void findOrCreateRecipe_WhenExistingHasNoNutritionalValuesButNewHas_ShouldUpdate() {
         // given
@@ -447,11 +574,10 @@ class RecipeServiceTest {
     }
 
     @Test
-    void uploadImage_ShouldUploadAndUpdateRecipe() throws BadRequestException, IOException {
+    void uploadImage_ShouldStoreImageThroughPipelineAndUpdateRecipe() throws BadRequestException, IOException {
         // given
         Recipe recipe = createTestRecipe();
         when(recipeRepository.findById(TEST_RECIPE_ID)).thenReturn(Optional.of(recipe));
-        when(recipeImageRepository.findByImageUrl(any())).thenReturn(Optional.empty());
 
         MockMultipartFile imageFile = new MockMultipartFile(
                 "image",
@@ -460,64 +586,33 @@ class RecipeServiceTest {
                 "test image content".getBytes()
         );
 
-        Blob blob = mock(Blob.class);
-        when(storage.create(any(BlobInfo.class), any(byte[].class))).thenReturn(blob);
+        String storedUrl = "https://storage.googleapis.com/test-bucket/recipes/images/" + "a".repeat(64) + ".jpg";
+        when(recipeImagePipeline.store(any(InputStream.class), eq("image/jpeg")))
+                .thenReturn(new RecipeImagePipeline.StoredImage(storedUrl, "recipes/images/" + "a".repeat(64) + ".jpg",
+                        "a".repeat(64), false));
 
-        try (MockedStatic<UUID> mockedUuid = Mockito.mockStatic(UUID.class)) {
-            UUID mockUuid = UUID.fromString("12345678-1234-1234-1234-123456789012");
-            mockedUuid.when(UUID::randomUUID).thenReturn(mockUuid);
+        // when
+        String imageUrl = recipeService.uploadImage(TEST_RECIPE_ID, imageFile);
 
-            // when
-            String imageUrl = recipeService.uploadImage(TEST_RECIPE_ID, imageFile);
+        // then
+        verify(recipeImagePipeline).store(any(InputStream.class), eq("image/jpeg"));
+        verify(recipeRepository).update(eq(TEST_RECIPE_ID), recipeCaptor.capture());
 
-            // then
-            verify(storage).create(blobInfoCaptor.capture(), byteArrayCaptor.capture());
-            verify(recipeRepository).update(eq(TEST_RECIPE_ID), recipeCaptor.capture());
-            verify(recipeImageRepository).save(imageReferenceCaptor.capture());
-
-            BlobInfo capturedBlobInfo = blobInfoCaptor.getValue();
-            byte[] capturedBytes = byteArrayCaptor.getValue();
-            Recipe capturedRecipe = recipeCaptor.getValue();
-            RecipeImageReference capturedReference = imageReferenceCaptor.getValue();
-
-            assertThat(capturedBlobInfo.getBlobId().getBucket()).isEqualTo("test-bucket");
-            assertThat(capturedBlobInfo.getBlobId().getName())
-                    .isEqualTo("recipes/test-recipe-id/images/12345678-1234-1234-1234-123456789012.jpg");
-            assertThat(capturedBlobInfo.getContentType()).isEqualTo("image/jpeg");
-
-            assertThat(capturedBytes).isEqualTo("test image content".getBytes());
-
-            assertThat(capturedRecipe.getPhotos()).hasSize(3);
-            assertThat(capturedRecipe.getPhotos())
-                    .contains("photo1.jpg", "photo2.jpg")
-                    .contains("https://storage.googleapis.com/test-bucket/recipes/test-recipe-id/images/12345678-1234-1234-1234-123456789012.jpg");
-
-            assertThat(capturedReference.getImageUrl()).isEqualTo(
-                    "https://storage.googleapis.com/test-bucket/recipes/test-recipe-id/images/12345678-1234-1234-1234-123456789012.jpg");
-            assertThat(capturedReference.getStoragePath()).isEqualTo(
-                    "recipes/test-recipe-id/images/12345678-1234-1234-1234-123456789012.jpg");
-            assertThat(capturedReference.getReferenceCount()).isEqualTo(1);
-
-            assertThat(imageUrl).isEqualTo("https://storage.googleapis.com/test-bucket/recipes/test-recipe-id/images/12345678-1234-1234-1234-123456789012.jpg");
-        }
+        assertThat(recipeCaptor.getValue().getPhotos())
+                .containsExactly("photo1.jpg", "photo2.jpg", storedUrl);
+        assertThat(imageUrl).isEqualTo(storedUrl);
     }
 
     @Test
-    void uploadImage_WithExistingImageReference_ShouldIncrementReferenceCount() throws BadRequestException, IOException {
+    void uploadImage_WhenSameImageWasAlreadyStored_ShouldReuseExistingUrl() throws BadRequestException, IOException {
         // given
         Recipe recipe = createTestRecipe();
         when(recipeRepository.findById(TEST_RECIPE_ID)).thenReturn(Optional.of(recipe));
 
-        String expectedImageUrl = "https://storage.googleapis.com/test-bucket/recipes/test-recipe-id/images/12345678-1234-1234-1234-123456789012.jpg";
-
-        // Symulujemy, że referencja do obrazu już istnieje
-        RecipeImageReference existingReference = RecipeImageReference.builder()
-                .imageUrl(expectedImageUrl)
-                .storagePath("recipes/test-recipe-id/images/12345678-1234-1234-1234-123456789012.jpg")
-                .referenceCount(2)
-                .build();
-
-        when(recipeImageRepository.findByImageUrl(expectedImageUrl)).thenReturn(Optional.of(existingReference));
+        String existingUrl = "https://storage.googleapis.com/test-bucket/recipes/images/" + "b".repeat(64) + ".jpg";
+        when(recipeImagePipeline.store(any(InputStream.class), any()))
+                .thenReturn(new RecipeImagePipeline.StoredImage(existingUrl, "recipes/images/" + "b".repeat(64) + ".jpg",
+                        "b".repeat(64), true));
 
         MockMultipartFile imageFile = new MockMultipartFile(
                 "image",
@@ -526,23 +621,35 @@ class RecipeServiceTest {
                 "test image content".getBytes()
         );
 
-        Blob blob = mock(Blob.class);
-        when(storage.create(any(BlobInfo.class), any(byte[].class))).thenReturn(blob);
+        // when
+        String imageUrl = recipeService.uploadImage(TEST_RECIPE_ID, imageFile);
 
-        try (MockedStatic<UUID> mockedUuid = Mockito.mockStatic(UUID.class)) {
-            UUID mockUuid = UUID.fromString("12345678-1234-1234-1234-123456789012");
-            mockedUuid.when(UUID::randomUUID).thenReturn(mockUuid);
+        // then
+        verify(recipeRepository).update(eq(TEST_RECIPE_ID), recipeCaptor.capture());
+        assertThat(recipeCaptor.getValue().getPhotos()).contains(existingUrl);
+        assertThat(imageUrl).isEqualTo(existingUrl);
+        verify(recipeImageRepository, never()).save(any());
+    }
 
-            // when
-            String imageUrl = recipeService.uploadImage(TEST_RECIPE_ID, imageFile);
+    @Test
+    void uploadImage_WhenPipelineFails_ShouldThrowBadRequestException() throws IOException {
+        // given
+        Recipe recipe = createTestRecipe();
+        when(recipeRepository.findById(TEST_RECIPE_ID)).thenReturn(Optional.of(recipe));
+        when(recipeImagePipeline.store(any(InputStream.class), any())).thenThrow(new IOException("brak połączenia"));
 
-            // then
-            verify(storage).create(any(BlobInfo.class), any(byte[].class));
-            verify(recipeRepository).update(eq(TEST_RECIPE_ID), any(Recipe.class));
-            verify(recipeImageRepository).incrementReferenceCount(expectedImageUrl);
+        MockMultipartFile imageFile = new MockMultipartFile(
+                "image",
+                "test-image.jpg",
+                "image/jpeg",
+                "test image content".getBytes()
+        );
 
-            assertThat(imageUrl).isEqualTo(expectedImageUrl);
-        }
+        // when/then
+        assertThatThrownBy(() -> recipeService.uploadImage(TEST_RECIPE_ID, imageFile))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("brak połączenia");
+        verify(recipeRepository, never()).update(any(), any());
     }
 
     @Test
@@ -559,7 +666,6 @@ class RecipeServiceTest {
 
         // then
         verify(recipeImageRepository).decrementReferenceCount(TEST_IMAGE_URL);
-        verify(storage, never()).delete(any(BlobId.class));
 
         verify(recipeRepository).update(eq(TEST_RECIPE_ID), recipeCaptor.capture());
         Recipe capturedRecipe = recipeCaptor.getValue();
@@ -570,7 +676,7 @@ class RecipeServiceTest {
     }
 
     @Test
-    void deleteImage_ShouldDeletePhysicallyWhenNoMoreReferences() throws BadRequestException {
+    void deleteImage_WhenNoMoreReferences_ShouldHandFileToReaper() throws BadRequestException {
         // given
         Recipe recipe = createTestRecipe();
         recipe.setPhotos(Arrays.asList("photo1.jpg", TEST_IMAGE_URL));
@@ -584,10 +690,9 @@ class RecipeServiceTest {
 
         // then
         verify(recipeImageRepository).decrementReferenceCount(TEST_IMAGE_URL);
-        verify(recipeImageRepository).deleteByImageUrl(TEST_IMAGE_URL);
 
-        // Weryfikujemy, że obraz został fizycznie usunięty
-        verify(storage).delete(any(BlobId.class));
+        // Wpis i plik usuwa proces w tle, ponownie sprawdzając licznik referencji
+        verify(orphanedImageReaper).requestCleanup();
 
         verify(recipeRepository).update(eq(TEST_RECIPE_ID), recipeCaptor.capture());
         Recipe capturedRecipe = recipeCaptor.getValue();
@@ -617,13 +722,10 @@ class RecipeServiceTest {
         verify(recipeImageRepository).decrementReferenceCount("photo1.jpg");
         verify(recipeImageRepository).decrementReferenceCount(TEST_IMAGE_URL);
         verify(recipeImageRepository).decrementReferenceCount("photo3.jpg");
-
-        // Nie usuwaj żadnych zdjęć fizycznie
-        verify(storage, never()).delete(any(BlobId.class));
     }
 
     @Test
-    void deleteRecipe_ShouldDeleteOrphanedImages() {
+    void deleteRecipe_ShouldHandOrphanedImagesToReaper() {
         // given
         Recipe recipe = createTestRecipe();
         String orphanedImageUrl = "https://storage.googleapis.com/test-bucket/recipes/test-recipe-id/images/orphaned.jpg";
@@ -646,53 +748,8 @@ class RecipeServiceTest {
         verify(recipeImageRepository).decrementReferenceCount("photo1.jpg");
         verify(recipeImageRepository).decrementReferenceCount(orphanedImageUrl);
 
-        // Weryfikuj, że usunięto osierocone zdjęcie i jego referencję
-        verify(recipeImageRepository).deleteByImageUrl(orphanedImageUrl);
-
-        // Weryfikuj, że podjęto próbę fizycznego usunięcia zdjęcia
-        ArgumentCaptor<BlobId> blobIdCaptor = ArgumentCaptor.forClass(BlobId.class);
-        verify(storage).delete(blobIdCaptor.capture());
-
-        BlobId capturedBlobId = blobIdCaptor.getValue();
-        assertThat(capturedBlobId.getName()).contains("orphaned.jpg");
-    }
-
-    @Test
-    void cleanupOrphanedImages_ShouldDeleteImagesWithZeroReferences() {
-        // given
-        List<RecipeImageReference> orphanedImages = Arrays.asList(
-                RecipeImageReference.builder()
-                        .imageUrl("https://storage.googleapis.com/test-bucket/images/orphaned1.jpg")
-                        .storagePath("images/orphaned1.jpg")
-                        .referenceCount(0)
-                        .build(),
-                RecipeImageReference.builder()
-                        .imageUrl("https://storage.googleapis.com/test-bucket/images/orphaned2.jpg")
-                        .storagePath("images/orphaned2.jpg")
-                        .referenceCount(0)
-                        .build()
-        );
-
-        when(recipeImageRepository.findAllWithZeroReferences()).thenReturn(orphanedImages);
-
-        // when
-        recipeService.cleanupOrphanedImages();
-
-        // then
-        verify(recipeImageRepository).findAllWithZeroReferences();
-
-        // Weryfikuj, że usunięto oba obrazy fizycznie
-        ArgumentCaptor<BlobId> blobIdCaptor = ArgumentCaptor.forClass(BlobId.class);
-        verify(storage, times(2)).delete(blobIdCaptor.capture());
-
-        List<BlobId> capturedBlobIds = blobIdCaptor.getAllValues();
-        assertThat(capturedBlobIds).hasSize(2);
-        assertThat(capturedBlobIds.get(0).getName()).isEqualTo("images/orphaned1.jpg");
-        assertThat(capturedBlobIds.get(1).getName()).isEqualTo("images/orphaned2.jpg");
-
-        // Weryfikuj, że usunięto obie referencje
-        verify(recipeImageRepository).deleteByImageUrl("https://storage.googleapis.com/test-bucket/images/orphaned1.jpg");
-        verify(recipeImageRepository).deleteByImageUrl("https://storage.googleapis.com/test-bucket/images/orphaned2.jpg");
+        // Pliki usuwa proces w tle, a nie żądanie użytkownika
+        verify(orphanedImageReaper).requestCleanup();
     }
 
     @Test
@@ -730,7 +787,7 @@ class RecipeServiceTest {
         recipeService.deleteImage(TEST_RECIPE_ID, imageUrl);
 
         // then
-        verify(storage).delete(any(BlobId.class));
+        verify(orphanedImageReaper).requestCleanup();
         verify(recipeRepository).update(eq(TEST_RECIPE_ID), recipeCaptor.capture());
 
         Recipe capturedRecipe = recipeCaptor.getValue();
@@ -774,33 +831,55 @@ class RecipeServiceTest {
     }
 
     @Test
-    void uploadBase64Image_ShouldUploadAndReturnUrl() throws BadRequestException {
+    void getRecipesAfter_ShouldReturnPageFromRepository() {
         // given
-        String base64Image = "data:image/jpeg;base64,/9j/4AAQSkZJRgABAQEASABIAAD/2wBDAAMC";
+        RecipeCursorPage expectedPage = new RecipeCursorPage(List.of(createTestRecipe()), "next-cursor");
+        when(recipeRepository.findPageAfter("cursor", 20)).thenReturn(expectedPage);
 
-        Blob blob = mock(Blob.class);
-        when(storage.create(any(BlobInfo.class), any(byte[].class))).thenReturn(blob);
+        // when
+        RecipeCursorPage result = recipeService.getRecipesAfter("cursor", 20);
 
-        // Mockujemy generowanie UUID, aby test był deterministyczny
-        try (MockedStatic<UUID> mockedUuid = Mockito.mockStatic(UUID.class)) {
-            UUID mockUuid = UUID.fromString("12345678-1234-1234-1234-123456789012");
-            mockedUuid.when(UUID::randomUUID).thenReturn(mockUuid);
+        // then
+        assertThat(result).isEqualTo(expectedPage);
+        verify(recipeRepository).findPageAfter("cursor", 20);
+    }
 
-            // when
-            String imageUrl = recipeService.uploadBase64Image(base64Image);
+    @Test
+    void searchRecipesWithLimit_ShouldReturnRankedResultsFromRepository() {
+        // given
+        String query = "pasta";
+        List<RecipeSearchResult> expectedResults = List.of(
+                new RecipeSearchResult(createTestRecipe(), 0.9, 0.7),
+                new RecipeSearchResult(createTestRecipe("test-recipe-id-2"), 0.4, 0.3));
 
-            // then
-            verify(storage).create(blobInfoCaptor.capture(), any(byte[].class));
+        when(recipeRepository.searchRanked(query, 5)).thenReturn(expectedResults);
 
-            BlobInfo capturedBlobInfo = blobInfoCaptor.getValue();
+        // when
+        List<RecipeSearchResult> result = recipeService.searchRecipes(query, 5);
 
-            assertThat(capturedBlobInfo.getBlobId().getBucket()).isEqualTo("test-bucket");
-            assertThat(capturedBlobInfo.getBlobId().getName())
-                    .isEqualTo("temp-recipes/images/12345678-1234-1234-1234-123456789012.jpg");
-            assertThat(capturedBlobInfo.getContentType()).isEqualTo("image/jpeg");
+        // then
+        assertThat(result).isEqualTo(expectedResults);
+        verify(recipeRepository, never()).search(anyString());
+    }
 
-            assertThat(imageUrl).isEqualTo("https://storage.googleapis.com/test-bucket/temp-recipes/images/12345678-1234-1234-1234-123456789012.jpg");
-        }
+    @Test
+    void uploadBase64Image_ShouldStreamDecodedImageAndReturnUrl() throws BadRequestException, IOException {
+        // given
+        byte[] imageBytes = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0x00, 0x10};
+        String base64Image = "data:image/png;base64," + Base64.getEncoder().encodeToString(imageBytes);
+        String tempUrl = "https://storage.googleapis.com/test-bucket/temp-recipes/images/12345678-1234-1234-1234-123456789012.png";
+
+        when(temporaryImageService.upload(any(InputStream.class), eq("image/png"))).thenAnswer(invocation -> {
+            InputStream content = invocation.getArgument(0);
+            assertThat(content.readAllBytes()).isEqualTo(imageBytes);
+            return tempUrl;
+        });
+
+        // when
+        String imageUrl = recipeService.uploadBase64Image(base64Image);
+
+        // then
+        assertThat(imageUrl).isEqualTo(tempUrl);
     }
 
     @Test
@@ -0,0 +1,97 @@
+package com.noisevisionsoftware.nutrilog.service.category;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.model.shopping.category.ProductCategoryData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategorySnapshotStoreTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private CategorySnapshotStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new CategorySnapshotStore();
+        ReflectionTestUtils.setField(store, "dataDirectory", dataDirectory.resolve("data").toString());
+        ReflectionTestUtils.setField(store, "snapshotFile", "product-categories.snapshot");
+        ReflectionTestUtils.setField(store, "enabled", true);
+    }
+
+    @Test
+    @DisplayName("Zapisana kopia powinna zostać wczytana bez utraty danych")
+    void saveAndLoad_shouldRoundTripAllFields() {
+        // given
+        Timestamp now = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 123_456_789);
+        Map<String, ProductCategoryData> data = new HashMap<>();
+        data.put("mleko", ProductCategoryData.builder()
+                .productName("mleko")
+                .categoryId("nabiał")
+                .usageCount(10)
+                .variations(List.of("mleko 3.2%", "mleko świeże"))
+                .lastUsed(now)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        data.put("chleb", ProductCategoryData.builder()
+                .productName("chleb")
+                .categoryId(null)
+                .usageCount(1)
+                .variations(new ArrayList<>())
+                .build());
+
+        // when
+        Optional<Instant> savedAt = store.save(data);
+        Optional<CategorySnapshotStore.StoredSnapshot> loaded = store.load();
+
+        // then
+        assertTrue(savedAt.isPresent());
+        assertTrue(loaded.isPresent());
+        assertEquals(data, loaded.get().data());
+        assertEquals(savedAt.get().toEpochMilli(), loaded.get().savedAt().toEpochMilli());
+    }
+
+    @Test
+    @DisplayName("Brak pliku powinien oznaczać brak lokalnej kopii")
+    void load_shouldReturnEmpty_whenFileDoesNotExist() {
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Uszkodzony plik nie powinien przerywać startu aplikacji")
+    void load_shouldReturnEmpty_whenFileIsCorrupted() throws Exception {
+        // given
+        Files.createDirectories(store.snapshotPath().getParent());
+        Files.write(store.snapshotPath(), new byte[]{1, 2, 3, 4, 5});
+
+        // when / then
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Wyłączona kopia lokalna nie powinna zapisywać ani wczytywać pliku")
+    void saveAndLoad_shouldDoNothing_whenDisabled() {
+        // given
+        ReflectionTestUtils.setField(store, "enabled", false);
+
+        // when
+        Optional<Instant> savedAt = store.save(Map.of());
+
+        // then
+        assertTrue(savedAt.isEmpty());
+        assertTrue(store.load().isEmpty());
+        assertFalse(Files.exists(store.snapshotPath()));
+    }
+}
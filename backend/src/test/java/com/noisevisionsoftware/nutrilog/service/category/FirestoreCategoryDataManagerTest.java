@@ -77,6 +77,17 @@ class FirestoreCategoryDataManagerTest {
         verify(collectionReference).get();
     }
 
+    @Test
+    void loadAllData_shouldPropagateError_whileLoadDataReturnsEmptyMap() throws ExecutionException, InterruptedException {
+        // Given
+        when(collectionReference.get()).thenReturn(querySnapshotApiFuture);
+        when(querySnapshotApiFuture.get()).thenThrow(new ExecutionException(new RuntimeException("Firestore error")));
+
+        // When / Then
+        assertThrows(ExecutionException.class, () -> firestoreCategoryDataManager.loadAllData());
+        assertTrue(firestoreCategoryDataManager.loadData().isEmpty());
+    }
+
     @Test
     void loadData_shouldReturnCategoriesMapWithNormalizedKeys_whenCollectionHasDocuments()
             throws ExecutionException, InterruptedException {
@@ -99,8 +110,8 @@ class FirestoreCategoryDataManagerTest {
                 .usageCount(3)
                 .build();
 
-        when(doc1.toObject(ProductCategoryData.class)).thenReturn(categoryData1);
-        when(doc2.toObject(ProductCategoryData.class)).thenReturn(categoryData2);
+        stubDocument(doc1, categoryData1);
+        stubDocument(doc2, categoryData2);
 
         when(querySnapshot.getDocuments()).thenReturn(Arrays.asList(doc1, doc2));
 
@@ -188,6 +199,68 @@ class FirestoreCategoryDataManagerTest {
         verify(writeBatch).set(eq(documentReference), any(ProductCategoryData.class), eq(SetOptions.merge()));
     }
 
+    @Test
+    void saveData_shouldUseDocumentIdsFromLoadedData_withoutQueries() throws ExecutionException, InterruptedException {
+        // Given
+        when(collectionReference.get()).thenReturn(querySnapshotApiFuture);
+        when(querySnapshotApiFuture.get()).thenReturn(querySnapshot);
+
+        QueryDocumentSnapshot doc = mock(QueryDocumentSnapshot.class);
+        ProductCategoryData marchewka = ProductCategoryData.builder()
+                .productName("marchewka")
+                .categoryId("warzywa")
+                .usageCount(5)
+                .build();
+        stubDocument(doc, marchewka);
+        when(doc.getId()).thenReturn("marchewka_doc_id");
+        when(querySnapshot.getDocuments()).thenReturn(List.of(doc));
+
+        when(firestore.batch()).thenReturn(writeBatch);
+        when(writeBatch.commit()).thenReturn(writeResultsApiFuture);
+        when(collectionReference.document(anyString())).thenReturn(documentReference);
+
+        firestoreCategoryDataManager.loadData();
+
+        // When
+        firestoreCategoryDataManager.saveData(Map.of(
+                "marchewka", marchewka,
+                "nowy produkt", ProductCategoryData.builder().productName("nowy produkt").build()
+        ));
+
+        // Then
+        verify(collectionReference).document("marchewka_doc_id");
+        verify(collectionReference).document("nowy_produkt");
+        verify(collectionReference, never()).whereEqualTo(anyString(), any());
+        verify(documentReference, never()).get();
+        verify(writeBatch, times(2)).set(eq(documentReference), any(ProductCategoryData.class), eq(SetOptions.merge()));
+        verify(writeBatch).commit();
+    }
+
+    @Test
+    void saveData_shouldSplitWritesIntoBatchesOf500() throws ExecutionException, InterruptedException {
+        // Given
+        when(collectionReference.get()).thenReturn(querySnapshotApiFuture);
+        when(querySnapshotApiFuture.get()).thenReturn(querySnapshot);
+        when(querySnapshot.getDocuments()).thenReturn(Collections.emptyList());
+        firestoreCategoryDataManager.loadData();
+
+        Map<String, ProductCategoryData> data = new HashMap<>();
+        for (int i = 0; i < 1200; i++) {
+            data.put("produkt" + i, ProductCategoryData.builder().productName("produkt" + i).build());
+        }
+
+        when(firestore.batch()).thenReturn(writeBatch);
+        when(writeBatch.commit()).thenReturn(writeResultsApiFuture);
+        when(collectionReference.document(anyString())).thenReturn(documentReference);
+
+        // When
+        firestoreCategoryDataManager.saveData(data);
+
+        // Then
+        verify(writeBatch, times(1200)).set(any(DocumentReference.class), any(ProductCategoryData.class), eq(SetOptions.merge()));
+        verify(writeBatch, times(3)).commit();
+    }
+
     @Test
     void updateProduct_shouldCreateNewDocument_whenProductDoesNotExist()
             throws ExecutionException, InterruptedException {
@@ -475,4 +548,10 @@ class FirestoreCategoryDataManagerTest {
             return "mleko".equals(productName);
         }), eq(SetOptions.merge()));
     }
-}
\ No newline at end of file
+
+    private static void stubDocument(QueryDocumentSnapshot document, ProductCategoryData data) {
+        when(document.getString("productName")).thenReturn(data.getProductName());
+        when(document.getString("categoryId")).thenReturn(data.getCategoryId());
+        when(document.getLong("usageCount")).thenReturn((long) data.getUsageCount());
+    }
+}
@@ -0,0 +1,153 @@
+package com.noisevisionsoftware.nutrilog.service.category;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.model.shopping.category.ProductCategoryData;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test obciążeniowy: wielu czytelników (suggestCategory) i równoległe aktualizacje tego samego produktu.
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductCategorizationConcurrencyTest {
+
+    private static final int READERS = 8;
+    private static final int WRITERS = 4;
+    private static final int UPDATES_PER_WRITER = 250;
+    private static final int INITIAL_USAGE = 10;
+
+    @Mock
+    private FirestoreCategoryDataManager dataManager;
+
+    @Mock
+    private CategorySnapshotStore snapshotStore;
+
+    private ProductCategorizationService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Timestamp now = Timestamp.now();
+        Map<String, ProductCategoryData> data = new ConcurrentHashMap<>();
+        data.put("mleko", ProductCategoryData.builder()
+                .productName("mleko")
+                .categoryId("nabiał")
+                .usageCount(INITIAL_USAGE)
+                .variations(new ArrayList<>(List.of("mleko pełne")))
+                .lastUsed(now)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        for (int i = 0; i < 300; i++) {
+            data.put("produkt" + i, ProductCategoryData.builder()
+                    .productName("produkt" + i)
+                    .categoryId("kategoria" + (i % 7))
+                    .usageCount(1)
+                    .variations(new ArrayList<>(List.of("produkt" + i + " duży")))
+                    .build());
+        }
+
+        when(dataManager.loadAllData()).thenReturn(data);
+        service = new ProductCategorizationService(dataManager, snapshotStore, new SyncTaskExecutor());
+        service.init();
+    }
+
+    @Test
+    @DisplayName("Równoległe aktualizacje nie powinny gubić zmian, a odczyty nie powinny zwracać błędów")
+    void concurrentReadsAndWrites_shouldNotLoseUpdates() throws Exception {
+        // given
+        ExecutorService executor = Executors.newFixedThreadPool(READERS + WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writersDone = new AtomicBoolean(false);
+        AtomicInteger readerErrors = new AtomicInteger();
+        AtomicInteger wrongSuggestions = new AtomicInteger();
+        long initialVersion = service.getDataVersion();
+
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            int seed = r;
+            readers.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                await(start);
+                while (!writersDone.get()) {
+                    try {
+                        int i = random.nextInt(300);
+                        if (!("kategoria" + (i % 7)).equals(service.suggestCategory(product("produkt" + i)))) {
+                            wrongSuggestions.incrementAndGet();
+                        }
+                        if (!"nabiał".equals(service.suggestCategory(product("mleko pełne")))) {
+                            wrongSuggestions.incrementAndGet();
+                        }
+                        service.suggestCategory(product("produkt" + i + "x"));
+                    } catch (RuntimeException e) {
+                        readerErrors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(executor.submit(() -> {
+                await(start);
+                for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+                    ParsedProduct update = product("mleko " + writer + "-" + i);
+                    update.setCategoryId("nabiał");
+                    service.updateCategorization(update);
+                }
+            }));
+        }
+
+        // when
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        writersDone.set(true);
+        for (Future<?> reader : readers) {
+            reader.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        ProductCategoryData mleko = service.currentData().get("mleko");
+        int totalUpdates = WRITERS * UPDATES_PER_WRITER;
+        assertEquals(0, readerErrors.get());
+        assertEquals(0, wrongSuggestions.get());
+        assertEquals(INITIAL_USAGE + totalUpdates, mleko.getUsageCount());
+        assertEquals(1 + totalUpdates, mleko.getVariations().size());
+        assertEquals(initialVersion + totalUpdates, service.getDataVersion());
+        assertEquals("nabiał", service.suggestCategory(product("mleko 3-17")));
+    }
+
+    private static ParsedProduct product(String name) {
+        return ParsedProduct.builder()
+                .name(name)
+                .original(name)
+                .quantity(1.0)
+                .unit("szt")
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
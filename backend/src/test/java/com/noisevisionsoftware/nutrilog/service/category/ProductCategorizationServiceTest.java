@@ -10,12 +10,19 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +31,12 @@ public class ProductCategorizationServiceTest {
     @Mock
     private FirestoreCategoryDataManager dataManager;
 
+    @Mock
+    private CategorySnapshotStore snapshotStore;
+
+    @Mock
+    private TaskExecutor categoryReconcileExecutor;
+
     @InjectMocks
     @Spy
     private ProductCategorizationService service;
@@ -32,7 +45,7 @@ public class ProductCategorizationServiceTest {
     private final Timestamp now = Timestamp.now();
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         testData = new ConcurrentHashMap<>();
 
         // Przygotowanie danych testowych
@@ -61,7 +74,7 @@ public class ProductCategorizationServiceTest {
         testData.put("chleb", chleb);
 
         // Skonfiguruj mock dataManager
-        when(dataManager.loadData()).thenReturn(testData);
+        when(dataManager.loadAllData()).thenReturn(testData);
         service.init();
     }
 
@@ -124,10 +137,11 @@ public class ProductCategorizationServiceTest {
 
         // then
         verify(service).cleanProductName("banan");
-        assertTrue(testData.containsKey("banan"));
-        assertEquals("owoce", testData.get("banan").getCategoryId());
-        assertEquals(1, testData.get("banan").getUsageCount());
-        assertTrue(testData.get("banan").getVariations().contains("banan"));
+        Map<String, ProductCategoryData> data = service.currentData();
+        assertTrue(data.containsKey("banan"));
+        assertEquals("owoce", data.get("banan").getCategoryId());
+        assertEquals(1, data.get("banan").getUsageCount());
+        assertTrue(data.get("banan").getVariations().contains("banan"));
     }
 
     @Test
@@ -141,8 +155,10 @@ public class ProductCategorizationServiceTest {
         service.updateCategorization(product);
 
         // then
-        assertEquals(initialUsageCount + 1, testData.get("mleko").getUsageCount());
-        assertTrue(testData.get("mleko").getVariations().contains("mleko świeże 2%"));
+        assertEquals(initialUsageCount + 1, service.currentData().get("mleko").getUsageCount());
+        assertTrue(service.currentData().get("mleko").getVariations().contains("mleko świeże 2%"));
+        // Opublikowany wcześniej wpis nie jest modyfikowany
+        assertEquals(initialUsageCount, testData.get("mleko").getUsageCount());
     }
 
     @Test
@@ -160,7 +176,7 @@ public class ProductCategorizationServiceTest {
         service.updateCategoriesInTransaction(categorizedProducts);
 
         // then
-        verify(service, times(2)).updateCategorization(any(ParsedProduct.class));
+        verify(service).updateCategorizations(argThat(products -> products.size() == 2));
         verify(service).saveDataIfChanged();
     }
 
@@ -177,6 +193,102 @@ public class ProductCategorizationServiceTest {
         verify(service, never()).saveDataIfChanged();
     }
 
+    @Test
+    void updateCategoriesInTransaction_shouldSaveOnlyChangedProducts() {
+        // given
+        ParsedProduct banan = createParsedProduct("banan", "banan");
+        Map<String, List<ParsedProduct>> categorizedProducts = Map.of("owoce", List.of(banan));
+
+        // when
+        service.updateCategoriesInTransaction(categorizedProducts);
+        service.updateCategoriesInTransaction(Map.of("owoce", List.of()));
+
+        // then
+        verify(dataManager, times(1)).saveData(anyMap());
+        verify(dataManager).saveData(argThat(map -> map.keySet().equals(Set.of("banan"))));
+    }
+
+    @Test
+    void updateCategoriesInTransaction_shouldDeferSaveWhenWriteBehindEnabled() {
+        // given
+        ReflectionTestUtils.setField(service, "writeBehindEnabled", true);
+        ParsedProduct banan = createParsedProduct("banan", "banan");
+        ParsedProduct mleko = createParsedProduct("mleko", "mleko 2%");
+
+        // when
+        service.updateCategoriesInTransaction(Map.of("owoce", List.of(banan)));
+        service.updateCategoriesInTransaction(Map.of("nabiał", List.of(mleko)));
+
+        // then
+        verify(dataManager, never()).saveData(anyMap());
+
+        // when
+        service.flushPendingChanges();
+
+        // then
+        verify(dataManager).saveData(argThat(map -> map.keySet().equals(Set.of("banan", "mleko"))));
+    }
+
+    @Test
+    void flushPendingChanges_shouldRetryEntriesAfterFailedSave() {
+        // given
+        ReflectionTestUtils.setField(service, "writeBehindEnabled", true);
+        doThrow(new RuntimeException("Firestore error")).doNothing().when(dataManager).saveData(anyMap());
+        service.updateCategorization(createParsedProduct("banan", "banan"));
+
+        // when
+        service.flushPendingChanges();
+        service.flushPendingChanges();
+        service.flushPendingChanges();
+
+        // then
+        verify(dataManager, times(2)).saveData(argThat(map -> map.containsKey("banan")));
+    }
+
+    @Test
+    void flushPendingChanges_shouldNotBlockUpdatesWhileSavingToFirestore() {
+        // given
+        ReflectionTestUtils.setField(service, "writeBehindEnabled", true);
+        service.updateCategorization(createParsedProduct("banan", "banan"));
+        doAnswer(invocation -> {
+            // Aktualizacja z innego wątku w trakcie zapisu - przy blokadzie na czas zapisu nie zakończyłaby się
+            CompletableFuture.runAsync(() -> service.updateCategorization(createParsedProduct("jabłko", "jabłko")))
+                    .get(5, TimeUnit.SECONDS);
+            return null;
+        }).when(dataManager).saveData(anyMap());
+
+        // when
+        service.flushPendingChanges();
+
+        // then
+        assertTrue(service.currentData().containsKey("jabłko"));
+        assertEquals(1, service.getSnapshotStatistics().get("pendingChanges"));
+    }
+
+    @Test
+    void flushPendingChanges_shouldThrottleLocalSnapshotWrites() {
+        // given
+        ReflectionTestUtils.setField(service, "writeBehindEnabled", true);
+        clearInvocations(snapshotStore);
+
+        // when
+        service.updateCategorization(createParsedProduct("banan", "banan"));
+        service.flushPendingChanges();
+        service.updateCategorization(createParsedProduct("jabłko", "jabłko"));
+        service.flushPendingChanges();
+
+        // then
+        // Kopia zapisana przy starcie jest świeża - zapis odłożony
+        verify(snapshotStore, never()).save(anyMap());
+
+        // when
+        service.saveSnapshotIfPending();
+        service.saveSnapshotIfPending();
+
+        // then
+        verify(snapshotStore, times(1)).save(argThat(map -> map.containsKey("banan") && map.containsKey("jabłko")));
+    }
+
     @Test
     void calculateSimilarity_shouldReturnZeroForShortStrings() {
         // given
@@ -216,6 +328,264 @@ public class ProductCategorizationServiceTest {
         assertEquals("mleko 3 2 uht", cleanName);
     }
 
+    @Test
+    void suggestCategory_shouldFindProductAddedByUpdateCategorization() {
+        // given
+        ParsedProduct product = createParsedProduct("banan", "banan bio");
+        product.setCategoryId("owoce");
+
+        // when
+        service.updateCategorization(product);
+
+        // then
+        assertEquals("owoce", service.suggestCategory(createParsedProduct("banan", "banan")));
+        assertEquals("owoce", service.suggestCategory(createParsedProduct("banan bio", "banan bio")));
+        assertEquals("owoce", service.suggestCategory(createParsedProduct("banany", "banany")));
+    }
+
+    @Test
+    void updateCategorization_shouldPublishNewEntryAndKeepPreviousSnapshotUnchanged() {
+        // given
+        ProductCategoryData before = service.currentData().get("chleb");
+        ParsedProduct product = createParsedProduct("chleb", "chleb żytni");
+        product.setCategoryId("pieczywo");
+
+        // when
+        service.updateCategorization(product);
+
+        // then
+        ProductCategoryData after = service.currentData().get("chleb");
+        assertNotSame(before, after);
+        assertFalse(before.getVariations().contains("chleb żytni"));
+        assertTrue(after.getVariations().contains("chleb żytni"));
+        assertThrows(UnsupportedOperationException.class, () -> after.getVariations().add("chleb orkiszowy"));
+    }
+
+    @Test
+    void updateCategorization_shouldKeepDataVersionWhenUsageCountChangeCannotAlterMatches() {
+        // given
+        long version = service.getDataVersion();
+        ParsedProduct product = createParsedProduct("mleko", "mleko pełne");
+        product.setCategoryId("nabiał");
+
+        // when
+        service.updateCategorization(product);
+
+        // then
+        assertEquals(11, service.currentData().get("mleko").getUsageCount());
+        assertEquals(version, service.getDataVersion());
+    }
+
+    @Test
+    void updateCategorization_shouldChangeDataVersionWhenUsageCountChangeCanAlterMatches() throws Exception {
+        // given
+        testData.put("mleko owsiane", ProductCategoryData.builder()
+                .productName("mleko owsiane")
+                .categoryId("napoje")
+                .usageCount(11)
+                .variations(new ArrayList<>(List.of("mleko pełne")))
+                .build());
+        service.init();
+        long version = service.getDataVersion();
+        ParsedProduct product = createParsedProduct("mleko", "mleko pełne");
+        product.setCategoryId("nabiał");
+
+        // when
+        service.updateCategorization(product);
+
+        // then
+        assertEquals(11, service.currentData().get("mleko").getUsageCount());
+        assertTrue(service.getDataVersion() > version);
+    }
+
+    @Test
+    void updateCategorization_shouldReplaceIndexedVariationsOfOverwrittenProduct() {
+        // given
+        ParsedProduct first = createParsedProduct("jabłko", "jabłko zielone");
+        first.setCategoryId("owoce");
+        ParsedProduct second = createParsedProduct("jabłko", "jabłko czerwone");
+        second.setCategoryId("owoce");
+
+        // when
+        service.updateCategorization(first);
+        service.updateCategorization(second);
+
+        // then
+        assertTrue(service.findVariationMatch("jabłko zielone").isEmpty());
+        assertTrue(service.findVariationMatch("jabłko czerwone").isPresent());
+    }
+
+    @Test
+    void findSimilarMatch_shouldMatchFullScanOverManyProducts() throws Exception {
+        // given
+        for (int i = 0; i < 500; i++) {
+            String name = "produkt" + i;
+            testData.put(name, ProductCategoryData.builder()
+                    .productName(name)
+                    .categoryId("kategoria" + i)
+                    .usageCount(i)
+                    .variations(new ArrayList<>())
+                    .build());
+        }
+        service.init();
+
+        for (String query : List.of("produkt12", "produkt1234", "prodkt7", "mlekoo", "chlebb", "xyz")) {
+            // when
+            Optional<ProductCategoryData> indexed = service.findSimilarMatch(query);
+            Optional<ProductCategoryData> fullScan = testData.values().stream()
+                    .filter(data -> service.calculateSimilarity(query, data.getProductName()) >= 0.75)
+                    .max(Comparator.comparing(ProductCategoryData::getUsageCount));
+
+            // then
+            assertEquals(fullScan.map(ProductCategoryData::getProductName),
+                    indexed.map(ProductCategoryData::getProductName), "Dla zapytania: " + query);
+        }
+    }
+
+    @Test
+    void init_shouldServeLocalSnapshotAndReconcileWithFirestoreInBackground() throws Exception {
+        // given
+        List<Runnable> backgroundTasks = new ArrayList<>();
+        doAnswer(invocation -> backgroundTasks.add(invocation.getArgument(0)))
+                .when(categoryReconcileExecutor).execute(any(Runnable.class));
+        Map<String, ProductCategoryData> local = Map.of("chleb", testData.get("chleb"));
+        when(snapshotStore.load()).thenReturn(Optional.of(
+                new CategorySnapshotStore.StoredSnapshot(local, Instant.now().minusSeconds(3600))));
+        when(dataManager.loadAllData()).thenReturn(new HashMap<>(testData));
+        clearInvocations(dataManager);
+
+        // when
+        service.init();
+
+        // then
+        assertEquals(Set.of("chleb"), service.currentData().keySet());
+        assertEquals("local-snapshot", service.getSnapshotStatistics().get("source"));
+        assertTrue((Long) service.getSnapshotStatistics().get("snapshotAgeSeconds") >= 3600);
+        verify(dataManager, never()).loadAllData();
+
+        // when
+        long versionBeforeReconcile = service.getDataVersion();
+        backgroundTasks.forEach(Runnable::run);
+
+        // then
+        assertEquals(Set.of("mleko", "chleb"), service.currentData().keySet());
+        assertEquals("nabiał", service.suggestCategory(createParsedProduct("mleko", "mleko")));
+        assertTrue(service.getDataVersion() > versionBeforeReconcile);
+        assertEquals("firestore", service.getSnapshotStatistics().get("source"));
+        assertTrue((Long) service.getSnapshotStatistics().get("snapshotAgeSeconds") < 3600);
+        verify(snapshotStore, atLeastOnce()).save(argThat(map -> map.keySet().equals(Set.of("mleko", "chleb"))));
+    }
+
+    @Test
+    void init_whenFirestoreFailsWithoutLocalSnapshot_shouldStartEmptyAndRetryLater() throws Exception {
+        // given
+        List<Runnable> backgroundTasks = new ArrayList<>();
+        doAnswer(invocation -> backgroundTasks.add(invocation.getArgument(0)))
+                .when(categoryReconcileExecutor).execute(any(Runnable.class));
+        when(dataManager.loadAllData())
+                .thenThrow(new RuntimeException("Firestore niedostępny"))
+                .thenReturn(new HashMap<>(testData));
+
+        // when
+        service.init();
+
+        // then
+        assertTrue(service.currentData().isEmpty());
+        assertTrue((Boolean) service.getSnapshotStatistics().get("reconcileRetryPending"));
+
+        // when
+        service.retryReconcileIfPending();
+        backgroundTasks.forEach(Runnable::run);
+
+        // then
+        assertEquals(testData.keySet(), service.currentData().keySet());
+        assertEquals("firestore", service.getSnapshotStatistics().get("source"));
+        assertFalse((Boolean) service.getSnapshotStatistics().get("reconcileRetryPending"));
+    }
+
+    @Test
+    void reconcileWithFirestore_whenFirestoreFails_shouldKeepLocalDataAndRetryLater() throws Exception {
+        // given
+        List<Runnable> backgroundTasks = new ArrayList<>();
+        doAnswer(invocation -> backgroundTasks.add(invocation.getArgument(0)))
+                .when(categoryReconcileExecutor).execute(any(Runnable.class));
+        when(dataManager.loadAllData())
+                .thenThrow(new RuntimeException("Firestore niedostępny"))
+                .thenReturn(new HashMap<>(testData));
+
+        // when
+        service.reconcileWithFirestore();
+        service.retryReconcileIfPending();
+        service.retryReconcileIfPending();
+
+        // then
+        assertEquals(1, backgroundTasks.size());
+        assertTrue((Boolean) service.getSnapshotStatistics().get("reconcileRetryPending"));
+
+        // when
+        backgroundTasks.forEach(Runnable::run);
+
+        // then
+        assertEquals(testData.keySet(), service.currentData().keySet());
+        assertFalse((Boolean) service.getSnapshotStatistics().get("reconcileRetryPending"));
+    }
+
+    @Test
+    void reconcileWithFirestore_shouldKeepChangesNotYetSavedToFirestore() throws Exception {
+        // given
+        ReflectionTestUtils.setField(service, "writeBehindEnabled", true);
+        ParsedProduct banan = createParsedProduct("banan", "banan");
+        banan.setCategoryId("owoce");
+        service.updateCategorization(banan);
+        when(dataManager.loadAllData()).thenReturn(new HashMap<>(testData));
+
+        // when
+        service.reconcileWithFirestore();
+
+        // then
+        assertEquals("owoce", service.currentData().get("banan").getCategoryId());
+        assertTrue(service.currentData().containsKey("mleko"));
+    }
+
+    @Test
+    void reconcileWithFirestore_shouldKeepChangesSavedWhileLoadingFromFirestore() throws Exception {
+        // given
+        ReflectionTestUtils.setField(service, "writeBehindEnabled", true);
+        ProductCategoryData staleMleko = testData.get("mleko");
+        when(dataManager.loadAllData()).thenAnswer(invocation -> {
+            // Zmiana zapisana do Firestore w trakcie wczytywania - odczyt zwraca jeszcze stare dane
+            ParsedProduct mleko = createParsedProduct("mleko", "mleko 2%");
+            mleko.setCategoryId("napoje");
+            service.updateCategorization(mleko);
+            service.flushPendingChanges();
+            return new HashMap<>(Map.of("mleko", staleMleko, "chleb", testData.get("chleb")));
+        });
+
+        // when
+        service.reconcileWithFirestore();
+
+        // then
+        assertEquals("napoje", service.currentData().get("mleko").getCategoryId());
+        assertEquals(0, service.getSnapshotStatistics().get("pendingChanges"));
+        verify(dataManager).saveData(argThat(map -> "napoje".equals(map.get("mleko").getCategoryId())));
+    }
+
+    @Test
+    void reconcileWithFirestore_shouldKeepCurrentDataWhenFirestoreFails() throws Exception {
+        // given
+        Map<String, ProductCategoryData> before = service.currentData();
+        long version = service.getDataVersion();
+        when(dataManager.loadAllData()).thenThrow(new RuntimeException("Firestore error"));
+
+        // when
+        service.reconcileWithFirestore();
+
+        // then
+        assertSame(before, service.currentData());
+        assertEquals(version, service.getDataVersion());
+        assertEquals(-1L, service.getSnapshotStatistics().get("lastReconcileDurationMs"));
+    }
+
     private ParsedProduct createParsedProduct(String name, String original) {
         return ParsedProduct.builder()
                 .name(name)
@@ -0,0 +1,193 @@
+package com.noisevisionsoftware.nutrilog.service.diet;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.model.diet.DietInterval;
+import com.noisevisionsoftware.nutrilog.model.diet.DietPeriod;
+import com.noisevisionsoftware.nutrilog.repository.DietRepository;
+import com.noisevisionsoftware.nutrilog.utils.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DietIntervalIndexTest {
+
+    private static final String USER_ID = "user-1";
+
+    @Mock
+    private DietRepository dietRepository;
+
+    private DietIntervalIndex dietIntervalIndex;
+
+    @BeforeEach
+    void setUp() {
+        dietIntervalIndex = new DietIntervalIndex(dietRepository);
+    }
+
+    @Test
+    void hasOverlap_ShouldLoadIntervalsOnceAndCheckBoundaries() {
+        // given
+        when(dietRepository.findIntervalsByUserId(USER_ID)).thenReturn(List.of(
+                new DietInterval("d1", 10, 16),
+                new DietInterval("d2", 30, 36)));
+
+        // when & then
+        assertThat(dietIntervalIndex.hasOverlap(USER_ID, 16, 20, null)).isTrue();
+        assertThat(dietIntervalIndex.hasOverlap(USER_ID, 17, 29, null)).isFalse();
+        assertThat(dietIntervalIndex.hasOverlap(USER_ID, 0, 10, null)).isTrue();
+        assertThat(dietIntervalIndex.hasOverlap(USER_ID, 37, 40, null)).isFalse();
+        verify(dietRepository, times(1)).findIntervalsByUserId(USER_ID);
+    }
+
+    @Test
+    void hasOverlap_WhenFurthestDietIsExcluded_ShouldCheckRemainingDiets() {
+        // given
+        when(dietRepository.findIntervalsByUserId(USER_ID)).thenReturn(List.of(
+                new DietInterval("long", 0, 100),
+                new DietInterval("short", 5, 20)));
+
+        // when & then
+        assertThat(dietIntervalIndex.hasOverlap(USER_ID, 15, 25, "long")).isTrue();
+        assertThat(dietIntervalIndex.hasOverlap(USER_ID, 21, 25, "long")).isFalse();
+        assertThat(dietIntervalIndex.hasOverlap(USER_ID, 21, 25, "short")).isTrue();
+    }
+
+    @Test
+    void findDietCovering_ShouldReturnDietContainingDay() {
+        // given
+        when(dietRepository.findIntervalsByUserId(USER_ID)).thenReturn(List.of(
+                new DietInterval("d1", 10, 16),
+                new DietInterval("d2", 30, 36)));
+
+        // when & then
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 12)).contains("d1");
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 36)).contains("d2");
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 20)).isEmpty();
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 5)).isEmpty();
+    }
+
+    @Test
+    void dietSavedAndDeleted_ShouldUpdateLoadedIntervals() {
+        // given
+        when(dietRepository.findIntervalsByUserId(USER_ID)).thenReturn(List.of(new DietInterval("d1", 10, 16)));
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 40)).isEmpty();
+
+        // when
+        dietIntervalIndex.dietSaved(USER_ID, "d2", new DietInterval("d2", 38, 44));
+        dietIntervalIndex.dietSaved(USER_ID, "d1", new DietInterval("d1", 20, 26));
+        dietIntervalIndex.dietDeleted(USER_ID, "d2");
+
+        // then
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 40)).isEmpty();
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 12)).isEmpty();
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 22)).contains("d1");
+        verify(dietRepository, times(1)).findIntervalsByUserId(USER_ID);
+    }
+
+    @Test
+    void dietDeleted_ShouldOnlyUpdateOwnersIntervals() {
+        // given
+        when(dietRepository.findIntervalsByUserId(USER_ID)).thenReturn(List.of(new DietInterval("d1", 10, 16)));
+        when(dietRepository.findIntervalsByUserId("user-2")).thenReturn(List.of(new DietInterval("d2", 10, 16)));
+        dietIntervalIndex.findDietCovering(USER_ID, 12);
+        dietIntervalIndex.findDietCovering("user-2", 12);
+
+        // when
+        dietIntervalIndex.dietDeleted(USER_ID, "d1");
+        dietIntervalIndex.dietDeleted("user-3", "d2");
+
+        // then
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 12)).isEmpty();
+        assertThat(dietIntervalIndex.findDietCovering("user-2", 12)).contains("d2");
+        verify(dietRepository, never()).findIntervalsByUserId("user-3");
+    }
+
+    @Test
+    void seed_ShouldAddMissingUsersWithoutQueryingAndKeepLoadedOnes() {
+        // given
+        when(dietRepository.findIntervalsByUserId(USER_ID)).thenReturn(List.of(new DietInterval("d1", 10, 16)));
+        dietIntervalIndex.findDietCovering(USER_ID, 12);
+        Timestamp dietDay = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0);
+        long epochDay = DateUtils.toEpochDay(dietDay);
+
+        // when
+        dietIntervalIndex.seed(USER_ID, List.of(new DietPeriod("stale", dietDay, dietDay)));
+        dietIntervalIndex.seed("user-2", List.of(new DietPeriod("d2", dietDay, dietDay), new DietPeriod("empty", null, null)));
+        dietIntervalIndex.seed("user-3", List.of());
+
+        // then
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 12)).contains("d1");
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, epochDay)).isEmpty();
+        assertThat(dietIntervalIndex.findDietCovering("user-2", epochDay)).contains("d2");
+        assertThat(dietIntervalIndex.findDietCovering("user-3", epochDay)).isEmpty();
+        verify(dietRepository, times(1)).findIntervalsByUserId(any());
+        verify(dietRepository, never()).findPeriodsByUserIds(any());
+    }
+
+    @Test
+    void dietSaved_WhenUserNotLoaded_ShouldNotLoadIntervals() {
+        // when
+        dietIntervalIndex.dietSaved(USER_ID, "d1", new DietInterval("d1", 10, 16));
+
+        // then
+        verifyNoInteractions(dietRepository);
+    }
+
+    @Test
+    void invalidate_ShouldReloadIntervals() {
+        // given
+        when(dietRepository.findIntervalsByUserId(USER_ID))
+                .thenReturn(List.of())
+                .thenReturn(List.of(new DietInterval("d1", 10, 16)));
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 12)).isEmpty();
+
+        // when
+        dietIntervalIndex.invalidate(USER_ID);
+
+        // then
+        assertThat(dietIntervalIndex.findDietCovering(USER_ID, 12)).contains("d1");
+    }
+
+    @Test
+    void queries_ShouldMatchFullScanForRandomIntervals() {
+        // given
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<DietInterval> intervals = new ArrayList<>();
+            int count = random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                long start = random.nextInt(60);
+                intervals.add(new DietInterval("d" + i, start, start + random.nextInt(15)));
+            }
+            DietIntervalIndex.UserIntervals userIntervals = new DietIntervalIndex.UserIntervals(intervals);
+
+            for (int query = 0; query < 50; query++) {
+                long start = random.nextInt(80);
+                long end = start + random.nextInt(10);
+                String excluded = count > 0 && random.nextBoolean() ? "d" + random.nextInt(count) : null;
+
+                // when
+                DietInterval furthest = userIntervals.furthestEndingStartingBy(end, excluded);
+                boolean overlap = furthest != null && furthest.endEpochDay() >= start;
+
+                // then
+                assertThat(overlap).isEqualTo(fullScanOverlap(intervals, start, end, excluded));
+            }
+        }
+    }
+
+    private static boolean fullScanOverlap(List<DietInterval> intervals, long start, long end, String excluded) {
+        return intervals.stream()
+                .filter(interval -> !interval.dietId().equals(excluded))
+                .anyMatch(interval -> interval.startEpochDay() <= end && interval.endEpochDay() >= start);
+    }
+}
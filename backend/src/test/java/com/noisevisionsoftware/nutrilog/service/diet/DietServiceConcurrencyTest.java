@@ -0,0 +1,177 @@
+package com.noisevisionsoftware.nutrilog.service.diet;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.exception.DietConcurrentModificationException;
+import com.noisevisionsoftware.nutrilog.model.diet.Day;
+import com.noisevisionsoftware.nutrilog.model.diet.Diet;
+import com.noisevisionsoftware.nutrilog.model.diet.VersionedDiet;
+import com.noisevisionsoftware.nutrilog.repository.DietRepository;
+import com.noisevisionsoftware.nutrilog.service.firebase.FirestoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test obciążeniowy aktualizacji diet: zapisy różnych diet wykonują się równolegle, a z równoległych
+ * zapisów tej samej diety na tej samej wersji przechodzi dokładnie jeden. Repozytorium trzyma diety
+ * w pamięci i sprawdza warunek na updateTime tak jak Precondition.updatedAt.
+ */
+@ExtendWith(MockitoExtension.class)
+class DietServiceConcurrencyTest {
+
+    private static final int USERS = 16;
+    private static final int SAME_DIET_WRITERS = 8;
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final Timestamp DAY = Timestamp.ofTimeSecondsAndNanos(1646092800, 0);
+
+    @Mock
+    private DietRepository dietRepository;
+
+    @Mock
+    private FirestoreService firestoreService;
+
+    @Mock
+    private DietSummaryService dietSummaryService;
+
+    private final Map<String, VersionedDiet> store = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    private volatile CyclicBarrier readBarrier;
+    private volatile CyclicBarrier writeBarrier;
+
+    private DietService dietService;
+
+    @BeforeEach
+    void setUp() {
+        for (int u = 0; u < USERS; u++) {
+            Diet diet = diet("diet" + u, "user" + u);
+            store.put(diet.getId(), new VersionedDiet(diet, nextVersion()));
+        }
+
+        when(dietRepository.findVersionedById(anyString())).thenAnswer(invocation -> {
+            VersionedDiet current = store.get(invocation.<String>getArgument(0));
+            awaitBarrier(readBarrier);
+            return Optional.ofNullable(current);
+        });
+        when(dietRepository.update(anyString(), any(Diet.class), any(Timestamp.class))).thenAnswer(invocation -> {
+            String id = invocation.getArgument(0);
+            Diet diet = invocation.getArgument(1);
+            Timestamp expectedUpdateTime = invocation.getArgument(2);
+            awaitBarrier(writeBarrier);
+            VersionedDiet written = store.computeIfPresent(id, (key, current) ->
+                    current.updateTime().equals(expectedUpdateTime) ? new VersionedDiet(diet, nextVersion()) : current);
+            if (written == null || written.diet() != diet) {
+                throw new DietConcurrentModificationException("Diet was modified concurrently: " + id);
+            }
+            diet.setId(id);
+            return diet;
+        });
+
+        dietService = new DietService(dietRepository, firestoreService, new DietIntervalIndex(dietRepository),
+                dietSummaryService);
+    }
+
+    @Test
+    @DisplayName("Aktualizacje diet różnych użytkowników powinny wykonywać się równolegle")
+    void updatesOfDifferentDiets_shouldRunConcurrently() throws Exception {
+        // given
+        // Zapis przechodzi dopiero, gdy wszyscy użytkownicy są jednocześnie w trakcie zapisu -
+        // przy wspólnej blokadzie bariera nigdy by się nie otworzyła
+        writeBarrier = new CyclicBarrier(USERS);
+        List<Callable<Diet>> updates = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            String dietId = "diet" + u;
+            String userId = "user" + u;
+            Timestamp clientVersion = store.get(dietId).diet().getUpdatedAt();
+            updates.add(() -> dietService.updateDiet(diet(dietId, userId), clientVersion));
+        }
+
+        // when
+        List<Future<Diet>> results = runConcurrently(updates);
+
+        // then
+        for (int u = 0; u < USERS; u++) {
+            assertEquals("diet" + u, results.get(u).get().getId());
+            assertSame(results.get(u).get(), store.get("diet" + u).diet());
+        }
+    }
+
+    @Test
+    @DisplayName("Z równoległych zapisów tej samej diety na tej samej wersji przechodzi dokładnie jeden")
+    void concurrentUpdatesOfSameDiet_shouldAcceptOnlyOneWrite() throws Exception {
+        // given
+        // Wszyscy odczytują tę samą wersję, zanim ktokolwiek zapisze
+        readBarrier = new CyclicBarrier(SAME_DIET_WRITERS);
+        Timestamp clientVersion = store.get("diet0").diet().getUpdatedAt();
+        long versionBefore = versions.get();
+        List<Callable<Diet>> updates = new ArrayList<>();
+        for (int w = 0; w < SAME_DIET_WRITERS; w++) {
+            updates.add(() -> dietService.updateDiet(diet("diet0", "user0"), clientVersion));
+        }
+
+        // when
+        List<Future<Diet>> results = runConcurrently(updates);
+
+        // then
+        List<Diet> accepted = new ArrayList<>();
+        AtomicInteger conflicts = new AtomicInteger();
+        for (Future<Diet> result : results) {
+            try {
+                accepted.add(result.get());
+            } catch (ExecutionException e) {
+                assertInstanceOf(DietConcurrentModificationException.class, e.getCause());
+                conflicts.incrementAndGet();
+            }
+        }
+        assertEquals(1, accepted.size());
+        assertEquals(SAME_DIET_WRITERS - 1, conflicts.get());
+        assertSame(accepted.getFirst(), store.get("diet0").diet());
+        assertEquals(versionBefore + 1, versions.get());
+    }
+
+    private List<Future<Diet>> runConcurrently(List<Callable<Diet>> tasks) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            List<Future<Diet>> futures = executor.invokeAll(tasks, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            for (Future<Diet> future : futures) {
+                assertFalse(future.isCancelled(), "Aktualizacje nie zakończyły się w czasie");
+            }
+            return futures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Timestamp nextVersion() {
+        return Timestamp.ofTimeSecondsAndNanos(1_700_000_000L + versions.incrementAndGet(), 0);
+    }
+
+    private static void awaitBarrier(CyclicBarrier barrier) throws Exception {
+        if (barrier != null) {
+            barrier.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Diet diet(String id, String userId) {
+        return Diet.builder()
+                .id(id)
+                .userId(userId)
+                .createdAt(DAY)
+                .updatedAt(DAY)
+                .days(new ArrayList<>(List.of(Day.builder().date(DAY).meals(new ArrayList<>()).build())))
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.noisevisionsoftware.nutrilog.service.diet;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.model.diet.DietPeriod;
+import com.noisevisionsoftware.nutrilog.model.diet.DietSummary;
+import com.noisevisionsoftware.nutrilog.repository.DietRepository;
+import com.noisevisionsoftware.nutrilog.repository.DietSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DietSummaryServiceTest {
+
+    private static final Timestamp MARCH_1 = Timestamp.ofTimeSecondsAndNanos(1646092800, 0);
+    private static final Timestamp MARCH_7 = Timestamp.ofTimeSecondsAndNanos(1646611200, 0);
+    private static final Timestamp MARCH_14 = Timestamp.ofTimeSecondsAndNanos(1647216000, 0);
+
+    @Mock
+    private DietRepository dietRepository;
+
+    @Mock
+    private DietSummaryRepository dietSummaryRepository;
+
+    private DietSummaryService dietSummaryService;
+
+    @BeforeEach
+    void setUp() {
+        dietSummaryService = new DietSummaryService(dietRepository, dietSummaryRepository);
+    }
+
+    @Test
+    void getSummaries_ShouldReadStoredSummariesAndComputeOnlyMissingOnes() {
+        // given
+        DietSummary stored = DietSummary.of("user1", List.of(new DietPeriod("diet1", MARCH_1, MARCH_7)));
+        when(dietSummaryRepository.findByUserIds(any())).thenReturn(Map.of("user1", stored));
+        when(dietRepository.findPeriodsByUserIds(List.of("user2", "user3"))).thenReturn(Map.of(
+                "user2", List.of(new DietPeriod("diet2", MARCH_7, MARCH_14), new DietPeriod("diet3", MARCH_1, MARCH_7))));
+
+        // when
+        Map<String, DietSummary> result = dietSummaryService.getSummaries(List.of("user1", "user2", "user3", "user1"));
+
+        // then
+        assertThat(result).containsOnlyKeys("user1", "user2", "user3");
+        assertThat(result.get("user1")).isSameAs(stored);
+        assertThat(result.get("user2").isHasDiet()).isTrue();
+        assertThat(result.get("user2").getStartDate()).isEqualTo(MARCH_1);
+        assertThat(result.get("user2").getEndDate()).isEqualTo(MARCH_14);
+        assertThat(result.get("user3").isHasDiet()).isFalse();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<DietSummary>> backfilled = ArgumentCaptor.forClass(Collection.class);
+        verify(dietSummaryRepository).createMissing(backfilled.capture());
+        assertThat(backfilled.getValue()).extracting(DietSummary::getUserId).containsExactly("user2", "user3");
+        // Uzupełnienie nie nadpisuje podsumowań zapisanych w międzyczasie przez przeliczenie
+        verify(dietSummaryRepository, never()).saveAll(any());
+        verify(dietRepository, never()).findByUserId(any());
+    }
+
+    @Test
+    void getSummaries_WhenSummariesCannotBeRead_ShouldComputeFromDiets() {
+        // given
+        when(dietSummaryRepository.findByUserIds(any())).thenThrow(new RuntimeException("Firestore niedostępny"));
+        when(dietRepository.findPeriodsByUserIds(List.of("user1")))
+                .thenReturn(Map.of("user1", List.of(new DietPeriod("diet1", MARCH_1, MARCH_7))));
+        when(dietSummaryRepository.createMissing(any())).thenThrow(new RuntimeException("Firestore niedostępny"));
+
+        // when
+        Map<String, DietSummary> result = dietSummaryService.getSummaries(List.of("user1"));
+
+        // then
+        assertThat(result.get("user1").isHasDiet()).isTrue();
+        assertThat(result.get("user1").getEndDate()).isEqualTo(MARCH_7);
+    }
+
+    @Test
+    void refresh_WhenSaveFails_ShouldDiscardStaleSummary() {
+        // given
+        when(dietRepository.findPeriodsByUserIds(List.of("user1"))).thenReturn(new HashMap<>());
+        doThrow(new RuntimeException("Firestore niedostępny")).when(dietSummaryRepository).saveAll(any());
+
+        // when
+        dietSummaryService.refresh("user1");
+
+        // then
+        verify(dietSummaryRepository).delete("user1");
+    }
+
+    @Test
+    void dietDeleted_ShouldRefreshSummariesContainingDiet() {
+        // given
+        when(dietSummaryRepository.findUserIdsByDietId("diet1")).thenReturn(List.of("user1"));
+        when(dietRepository.findPeriodsByUserIds(List.of("user1"))).thenReturn(new HashMap<>());
+
+        // when
+        dietSummaryService.dietDeleted("diet1");
+
+        // then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<DietSummary>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(dietSummaryRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).singleElement().satisfies(summary -> {
+            assertThat(summary.getUserId()).isEqualTo("user1");
+            assertThat(summary.isHasDiet()).isFalse();
+        });
+    }
+
+    @Test
+    void getDietIds_ShouldIncludeDietsWithoutDates() {
+        // given
+        DietSummary summary = DietSummary.of("user1", List.of(
+                new DietPeriod("diet1", MARCH_1, MARCH_7),
+                new DietPeriod("diet2", MARCH_7, MARCH_14),
+                new DietPeriod("legacy", null, null)));
+
+        // when & then
+        assertThat(summary.getDietIds()).containsExactly("diet1", "diet2", "legacy");
+    }
+}
@@ -0,0 +1,147 @@
+package com.noisevisionsoftware.nutrilog.service.diet.manual;
+
+import com.noisevisionsoftware.nutrilog.dto.response.diet.manual.MealSuggestionResponse;
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplate;
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplateSearchResult;
+import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeSearchResult;
+import com.noisevisionsoftware.nutrilog.service.RecipeService;
+import com.noisevisionsoftware.nutrilog.utils.MealTemplateConverter;
+import com.noisevisionsoftware.nutrilog.utils.SimilarityCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MealSuggestionServiceTest {
+
+    private static final String USER_ID = "user-1";
+
+    @Mock
+    private RecipeService recipeService;
+
+    @Mock
+    private MealTemplateService mealTemplateService;
+
+    @Mock
+    private MealTemplateConverter mealTemplateConverter;
+
+    @Mock
+    private MealTypeaheadService mealTypeaheadService;
+
+    private MealSuggestionService mealSuggestionService;
+
+    @BeforeEach
+    void setUp() {
+        mealSuggestionService = new MealSuggestionService(recipeService, mealTemplateService,
+                mealTemplateConverter, new SimilarityCalculator(), mealTypeaheadService);
+    }
+
+    @Test
+    void findMealMatches_ShouldSearchEachSourceOnceWithLimitPushedDown() {
+        // given
+        int sourceLimit = MealSuggestionService.PREVIEW_LIMIT / 2;
+        when(recipeService.searchRecipes("owsianka z jabłkiem", sourceLimit)).thenReturn(List.of(
+                new RecipeSearchResult(recipe("r1", "Owsianka z jabłkiem"), 1.4, 1.0),
+                new RecipeSearchResult(recipe("r2", "Jajecznica"), 0.3, 0.1)));
+        when(mealTemplateService.searchAccessibleTemplates("owsianka z jabłkiem", USER_ID, sourceLimit))
+                .thenReturn(List.of(new MealTemplateSearchResult(template("t1", "Owsianka z jabłkami"), 0.67)));
+
+        // when
+        MealSuggestionService.MealMatches matches = mealSuggestionService.findMealMatches("  owsianka z jabłkiem ", USER_ID);
+
+        // then
+        verify(recipeService, times(1)).searchRecipes(anyString(), anyInt());
+        verify(recipeService, never()).searchRecipes(anyString());
+        verify(mealTemplateService, times(1)).searchAccessibleTemplates(anyString(), anyString(), anyInt());
+        // Podgląd potrzebuje dopasowań przybliżonych z bazy, a nie podpowiedzi z indeksu
+        verifyNoInteractions(mealTypeaheadService);
+
+        assertThat(matches.exactMatch()).isTrue();
+        assertThat(matches.suggestions()).extracting(MealSuggestionResponse::getId)
+                .containsExactly("recipe-r1", "t1", "recipe-r2");
+        assertThat(matches.highlySimilar()).extracting(MealSuggestionResponse::getId)
+                .containsExactly("recipe-r1", "t1");
+        // Trafność obu źródeł to podobieństwo trigramowe z bazy, bez ponownego liczenia w Javie
+        assertThat(matches.suggestions()).extracting(MealSuggestionResponse::getSimilarity)
+                .containsExactly(1.0, 0.67, 0.1);
+    }
+
+    @Test
+    void findMealMatches_WhenNoSimilarMeals_ShouldReportNoMatches() {
+        // given
+        when(recipeService.searchRecipes(anyString(), anyInt()))
+                .thenReturn(List.of(new RecipeSearchResult(recipe("r1", "Zupa pomidorowa"), 0.2, 0.2)));
+        when(mealTemplateService.searchAccessibleTemplates(anyString(), anyString(), anyInt())).thenReturn(List.of());
+
+        // when
+        MealSuggestionService.MealMatches matches = mealSuggestionService.findMealMatches("Sałatka grecka", USER_ID);
+
+        // then
+        assertThat(matches.exactMatch()).isFalse();
+        assertThat(matches.highlySimilar()).isEmpty();
+        assertThat(matches.suggestions()).hasSize(1);
+    }
+
+    @Test
+    void searchMealSuggestions_WhenTypeaheadReady_ShouldNotQueryDatabase() {
+        // given
+        when(mealTypeaheadService.isReady()).thenReturn(true);
+        when(mealTypeaheadService.searchRecipes("owsia", 5)).thenReturn(List.of(recipe("r1", "Owsianka")));
+        when(mealTypeaheadService.searchTemplates("owsia", USER_ID, 5)).thenReturn(List.of(template("t1", "Owsianka z malinami")));
+
+        // when
+        List<MealSuggestionResponse> suggestions = mealSuggestionService.searchMealSuggestions("owsia", 10, USER_ID);
+
+        // then
+        assertThat(suggestions).extracting(MealSuggestionResponse::getId).containsExactlyInAnyOrder("recipe-r1", "t1");
+        verifyNoInteractions(recipeService, mealTemplateService);
+    }
+
+    @Test
+    void searchMealSuggestions_WhenTypeaheadNotReady_ShouldFallBackToDatabase() {
+        // given
+        when(mealTypeaheadService.isReady()).thenReturn(false);
+        when(recipeService.searchRecipes("owsia", 5)).thenReturn(List.of());
+        when(mealTemplateService.searchAccessibleTemplates("owsia", USER_ID, 5)).thenReturn(List.of());
+
+        // when
+        List<MealSuggestionResponse> suggestions = mealSuggestionService.searchMealSuggestions("owsia", 10, USER_ID);
+
+        // then
+        assertThat(suggestions).isEmpty();
+        verify(mealTypeaheadService, never()).searchRecipes(anyString(), anyInt());
+    }
+
+    @Test
+    void searchMealSuggestions_WithBlankQuery_ShouldNotQuerySources() {
+        // when
+        List<MealSuggestionResponse> suggestions = mealSuggestionService.searchMealSuggestions("  ", 10, USER_ID);
+
+        // then
+        assertThat(suggestions).isEmpty();
+        verifyNoInteractions(recipeService, mealTemplateService);
+    }
+
+    private static Recipe recipe(String id, String name) {
+        return Recipe.builder()
+                .id(id)
+                .name(name)
+                .build();
+    }
+
+    private static MealTemplate template(String id, String name) {
+        return MealTemplate.builder()
+                .id(id)
+                .name(name)
+                .build();
+    }
+}
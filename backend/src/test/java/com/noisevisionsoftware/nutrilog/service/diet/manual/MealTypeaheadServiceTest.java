@@ -0,0 +1,188 @@
+package com.noisevisionsoftware.nutrilog.service.diet.manual;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.model.meal.MealNameEntry;
+import com.noisevisionsoftware.nutrilog.model.meal.MealTemplate;
+import com.noisevisionsoftware.nutrilog.model.recipe.Recipe;
+import com.noisevisionsoftware.nutrilog.repository.meal.MealTemplateRepository;
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeRepository;
+import com.noisevisionsoftware.nutrilog.service.RecipeMultiGetCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MealTypeaheadServiceTest {
+
+    private static final String OWNER_ID = "dietitian-a";
+    private static final String OTHER_USER_ID = "dietitian-b";
+
+    @Mock
+    private MealTemplateRepository mealTemplateRepository;
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    @Mock
+    private MealTemplateMultiGetCache mealTemplateMultiGetCache;
+
+    @Mock
+    private RecipeMultiGetCache recipeMultiGetCache;
+
+    // Pełne obiekty zwracane przez cache - indeks trzyma tylko nazwy
+    private final Map<String, MealTemplate> storedTemplates = new ConcurrentHashMap<>();
+    private final Map<String, Recipe> storedRecipes = new ConcurrentHashMap<>();
+
+    private MealTypeaheadService mealTypeaheadService;
+
+    @BeforeEach
+    void setUp() {
+        mealTypeaheadService = new MealTypeaheadService(mealTemplateRepository, recipeRepository,
+                mealTemplateMultiGetCache, recipeMultiGetCache);
+        lenient().when(mealTemplateMultiGetCache.getAll(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).stream().map(storedTemplates::get).filter(Objects::nonNull).toList());
+        lenient().when(recipeMultiGetCache.getAll(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).stream().map(storedRecipes::get).filter(Objects::nonNull).toList());
+    }
+
+    @Test
+    void rebuild_ShouldIndexTemplatesAndRecipesAndRespectVisibility() {
+        // given
+        when(mealTemplateRepository.findAllNameEntries()).thenReturn(List.of(
+                templateName(template("t1", "Owsianka prywatna", false, 100)),
+                templateName(template("t2", "Owsianka z malinami", true, 3))));
+        when(recipeRepository.findAllNameEntries()).thenReturn(List.of(recipeName(recipe("r1", "Owsianka klasyczna"))));
+
+        // when
+        boolean readyBefore = mealTypeaheadService.isReady();
+        mealTypeaheadService.rebuild();
+
+        // then
+        assertThat(readyBefore).isFalse();
+        assertThat(mealTypeaheadService.isReady()).isTrue();
+        assertThat(mealTypeaheadService.searchTemplates("owsia", OWNER_ID, 10))
+                .extracting(MealTemplate::getId).containsExactly("t1", "t2");
+        assertThat(mealTypeaheadService.searchTemplates("owsia", OTHER_USER_ID, 10))
+                .extracting(MealTemplate::getId).containsExactly("t2");
+        assertThat(mealTypeaheadService.searchRecipes("klasycz", 10))
+                .extracting(Recipe::getId).containsExactly("r1");
+    }
+
+    @Test
+    void templateSavedAndUsed_ShouldUpdateIndexIncrementally() {
+        // given
+        rebuildWith(List.of(template("t1", "Zupa krem z dyni", true, 2)), List.of());
+
+        // when
+        mealTypeaheadService.templateSaved(template("t2", "Zupa krem z brokułów", true, 2));
+        mealTypeaheadService.templateUsed("t2");
+
+        // then
+        assertThat(mealTypeaheadService.searchTemplates("zupa krem", OWNER_ID, 10))
+                .extracting(MealTemplate::getId).containsExactly("t2", "t1");
+    }
+
+    @Test
+    void recipeWrites_ShouldUpdateIndexIncrementally() {
+        // given
+        rebuildWith(List.of(), List.of(recipe("r1", "Sałatka grecka")));
+
+        // when
+        mealTypeaheadService.recipesSaved(List.of(recipe("r2", "Sałatka cezar"), recipe(null, "Bez ID")));
+        mealTypeaheadService.recipeSaved(recipe("r1", "Sałatka caprese"));
+        mealTypeaheadService.recipeDeleted("r2");
+
+        // then
+        assertThat(mealTypeaheadService.searchRecipes("sałatka", 10))
+                .extracting(Recipe::getId).containsExactly("r1");
+        assertThat(mealTypeaheadService.searchRecipes("grecka", 10)).isEmpty();
+    }
+
+    @Test
+    void rebuild_ShouldKeepChangesSavedWhileLoading() {
+        // given
+        when(mealTemplateRepository.findAllNameEntries()).thenAnswer(invocation -> {
+            // Zapis w trakcie wczytywania - nie ma go jeszcze w danych przebudowy
+            mealTypeaheadService.templateSaved(template("t2", "Omlet nowy", true, 0));
+            return List.of(templateName(template("t1", "Omlet", true, 0)));
+        });
+        when(recipeRepository.findAllNameEntries()).thenReturn(List.of());
+
+        // when
+        mealTypeaheadService.rebuild();
+
+        // then
+        assertThat(mealTypeaheadService.searchTemplates("omlet", OWNER_ID, 10))
+                .extracting(MealTemplate::getId).containsExactly("t1", "t2");
+    }
+
+    @Test
+    void rebuild_WhenLoadingFails_ShouldKeepPreviousIndex() {
+        // given
+        rebuildWith(List.of(template("t1", "Omlet", true, 0)), List.of());
+        when(mealTemplateRepository.findAllNameEntries()).thenThrow(new RuntimeException("Baza niedostępna"));
+
+        // when
+        mealTypeaheadService.rebuild();
+
+        // then
+        assertThat(mealTypeaheadService.isReady()).isTrue();
+        assertThat(mealTypeaheadService.searchTemplates("omlet", OWNER_ID, 10))
+                .extracting(MealTemplate::getId).containsExactly("t1");
+    }
+
+    private void rebuildWith(List<MealTemplate> templates, List<Recipe> recipes) {
+        when(mealTemplateRepository.findAllNameEntries())
+                .thenReturn(templates.stream().map(this::templateName).toList());
+        when(recipeRepository.findAllNameEntries())
+                .thenReturn(recipes.stream().map(this::recipeName).toList());
+        mealTypeaheadService.rebuild();
+    }
+
+    private MealNameEntry templateName(MealTemplate template) {
+        return new MealNameEntry(template.getId(), template.getName(), template.getUsageCount(),
+                template.getLastUsed(), template.isPublic(), template.getCreatedBy());
+    }
+
+    private MealNameEntry recipeName(Recipe recipe) {
+        return new MealNameEntry(recipe.getId(), recipe.getName(), 0, recipe.getCreatedAt(), true, null);
+    }
+
+    private MealTemplate template(String id, String name, boolean isPublic, int usageCount) {
+        MealTemplate template = MealTemplate.builder()
+                .id(id)
+                .name(name)
+                .isPublic(isPublic)
+                .createdBy(OWNER_ID)
+                .usageCount(usageCount)
+                .lastUsed(Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0))
+                .build();
+        storedTemplates.put(id, template);
+        return template;
+    }
+
+    private Recipe recipe(String id, String name) {
+        Recipe recipe = Recipe.builder()
+                .id(id)
+                .name(name)
+                .createdAt(Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0))
+                .build();
+        if (id != null) {
+            storedRecipes.put(id, recipe);
+        }
+        return recipe;
+    }
+}
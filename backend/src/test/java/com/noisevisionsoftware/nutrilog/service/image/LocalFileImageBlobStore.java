@@ -0,0 +1,90 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+/**
+ * Magazyn zdjęć na lokalnym dysku - zastępuje Cloud Storage w testach
+ */
+class LocalFileImageBlobStore implements ImageBlobStore {
+
+    private static final String URL_PREFIX = "file://local-bucket/";
+
+    private final Path root;
+
+    LocalFileImageBlobStore(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public WritableByteChannel openWriter(String path, String contentType) throws IOException {
+        Path file = resolve(path);
+        Files.createDirectories(file.getParent());
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public ReadableByteChannel openReader(String path) throws IOException {
+        return FileChannel.open(resolve(path), StandardOpenOption.READ);
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return Files.exists(resolve(path));
+    }
+
+    @Override
+    public void move(String sourcePath, String targetPath, String contentType) throws IOException {
+        Path target = resolve(targetPath);
+        Files.createDirectories(target.getParent());
+        Files.move(resolve(sourcePath), target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean delete(String path) {
+        try {
+            return Files.deleteIfExists(resolve(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<String> paths) {
+        int deleted = 0;
+        for (String path : paths) {
+            if (delete(path)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public String publicUrl(String path) {
+        return URL_PREFIX + path;
+    }
+
+    Path resolve(String path) {
+        return root.resolve(path);
+    }
+
+    long countFiles(String prefix) throws IOException {
+        Path directory = resolve(prefix);
+        if (!Files.exists(directory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeImageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanedImageReaperTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    @Mock
+    private RecipeImageRepository recipeImageRepository;
+
+    @Mock
+    private ImageBlobStore blobStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ScheduledExecutorService reaperExecutor;
+
+    private OrphanedImageReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        reaper = new OrphanedImageReaper(recipeImageRepository, blobStore, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(reaper, "reaperExecutor", reaperExecutor);
+    }
+
+    @Test
+    void requestCleanup_RepeatedTriggers_ShouldScheduleSingleRun() {
+        // when
+        reaper.requestCleanup();
+        reaper.requestCleanup();
+        reaper.requestCleanup();
+
+        // then
+        verify(reaperExecutor, times(1)).schedule(any(Runnable.class), eq(5000L), eq(TimeUnit.MILLISECONDS));
+        assertThat(reaper.getStatistics())
+                .containsEntry("requestCount", 3L)
+                .containsEntry("coalescedCount", 2L)
+                .containsEntry("runPending", true);
+        verifyNoInteractions(recipeImageRepository, blobStore);
+    }
+
+    @Test
+    void requestCleanup_AfterScheduledRunStarts_ShouldScheduleNextRun() {
+        // given
+        when(recipeImageRepository.tryLockOrphanCleanup()).thenReturn(true);
+        when(recipeImageRepository.deleteOrphanedBatch(anyInt())).thenReturn(List.of());
+        reaper.requestCleanup();
+        ArgumentCaptor<Runnable> runCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(reaperExecutor).schedule(runCaptor.capture(), anyLong(), any(TimeUnit.class));
+
+        // when
+        runCaptor.getValue().run();
+        reaper.requestCleanup();
+
+        // then
+        verify(reaperExecutor, times(2)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        assertThat(reaper.getStatistics()).containsEntry("runCount", 1L);
+    }
+
+    @Test
+    void reapOrphans_ShouldDeleteReferencesAndFilesInBatches() {
+        // given
+        List<String> fullBatch = paths(0, OrphanedImageReaper.BATCH_SIZE);
+        List<String> lastBatch = List.of("recipes/images/" + HASH + ".png", "recipes/old-recipe/images/photo.jpg");
+        when(recipeImageRepository.tryLockOrphanCleanup()).thenReturn(true);
+        when(recipeImageRepository.deleteOrphanedBatch(OrphanedImageReaper.BATCH_SIZE))
+                .thenReturn(fullBatch)
+                .thenReturn(lastBatch);
+
+        // when
+        int reclaimed = reaper.reapOrphans();
+
+        // then
+        assertThat(reclaimed).isEqualTo(OrphanedImageReaper.BATCH_SIZE + 2);
+        verify(recipeImageRepository, times(2)).deleteOrphanedBatch(OrphanedImageReaper.BATCH_SIZE);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> pathsCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(blobStore, times(2)).deleteAll(pathsCaptor.capture());
+        assertThat(pathsCaptor.getAllValues().get(0)).hasSize(OrphanedImageReaper.BATCH_SIZE * 2);
+        // Miniatura istnieje tylko dla zdjęć adresowanych zawartością
+        assertThat(pathsCaptor.getAllValues().get(1)).containsExactly(
+                "recipes/images/" + HASH + ".png",
+                "recipes/thumbnails/" + HASH + ".jpg",
+                "recipes/old-recipe/images/photo.jpg");
+
+        // Każda paczka we własnej transakcji, pliki usuwane dopiero po jej zatwierdzeniu
+        InOrder inOrder = inOrder(transactionManager, blobStore);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(blobStore).deleteAll(anyCollection());
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(blobStore).deleteAll(anyCollection());
+        assertThat(reaper.getStatistics())
+                .containsEntry("reclaimedCount", (long) OrphanedImageReaper.BATCH_SIZE + 2)
+                .containsEntry("lastRunReclaimedCount", (long) OrphanedImageReaper.BATCH_SIZE + 2);
+    }
+
+    @Test
+    void reapOrphans_WhenAnotherInstanceHoldsLock_ShouldSkipRun() {
+        // given
+        when(recipeImageRepository.tryLockOrphanCleanup()).thenReturn(false);
+
+        // when
+        int reclaimed = reaper.reapOrphans();
+
+        // then
+        assertThat(reclaimed).isZero();
+        verify(recipeImageRepository, never()).deleteOrphanedBatch(anyInt());
+        verifyNoInteractions(blobStore);
+        assertThat(reaper.getStatistics()).containsEntry("skippedRunCount", 1L);
+    }
+
+    @Test
+    void reapOrphans_WhenLockIsTakenBetweenBatches_ShouldStopAfterCommittedBatch() {
+        // given
+        when(recipeImageRepository.tryLockOrphanCleanup()).thenReturn(true).thenReturn(false);
+        when(recipeImageRepository.deleteOrphanedBatch(OrphanedImageReaper.BATCH_SIZE))
+                .thenReturn(paths(0, OrphanedImageReaper.BATCH_SIZE));
+
+        // when
+        int reclaimed = reaper.reapOrphans();
+
+        // then
+        assertThat(reclaimed).isEqualTo(OrphanedImageReaper.BATCH_SIZE);
+        verify(recipeImageRepository, times(1)).deleteOrphanedBatch(anyInt());
+        verify(blobStore, times(1)).deleteAll(anyCollection());
+        assertThat(reaper.getStatistics()).containsEntry("skippedRunCount", 0L);
+    }
+
+    @Test
+    void reapOrphans_WhenStorageFails_ShouldKeepCommittedBatchAndContinue() {
+        // given
+        when(recipeImageRepository.tryLockOrphanCleanup()).thenReturn(true);
+        when(recipeImageRepository.deleteOrphanedBatch(anyInt()))
+                .thenReturn(paths(0, OrphanedImageReaper.BATCH_SIZE))
+                .thenReturn(paths(OrphanedImageReaper.BATCH_SIZE, 2));
+        when(blobStore.deleteAll(anyCollection()))
+                .thenThrow(new RuntimeException("Storage niedostępny"))
+                .thenReturn(4);
+
+        // when
+        int reclaimed = reaper.reapOrphans();
+
+        // then
+        assertThat(reclaimed).isEqualTo(OrphanedImageReaper.BATCH_SIZE + 2);
+        // Wycofana jest tylko transakcja blokad plików pierwszej paczki - obie paczki wpisów są zatwierdzone
+        verify(transactionManager, times(3)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+        verify(blobStore, times(2)).deleteAll(anyCollection());
+        assertThat(reaper.getStatistics()).containsEntry("fileDeleteFailureCount", 1L);
+    }
+
+    @Test
+    void reapOrphans_WhenBatchDeleteFails_ShouldRollBackOnlyThatBatch() {
+        // given
+        when(recipeImageRepository.tryLockOrphanCleanup()).thenReturn(true);
+        when(recipeImageRepository.deleteOrphanedBatch(anyInt())).thenThrow(new RuntimeException("Baza niedostępna"));
+
+        // when
+        int reclaimed = reaper.reapOrphans();
+
+        // then
+        assertThat(reclaimed).isZero();
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verifyNoInteractions(blobStore);
+        assertThat(reaper.getStatistics()).containsEntry("reclaimedCount", 0L);
+    }
+
+    @Test
+    void reapOrphans_WhenFileWasStoredAgainDuringCleanup_ShouldKeepReferencedFile() {
+        // given
+        String reused = "recipes/images/" + HASH + ".png";
+        String orphaned = "recipes/old-recipe/images/photo.jpg";
+        when(recipeImageRepository.tryLockOrphanCleanup()).thenReturn(true);
+        when(recipeImageRepository.deleteOrphanedBatch(anyInt())).thenReturn(List.of(reused, orphaned));
+        // To samo zdjęcie przesłane ponownie po usunięciu osieroconego wpisu, przed usunięciem plików
+        when(recipeImageRepository.findReferencedStoragePaths(List.of(reused, orphaned))).thenReturn(Set.of(reused));
+
+        // when
+        int reclaimed = reaper.reapOrphans();
+
+        // then
+        assertThat(reclaimed).isEqualTo(2);
+        verify(blobStore).deleteAll(List.of(orphaned));
+    }
+
+    @Test
+    void reapOrphans_ShouldCheckReferencesAndDeleteFilesUnderFileLocks() {
+        // given
+        List<String> batch = List.of("recipes/images/" + HASH + ".png");
+        when(recipeImageRepository.tryLockOrphanCleanup()).thenReturn(true);
+        when(recipeImageRepository.deleteOrphanedBatch(anyInt())).thenReturn(batch);
+        when(recipeImageRepository.findReferencedStoragePaths(batch)).thenReturn(Set.of());
+
+        // when
+        reaper.reapOrphans();
+
+        // then
+        InOrder inOrder = inOrder(recipeImageRepository, blobStore, transactionManager);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(recipeImageRepository).lockImageFiles(batch);
+        inOrder.verify(recipeImageRepository).findReferencedStoragePaths(batch);
+        inOrder.verify(blobStore).deleteAll(anyCollection());
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    private static List<String> paths(int first, int count) {
+        return IntStream.range(first, first + count)
+                .mapToObj(i -> "recipes/images/" + String.format("%064x", i) + ".jpg")
+                .toList();
+    }
+}
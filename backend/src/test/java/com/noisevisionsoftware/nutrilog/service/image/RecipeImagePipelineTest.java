@@ -0,0 +1,306 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import com.noisevisionsoftware.nutrilog.model.recipe.RecipeImageReference;
+import com.noisevisionsoftware.nutrilog.repository.recipe.RecipeImageRepository;
+import com.noisevisionsoftware.nutrilog.utils.ImageStoragePaths;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecipeImagePipelineTest {
+
+    @Mock
+    private RecipeImageRepository recipeImageRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path storageRoot;
+
+    private LocalFileImageBlobStore blobStore;
+    private RecipeImagePipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new LocalFileImageBlobStore(storageRoot);
+        // Miniatury generowane od razu, w wątku testu
+        pipeline = new RecipeImagePipeline(blobStore, recipeImageRepository, new SyncTaskExecutor(),
+                new TransactionTemplate(transactionManager));
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void store_NewImage_ShouldStoreUnderContentHashAndGenerateThumbnail() throws Exception {
+        // given
+        byte[] image = createPng(1200, 800);
+        String hash = sha256(image);
+        when(recipeImageRepository.findByContentHash(hash)).thenReturn(Optional.empty());
+
+        // when
+        RecipeImagePipeline.StoredImage stored = pipeline.store(new ByteArrayInputStream(image), "image/png");
+
+        // then
+        assertThat(stored.contentHash()).isEqualTo(hash);
+        assertThat(stored.storagePath()).isEqualTo("recipes/images/" + hash + ".png");
+        assertThat(stored.imageUrl()).isEqualTo(blobStore.publicUrl(stored.storagePath()));
+        assertThat(stored.deduplicated()).isFalse();
+        assertThat(Files.readAllBytes(blobStore.resolve(stored.storagePath()))).isEqualTo(image);
+        assertThat(blobStore.countFiles("recipes/staging")).isZero();
+
+        ArgumentCaptor<RecipeImageReference> referenceCaptor = ArgumentCaptor.forClass(RecipeImageReference.class);
+        verify(recipeImageRepository).save(referenceCaptor.capture());
+        assertThat(referenceCaptor.getValue().getContentHash()).isEqualTo(hash);
+        assertThat(referenceCaptor.getValue().getStoragePath()).isEqualTo(stored.storagePath());
+        assertThat(referenceCaptor.getValue().getReferenceCount()).isEqualTo(1);
+
+        BufferedImage thumbnail = ImageIO.read(blobStore.resolve("recipes/thumbnails/" + hash + ".jpg").toFile());
+        assertThat(thumbnail.getWidth()).isEqualTo(RecipeImagePipeline.THUMBNAIL_MAX_SIZE);
+        assertThat(thumbnail.getHeight()).isEqualTo(213);
+        verify(recipeImageRepository).updateThumbnailPath(hash, "recipes/thumbnails/" + hash + ".jpg");
+    }
+
+    @Test
+    void store_SameContentTwice_ShouldReuseStoredFileAndIncrementReferenceCount() throws Exception {
+        // given
+        byte[] image = createPng(64, 64);
+        String hash = sha256(image);
+        RecipeImageReference existing = RecipeImageReference.builder()
+                .imageUrl(blobStore.publicUrl("recipes/images/" + hash + ".png"))
+                .storagePath("recipes/images/" + hash + ".png")
+                .contentHash(hash)
+                .referenceCount(1)
+                .build();
+        when(recipeImageRepository.findByContentHash(hash))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(existing));
+        when(recipeImageRepository.incrementReferenceCount(existing.getImageUrl())).thenReturn(1);
+
+        // when
+        RecipeImagePipeline.StoredImage first = pipeline.store(new ByteArrayInputStream(image), "image/png");
+        RecipeImagePipeline.StoredImage second = pipeline.store(new ByteArrayInputStream(image), "image/png");
+
+        // then
+        assertThat(second.deduplicated()).isTrue();
+        assertThat(second.imageUrl()).isEqualTo(first.imageUrl());
+        assertThat(blobStore.countFiles("recipes/images")).isEqualTo(1);
+        assertThat(blobStore.countFiles("recipes/staging")).isZero();
+        verify(recipeImageRepository, times(1)).save(any(RecipeImageReference.class));
+        verify(recipeImageRepository).incrementReferenceCount(existing.getImageUrl());
+    }
+
+    @Test
+    void store_WhenExistingReferenceWasReaped_ShouldStoreFileAgain() throws Exception {
+        // given
+        byte[] image = createPng(64, 64);
+        String hash = sha256(image);
+        String storagePath = "recipes/images/" + hash + ".png";
+        RecipeImageReference reaped = RecipeImageReference.builder()
+                .imageUrl(blobStore.publicUrl(storagePath))
+                .storagePath(storagePath)
+                .contentHash(hash)
+                .referenceCount(0)
+                .build();
+        when(recipeImageRepository.findByContentHash(hash)).thenReturn(Optional.of(reaped));
+        // Sprzątanie usunęło wpis między odczytem a zwiększeniem licznika
+        when(recipeImageRepository.incrementReferenceCount(reaped.getImageUrl())).thenReturn(0);
+
+        // when
+        RecipeImagePipeline.StoredImage stored = pipeline.store(new ByteArrayInputStream(image), "image/png");
+
+        // then
+        assertThat(stored.deduplicated()).isFalse();
+        assertThat(Files.readAllBytes(blobStore.resolve(storagePath))).isEqualTo(image);
+        assertThat(blobStore.countFiles("recipes/staging")).isZero();
+
+        ArgumentCaptor<RecipeImageReference> referenceCaptor = ArgumentCaptor.forClass(RecipeImageReference.class);
+        verify(recipeImageRepository).save(referenceCaptor.capture());
+        assertThat(referenceCaptor.getValue().getReferenceCount()).isEqualTo(1);
+    }
+
+    @Test
+    void store_WhenContentIsNotAnImage_ShouldStoreFileWithoutThumbnail() throws Exception {
+        // given
+        byte[] content = "to nie jest obraz".getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(content);
+        when(recipeImageRepository.findByContentHash(hash)).thenReturn(Optional.empty());
+
+        // when
+        RecipeImagePipeline.StoredImage stored = pipeline.store(new ByteArrayInputStream(content), "image/jpeg");
+
+        // then
+        assertThat(stored.storagePath()).isEqualTo("recipes/images/" + hash + ".jpg");
+        assertThat(blobStore.exists(stored.storagePath())).isTrue();
+        assertThat(blobStore.countFiles("recipes/thumbnails")).isZero();
+        verify(recipeImageRepository, never()).updateThumbnailPath(any(), any());
+    }
+
+    @Test
+    void store_NewImage_ShouldMoveFileAndSaveReferenceUnderFileLock() throws Exception {
+        // given
+        byte[] image = createPng(10, 10);
+        String hash = sha256(image);
+        String storagePath = "recipes/images/" + hash + ".png";
+        when(recipeImageRepository.findByContentHash(hash)).thenReturn(Optional.empty());
+        doAnswer(invocation -> {
+            // Blokada zajęta przed przeniesieniem pliku
+            assertThat(blobStore.exists(storagePath)).isFalse();
+            return null;
+        }).when(recipeImageRepository).lockImageFiles(List.of(storagePath));
+
+        // when
+        pipeline.store(new ByteArrayInputStream(image), "image/png");
+
+        // then
+        InOrder inOrder = inOrder(transactionManager, recipeImageRepository);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(recipeImageRepository).lockImageFiles(List.of(storagePath));
+        inOrder.verify(recipeImageRepository).save(any(RecipeImageReference.class));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void store_WhenConcurrentUploadSavedReference_ShouldRollBackAndReuseIt() throws Exception {
+        // given
+        byte[] image = createPng(10, 10);
+        String hash = sha256(image);
+        RecipeImageReference concurrent = RecipeImageReference.builder()
+                .imageUrl(blobStore.publicUrl("recipes/images/" + hash + ".png"))
+                .storagePath("recipes/images/" + hash + ".png")
+                .contentHash(hash)
+                .referenceCount(1)
+                .build();
+        when(recipeImageRepository.findByContentHash(hash))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(concurrent));
+        when(recipeImageRepository.save(any(RecipeImageReference.class))).thenThrow(new RuntimeException("duplikat"));
+        when(recipeImageRepository.incrementReferenceCount(concurrent.getImageUrl())).thenReturn(1);
+
+        // when
+        RecipeImagePipeline.StoredImage stored = pipeline.store(new ByteArrayInputStream(image), "image/png");
+
+        // then
+        assertThat(stored.deduplicated()).isTrue();
+        assertThat(blobStore.exists(concurrent.getStoragePath())).isTrue();
+        // Zapis wpisu nie powiódł się - transakcja kończy się wycofaniem
+        verify(transactionManager).commit(argThat(TransactionStatus::isRollbackOnly));
+    }
+
+    @Test
+    void store_WhenMoveFails_ShouldDeleteStagingFile() throws Exception {
+        // given
+        LocalFileImageBlobStore failingStore = spy(blobStore);
+        doThrow(new IOException("Magazyn niedostępny")).when(failingStore).move(any(), any(), any());
+        pipeline = new RecipeImagePipeline(failingStore, recipeImageRepository, new SyncTaskExecutor(),
+                new TransactionTemplate(transactionManager));
+        byte[] image = createPng(10, 10);
+        when(recipeImageRepository.findByContentHash(sha256(image))).thenReturn(Optional.empty());
+
+        // when / then
+        assertThatThrownBy(() -> pipeline.store(new ByteArrayInputStream(image), "image/png"))
+                .isInstanceOf(IOException.class);
+        assertThat(blobStore.countFiles("recipes/staging")).isZero();
+        verify(recipeImageRepository, never()).save(any(RecipeImageReference.class));
+    }
+
+    @Test
+    void storeTemporary_ShouldStreamContentUnderTempPrefix() throws Exception {
+        // given
+        byte[] image = createPng(10, 10);
+
+        // when
+        RecipeImagePipeline.StoredTemporaryImage stored = pipeline.storeTemporary(new ByteArrayInputStream(image), "image/png");
+
+        // then
+        assertThat(stored.storagePath()).startsWith(ImageStoragePaths.TEMP_IMAGES_PREFIX).endsWith(".png");
+        assertThat(stored.imageUrl()).isEqualTo(blobStore.publicUrl(stored.storagePath()));
+        assertThat(stored.sizeBytes()).isEqualTo(image.length);
+        assertThat(Files.readAllBytes(blobStore.resolve(stored.storagePath()))).isEqualTo(image);
+        verifyNoInteractions(recipeImageRepository);
+    }
+
+    @Test
+    void storeTemporary_WhenUploadFails_ShouldDeletePartialFile() throws Exception {
+        // given
+        InputStream failing = new SequenceInputStream(new ByteArrayInputStream(createPng(10, 10)), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Przerwane przesyłanie");
+            }
+        });
+
+        // when / then
+        assertThatThrownBy(() -> pipeline.storeTemporary(failing, "image/png"))
+                .isInstanceOf(IOException.class);
+        assertThat(blobStore.countFiles("temp-recipes/images")).isZero();
+    }
+
+    @Test
+    void downscale_ShouldKeepAspectRatioAndNotEnlargeSmallImages() {
+        // given
+        BufferedImage portrait = new BufferedImage(1000, 3000, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage small = new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB);
+
+        // when
+        BufferedImage scaledPortrait = RecipeImagePipeline.downscale(portrait, 320);
+        BufferedImage scaledSmall = RecipeImagePipeline.downscale(small, 320);
+
+        // then
+        assertThat(scaledPortrait.getWidth()).isEqualTo(107);
+        assertThat(scaledPortrait.getHeight()).isEqualTo(320);
+        assertThat(scaledSmall.getWidth()).isEqualTo(100);
+        assertThat(scaledSmall.getHeight()).isEqualTo(50);
+        assertThat(scaledSmall.getType()).isEqualTo(BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static byte[] createPng(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
@@ -0,0 +1,186 @@
+package com.noisevisionsoftware.nutrilog.service.image;
+
+import com.noisevisionsoftware.nutrilog.model.recipe.TemporaryImage;
+import com.noisevisionsoftware.nutrilog.repository.recipe.TemporaryImageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TemporaryImageServiceTest {
+
+    private static final String TEMP_URL = "https://storage.googleapis.com/bucket/temp-recipes/images/a.jpg";
+
+    @Mock
+    private RecipeImagePipeline recipeImagePipeline;
+
+    @Mock
+    private ImageBlobStore blobStore;
+
+    @Mock
+    private TemporaryImageRepository temporaryImageRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TemporaryImageService temporaryImageService;
+
+    @BeforeEach
+    void setUp() {
+        temporaryImageService = new TemporaryImageService(recipeImagePipeline, blobStore, temporaryImageRepository,
+                new TransactionTemplate(transactionManager));
+    }
+
+    @Test
+    void upload_ShouldStoreImageAndRecordItWithSize() throws Exception {
+        // given
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        when(recipeImagePipeline.storeTemporary(content, "image/jpeg"))
+                .thenReturn(new RecipeImagePipeline.StoredTemporaryImage(TEMP_URL, "temp-recipes/images/a.jpg", 3));
+
+        // when
+        String imageUrl = temporaryImageService.upload(content, "image/jpeg");
+
+        // then
+        ArgumentCaptor<TemporaryImage> imageCaptor = ArgumentCaptor.forClass(TemporaryImage.class);
+        verify(temporaryImageRepository).save(imageCaptor.capture());
+        assertThat(imageCaptor.getValue().getImageUrl()).isEqualTo(TEMP_URL);
+        assertThat(imageCaptor.getValue().getStoragePath()).isEqualTo("temp-recipes/images/a.jpg");
+        assertThat(imageCaptor.getValue().getSizeBytes()).isEqualTo(3);
+        assertThat(imageUrl).isEqualTo(TEMP_URL);
+        assertThat(temporaryImageService.getStatistics()).containsEntry("uploadedCount", 1L);
+    }
+
+    @Test
+    void promote_ShouldRemoveOnlyTemporaryUrls() {
+        // given
+        when(temporaryImageRepository.deleteByImageUrls(Set.of(TEMP_URL))).thenReturn(1);
+
+        // when
+        temporaryImageService.promote(List.of(TEMP_URL,
+                "https://storage.googleapis.com/bucket/recipes/images/" + "a".repeat(64) + ".jpg",
+                TEMP_URL));
+
+        // then
+        verify(temporaryImageRepository).deleteByImageUrls(Set.of(TEMP_URL));
+        assertThat(temporaryImageService.getStatistics()).containsEntry("promotedCount", 1L);
+    }
+
+    @Test
+    void promote_WhenNoTemporaryUrls_ShouldNotQueryRepository() {
+        // when
+        temporaryImageService.promote(List.of("photo1.jpg"));
+        temporaryImageService.promote(null);
+
+        // then
+        verifyNoInteractions(temporaryImageRepository);
+    }
+
+    @Test
+    void expireTemporaryImages_ShouldDeleteExpiredImagesInBatchesAndRecordReclaimedBytes() {
+        // given
+        List<TemporaryImage> fullBatch = images(0, TemporaryImageService.EXPIRY_BATCH_SIZE);
+        List<TemporaryImage> lastBatch = images(TemporaryImageService.EXPIRY_BATCH_SIZE, 3);
+        when(temporaryImageRepository.tryLockExpiry()).thenReturn(true);
+        when(temporaryImageRepository.deleteCreatedBefore(any(LocalDateTime.class), eq(TemporaryImageService.EXPIRY_BATCH_SIZE)))
+                .thenReturn(fullBatch)
+                .thenReturn(lastBatch);
+        when(blobStore.deleteAll(anyCollection())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).size());
+
+        // when
+        temporaryImageService.expireTemporaryImages();
+
+        // then
+        verify(temporaryImageRepository, times(2)).deleteCreatedBefore(any(LocalDateTime.class), anyInt());
+        verify(blobStore, times(2)).deleteAll(anyCollection());
+        verify(transactionManager, times(2)).commit(any());
+
+        long expectedCount = TemporaryImageService.EXPIRY_BATCH_SIZE + 3;
+        Map<String, Object> statistics = temporaryImageService.getStatistics();
+        assertThat(statistics)
+                .containsEntry("reclaimedCount", expectedCount)
+                .containsEntry("reclaimedBytes", expectedCount * 100)
+                .containsEntry("lastExpiryReclaimedCount", expectedCount);
+        assertThat(statistics.get("lastExpiryAt")).isNotNull();
+    }
+
+    @Test
+    void expireTemporaryImages_ShouldDeleteRecordsBeforeFilesAndOnlyReturnedFiles() {
+        // given
+        // Zdjęcie "1" użyte w międzyczasie (promote) - zapytanie zwraca tylko "0"
+        when(temporaryImageRepository.tryLockExpiry()).thenReturn(true);
+        when(temporaryImageRepository.deleteCreatedBefore(any(LocalDateTime.class), anyInt())).thenReturn(images(0, 1));
+        when(blobStore.deleteAll(anyCollection())).thenReturn(1);
+
+        // when
+        temporaryImageService.expireTemporaryImages();
+
+        // then
+        InOrder inOrder = inOrder(temporaryImageRepository, transactionManager, blobStore);
+        inOrder.verify(temporaryImageRepository).deleteCreatedBefore(any(LocalDateTime.class), anyInt());
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(blobStore).deleteAll(List.of("temp-recipes/images/0.jpg"));
+    }
+
+    @Test
+    void expireTemporaryImages_WhenLockIsHeldByAnotherInstance_ShouldSkip() {
+        // given
+        when(temporaryImageRepository.tryLockExpiry()).thenReturn(false);
+
+        // when
+        temporaryImageService.expireTemporaryImages();
+
+        // then
+        verify(temporaryImageRepository, never()).deleteCreatedBefore(any(LocalDateTime.class), anyInt());
+        verifyNoInteractions(blobStore);
+    }
+
+    @Test
+    void expireTemporaryImages_WhenStorageFails_ShouldCountDeletedRecordsAndFailure() {
+        // given
+        when(temporaryImageRepository.tryLockExpiry()).thenReturn(true);
+        when(temporaryImageRepository.deleteCreatedBefore(any(LocalDateTime.class), anyInt()))
+                .thenReturn(images(0, 2));
+        when(blobStore.deleteAll(anyCollection())).thenThrow(new RuntimeException("Storage niedostępny"));
+
+        // when
+        temporaryImageService.expireTemporaryImages();
+
+        // then
+        assertThat(temporaryImageService.getStatistics())
+                .containsEntry("reclaimedCount", 2L)
+                .containsEntry("reclaimedBytes", 200L)
+                .containsEntry("fileDeleteFailureCount", 1L);
+    }
+
+    private static List<TemporaryImage> images(int firstId, int count) {
+        return new ArrayList<>(IntStream.range(firstId, firstId + count)
+                .mapToObj(id -> TemporaryImage.builder()
+                        .id(String.valueOf(id))
+                        .imageUrl("https://storage.googleapis.com/bucket/temp-recipes/images/" + id + ".jpg")
+                        .storagePath("temp-recipes/images/" + id + ".jpg")
+                        .sizeBytes(100)
+                        .createdAt(LocalDateTime.now().minusDays(30))
+                        .build())
+                .toList());
+    }
+}
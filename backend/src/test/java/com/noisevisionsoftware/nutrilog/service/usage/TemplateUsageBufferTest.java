@@ -0,0 +1,203 @@
+package com.noisevisionsoftware.nutrilog.service.usage;
+
+import com.google.cloud.Timestamp;
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageDelta;
+import com.noisevisionsoftware.nutrilog.model.usage.TemplateUsageKind;
+import com.noisevisionsoftware.nutrilog.repository.usage.TemplateUsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TemplateUsageBufferTest {
+
+    @Mock
+    private TemplateUsageRepository templateUsageRepository;
+
+    private TemplateUsageBuffer templateUsageBuffer;
+
+    @BeforeEach
+    void setUp() {
+        templateUsageBuffer = new TemplateUsageBuffer(templateUsageRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldWriteAllPendingUsagesInOneCallPerKind() {
+        // given
+        templateUsageBuffer.record(TemplateUsageKind.MEAL_TEMPLATE, "m1");
+        templateUsageBuffer.record(TemplateUsageKind.MEAL_TEMPLATE, "m1");
+        templateUsageBuffer.record(TemplateUsageKind.MEAL_TEMPLATE, "m2");
+        templateUsageBuffer.record(TemplateUsageKind.DIET_TEMPLATE, "d1");
+        templateUsageBuffer.record(TemplateUsageKind.DIET_TEMPLATE, null);
+
+        // when
+        templateUsageBuffer.flush();
+
+        // then
+        ArgumentCaptor<List<TemplateUsageDelta>> mealDeltas = ArgumentCaptor.forClass(List.class);
+        verify(templateUsageRepository).applyUsageDeltas(eq(TemplateUsageKind.MEAL_TEMPLATE), mealDeltas.capture());
+        assertThat(mealDeltas.getValue())
+                .extracting(TemplateUsageDelta::templateId, TemplateUsageDelta::count)
+                .containsExactlyInAnyOrder(tuple("m1", 2L), tuple("m2", 1L));
+        assertThat(mealDeltas.getValue()).allSatisfy(delta -> assertThat(delta.lastUsed()).isNotNull());
+
+        ArgumentCaptor<List<TemplateUsageDelta>> dietDeltas = ArgumentCaptor.forClass(List.class);
+        verify(templateUsageRepository).applyUsageDeltas(eq(TemplateUsageKind.DIET_TEMPLATE), dietDeltas.capture());
+        assertThat(dietDeltas.getValue())
+                .extracting(TemplateUsageDelta::templateId, TemplateUsageDelta::count)
+                .containsExactly(tuple("d1", 1L));
+
+        assertThat(templateUsageBuffer.pending(TemplateUsageKind.MEAL_TEMPLATE)).isEmpty();
+    }
+
+    @Test
+    void flush_WithNothingPending_ShouldNotQueryDatabase() {
+        // given
+        templateUsageBuffer.record(TemplateUsageKind.MEAL_TEMPLATE, "m1");
+        templateUsageBuffer.flush();
+        clearInvocations(templateUsageRepository);
+
+        // when
+        templateUsageBuffer.flush();
+
+        // then
+        verifyNoInteractions(templateUsageRepository);
+    }
+
+    @Test
+    void flush_ShouldRemoveCountersOfFlushedTemplates() {
+        // given
+        for (int i = 0; i < 100; i++) {
+            templateUsageBuffer.record(TemplateUsageKind.DIET_TEMPLATE, "nieistniejacy-" + i);
+        }
+        assertThat(templateUsageBuffer.getStatistics()).containsEntry("counters.DIET_TEMPLATE", 100);
+
+        // when
+        templateUsageBuffer.flush();
+        templateUsageBuffer.record(TemplateUsageKind.DIET_TEMPLATE, "nieistniejacy-0");
+
+        // then
+        assertThat(templateUsageBuffer.getStatistics()).containsEntry("counters.DIET_TEMPLATE", 1);
+        assertThat(templateUsageBuffer.pending(TemplateUsageKind.DIET_TEMPLATE).get("nieistniejacy-0").count()).isEqualTo(1);
+    }
+
+    @Test
+    void flush_WhenDatabaseFails_ShouldKeepCountersForNextFlush() {
+        // given
+        templateUsageBuffer.record(TemplateUsageKind.MEAL_TEMPLATE, "m1");
+        when(templateUsageRepository.applyUsageDeltas(eq(TemplateUsageKind.MEAL_TEMPLATE), anyList()))
+                .thenThrow(new RuntimeException("Baza niedostępna"));
+
+        // when
+        templateUsageBuffer.flush();
+
+        // then
+        assertThat(templateUsageBuffer.getStatistics()).containsEntry("counters.MEAL_TEMPLATE", 1);
+    }
+
+    @Test
+    void flush_WhenDatabaseFails_ShouldKeepUsagesForNextFlush() {
+        // given
+        templateUsageBuffer.record(TemplateUsageKind.MEAL_TEMPLATE, "m1");
+        when(templateUsageRepository.applyUsageDeltas(eq(TemplateUsageKind.MEAL_TEMPLATE), anyList()))
+                .thenThrow(new RuntimeException("Baza niedostępna"))
+                .thenReturn(1);
+
+        // when
+        templateUsageBuffer.flush();
+        Map<String, TemplateUsageBuffer.PendingUsage> pendingAfterFailure = templateUsageBuffer.pending(TemplateUsageKind.MEAL_TEMPLATE);
+        templateUsageBuffer.record(TemplateUsageKind.MEAL_TEMPLATE, "m1");
+        templateUsageBuffer.flush();
+
+        // then
+        assertThat(pendingAfterFailure.get("m1").count()).isEqualTo(1);
+        assertThat(templateUsageBuffer.pending(TemplateUsageKind.MEAL_TEMPLATE)).isEmpty();
+        assertThat(templateUsageBuffer.getStatistics()).containsEntry("failedFlushCount", 1L);
+        assertThat(captureAllDeltas(TemplateUsageKind.MEAL_TEMPLATE).getAllValues())
+                .extracting(deltas -> deltas.get(0).count())
+                .containsExactly(1L, 2L);
+    }
+
+    @Test
+    void record_FromManyThreads_ShouldNotLoseUsages() throws Exception {
+        // given
+        int threads = 8;
+        int usagesPerThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // when
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < usagesPerThread; j++) {
+                    templateUsageBuffer.record(TemplateUsageKind.DIET_TEMPLATE, "hot");
+                    if (j % 1000 == 0) {
+                        templateUsageBuffer.flush();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        templateUsageBuffer.flush();
+
+        // then
+        ArgumentCaptor<List<TemplateUsageDelta>> deltas = captureAllDeltas(TemplateUsageKind.DIET_TEMPLATE);
+        long flushed = deltas.getAllValues().stream()
+                .flatMap(List::stream)
+                .mapToLong(TemplateUsageDelta::count)
+                .sum();
+        assertThat(flushed).isEqualTo((long) threads * usagesPerThread);
+        assertThat(templateUsageBuffer.getStatistics()).containsEntry("counters.DIET_TEMPLATE", 0);
+    }
+
+    @Test
+    void shutdown_ShouldFlushPendingUsages() {
+        // given
+        templateUsageBuffer.record(TemplateUsageKind.DIET_TEMPLATE, "d1");
+
+        // when
+        templateUsageBuffer.shutdown();
+
+        // then
+        verify(templateUsageRepository).applyUsageDeltas(eq(TemplateUsageKind.DIET_TEMPLATE), anyList());
+        assertThat(templateUsageBuffer.pending(TemplateUsageKind.DIET_TEMPLATE)).isEmpty();
+    }
+
+    @Test
+    void pendingUsage_ShouldAddCountAndKeepLatestLastUsed() {
+        // given
+        Timestamp older = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0);
+        Timestamp newer = Timestamp.ofTimeSecondsAndNanos(1_800_000_000L, 0);
+        TemplateUsageBuffer.PendingUsage usage = new TemplateUsageBuffer.PendingUsage(3, 1_750_000_000_000L);
+
+        // when / then
+        assertThat(usage.addToUsageCount(4)).isEqualTo(7);
+        assertThat(usage.addToUsageCount(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(usage.mergeLastUsed(older)).isEqualTo(Timestamp.ofTimeSecondsAndNanos(1_750_000_000L, 0));
+        assertThat(usage.mergeLastUsed(newer)).isEqualTo(newer);
+        assertThat(usage.mergeLastUsed(null)).isNotNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArgumentCaptor<List<TemplateUsageDelta>> captureAllDeltas(TemplateUsageKind kind) {
+        ArgumentCaptor<List<TemplateUsageDelta>> captor = ArgumentCaptor.forClass(List.class);
+        verify(templateUsageRepository, atLeastOnce()).applyUsageDeltas(eq(kind), captor.capture());
+        return captor;
+    }
+}
@@ -0,0 +1,53 @@
+package com.noisevisionsoftware.nutrilog.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CharSequenceInputStreamTest {
+
+    @Test
+    void read_ShouldReturnOnlyRequestedFragment() throws IOException {
+        // given
+        InputStream stream = new CharSequenceInputStream("prefix,abc", 7, 10);
+
+        // when
+        byte[] result = stream.readAllBytes();
+
+        // then
+        assertArrayEquals("abc".getBytes(StandardCharsets.US_ASCII), result);
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    void read_WrappedByBase64Decoder_ShouldDecodeLargePayload() throws IOException {
+        // given
+        byte[] original = new byte[200_000];
+        for (int i = 0; i < original.length; i++) {
+            original[i] = (byte) (i * 31);
+        }
+        String dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(original);
+        int start = dataUrl.indexOf(',') + 1;
+
+        // when
+        byte[] decoded;
+        try (InputStream in = Base64.getDecoder().wrap(new CharSequenceInputStream(dataUrl, start, dataUrl.length()))) {
+            decoded = in.readAllBytes();
+        }
+
+        // then
+        assertArrayEquals(original, decoded);
+    }
+
+    @Test
+    void constructor_WithRangeOutsideText_ShouldThrowException() {
+        assertThrows(IndexOutOfBoundsException.class, () -> new CharSequenceInputStream("abc", 2, 4));
+    }
+}
@@ -0,0 +1,89 @@
+package com.noisevisionsoftware.nutrilog.utils;
+
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevenshteinSimilarityTest {
+
+    @Test
+    void distance_ShouldMatchKnownValues() {
+        assertEquals(0, LevenshteinSimilarity.distance("", ""));
+        assertEquals(5, LevenshteinSimilarity.distance("", "mleko"));
+        assertEquals(1, LevenshteinSimilarity.distance("mleko", "mlekoo"));
+        assertEquals(3, LevenshteinSimilarity.distance("kitten", "sitting"));
+        assertEquals(2, LevenshteinSimilarity.distance("jabłko", "jabłka!"));
+    }
+
+    @Test
+    void boundedDistance_WhenDistanceExceedsLimit_ShouldReturnMinusOne() {
+        // when
+        int withinLimit = LevenshteinSimilarity.boundedDistance("kitten", "sitting", 3);
+        int aboveLimit = LevenshteinSimilarity.boundedDistance("kitten", "sitting", 2);
+        int lengthDifference = LevenshteinSimilarity.boundedDistance("ser", "serek wiejski", 5);
+
+        // then
+        assertEquals(3, withinLimit);
+        assertEquals(-1, aboveLimit);
+        assertEquals(-1, lengthDifference);
+    }
+
+    @Test
+    void similarity_WithThreshold_ShouldReturnZeroBelowThreshold() {
+        // when
+        double similar = LevenshteinSimilarity.similarity("mleko", "mlekoo", 0.75);
+        double notSimilar = LevenshteinSimilarity.similarity("mleko", "masło", 0.75);
+
+        // then
+        assertEquals(1.0 - 1.0 / 6, similar, 1e-9);
+        assertEquals(0.0, notSimilar);
+    }
+
+    @Test
+    void boundedDistance_ShouldMatchFullMatrixForRandomInputs() {
+        // given
+        Random random = new Random(42);
+        LevenshteinDistance reference = LevenshteinDistance.getDefaultInstance();
+
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomText(random);
+            String b = randomText(random);
+            int expected = reference.apply(a, b);
+            int limit = random.nextInt(10);
+
+            // when
+            int distance = LevenshteinSimilarity.distance(a, b);
+            int bounded = LevenshteinSimilarity.boundedDistance(a, b, limit);
+
+            // then
+            assertEquals(expected, distance, a + " / " + b);
+            assertEquals(expected <= limit ? expected : -1, bounded, a + " / " + b + " / " + limit);
+        }
+    }
+
+    @Test
+    void similarities_ShouldScoreQueryAgainstAllCandidates() {
+        // given
+        List<String> candidates = Arrays.asList("mleko", "mlekoo", "masło", null, "");
+
+        // when
+        double[] result = LevenshteinSimilarity.similarities("mleko", candidates, 0.75);
+
+        // then
+        assertArrayEquals(new double[]{1.0, 1.0 - 1.0 / 6, 0.0, 0.0, 0.0}, result, 1e-9);
+    }
+
+    private static String randomText(Random random) {
+        int length = random.nextInt(15);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append("abcłż".charAt(random.nextInt(5)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.noisevisionsoftware.nutrilog.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NameSuffixIndexTest {
+
+    private NameSuffixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NameSuffixIndex();
+        index.put(entry("1", "Owsianka z jabłkiem", 5, true, "dietitian-a"));
+        index.put(entry("2", "Owsianka", 1, false, "dietitian-b"));
+        index.put(entry("3", "Jaglanka owsiana", 50, true, "dietitian-a"));
+        index.put(entry("4", "Zupa pomidorowa", 80, true, "dietitian-a"));
+    }
+
+    @Test
+    void search_ShouldRankExactThenPrefixThenWordStartThenUsage() {
+        // when
+        List<String> results = index.search("OWSIAN", entry -> true, 10);
+
+        // then
+        assertThat(results).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    void search_ShouldMatchInfixAndRespectLimitByUsage() {
+        // when
+        List<String> results = index.search("anka", entry -> true, 2);
+
+        // then
+        assertThat(results).containsExactly("3", "1");
+    }
+
+    @Test
+    void search_ShouldApplyVisibilityFilter() {
+        // when
+        List<String> asOwner = index.search("owsianka", entry -> entry.isPublic() || "dietitian-b".equals(entry.ownerId()), 10);
+        List<String> asOther = index.search("owsianka", entry -> entry.isPublic() || "dietitian-c".equals(entry.ownerId()), 10);
+
+        // then
+        assertThat(asOwner).containsExactly("2", "1");
+        assertThat(asOther).containsExactly("1");
+    }
+
+    @Test
+    void put_WithRenamedEntry_ShouldReplaceOldName() {
+        // when
+        index.put(entry("4", "Krem z dyni", 80, true, "dietitian-a"));
+
+        // then
+        assertThat(index.search("pomidor", entry -> true, 10)).isEmpty();
+        assertThat(index.search("dyni", entry -> true, 10)).containsExactly("4");
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void remove_ShouldDropEntryFromResults() {
+        // when
+        index.remove("3");
+        index.remove("missing");
+
+        // then
+        assertThat(index.search("owsian", entry -> true, 10)).containsExactly("1", "2");
+        assertThat(index.get("3")).isEmpty();
+    }
+
+    @Test
+    void search_WithQueryLongerThanKey_ShouldStillMatch() {
+        // given
+        index.put(entry("5", "Sałatka z pieczonym burakiem, kozim serem i orzechami", 0, true, null));
+
+        // when
+        List<String> results = index.search("z pieczonym burakiem, kozim serem", entry -> true, 10);
+
+        // then
+        assertThat(results).containsExactly("5");
+    }
+
+    @Test
+    void search_ShouldReturnSameMatchesAsContainsScan() {
+        // given
+        Random random = new Random(42);
+        String[] words = {"owsianka", "zupa", "krem", "sałatka", "jabłko", "dynia", "ser", "makaron", "ryż"};
+        NameSuffixIndex randomIndex = new NameSuffixIndex();
+        List<String> names = IntStream.range(0, 300)
+                .mapToObj(i -> words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + i)
+                .toList();
+        for (int i = 0; i < names.size(); i++) {
+            randomIndex.put(new NameSuffixIndex.Entry(String.valueOf(i), names.get(i), 0, 0, true, null));
+        }
+
+        for (String query : List.of("ka", "zupa", "a d", "ser 1", "ż", "nie ma")) {
+            // when
+            List<String> results = randomIndex.search(query, entry -> true, Integer.MAX_VALUE - 1);
+
+            // then
+            assertThat(results).containsExactlyInAnyOrderElementsOf(IntStream.range(0, names.size())
+                    .filter(i -> names.get(i).toLowerCase(Locale.ROOT).contains(query))
+                    .mapToObj(String::valueOf)
+                    .toList());
+        }
+    }
+
+    private static NameSuffixIndex.Entry entry(String id, String name, int usageCount, boolean isPublic, String ownerId) {
+        return new NameSuffixIndex.Entry(id, name, usageCount, 0, isPublic, ownerId);
+    }
+}
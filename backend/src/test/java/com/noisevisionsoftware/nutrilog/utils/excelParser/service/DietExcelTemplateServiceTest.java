@@ -7,6 +7,8 @@ import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedMeal;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.validation.ValidationResult;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.model.validation.ValidationSeverity;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.session.UploadSession;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.session.UploadSessionService;
 import com.noisevisionsoftware.nutrilog.utils.excelParser.service.validation.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,14 +23,11 @@ import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class DietExcelTemplateServiceTest {
 
-    @Mock
-    private ExcelStructureValidator excelStructureValidator;
-
     @Mock
     private MealsPerDayValidator mealsPerDayValidator;
 
@@ -39,7 +38,7 @@ class DietExcelTemplateServiceTest {
     private MealsConfigValidator mealsConfigValidator;
 
     @Mock
-    private ExcelParserService excelParserService;
+    private UploadSessionService uploadSessionService;
 
     @Mock
     private ValidationCacheService cacheService;
@@ -47,6 +46,8 @@ class DietExcelTemplateServiceTest {
     @InjectMocks
     private DietExcelTemplateService dietExcelTemplateService;
 
+    private static final String OWNER = "dietetyk-1";
+
     private DietTemplateExcelRequest validRequest;
 
     @BeforeEach
@@ -90,7 +91,7 @@ class DietExcelTemplateServiceTest {
         when(cacheService.getFromCache(cacheKey)).thenReturn(Optional.of(cachedResponse));
 
         // when
-        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest);
+        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest, null, OWNER);
 
         // then
         assertThat(result).isNotNull();
@@ -103,7 +104,7 @@ class DietExcelTemplateServiceTest {
         validRequest.setFile(new MockMultipartFile("file", new byte[0]));
 
         // when
-        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest);
+        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest, null, OWNER);
 
         // then
         assertThat(result).isNotNull();
@@ -118,7 +119,7 @@ class DietExcelTemplateServiceTest {
         validRequest.setMealsPerDay(11); // przekroczony limit 10 posiłków
 
         // when
-        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest);
+        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest, null, OWNER);
 
         // then
         assertThat(result).isNotNull();
@@ -130,8 +131,9 @@ class DietExcelTemplateServiceTest {
     @Test
     void shouldSucceedWithValidRequest() throws IOException {
         // given
-        when(excelStructureValidator.validateExcelStructure(any()))
-                .thenReturn(Collections.singletonList(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS)));
+        UploadSession session = createSession(
+                Collections.singletonList(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS)));
+        when(uploadSessionService.openSession(any(), any())).thenReturn(session);
 
         // Tworzenie przykładowej listy posiłków
         List<ParsedMeal> meals = new ArrayList<>();
@@ -139,7 +141,7 @@ class DietExcelTemplateServiceTest {
         // Tworzenie przykładowej listy zakupów
         List<Map.Entry<String, ParsedProduct>> shoppingList = new ArrayList<>();
 
-        when(excelParserService.parseDietExcel(any()))
+        when(uploadSessionService.getParseResult(eq(session), any()))
                 .thenReturn(new ExcelParserService.ParsedExcelResult(
                         meals,
                         3,
@@ -156,7 +158,7 @@ class DietExcelTemplateServiceTest {
                 .thenReturn(Collections.singletonList(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS)));
 
         // when
-        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest);
+        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest, null, OWNER);
 
         // then
         assertThat(result).isNotNull();
@@ -166,15 +168,15 @@ class DietExcelTemplateServiceTest {
     }
 
     @Test
-    void shouldFailWhenExcelStructureValidationFails() {
+    void shouldFailWhenExcelStructureValidationFails() throws IOException {
         // given
-        when(excelStructureValidator.validateExcelStructure(any()))
-                .thenReturn(Collections.singletonList(
+        when(uploadSessionService.openSession(any(), any()))
+                .thenReturn(createSession(Collections.singletonList(
                         new ValidationResult(false, "Niepoprawna struktura Excel", ValidationSeverity.ERROR)
-                ));
+                )));
 
         // when
-        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest);
+        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest, null, OWNER);
 
         // then
         assertThat(result).isNotNull();
@@ -184,13 +186,13 @@ class DietExcelTemplateServiceTest {
     }
 
     @Test
-    void shouldHandleExceptionDuringValidation() {
+    void shouldHandleExceptionDuringValidation() throws IOException {
         // given
-        when(excelStructureValidator.validateExcelStructure(any()))
+        when(uploadSessionService.openSession(any(), any()))
                 .thenThrow(new RuntimeException("Nieoczekiwany błąd"));
 
         // when
-        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest);
+        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest, null, OWNER);
 
         // then
         assertThat(result).isNotNull();
@@ -198,4 +200,77 @@ class DietExcelTemplateServiceTest {
         assertThat(result.getValidationResults())
                 .anyMatch(vr -> vr.message().contains("Wystąpił nieoczekiwany błąd"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldUseExistingUploadSessionWithoutFile() throws IOException {
+        // given
+        UploadSession session = createSession(
+                Collections.singletonList(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS)));
+        validRequest.setFile(null);
+        validRequest.setUploadSessionId(session.getId());
+
+        when(uploadSessionService.findSession(session.getId(), OWNER)).thenReturn(Optional.of(session));
+        when(uploadSessionService.getParseResult(eq(session), any()))
+                .thenReturn(new ExcelParserService.ParsedExcelResult(new ArrayList<>(), 3, new ArrayList<>()));
+        when(mealsPerDayValidator.validateMealsCount(anyInt(), anyInt()))
+                .thenReturn(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS));
+        when(dateValidator.validateDate(anyString(), anyInt(), anyInt(), anyInt()))
+                .thenReturn(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS));
+        when(mealsConfigValidator.validateMealConfig(anyMap(), anyList()))
+                .thenReturn(Collections.singletonList(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS)));
+
+        // when
+        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest, null, OWNER);
+
+        // then
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getAdditionalData()).containsEntry("uploadSessionId", session.getId());
+        verify(uploadSessionService, never()).openSession(any());
+    }
+
+    @Test
+    void shouldFailWhenUploadSessionExpired() {
+        // given
+        validRequest.setFile(null);
+        validRequest.setUploadSessionId("expired-session");
+        when(uploadSessionService.findSession("expired-session", OWNER)).thenReturn(Optional.empty());
+
+        // when
+        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest, null, OWNER);
+
+        // then
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getValidationResults())
+                .anyMatch(vr -> vr.message().contains("Sesja przesyłania pliku wygasła"));
+    }
+
+    @Test
+    void shouldNotReturnCachedResponseForUploadSessionOfAnotherUser() {
+        // given
+        validRequest.setFile(null);
+        validRequest.setUploadSessionId("session-of-another-user");
+        when(uploadSessionService.findSession("session-of-another-user", OWNER)).thenReturn(Optional.empty());
+
+        // when
+        ValidationResponse result = dietExcelTemplateService.validateDietTemplate(validRequest, null, OWNER);
+
+        // then
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getValidationResults())
+                .anyMatch(vr -> vr.message().contains("Sesja przesyłania pliku wygasła"));
+        verifyNoInteractions(cacheService);
+    }
+
+    private UploadSession createSession(List<ValidationResult> structureValidation) {
+        UploadSession session = new UploadSession(
+                UUID.randomUUID().toString(),
+                OWNER,
+                "hash",
+                "test.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                "test content".getBytes()
+        );
+        session.setStructureValidation(structureValidation);
+        return session;
+    }
+}
@@ -10,23 +10,26 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NoOpCacheManager;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ExcelParserServiceTest {
@@ -40,9 +43,15 @@ class ExcelParserServiceTest {
     @Mock
     private ExcelParserConfig excelParserConfig;
 
-    @InjectMocks
     private ExcelParserService excelParserService;
 
+    @BeforeEach
+    void setUp() {
+        ParsedProductCacheService parsedProductCacheService =
+                new ParsedProductCacheService(productParsingService, categorizationService, new NoOpCacheManager());
+        excelParserService = new ExcelParserService(parsedProductCacheService, categorizationService, excelParserConfig);
+    }
+
     private MultipartFile createMockExcelFile() throws IOException {
         Workbook workbook = new XSSFWorkbook();
         Sheet sheet = workbook.createSheet("DietTemplate");
@@ -277,7 +286,8 @@ class ExcelParserServiceTest {
         assertEquals(ingredient, result.getOriginal());
         assertEquals("pieczywo", result.getCategoryId());
 
-        verify(categorizationService).updateCategorization(any(ParsedProduct.class));
+        // Kategorie są zapisywane raz po przeczytaniu całego pliku, a nie przy każdym składniku
+        verify(categorizationService, never()).updateCategorizations(any());
     }
 
     @Test
@@ -353,6 +363,32 @@ class ExcelParserServiceTest {
         assertEquals(60.0, firstMeal.getNutritionalValues().getCarbs());
     }
 
+    @Test
+    @DisplayName("Powinien zapisać kategorie wszystkich składników jedną zmianą po przeczytaniu pliku")
+    void parseDietExcel_shouldUpdateCategorizationsOncePerFile() throws IOException {
+        // given
+        MultipartFile file = createMockExcelFileWithExtraColumns();
+        when(excelParserConfig.getMaxSkipColumnsCount()).thenReturn(3);
+        when(productParsingService.parseProduct(anyString())).thenAnswer(invocation -> {
+            String ingredient = invocation.getArgument(0);
+            return new ParsingResult(ParsedProduct.builder()
+                    .name(ingredient)
+                    .quantity(1.0)
+                    .unit("szt")
+                    .original(ingredient)
+                    .hasCustomUnit(false)
+                    .build());
+        });
+        when(categorizationService.suggestCategory(any(ParsedProduct.class))).thenReturn("testowa-kategoria");
+
+        // when
+        excelParserService.parseDietExcel(file, 1);
+
+        // then
+        verify(categorizationService, times(1)).updateCategorizations(argThat(products -> products.size() == 6));
+        verify(categorizationService, never()).updateCategorization(any(ParsedProduct.class));
+    }
+
     @Test
     @DisplayName("Powinien obsłużyć niepoprawne wartości skipColumnsCount")
     void parseDietExcel_shouldHandleInvalidSkipColumnsCount() throws IOException {
@@ -377,4 +413,33 @@ class ExcelParserServiceTest {
         assertFalse(result2.meals().isEmpty());
         assertEquals("Owsianka z owocami", result2.meals().getFirst().getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Powinien zwracać posiłki w kolejności wierszy i scalać listę zakupów")
+    void parseDietExcel_shouldReturnMealsInRowOrderWithMergedShoppingList() throws IOException {
+        // given
+        MultipartFile file = createMockExcelFile();
+        when(excelParserConfig.getMaxSkipColumnsCount()).thenReturn(3);
+        when(productParsingService.parseProduct(anyString())).thenAnswer(invocation -> {
+            String ingredient = invocation.getArgument(0);
+            return new ParsingResult(ParsedProduct.builder()
+                    .name(ingredient)
+                    .quantity(1.0)
+                    .unit("szt")
+                    .original(ingredient)
+                    .hasCustomUnit(false)
+                    .build());
+        });
+
+        // when
+        ExcelParserService.ParsedExcelResult result = excelParserService.parseDietExcel(file, 1);
+
+        // then
+        // Niepełny wiersz (tylko nazwa posiłku) jest pomijany
+        assertEquals(2, result.totalMeals());
+        assertEquals(2, result.meals().size());
+        assertEquals("Owsianka z owocami", result.meals().get(0).getName());
+        assertEquals("Sałatka z kurczakiem", result.meals().get(1).getName());
+        assertEquals(6, result.shoppingList().size());
+    }
+}
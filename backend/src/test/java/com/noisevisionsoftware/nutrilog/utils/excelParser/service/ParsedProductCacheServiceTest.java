@@ -0,0 +1,162 @@
+package com.noisevisionsoftware.nutrilog.utils.excelParser.service;
+
+import com.noisevisionsoftware.nutrilog.service.category.ProductCategorizationService;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsingResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParsedProductCacheServiceTest {
+
+    @Mock
+    private ProductParsingService productParsingService;
+
+    @Mock
+    private ProductCategorizationService categorizationService;
+
+    private ParsedProductCacheService parsedProductCacheService;
+
+    @BeforeEach
+    void setUp() {
+        parsedProductCacheService = new ParsedProductCacheService(
+                productParsingService,
+                categorizationService,
+                new ConcurrentMapCacheManager(ParsedProductCacheService.CACHE_NAME)
+        );
+        when(productParsingService.normalizeInput(anyString())).thenAnswer(invocation ->
+                invocation.getArgument(0, String.class).trim().replaceAll("\\s+", " "));
+    }
+
+    @Test
+    @DisplayName("Powinien parsować ten sam składnik tylko raz")
+    void parseProduct_shouldParseSameInputOnce() {
+        // given
+        String input = "500 g mąka";
+        when(productParsingService.parseProduct(input)).thenReturn(successfulResult(input));
+
+        // when
+        ParsingResult first = parsedProductCacheService.parseProduct(input);
+        ParsingResult second = parsedProductCacheService.parseProduct(input);
+
+        // then
+        assertTrue(first.isSuccess());
+        assertEquals("mąka", second.getProduct().getName());
+        assertEquals(500.0, second.getProduct().getQuantity());
+        assertEquals("g", second.getProduct().getUnit());
+        assertNotSame(first.getProduct(), second.getProduct());
+        verify(productParsingService, times(1)).parseProduct(input);
+    }
+
+    @Test
+    @DisplayName("Powinien współdzielić wpis dla tego samego znormalizowanego tekstu, zachowując oryginał")
+    void parseProduct_shouldShareEntryForNormalizedInputAndKeepOriginal() {
+        // given
+        String input = "500 g mąka";
+        String spacedInput = "  500  g mąka ";
+        when(productParsingService.parseProduct(input)).thenReturn(successfulResult(input));
+
+        // when
+        parsedProductCacheService.parseProduct(input);
+        ParsedProduct product = parsedProductCacheService.parseProduct(spacedInput).getProduct();
+
+        // then
+        assertEquals(spacedInput, product.getOriginal());
+        assertEquals("mąka", product.getName());
+        verify(productParsingService, never()).parseProduct(spacedInput);
+    }
+
+    @Test
+    @DisplayName("Powinien pominąć normalizację, gdy surowy tekst jest już kluczem w cache")
+    void parseProduct_shouldSkipNormalizationOnRawKeyHit() {
+        // given
+        String input = "500 g mąka";
+        when(productParsingService.parseProduct(input)).thenReturn(successfulResult(input));
+        parsedProductCacheService.parseProduct(input);
+        clearInvocations(productParsingService);
+
+        // when
+        ParsingResult result = parsedProductCacheService.parseProduct(input);
+
+        // then
+        assertEquals("mąka", result.getProduct().getName());
+        verify(productParsingService, never()).normalizeInput(anyString());
+        verify(productParsingService, never()).parseProduct(anyString());
+    }
+
+    @Test
+    @DisplayName("Nie powinien zapisywać wyniku pod kluczem, który normalizuje się dalej")
+    void parseProduct_shouldNotCacheUnderKeyThatIsNotNormalized() {
+        // given
+        String doubleBullet = "- - mąka";
+        String singleBullet = "- mąka";
+        when(productParsingService.normalizeInput(doubleBullet)).thenReturn(singleBullet);
+        when(productParsingService.normalizeInput(singleBullet)).thenReturn("mąka");
+        when(productParsingService.parseProduct(doubleBullet)).thenReturn(new ParsingResult(null, false));
+        when(productParsingService.parseProduct(singleBullet)).thenReturn(successfulResult(singleBullet));
+
+        // when
+        ParsingResult first = parsedProductCacheService.parseProduct(doubleBullet);
+        ParsingResult second = parsedProductCacheService.parseProduct(singleBullet);
+
+        // then
+        assertFalse(first.isSuccess());
+        assertTrue(second.isSuccess());
+        verify(productParsingService).parseProduct(singleBullet);
+    }
+
+    @Test
+    @DisplayName("Powinien ponownie wyznaczyć kategorię tylko po zmianie danych kategoryzacji")
+    void parseProductWithCategory_shouldRecomputeCategoryAfterDataVersionChange() {
+        // given
+        String input = "500 g mąka";
+        when(productParsingService.parseProduct(input)).thenReturn(successfulResult(input));
+        when(categorizationService.getDataVersion()).thenReturn(1L, 1L, 2L);
+        when(categorizationService.suggestCategory(any(ParsedProduct.class))).thenReturn("pieczywo", "zboza");
+
+        // when
+        ParsedProduct first = parsedProductCacheService.parseProductWithCategory(input).getProduct();
+        ParsedProduct second = parsedProductCacheService.parseProductWithCategory(input).getProduct();
+        ParsedProduct third = parsedProductCacheService.parseProductWithCategory(input).getProduct();
+
+        // then
+        assertEquals("pieczywo", first.getCategoryId());
+        assertEquals("pieczywo", second.getCategoryId());
+        assertEquals("zboza", third.getCategoryId());
+        verify(categorizationService, times(2)).suggestCategory(any(ParsedProduct.class));
+        verify(productParsingService, times(1)).parseProduct(input);
+    }
+
+    @Test
+    @DisplayName("Powinien zapamiętać nieudane parsowanie")
+    void parseProductWithCategory_shouldCacheFailedParsing() {
+        // given
+        String input = "???";
+        when(productParsingService.parseProduct(input)).thenReturn(new ParsingResult(null, false));
+
+        // when
+        ParsingResult first = parsedProductCacheService.parseProductWithCategory(input);
+        ParsingResult second = parsedProductCacheService.parseProductWithCategory(input);
+
+        // then
+        assertFalse(first.isSuccess());
+        assertFalse(second.isSuccess());
+        assertNull(second.getProduct());
+        verify(productParsingService, times(1)).parseProduct(input);
+        verify(categorizationService, never()).suggestCategory(any(ParsedProduct.class));
+    }
+
+    private ParsingResult successfulResult(String original) {
+        return new ParsingResult(new ParsedProduct("mąka", 500.0, "g", original, false));
+    }
+}
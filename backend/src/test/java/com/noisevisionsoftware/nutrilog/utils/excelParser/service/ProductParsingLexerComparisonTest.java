@@ -0,0 +1,110 @@
+package com.noisevisionsoftware.nutrilog.utils.excelParser.service;
+
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedProduct;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers.IngredientLexer;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers.QuantityParser;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers.UnitService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Porównanie kaskady wyrażeń regularnych z lekserem (product.parsing.lexer-enabled) na tym samym korpusie.
+ */
+class ProductParsingLexerComparisonTest {
+
+    private ProductParsingService regexParsingService;
+    private ProductParsingService lexerParsingService;
+
+    @BeforeEach
+    void setUp() {
+        UnitService unitService = new UnitService();
+        QuantityParser quantityParser = new QuantityParser();
+        IngredientLexer ingredientLexer = new IngredientLexer();
+
+        regexParsingService = new ProductParsingService(unitService, quantityParser, ingredientLexer);
+        lexerParsingService = new ProductParsingService(unitService, quantityParser, ingredientLexer);
+        ReflectionTestUtils.setField(lexerParsingService, "lexerEnabled", true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "500 g mąka",
+            "marchew 500 g",
+            "jabłko (zielone) 2 szt",
+            "jabłka 3",
+            "jabłka",
+            "• 500 g mąka",
+            "- 500 g mąki",
+            "  500  g   mąki  ",
+            "500g mąka",
+            "2 łyżki mąki",
+            "500 g mąka pszenna",
+            "Szynka Wędzona (plastry) 200g",
+            "2 kg mąki",
+            "1 opakowanie serka",
+            "jakiś niestandardowy wpis",
+            "pół kg mąki",
+            "Pół szklanki wody",
+            "2",
+            "1kg jabłek",
+            "2 sztuki bananów",
+            "2-3 kg ziemniaków",
+            "ziemniaki 2-3 kg",
+            "1,5 l mleka",
+            "mleko 1,5 l",
+            "jajka 3 szt.",
+            "5 g. soli",
+            "mąka 1.5 kg",
+            "mąka 1/0",
+            "cukier 2 łyżeczki",
+            "pomidor 1 szt (ok. 150 g)",
+            "1 puszka pomidorów (400 g)",
+            "sól do smaku"
+    })
+    @DisplayName("Lekser powinien dawać ten sam wynik co wyrażenia regularne")
+    void parseProduct_lexerShouldMatchRegexImplementation(String input) {
+        // when
+        ParsedProduct expected = regexParsingService.parseProduct(input).getProduct();
+        ParsedProduct actual = lexerParsingService.parseProduct(input).getProduct();
+
+        // then
+        assertEquals(expected.getName(), actual.getName(), "Nazwa dla: " + input);
+        assertEquals(expected.getQuantity(), actual.getQuantity(), "Ilość dla: " + input);
+        assertEquals(expected.getUnit(), actual.getUnit(), "Jednostka dla: " + input);
+        assertEquals(expected.isHasCustomUnit(), actual.isHasCustomUnit(), "Własna jednostka dla: " + input);
+        assertEquals(input, actual.getOriginal());
+    }
+
+    @Test
+    @DisplayName("Lekser powinien rozpoznawać ułamki i całe liczebniki słowne")
+    void parseProduct_lexerShouldRecognizeFractionsAndWholeNumerals() {
+        // when
+        ParsedProduct fraction = lexerParsingService.parseProduct("1/2 szklanki mleka").getProduct();
+        ParsedProduct mixed = lexerParsingService.parseProduct("1 1/2 łyżki cukru").getProduct();
+        ParsedProduct numeral = lexerParsingService.parseProduct("półtorej szklanki wody").getProduct();
+        ParsedProduct prefixedWord = lexerParsingService.parseProduct("półtłusty twaróg").getProduct();
+
+        // then
+        assertEquals(0.5, fraction.getQuantity());
+        assertEquals("szklanka", fraction.getUnit());
+        assertEquals("mleka", fraction.getName());
+
+        assertEquals(1.5, mixed.getQuantity());
+        assertEquals("łyżka", mixed.getUnit());
+        assertEquals("cukru", mixed.getName());
+
+        assertEquals(1.5, numeral.getQuantity());
+        assertEquals("szklanka", numeral.getUnit());
+        assertEquals("wody", numeral.getName());
+
+        assertEquals(1.0, prefixedWord.getQuantity());
+        assertEquals("szt", prefixedWord.getUnit());
+        assertEquals("półtłusty twaróg", prefixedWord.getName());
+    }
+}
@@ -0,0 +1,108 @@
+package com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers;
+
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers.IngredientLexer.Token;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.helpers.IngredientLexer.TokenType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngredientLexerTest {
+
+    private IngredientLexer lexer;
+
+    @BeforeEach
+    void setUp() {
+        lexer = new IngredientLexer();
+    }
+
+    @Test
+    @DisplayName("Powinien podzielić tekst na liczbę, jednostkę i nazwę")
+    void tokenize_shouldSplitQuantityUnitAndName() {
+        // when
+        List<Token> tokens = lexer.tokenize("500g mąki pszennej");
+
+        // then
+        assertEquals(4, tokens.size());
+        assertEquals(TokenType.NUMBER, tokens.get(0).type());
+        assertEquals(500.0, tokens.get(0).value());
+        assertTrue(tokens.get(0).isInteger());
+        assertEquals("g", tokens.get(1).text());
+        assertFalse(tokens.get(1).spaceBefore());
+        assertEquals("mąki", tokens.get(2).text());
+        assertTrue(tokens.get(2).spaceBefore());
+        assertTrue(tokens.get(2).isLettersOnly());
+    }
+
+    @Test
+    @DisplayName("Powinien rozpoznać liczby dziesiętne, zakresy, ułamki i liczby mieszane")
+    void tokenize_shouldRecognizeQuantityForms() {
+        // given, when, then
+        assertToken("1,5", TokenType.NUMBER, 1.5);
+        assertToken("0.25", TokenType.NUMBER, 0.25);
+        assertToken("2-3", TokenType.RANGE, 2.5);
+        assertToken("1,5 - 2,5", TokenType.RANGE, 2.0);
+        assertToken("1/2", TokenType.FRACTION, 0.5);
+        assertToken("1 1/2", TokenType.MIXED, 1.5);
+        assertToken("1/0", TokenType.FRACTION, null);
+    }
+
+    @Test
+    @DisplayName("Powinien rozpoznać liczebniki słowne tylko jako całe słowa")
+    void tokenize_shouldRecognizeWordNumeralsAsWholeWords() {
+        // given, when, then
+        assertToken("pół", TokenType.NUMERAL, 0.5);
+        assertToken("półtorej", TokenType.NUMERAL, 1.5);
+        assertToken("Dwa", TokenType.NUMERAL, 2.0);
+        assertToken("półtłusty", TokenType.WORD, null);
+    }
+
+    @Test
+    @DisplayName("Powinien czyścić tekst wejściowy jak dotychczasowe wyrażenia regularne")
+    void cleanInput_shouldMatchLegacyCleaning() {
+        // given, when, then
+        assertEquals("500 g mąka", lexer.cleanInput("• 500 g mąka"));
+        assertEquals("500 g mąka", lexer.cleanInput("- 500 g mąka"));
+        assertEquals("500 g mąka", lexer.cleanInput("  500  g \t mąka  "));
+        assertEquals("", lexer.cleanInput("•"));
+    }
+
+    @Test
+    @DisplayName("Powinien czyścić nazwę produktu z nawiasów i spacji")
+    void cleanProductName_shouldRemoveBracketsAndNormalize() {
+        // given, when, then
+        assertEquals("jabłko", lexer.cleanProductName("Jabłko (zielone)"));
+        assertEquals("mąka pszenna", lexer.cleanProductName("Mąka   pszenna"));
+        assertEquals("sok", lexer.cleanProductName("Sok (100% pomarańczowy)"));
+        assertEquals("a () b", lexer.cleanProductName("a () b"));
+        assertEquals("ser (w", lexer.cleanProductName("ser (w"));
+    }
+
+    @Test
+    @DisplayName("Powinien usuwać jednostkę tylko jako całe słowo")
+    void removeWholeWord_shouldRespectWordBoundaries() {
+        // given, when, then
+        assertEquals("2  mąka", lexer.removeWholeWord("2 g mąka", "g"));
+        assertEquals("2 G mąka", lexer.removeWholeWord("2 G mąka", "kg"));
+        assertEquals(" mąka", lexer.removeWholeWord("KG mąka", "kg"));
+        assertEquals("gram", lexer.removeWholeWord("gram", "g"));
+    }
+
+    @Test
+    @DisplayName("Powinien znaleźć pierwszą liczbę w tekście")
+    void findFirstNumber_shouldReturnFirstNumber() {
+        // given, when, then
+        assertEquals("1,5", lexer.findFirstNumber("jabłka x1,5 i 2"));
+        assertNull(lexer.findFirstNumber("jabłka"));
+    }
+
+    private void assertToken(String input, TokenType expectedType, Double expectedValue) {
+        List<Token> tokens = lexer.tokenize(input);
+        assertEquals(1, tokens.size(), "Dla wejścia: " + input);
+        assertEquals(expectedType, tokens.getFirst().type(), "Dla wejścia: " + input);
+        assertEquals(expectedValue, tokens.getFirst().value(), "Dla wejścia: " + input);
+    }
+}
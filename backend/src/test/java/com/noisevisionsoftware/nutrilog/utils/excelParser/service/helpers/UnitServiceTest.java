@@ -180,6 +180,19 @@ class UnitServiceTest {
     }
 
 
+    @ParameterizedTest
+    @ValueSource(strings = {"g", "szt.", "op.", "gram", "500g", "2 łyżki mąki", "1,5 kg ziemniaków", "mąka 2 dkg",
+            "3 litry wody", "2 sztuki", "2 garść", "KG.", "x5g", "nieznana jednostka", "opakowanie serka"})
+    @DisplayName("Powinien wykrywać jednostki bez wyrażeń regularnych tak samo jak detectUnitInText")
+    void scanUnitInText_shouldMatchDetectUnitInText(String input) {
+        // when
+        UnitDetectionResult expected = unitService.detectUnitInText(input);
+        UnitDetectionResult result = unitService.scanUnitInText(input);
+
+        // then
+        assertEquals(expected, result, "Dla wejścia: " + input);
+    }
+
     @Test
     @DisplayName("Powinien normalizować aliasy jednostek")
     void normalizeUnitAlias_shouldNormalizeUnitAliases() {
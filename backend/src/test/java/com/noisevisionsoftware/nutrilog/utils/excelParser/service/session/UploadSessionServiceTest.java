@@ -0,0 +1,176 @@
+package com.noisevisionsoftware.nutrilog.utils.excelParser.service.session;
+
+import com.noisevisionsoftware.nutrilog.utils.excelParser.config.ExcelParserConfig;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.ParsedMeal;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.validation.ValidationResult;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.model.validation.ValidationSeverity;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.ExcelParserService;
+import com.noisevisionsoftware.nutrilog.utils.excelParser.service.validation.ExcelStructureValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadSessionServiceTest {
+
+    @Mock
+    private ExcelStructureValidator excelStructureValidator;
+
+    @Mock
+    private ExcelParserService excelParserService;
+
+    @Mock
+    private ExcelParserConfig excelParserConfig;
+
+    @InjectMocks
+    private UploadSessionService uploadSessionService;
+
+    private static final String OWNER = "dietetyk-1";
+
+    private MockMultipartFile file;
+
+    @BeforeEach
+    void setUp() {
+        file = new MockMultipartFile(
+                "file",
+                "dieta.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                "zawartość pliku".getBytes()
+        );
+    }
+
+    @Test
+    @DisplayName("Powinien zwracać tę samą sesję dla pliku o identycznej zawartości")
+    void openSession_shouldReuseSessionForSameContent() throws IOException {
+        // given
+        when(excelStructureValidator.validateExcelStructure(any()))
+                .thenReturn(Collections.singletonList(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS)));
+        MockMultipartFile renamedCopy = new MockMultipartFile(
+                "file", "inna-nazwa.xlsx", file.getContentType(), file.getBytes());
+
+        // when
+        UploadSession first = uploadSessionService.openSession(file, OWNER);
+        UploadSession second = uploadSessionService.openSession(renamedCopy, OWNER);
+
+        // then
+        assertSame(first, second);
+        assertEquals(UploadSessionService.hashContent(file.getBytes()), first.getContentHash());
+        verify(excelStructureValidator, times(1)).validateExcelStructure(any());
+    }
+
+    @Test
+    @DisplayName("Powinien tworzyć osobne sesje dla plików o tej samej nazwie i rozmiarze, ale innej zawartości")
+    void openSession_shouldNotCollideOnNameAndSize() throws IOException {
+        // given
+        when(excelStructureValidator.validateExcelStructure(any()))
+                .thenReturn(Collections.singletonList(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS)));
+        MockMultipartFile sameNameAndSize = new MockMultipartFile(
+                "file", "dieta.xlsx", file.getContentType(), "zawartość PLIKU".getBytes());
+
+        // when
+        UploadSession first = uploadSessionService.openSession(file, OWNER);
+        UploadSession second = uploadSessionService.openSession(sameNameAndSize, OWNER);
+
+        // then
+        assertNotEquals(first.getId(), second.getId());
+        assertNotEquals(first.getContentHash(), second.getContentHash());
+    }
+
+    @Test
+    @DisplayName("Powinien parsować plik z sesji tylko raz dla danej liczby pomijanych kolumn")
+    void getParseResult_shouldParseOnlyOnce() throws IOException {
+        // given
+        when(excelParserConfig.getSkipColumnsCount()).thenReturn(1);
+        when(excelParserService.parseDietExcel(any(), anyInt()))
+                .thenReturn(new ExcelParserService.ParsedExcelResult(new ArrayList<>(), 0, new ArrayList<>()));
+        UploadSession session = uploadSessionService.openSession(file, OWNER);
+
+        // when
+        ExcelParserService.ParsedExcelResult first = uploadSessionService.getParseResult(session, null);
+        ExcelParserService.ParsedExcelResult second = uploadSessionService.getParseResult(session, 1);
+
+        // then
+        assertSame(first, second);
+        verify(excelParserService, times(1)).parseDietExcel(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Powinien odnajdywać sesję po identyfikatorze i usuwać ją po unieważnieniu")
+    void findSession_shouldReturnStoredSessionUntilInvalidated() throws IOException {
+        // given
+        UploadSession session = uploadSessionService.openSession(file, OWNER);
+
+        // when, then
+        assertTrue(uploadSessionService.findSession(session.getId(), OWNER).isPresent());
+        assertTrue(uploadSessionService.findSession(null, OWNER).isEmpty());
+
+        uploadSessionService.invalidate(session.getId(), "inny-dietetyk");
+        assertTrue(uploadSessionService.findSession(session.getId(), OWNER).isPresent());
+
+        uploadSessionService.invalidate(session.getId(), OWNER);
+        assertTrue(uploadSessionService.findSession(session.getId(), OWNER).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Powinien wliczać zapamiętane wyniki parsowania do wagi sesji")
+    void getParseResult_shouldIncludeParseResultInSessionWeight() throws IOException {
+        // given
+        UploadSession session = uploadSessionService.openSession(file, OWNER);
+        int weightBeforeParsing = session.estimatedWeight();
+        List<ParsedMeal> meals = List.of(new ParsedMeal(), new ParsedMeal());
+        when(excelParserService.parseDietExcel(any(), anyInt()))
+                .thenReturn(new ExcelParserService.ParsedExcelResult(meals, meals.size(), new ArrayList<>()));
+
+        // when
+        uploadSessionService.getParseResult(session, 1);
+
+        // then
+        assertTrue(session.estimatedWeight() > weightBeforeParsing);
+        assertEquals((long) session.estimatedWeight(),
+                uploadSessionService.getStatistics().get("weightedSize"));
+    }
+
+    @Test
+    @DisplayName("Powinien tworzyć osobne sesje dla tego samego pliku przesłanego przez różnych użytkowników")
+    void openSession_shouldNotShareSessionBetweenUsers() throws IOException {
+        // given
+        when(excelStructureValidator.validateExcelStructure(any()))
+                .thenReturn(Collections.singletonList(new ValidationResult(true, "OK", ValidationSeverity.SUCCESS)));
+
+        // when
+        UploadSession first = uploadSessionService.openSession(file, OWNER);
+        UploadSession second = uploadSessionService.openSession(file, "dietetyk-2");
+
+        // then
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals("dietetyk-2", second.getOwnerId());
+        assertSame(first, uploadSessionService.openSession(file, OWNER));
+        verify(excelStructureValidator, times(2)).validateExcelStructure(any());
+    }
+
+    @Test
+    @DisplayName("Nie powinien zwracać sesji innemu użytkownikowi")
+    void findSession_shouldReturnEmptyForOtherUser() throws IOException {
+        // given
+        UploadSession session = uploadSessionService.openSession(file, OWNER);
+
+        // when, then
+        assertTrue(uploadSessionService.findSession(session.getId(), "dietetyk-2").isEmpty());
+        assertTrue(uploadSessionService.findSession(session.getId(), OWNER).isPresent());
+    }
+}
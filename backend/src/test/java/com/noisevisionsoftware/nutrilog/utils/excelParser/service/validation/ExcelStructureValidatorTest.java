@@ -18,9 +18,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -48,8 +50,7 @@ class ExcelStructureValidatorTest {
     @DisplayName("Powinien zwrócić błąd gdy plik Excel jest pusty")
     void validateExcelStructure_shouldReturnErrorForEmptyFile() throws IOException {
         // given
-        when(excelReaderService.readExcelFile(any(MultipartFile.class)))
-                .thenReturn(Collections.emptyList());
+        givenRows(Collections.emptyList());
 
         // when
         List<ValidationResult> results = validator.validateExcelStructure(mockFile);
@@ -75,7 +76,7 @@ class ExcelStructureValidatorTest {
         validRows.add(Arrays.asList("1", "Owsianka", "Przepis", "Płatki, mleko", "300kcal"));
         validRows.add(Arrays.asList("2", "Kanapka", "Przepis", "Chleb, masło", "250kcal"));
 
-        when(excelReaderService.readExcelFile(any(MultipartFile.class))).thenReturn(validRows);
+        givenRows(validRows);
 
         // when
         List<ValidationResult> results = validator.validateExcelStructure(mockFile);
@@ -100,7 +101,7 @@ class ExcelStructureValidatorTest {
         invalidRows.add(Arrays.asList("ID", "Nazwa", "Opis", "Składniki", "Wartości"));
         invalidRows.add(Arrays.asList("1", "Owsianka", "Przepis"));
 
-        when(excelReaderService.readExcelFile(any(MultipartFile.class))).thenReturn(invalidRows);
+        givenRows(invalidRows);
 
         // when
         List<ValidationResult> results = validator.validateExcelStructure(mockFile);
@@ -125,7 +126,7 @@ class ExcelStructureValidatorTest {
         invalidRows.add(Arrays.asList("ID", "Nazwa", "Opis", "Składniki", "Wartości"));
         invalidRows.add(Arrays.asList("1", "", "Przepis", "Składniki", "300kcal"));
 
-        when(excelReaderService.readExcelFile(any(MultipartFile.class))).thenReturn(invalidRows);
+        givenRows(invalidRows);
 
         // when
         List<ValidationResult> results = validator.validateExcelStructure(mockFile);
@@ -151,7 +152,7 @@ class ExcelStructureValidatorTest {
         invalidRows.add(Arrays.asList("1", "", "Przepis", "Składniki", "300kcal")); // Brak nazwy
         invalidRows.add(Arrays.asList("2", "Kanapka", "Przepis")); // Za mało kolumn
 
-        when(excelReaderService.readExcelFile(any(MultipartFile.class))).thenReturn(invalidRows);
+        givenRows(invalidRows);
 
         // when
         List<ValidationResult> results = validator.validateExcelStructure(mockFile);
@@ -177,8 +178,8 @@ class ExcelStructureValidatorTest {
     @DisplayName("Powinien obsłużyć wyjątek podczas czytania pliku")
     void validateExcelStructure_shouldHandleExceptionDuringFileReading() throws IOException {
         // given
-        when(excelReaderService.readExcelFile(any(MultipartFile.class)))
-                .thenThrow(new IOException("Błąd odczytu pliku"));
+        doThrow(new IOException("Błąd odczytu pliku"))
+                .when(excelReaderService).readExcelFile(any(MultipartFile.class), any());
 
         // when
         List<ValidationResult> results = validator.validateExcelStructure(mockFile);
@@ -202,7 +203,7 @@ class ExcelStructureValidatorTest {
         rows.add(Arrays.asList("ID", "Nazwa", "Opis", "Składniki", "Wartości"));
         rows.add(null);
 
-        when(excelReaderService.readExcelFile(any(MultipartFile.class))).thenReturn(rows);
+        givenRows(rows);
 
         // when
         List<ValidationResult> results = validator.validateExcelStructure(mockFile);
@@ -234,4 +235,30 @@ class ExcelStructureValidatorTest {
         assertEquals("Błąd 1", errorObject.errors().get(0));
         assertEquals("Błąd 2", errorObject.errors().get(1));
     }
+
+    @Test
+    @DisplayName("Powinien walidować plik wiersz po wierszu, bez wczytywania całego arkusza")
+    void validateExcelStructure_shouldValidateRowsWhileReading() throws IOException {
+        // given
+        givenRows(List.of(
+                List.of("ID", "Nazwa", "Opis", "Składniki", "Wartości"),
+                List.of("1", "Owsianka", "Przepis", "Płatki, mleko", "300kcal")));
+
+        // when
+        validator.validateExcelStructure(mockFile);
+
+        // then
+        verify(excelReaderService).readExcelFile(eq(mockFile), any());
+        verify(excelReaderService, never()).readExcelFile(any(MultipartFile.class));
+    }
+
+    private void givenRows(List<List<String>> rows) throws IOException {
+        doAnswer(invocation -> {
+            BiConsumer<Integer, List<String>> rowConsumer = invocation.getArgument(1);
+            for (int i = 0; i < rows.size(); i++) {
+                rowConsumer.accept(i, rows.get(i));
+            }
+            return null;
+        }).when(excelReaderService).readExcelFile(any(MultipartFile.class), any());
+    }
 }
\ No newline at end of file
@@ -24,7 +24,6 @@ const DietManagement: React.FC = () => {
         diets,
         loading: dietsLoading,
         deleteDiet,
-        updateDiet,
         refreshDiets
     } = useDiets(users, usersLoading);
 
@@ -128,15 +127,13 @@ const DietManagement: React.FC = () => {
         }
     };
 
-    // Aktualizacja diety
-    const handleDietUpdate = async (diet: Diet) => {
+    // Dieta jest już zapisana przez edytor - ponowny zapis nieaktualną wersją skończyłby się konfliktem
+    const handleDietUpdate = async () => {
         try {
-            await updateDiet(diet.id, diet);
             setEditingDiet(null);
             await refreshDiets();
-            toast.success('Dieta została zaktualizowana');
         } catch (error) {
-            toast.error('Błąd podczas aktualizacji diety');
+            toast.error('Nie udało się odświeżyć diet');
         }
     };
 
@@ -260,7 +257,7 @@ const DietManagement: React.FC = () => {
                 <DietEditModal
                     diet={editingDiet}
                     onClose={() => setEditingDiet(null)}
-                    onUpdate={async (updatedDiet) => await handleDietUpdate(updatedDiet)}
+                    onUpdate={async () => await handleDietUpdate()}
                     onDelete={handleDietDelete}
                 />
             )}
@@ -1,4 +1,4 @@
-import React, {useState} from "react";
+import React, {useEffect, useState} from "react";
 import {Diet, Recipe, ShoppingListV3} from "../../../../types/nutrilog";
 import {
     Tabs,
@@ -40,12 +40,19 @@ const DietEditTabs: React.FC<DietEditTabsProps> = ({
     const {
         state: diet,
         updateState: updateDiet,
+        replaceState,
         undo,
         redo,
         canUndo,
         canRedo
     } = useUndoableState(initialDiet);
 
+    // Po zapisie serwer zwraca nową wersję - kolejne zapisy z zakładek muszą ją nieść
+    useEffect(() => {
+        replaceState({...diet, updatedAt: initialDiet.updatedAt});
+        // eslint-disable-next-line react-hooks/exhaustive-deps
+    }, [initialDiet.updatedAt]);
+
     const handleUpdate = async (updatedDiet: Diet) => {
         updateDiet(updatedDiet);
         await onUpdate(updatedDiet);
@@ -12,6 +12,7 @@ interface RecipeCardProps {
 
 const RecipeCard: React.FC<RecipeCardProps> = ({recipe, onClick, onDelete}) => {
     const hasImage = recipe.photos && recipe.photos.length > 0;
+    const previewImage = recipe.thumbnails?.[0] ?? recipe.photos?.[0];
 
     const handleDeleteClick = (e: React.MouseEvent) => {
         e.stopPropagation();
@@ -37,7 +38,7 @@ const RecipeCard: React.FC<RecipeCardProps> = ({recipe, onClick, onDelete}) => {
                 {hasImage && (
                     <div className="h-32 overflow-hidden">
                         <img
-                            src={recipe.photos[0]}
+                            src={previewImage}
                             alt={recipe.name}
                             className="h-full w-full object-cover group-hover:scale-105 transition-all duration-500"
                         />
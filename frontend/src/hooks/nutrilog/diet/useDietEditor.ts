@@ -51,16 +51,19 @@ export const useDietEditor = (dietId: string): UseDietEditorReturn => {
                 return;
             }
 
+            // Wersja zawsze z ostatniej odpowiedzi serwera - edytor może trzymać kopię ze starym updatedAt
             const updatedData = await DietService.updateDiet(diet.id, {
                 ...diet,
-                ...updatedDiet
+                ...updatedDiet,
+                updatedAt: diet.updatedAt
             });
 
             setDiet(updatedData);
             toast.success('Dieta została zaktualizowana');
         } catch (err) {
             console.error('Błąd podczas aktualizacji diety:', err);
-            toast.error('Nie udało się zaktualizować diety');
+            // Konflikt (409) niesie komunikat z serwera, np. o równoległej zmianie diety
+            toast.error(err instanceof Error ? err.message : 'Nie udało się zaktualizować diety');
             throw err;
         }
     };
@@ -24,6 +24,14 @@ export function useUndoableState<T>(initialPresent: T) {
         }));
     }, []);
 
+    // Podmiana bieżącego stanu bez wpisu do historii (np. nowa wersja z serwera)
+    const replaceState = useCallback((newPresent: T) => {
+        setState(currentState => ({
+            ...currentState,
+            present: newPresent
+        }));
+    }, []);
+
     const undo = useCallback(() => {
         setState(currentState => {
             if (currentState.past.length === 0) return currentState;
@@ -57,6 +65,7 @@ export function useUndoableState<T>(initialPresent: T) {
     return {
         state: state.present,
         updateState,
+        replaceState,
         undo,
         redo,
         canUndo,
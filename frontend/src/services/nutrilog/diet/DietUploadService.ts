@@ -1,6 +1,6 @@
 import api from "../../../config/axios";
 import {DietExcelTemplate, ParsedDietData} from "../../../types/nutrilog";
-import axios, {AxiosError} from 'axios';
+import axios, {AxiosError, AxiosResponse} from 'axios';
 import {ParsedProduct} from "../../../types/nutrilog/product";
 import {toast} from "../../../utils/toast";
 import {DietRecipeService} from "./DietRecipeService";
@@ -25,8 +25,14 @@ interface ValidationResponse {
 }
 
 
+// Komunikat serwera, gdy sesja przesyłania wygasła - wtedy plik jest wysyłany ponownie
+const UPLOAD_SESSION_EXPIRED_MESSAGE = 'Sesja przesyłania pliku wygasła';
+
 export class DietUploadService {
 
+    // Sesje przesyłania otwarte przez serwer - kolejne kroki wysyłają identyfikator sesji zamiast pliku
+    private static uploadSessionIds = new WeakMap<File, string>();
+
     static async uploadDiet(
         file: File,
         userId: string,
@@ -119,13 +125,17 @@ export class DietUploadService {
                 fileInfo: {
                     fileName: file.name,
                     fileUrl: uploadResponse.data.fileUrl
-                }
+                },
+                uploadSessionId: this.uploadSessionIds.get(file)
             });
 
             if (!saveResponse.data.dietId) {
                 return Promise.reject(saveResponse.data.message || 'Failed to save diet');
             }
 
+            // Serwer zamknął sesję po zapisie
+            this.uploadSessionIds.delete(file);
+
             return saveResponse.data.dietId;
         } catch (error: any) {
             console.error('Error uploading diet:', error);
@@ -182,19 +192,34 @@ export class DietUploadService {
         extraParams?: Record<string, any>
     ): Promise<ParsedDietData> {
         try {
-            const formData = this.prepareDietTemplateFormData(file, template, skipColumnsCount);
+            const sendPreview = () => {
+                const formData = this.prepareDietTemplateFormData(file, template, skipColumnsCount);
 
-            if (extraParams) {
-                Object.entries(extraParams).forEach(([key, value]) => {
-                    formData.append(key, String(value));
+                if (extraParams) {
+                    Object.entries(extraParams).forEach(([key, value]) => {
+                        formData.append(key, String(value));
+                    });
+                }
+
+                return api.post('/diets/upload/preview', formData, {
+                    headers: {
+                        'Content-Type': 'multipart/form-data',
+                    },
                 });
-            }
+            };
 
-            const response = await api.post('/diets/upload/preview', formData, {
-                headers: {
-                    'Content-Type': 'multipart/form-data',
-                },
-            });
+            let response: AxiosResponse;
+            try {
+                response = await sendPreview();
+            } catch (error) {
+                const message = error instanceof AxiosError ? error.response?.data?.message : undefined;
+                if (!this.isUploadSessionExpired(file, message)) {
+                    throw error;
+                }
+                this.uploadSessionIds.delete(file);
+                response = await sendPreview();
+            }
+            this.rememberUploadSession(file, response.data.additionalData);
 
             const sanitizedData = this.sanitizeParsedDietData(response.data, template);
 
@@ -225,25 +250,37 @@ export class DietUploadService {
         extraParams?: Record<string, any>
     ): Promise<ValidationResponse> {
         try {
-            const formData = this.prepareDietTemplateFormData(file, template, skipColumnsCount);
+            const sendValidation = async (): Promise<ValidationResponse> => {
+                const formData = this.prepareDietTemplateFormData(file, template, skipColumnsCount);
 
-            if (userId) {
-                formData.append('userId', userId);
-            }
+                if (userId) {
+                    formData.append('userId', userId);
+                }
 
-            if (extraParams) {
-                Object.entries(extraParams).forEach(([key, value]) => {
-                    formData.append(key, String(value));
+                if (extraParams) {
+                    Object.entries(extraParams).forEach(([key, value]) => {
+                        formData.append(key, String(value));
+                    });
+                }
+
+                const response = await api.post('/diets/upload/validate-template-with-user', formData, {
+                    headers: {
+                        'Content-Type': 'multipart/form-data',
+                    },
                 });
-            }
+                return response.data;
+            };
 
-            const response = await api.post('/diets/upload/validate-template-with-user', formData, {
-                headers: {
-                    'Content-Type': 'multipart/form-data',
-                },
-            });
+            let validation = await sendValidation();
+            const expired = validation.validationResults?.some(result =>
+                this.isUploadSessionExpired(file, result.message));
+            if (expired) {
+                this.uploadSessionIds.delete(file);
+                validation = await sendValidation();
+            }
+            this.rememberUploadSession(file, validation.additionalData);
 
-            return response.data;
+            return validation;
         } catch (error) {
             console.error('Błąd podczas walidacji szablonu diety:', error);
             return {
@@ -266,7 +303,12 @@ export class DietUploadService {
         skipColumnsCounts?: number
     ): FormData {
         const formData = new FormData();
-        formData.append('file', file);
+        const uploadSessionId = this.uploadSessionIds.get(file);
+        if (uploadSessionId) {
+            formData.append('uploadSessionId', uploadSessionId);
+        } else {
+            formData.append('file', file);
+        }
         formData.append('mealsPerDay', template.mealsPerDay.toString());
         formData.append('startDate', template.startDate.toDate().toISOString().split('T')[0]);
         formData.append('duration', template.duration.toString());
@@ -286,6 +328,19 @@ export class DietUploadService {
         return formData;
     }
 
+    private static rememberUploadSession(file: File, additionalData?: Record<string, any>) {
+        const uploadSessionId = additionalData?.uploadSessionId;
+        if (typeof uploadSessionId === 'string' && uploadSessionId) {
+            this.uploadSessionIds.set(file, uploadSessionId);
+        }
+    }
+
+    private static isUploadSessionExpired(file: File, message?: string): boolean {
+        return this.uploadSessionIds.has(file) &&
+            typeof message === 'string' &&
+            message.includes(UPLOAD_SESSION_EXPIRED_MESSAGE);
+    }
+
     /**
      * Wzbogaca podgląd diety o dane przepisów
      */
@@ -6,6 +6,7 @@ export interface Recipe {
     instructions: string;
     createdAt: Timestamp;
     photos: string[];
+    thumbnails?: string[];
     nutritionalValues?: NutritionalValues;
     parentRecipeId: string | null;
 }